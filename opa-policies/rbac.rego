@@ -56,6 +56,12 @@ allow if {
     startswith(input.resource, "project:")
 }
 
+allow if {
+    "nebula-user" in input.user.roles
+    input.action == "view"
+    startswith(input.resource, "folder:")
+}
+
 # -----------------
 # Reason Logic
 # -----------------
@@ -77,4 +83,32 @@ reason := "User is a platform administrator" if {
     "nebula-user" in input.user.roles
     input.action == "view"
     startswith(input.resource, "project:")
+} else := "Users are allowed to view folders" if {
+    "nebula-user" in input.user.roles
+    input.action == "view"
+    startswith(input.resource, "folder:")
 } else := "Unknown or denied by default"
+
+# -----------------
+# Batch Decisions
+# -----------------
+# Decides every element of input.batch in a single query, so callers checking
+# many resources (list filtering) pay for one evaluation instead of N:
+#   POST /v1/data/nebula/authz/decisions {"input": {"batch": [{...}, {...}]}}
+# Results are in batch order.
+decisions := [decision |
+    some item in input.batch
+    item_allow := allow with input as item
+    item_reason := reason with input as item
+    decision := {"allow": item_allow, "reason": item_reason}
+]
+
+# -----------------
+# List Filtering
+# -----------------
+# Listings ask for the conditions a resource must meet rather than a decision
+# per row: allow is partially evaluated with input.resource unknown
+#   POST /v1/compile {"query": "data.nebula.authz.allow == true", "unknowns": ["input.resource"], ...}
+# and the services translate what is left into their SQL queries. Keep
+# conditions on input.resource to ==, != and startswith/endswith against a
+# string so they stay translatable.
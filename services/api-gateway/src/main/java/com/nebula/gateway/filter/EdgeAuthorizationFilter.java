@@ -0,0 +1,96 @@
+package com.nebula.gateway.filter;
+
+import com.nebula.gateway.infrastructure.AuthPolicyClient;
+import com.nebula.gateway.infrastructure.EdgeDecisionSigner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Decides coarse, route-level policy once at the edge.
+ *
+ * Requests matching one of {@code nebula.authz.edge.rules} are authorized
+ * with the identity {@link JwtUserHeaderFilter} extracted: denials are
+ * answered with 403 here, and allows are forwarded with a signed
+ * {@value EdgeDecisionSigner#HEADER} header so the service can skip its own
+ * check for the same user, action and resource. Any decision header sent by
+ * the client is dropped.
+ */
+@Component
+public class EdgeAuthorizationFilter implements GlobalFilter, Ordered {
+
+  private static final Logger log = LoggerFactory.getLogger(EdgeAuthorizationFilter.class);
+
+  private final AuthPolicyClient authPolicyClient;
+  private final EdgeDecisionSigner signer;
+  private final boolean enabled;
+  private final List<EdgeRule> rules;
+
+  public EdgeAuthorizationFilter(AuthPolicyClient authPolicyClient, EdgeDecisionSigner signer,
+      @Value("${nebula.authz.edge.enabled:false}") boolean enabled,
+      @Value("${nebula.authz.edge.rules:}") List<String> rules) {
+    this.authPolicyClient = authPolicyClient;
+    this.signer = signer;
+    this.enabled = enabled;
+    this.rules = rules.stream().filter(rule -> !rule.isBlank()).map(EdgeRule::parse).toList();
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+    ServerHttpRequest request = exchange.getRequest().mutate()
+        .headers(headers -> headers.remove(EdgeDecisionSigner.HEADER))
+        .build();
+    ServerWebExchange stripped = exchange.mutate().request(request).build();
+
+    String userId = request.getHeaders().getFirst(JwtUserHeaderFilter.USER_HEADER);
+    if (!enabled || userId == null) {
+      return chain.filter(stripped);
+    }
+
+    for (EdgeRule rule : rules) {
+      String resource = rule.resourceFor(request);
+      if (resource != null) {
+        return authorize(stripped, chain, userId, rule.action(), resource);
+      }
+    }
+    return chain.filter(stripped);
+  }
+
+  private Mono<Void> authorize(ServerWebExchange exchange, GatewayFilterChain chain, String userId,
+      String action, String resource) {
+    String rolesHeader = exchange.getRequest().getHeaders().getFirst(JwtUserHeaderFilter.ROLES_HEADER);
+    List<String> roles = rolesHeader == null || rolesHeader.isEmpty() ? List.of() : List.of(rolesHeader.split(","));
+
+    return authPolicyClient.authorize(userId, roles, action, resource).flatMap(allowed -> {
+      if (!allowed) {
+        log.debug("Denied '{}' on '{}' for user '{}' at the edge", action, resource, userId);
+        exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
+        return exchange.getResponse().setComplete();
+      }
+
+      String decision = signer.sign(userId, action, resource);
+      if (decision == null) {
+        return chain.filter(exchange);
+      }
+      ServerHttpRequest request = exchange.getRequest().mutate()
+          .header(EdgeDecisionSigner.HEADER, decision)
+          .build();
+      return chain.filter(exchange.mutate().request(request).build());
+    });
+  }
+
+  @Override
+  public int getOrder() {
+    return 10001; // Run after JwtUserHeaderFilter
+  }
+}
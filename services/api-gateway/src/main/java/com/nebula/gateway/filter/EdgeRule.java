@@ -0,0 +1,58 @@
+package com.nebula.gateway.filter;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A route-level policy check, written as {@code METHOD /path/{var} action
+ * resource}, e.g. {@code GET /api/repos view project:{projectId}}. Variables
+ * in the resource come from the path, or else from the query string.
+ */
+record EdgeRule(HttpMethod method, PathPattern path, String action, String resource) {
+
+  private static final Pattern VARIABLE = Pattern.compile("\\{([^}]+)}");
+
+  static EdgeRule parse(String rule) {
+    String[] parts = rule.trim().split("\\s+");
+    if (parts.length != 4) {
+      throw new IllegalArgumentException("Edge rule must be 'METHOD path action resource': " + rule);
+    }
+    return new EdgeRule(HttpMethod.valueOf(parts[0]), PathPatternParser.defaultInstance.parse(parts[1]),
+        parts[2], parts[3]);
+  }
+
+  /**
+   * @return the resource this request is checked against, or {@code null} if
+   *         the rule does not apply to it
+   */
+  String resourceFor(ServerHttpRequest request) {
+    if (!method.equals(request.getMethod())) {
+      return null;
+    }
+    PathPattern.PathMatchInfo match = path.matchAndExtract(PathContainer.parsePath(request.getPath().value()));
+    if (match == null) {
+      return null;
+    }
+
+    Map<String, String> pathVariables = match.getUriVariables();
+    Matcher variables = VARIABLE.matcher(resource);
+    StringBuilder resolved = new StringBuilder();
+    while (variables.find()) {
+      String name = variables.group(1);
+      String value = pathVariables.getOrDefault(name, request.getQueryParams().getFirst(name));
+      if (value == null || value.isEmpty()) {
+        return null;
+      }
+      variables.appendReplacement(resolved, Matcher.quoteReplacement(value));
+    }
+    variables.appendTail(resolved);
+    return resolved.toString();
+  }
+}
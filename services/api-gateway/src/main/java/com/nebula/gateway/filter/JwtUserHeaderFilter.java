@@ -1,65 +1,119 @@
 package com.nebula.gateway.filter;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
-import org.springframework.http.server.reactive.ServerHttpRequest;
-import org.springframework.security.core.Authentication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
-import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Forwards the caller's identity to the services as {@code X-Forwarded-User}
+ * and {@code X-Forwarded-Roles}, taken from the {@link Jwt} Spring Security
+ * has already validated. The header values are derived once per token and
+ * kept until the token expires; client-supplied values are always replaced.
+ */
 @Component
 public class JwtUserHeaderFilter implements GlobalFilter, Ordered {
 
-  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(JwtUserHeaderFilter.class);
+  public static final String USER_HEADER = "X-Forwarded-User";
+  public static final String ROLES_HEADER = "X-Forwarded-Roles";
+
+  // For tokens without an exp claim
+  private static final Duration MAX_TTL = Duration.ofMinutes(5);
+
+  private record ForwardedIdentity(String user, String roles, Instant expiresAt) {
+  }
+
+  private final Cache<String, ForwardedIdentity> identities;
+
+  public JwtUserHeaderFilter(MeterRegistry meterRegistry,
+      @Value("${nebula.gateway.identity-cache.max-entries:10000}") long maxEntries) {
+    this.identities = Caffeine.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfter(new Expiry<String, ForwardedIdentity>() {
+          @Override
+          public long expireAfterCreate(String token, ForwardedIdentity identity, long currentTime) {
+            Duration ttl = Duration.between(Instant.now(), identity.expiresAt());
+            return ttl.isNegative() ? 0 : ttl.toNanos();
+          }
+
+          @Override
+          public long expireAfterUpdate(String token, ForwardedIdentity identity, long currentTime,
+              long currentDuration) {
+            return currentDuration;
+          }
+
+          @Override
+          public long expireAfterRead(String token, ForwardedIdentity identity, long currentTime,
+              long currentDuration) {
+            return currentDuration;
+          }
+        })
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, identities, "gateway.identities");
+  }
 
   @Override
   public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-    String authHeader = exchange.getRequest().getHeaders().getFirst("Authorization");
-    System.out.println("==== JwtUserHeaderFilter EXECUTING ====");
-    System.out.println("Path: " + exchange.getRequest().getURI());
-    System.out.println("AuthHeader exists: " + (authHeader != null));
-
-    if (authHeader != null && authHeader.startsWith("Bearer ")) {
-      try {
-        String token = authHeader.substring(7);
-        String[] parts = token.split("\\.");
-        if (parts.length >= 2) {
-          String payload = new String(java.util.Base64.getUrlDecoder().decode(parts[1]));
-
-          com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-          com.fasterxml.jackson.databind.JsonNode json = mapper.readTree(payload);
-
-          String username = json.path("preferred_username").asText(json.path("sub").asText("system"));
-
-          java.util.List<String> roleList = new java.util.ArrayList<>();
-          com.fasterxml.jackson.databind.JsonNode rolesNode = json.path("realm_access").path("roles");
-          if (rolesNode.isArray()) {
-            for (com.fasterxml.jackson.databind.JsonNode roleNode : rolesNode) {
-              roleList.add(roleNode.asText());
-            }
-          }
-          String roles = String.join(",", roleList);
-
-          log.info("Parsed identity from header: {}, roles: {}", username, roles);
-
-          ServerHttpRequest request = exchange.getRequest().mutate()
-              .header("X-Forwarded-User", username)
-              .header("X-Forwarded-Roles", roles)
-              .build();
-          return chain.filter(exchange.mutate().request(request).build());
-        }
-      } catch (Exception e) {
-        log.error("Failed to parse JWT payload manually", e);
-      }
+    return ReactiveSecurityContextHolder.getContext()
+        .mapNotNull(context -> context.getAuthentication() instanceof JwtAuthenticationToken authentication
+            ? identities.get(authentication.getToken().getTokenValue(), token -> identity(authentication.getToken()))
+            : null)
+        .map(identity -> exchange.mutate()
+            .request(request -> request.headers(headers -> {
+              headers.set(USER_HEADER, identity.user());
+              headers.set(ROLES_HEADER, identity.roles());
+            }))
+            .build())
+        .switchIfEmpty(Mono.fromSupplier(() -> withoutIdentity(exchange)))
+        .flatMap(chain::filter);
+  }
+
+  private static ForwardedIdentity identity(Jwt jwt) {
+    String user = jwt.getClaimAsString("preferred_username");
+    if (user == null) {
+      user = jwt.getSubject() != null ? jwt.getSubject() : "system";
     }
 
-    return chain.filter(exchange);
+    String roles = "";
+    Map<String, Object> realmAccess = jwt.getClaimAsMap("realm_access");
+    if (realmAccess != null && realmAccess.get("roles") instanceof Collection<?> roleList) {
+      roles = String.join(",", roleList.stream().map(String::valueOf).toList());
+    }
+
+    Instant expiresAt = jwt.getExpiresAt() != null ? jwt.getExpiresAt() : Instant.now().plus(MAX_TTL);
+    return new ForwardedIdentity(user, roles, expiresAt);
+  }
+
+  // Unauthenticated requests (CORS preflight) must not carry an identity the client made up
+  private static ServerWebExchange withoutIdentity(ServerWebExchange exchange) {
+    HttpHeaders headers = exchange.getRequest().getHeaders();
+    if (!headers.containsKey(USER_HEADER) && !headers.containsKey(ROLES_HEADER)) {
+      return exchange;
+    }
+    return exchange.mutate()
+        .request(request -> request.headers(mutable -> {
+          mutable.remove(USER_HEADER);
+          mutable.remove(ROLES_HEADER);
+        }))
+        .build();
   }
 
   @Override
@@ -0,0 +1,106 @@
+package com.nebula.gateway.infrastructure;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.nebula.authpolicy.grpc.AuthPolicyServiceGrpc;
+import com.nebula.authpolicy.grpc.AuthorizeRequest;
+import com.nebula.authpolicy.grpc.AuthorizeResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking authpolicy-service client for the edge. Decisions are kept
+ * for a short TTL per user, roles, action and resource, so a burst of
+ * requests to the same route costs one call.
+ */
+@Component
+public class AuthPolicyClient {
+
+  private static final Logger log = LoggerFactory.getLogger(AuthPolicyClient.class);
+
+  @GrpcClient("authpolicy-service")
+  private AuthPolicyServiceGrpc.AuthPolicyServiceFutureStub authPolicyFutureStub;
+
+  private final Cache<DecisionKey, Boolean> decisions;
+  private final Duration deadline;
+
+  public AuthPolicyClient(MeterRegistry meterRegistry,
+      @Value("${nebula.authz.client.deadline:500ms}") Duration deadline,
+      @Value("${nebula.authz.edge.cache.max-entries:10000}") long maxEntries,
+      @Value("${nebula.authz.edge.cache.ttl:10s}") Duration ttl) {
+    this.deadline = deadline;
+    this.decisions = Caffeine.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfterWrite(ttl)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, decisions, "authz.edge.decisions");
+  }
+
+  /**
+   * Emits the decision; a failed or timed-out call is a deny and is not cached.
+   */
+  public Mono<Boolean> authorize(String userId, List<String> roles, String action, String resource) {
+    DecisionKey key = new DecisionKey(userId, roles.stream().sorted().toList(), action, resource);
+    Boolean cached = decisions.getIfPresent(key);
+    if (cached != null) {
+      return Mono.just(cached);
+    }
+
+    return Mono.fromFuture(() -> call(key))
+        .doOnNext(allowed -> decisions.put(key, allowed))
+        .onErrorResume(e -> {
+          log.error("Edge authorization failed. Failing closed (Deny). Action: {}, Resource: {}, User: {}",
+              action, resource, userId, e);
+          return Mono.just(false);
+        });
+  }
+
+  private CompletableFuture<Boolean> call(DecisionKey key) {
+    AuthorizeRequest request = AuthorizeRequest.newBuilder()
+        .setUserId(key.userId())
+        .addAllRoles(key.roles())
+        .setAction(key.action())
+        .setResource(key.resource())
+        .build();
+
+    CompletableFuture<Boolean> decision = new CompletableFuture<>();
+    Futures.addCallback(authPolicyFutureStub
+            .withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS)
+            .authorize(request),
+        new FutureCallback<>() {
+          @Override
+          public void onSuccess(AuthorizeResponse response) {
+            if (!response.getAllowed()) {
+              log.warn("AuthPolicy denied action '{}' on resource '{}' for user '{}' at the edge. Reason: {}",
+                  key.action(), key.resource(), key.userId(), response.getReason());
+            }
+            decision.complete(response.getAllowed());
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            decision.completeExceptionally(t);
+          }
+        },
+        MoreExecutors.directExecutor());
+    return decision;
+  }
+
+  private record DecisionKey(String userId, List<String> roles, String action, String resource) {
+  }
+}
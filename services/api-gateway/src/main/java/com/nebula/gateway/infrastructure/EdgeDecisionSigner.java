@@ -0,0 +1,72 @@
+package com.nebula.gateway.infrastructure;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Signs the allow decisions made at the edge so downstream services can
+ * trust them instead of asking authpolicy-service again.
+ *
+ * The header value is {@code base64url(payload) "." base64url(HMAC-SHA256)}
+ * where the payload is user, action, resource and expiry (epoch seconds),
+ * one per line. Services verify it with the same shared secret.
+ */
+@Component
+public class EdgeDecisionSigner {
+
+  public static final String HEADER = "X-Authz-Decision";
+
+  private static final String ALGORITHM = "HmacSHA256";
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+  private final SecretKeySpec key;
+  private final Duration ttl;
+  private final Clock clock;
+
+  public EdgeDecisionSigner(@Value("${nebula.authz.edge.secret:}") String secret,
+      @Value("${nebula.authz.edge.decision-ttl:30s}") Duration ttl) {
+    this(secret, ttl, Clock.systemUTC());
+  }
+
+  EdgeDecisionSigner(String secret, Duration ttl, Clock clock) {
+    this.key = secret.isEmpty() ? null : new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    this.ttl = ttl;
+    this.clock = clock;
+  }
+
+  /**
+   * Without a secret no decision can be signed, and downstream services keep
+   * checking every request themselves.
+   */
+  public boolean isEnabled() {
+    return key != null;
+  }
+
+  /**
+   * @return the header value, or {@code null} if signing is disabled or a
+   *         field contains a line break and cannot be encoded
+   */
+  public String sign(String userId, String action, String resource) {
+    if (key == null || (userId + action + resource).indexOf('\n') >= 0) {
+      return null;
+    }
+    long expiresAt = clock.instant().plus(ttl).getEpochSecond();
+    byte[] payload = String.join("\n", userId, action, resource, Long.toString(expiresAt))
+        .getBytes(StandardCharsets.UTF_8);
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(mac.doFinal(payload));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Cannot sign edge decision", e);
+    }
+  }
+}
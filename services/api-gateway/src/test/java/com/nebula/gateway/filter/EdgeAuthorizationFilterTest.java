@@ -0,0 +1,74 @@
+package com.nebula.gateway.filter;
+
+import com.nebula.gateway.infrastructure.AuthPolicyClient;
+import com.nebula.gateway.infrastructure.EdgeDecisionSigner;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EdgeAuthorizationFilterTest {
+
+  private final AuthPolicyClient authPolicyClient = mock(AuthPolicyClient.class);
+  private final EdgeAuthorizationFilter filter = new EdgeAuthorizationFilter(authPolicyClient,
+      new EdgeDecisionSigner("test-secret", Duration.ofSeconds(30)), true,
+      List.of("GET /api/repos view project:{projectId}"));
+
+  @Test
+  void shouldForwardSignedDecisionWhenAllowed() {
+    when(authPolicyClient.authorize("alice", List.of("nebula-user"), "view", "project:p1"))
+        .thenReturn(Mono.just(true));
+    MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/repos")
+        .queryParam("projectId", "p1")
+        .header("X-Forwarded-User", "alice")
+        .header("X-Forwarded-Roles", "nebula-user"));
+
+    AtomicReference<String> decision = new AtomicReference<>();
+    GatewayFilterChain chain = forwarded -> {
+      decision.set(forwarded.getRequest().getHeaders().getFirst(EdgeDecisionSigner.HEADER));
+      return Mono.empty();
+    };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+    assertNotNull(decision.get());
+  }
+
+  @Test
+  void shouldAnswerForbiddenWhenDenied() {
+    when(authPolicyClient.authorize(any(), any(), any(), any())).thenReturn(Mono.just(false));
+    MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/repos")
+        .queryParam("projectId", "p1")
+        .header("X-Forwarded-User", "mallory"));
+
+    GatewayFilterChain chain = forwarded -> Mono.error(new AssertionError("Denied request was forwarded"));
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+    assertEquals(HttpStatus.FORBIDDEN, exchange.getResponse().getStatusCode());
+  }
+
+  @Test
+  void shouldDropClientDecisionHeaderOnUnmatchedRoutes() {
+    MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/datasets/d1")
+        .header("X-Forwarded-User", "alice")
+        .header(EdgeDecisionSigner.HEADER, "forged.decision"));
+
+    GatewayFilterChain chain = forwarded -> {
+      assertNull(forwarded.getRequest().getHeaders().getFirst(EdgeDecisionSigner.HEADER));
+      return Mono.empty();
+    };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+    verifyNoInteractions(authPolicyClient);
+  }
+}
@@ -0,0 +1,65 @@
+package com.nebula.gateway.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUserHeaderFilterTest {
+
+  private final JwtUserHeaderFilter filter = new JwtUserHeaderFilter(new SimpleMeterRegistry(), 100);
+
+  @Test
+  void shouldForwardIdentityFromAuthenticatedJwt() {
+    Jwt jwt = Jwt.withTokenValue("token-1")
+        .header("alg", "RS256")
+        .subject("3f2a")
+        .claim("preferred_username", "alice")
+        .claim("realm_access", Map.of("roles", List.of("nebula-user", "offline_access")))
+        .expiresAt(Instant.now().plusSeconds(300))
+        .build();
+    MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/repos")
+        .header(JwtUserHeaderFilter.USER_HEADER, "mallory"));
+
+    AtomicReference<HttpHeaders> forwarded = new AtomicReference<>();
+    GatewayFilterChain chain = mutated -> {
+      forwarded.set(mutated.getRequest().getHeaders());
+      return Mono.empty();
+    };
+
+    StepVerifier.create(filter.filter(exchange, chain)
+            .contextWrite(ReactiveSecurityContextHolder.withAuthentication(new JwtAuthenticationToken(jwt))))
+        .verifyComplete();
+    assertEquals(List.of("alice"), forwarded.get().get(JwtUserHeaderFilter.USER_HEADER));
+    assertEquals("nebula-user,offline_access", forwarded.get().getFirst(JwtUserHeaderFilter.ROLES_HEADER));
+  }
+
+  @Test
+  void shouldDropClientIdentityHeadersWhenUnauthenticated() {
+    MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.options("/api/repos")
+        .header(JwtUserHeaderFilter.USER_HEADER, "mallory")
+        .header(JwtUserHeaderFilter.ROLES_HEADER, "nebula-admin"));
+
+    GatewayFilterChain chain = mutated -> {
+      assertNull(mutated.getRequest().getHeaders().getFirst(JwtUserHeaderFilter.USER_HEADER));
+      assertNull(mutated.getRequest().getHeaders().getFirst(JwtUserHeaderFilter.ROLES_HEADER));
+      return Mono.empty();
+    };
+
+    StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+  }
+}
@@ -0,0 +1,85 @@
+package com.nebula.authpolicy.benchmark;
+
+import com.nebula.authpolicy.grpc.AuthorizeRequest;
+import com.nebula.authpolicy.grpc.AuthorizeResponse;
+import com.nebula.authpolicy.service.EmbeddedPolicyEngine;
+import com.nebula.authpolicy.service.OpaEvaluatorService;
+import com.nebula.authpolicy.service.OpaRequestCoalescer;
+import com.nebula.authpolicy.service.PolicyVersionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Decision latency of {@link OpaEvaluatorService} with the policy evaluated
+ * in-process ({@code EMBEDDED}) and by an OPA server over HTTP ({@code OPA}),
+ * for single decisions and a 100-item batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PolicyEvaluationBenchmark {
+
+  @Param({"EMBEDDED", "OPA"})
+  public EmbeddedPolicyEngine.Mode mode;
+
+  private OpaEvaluatorService evaluator;
+  private List<AuthorizeRequest> requests;
+  private List<AuthorizeRequest> batch;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    String opaUrl = System.getProperty("opa.url", "http://localhost:8181");
+    EmbeddedPolicyEngine engine = new EmbeddedPolicyEngine(new DefaultResourceLoader(), mode,
+        System.getProperty("nebula.jmh.policy", "file:../../opa-policies/rbac.rego"));
+    if (mode == EmbeddedPolicyEngine.Mode.EMBEDDED && !engine.isActive()) {
+      throw new IllegalStateException("Policy could not be compiled for in-process evaluation");
+    }
+    evaluator = new OpaEvaluatorService(new RestTemplateBuilder(),
+        new PolicyVersionService(new RestTemplateBuilder(), engine), engine,
+        new OpaRequestCoalescer(new SimpleMeterRegistry(), false),
+        opaUrl + "/v1/data/nebula/authz", opaUrl + "/v1/data/nebula/authz/decisions", opaUrl + "/v1/compile");
+
+    requests = List.of(
+        request("admin", List.of("nebula-admin"), "delete_project", "project:1"),
+        request("alice", List.of("nebula-user"), "view", "project:42"),
+        request("alice", List.of("nebula-user"), "code:repository:read", "repository:7"),
+        request("bob", List.of("nebula-user"), "delete_project", "project:42"));
+    batch = IntStream.range(0, 100)
+        .mapToObj(i -> request("alice", List.of("nebula-user"), "code:repository:read", "repository:" + i))
+        .toList();
+
+    // Fail loudly instead of timing the deny-on-error path
+    if (evaluator.evaluate(requests.get(0)).getReason().equals("Internal policy engine failure")) {
+      throw new IllegalStateException("OPA is not reachable at " + opaUrl);
+    }
+  }
+
+  @Benchmark
+  public AuthorizeResponse evaluate() {
+    return evaluator.evaluate(requests.get(next++ & 3));
+  }
+
+  @Benchmark
+  public List<AuthorizeResponse> evaluateBatch100() {
+    return evaluator.evaluateBatch(batch);
+  }
+
+  private static AuthorizeRequest request(String user, List<String> roles, String action, String resource) {
+    return AuthorizeRequest.newBuilder()
+        .setUserId(user)
+        .addAllRoles(roles)
+        .setAction(action)
+        .setResource(resource)
+        .build();
+  }
+}
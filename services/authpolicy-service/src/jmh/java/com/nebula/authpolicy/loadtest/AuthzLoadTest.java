@@ -0,0 +1,316 @@
+package com.nebula.authpolicy.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nebula.authpolicy.config.OpaHttpClientConfig;
+import com.nebula.authpolicy.grpc.AuthPolicyGrpcServiceImpl;
+import com.nebula.authpolicy.grpc.AuthPolicyServiceGrpc;
+import com.nebula.authpolicy.grpc.AuthorizeRequest;
+import com.nebula.authpolicy.grpc.AuthorizeResponse;
+import com.nebula.authpolicy.grpc.BatchAuthorizeRequest;
+import com.nebula.authpolicy.grpc.BatchAuthorizeResponse;
+import com.nebula.authpolicy.service.DecisionLogWriter;
+import com.nebula.authpolicy.service.EmbeddedPolicyEngine;
+import com.nebula.authpolicy.service.OpaEvaluatorService;
+import com.nebula.authpolicy.service.OpaRequestCoalescer;
+import com.nebula.authpolicy.service.PolicyVersionService;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Open-loop load generator for the authorization plane, used to size
+ * authpolicy-service replicas: every request in the platform fans out to it.
+ *
+ * Sends {@code Authorize} (or {@code BatchAuthorize}) calls over a real gRPC
+ * connection at a fixed rate, whether or not earlier calls have answered,
+ * with requests drawn from {@link RequestMix}. Latency is measured from the
+ * moment a call was due rather than when it was actually sent, so a stalled
+ * server shows up in the percentiles instead of silently lowering the rate.
+ *
+ * Modes ({@code loadtest.mode}):
+ * <ul>
+ *   <li>{@code EMBEDDED}: the service in this JVM, deciding in-process</li>
+ *   <li>{@code OPA_STANDIN}: the service in this JVM, calling a local HTTP
+ *       stand-in for OPA ({@link OpaStandIn})</li>
+ *   <li>{@code OPA}: the service in this JVM, calling the OPA server at
+ *       {@code loadtest.opa-url}</li>
+ *   <li>{@code REMOTE}: a deployed authpolicy-service at {@code loadtest.target}</li>
+ * </ul>
+ *
+ * Run with {@code ./gradlew loadTest -Ploadtest.mode=OPA_STANDIN -Ploadtest.qps=5000};
+ * the other {@code loadtest.*} properties are read in {@link #main}.
+ */
+public final class AuthzLoadTest {
+
+  enum Mode { EMBEDDED, OPA_STANDIN, OPA, REMOTE }
+
+  private static final long MAX_LATENCY_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+  private final int qps;
+  private final int batchSize;
+  private final Duration deadline;
+  private final int maxInFlight;
+  private final Semaphore inFlight;
+  // Every completed call, for the per-second lines; only calls due after warmup for the summary
+  private final Recorder interval = new Recorder(MAX_LATENCY_MICROS, 3);
+  private final Recorder measured = new Recorder(MAX_LATENCY_MICROS, 3);
+  // Counted for calls due after warmup only
+  private final LongAdder decisions = new LongAdder();
+  private final LongAdder allowed = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder shed = new LongAdder();
+
+  private AuthzLoadTest(int qps, int batchSize, Duration deadline, int maxInFlight) {
+    this.qps = qps;
+    this.batchSize = batchSize;
+    this.deadline = deadline;
+    this.maxInFlight = maxInFlight;
+    this.inFlight = new Semaphore(maxInFlight);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Mode mode = Mode.valueOf(System.getProperty("loadtest.mode", "EMBEDDED"));
+    int qps = Integer.getInteger("loadtest.qps", 1000);
+    Duration warmup = Duration.parse("PT" + System.getProperty("loadtest.warmup", "10s"));
+    Duration duration = Duration.parse("PT" + System.getProperty("loadtest.duration", "30s"));
+    int batchSize = Integer.getInteger("loadtest.batch-size", 0);
+    int channels = Integer.getInteger("loadtest.channels", 1);
+    Duration deadline = Duration.ofMillis(Long.getLong("loadtest.deadline-ms", 1000));
+    int maxInFlight = Integer.getInteger("loadtest.max-in-flight", 10_000);
+    String policyPath = System.getProperty("loadtest.policy", "file:../../opa-policies/rbac.rego");
+
+    AuthorizeRequest[] requests = RequestMix.generate(Integer.getInteger("loadtest.requests", 100_000),
+        Integer.getInteger("loadtest.users", 10_000), Integer.getInteger("loadtest.resources", 5_000),
+        Long.getLong("loadtest.seed", 42));
+
+    List<AutoCloseable> resources = new ArrayList<>();
+    try {
+      String target;
+      if (mode == Mode.REMOTE) {
+        target = System.getProperty("loadtest.target", "localhost:9090");
+      } else {
+        String opaUrl = System.getProperty("loadtest.opa-url", "http://localhost:8181");
+        if (mode == Mode.OPA_STANDIN) {
+          OpaStandIn standIn = new OpaStandIn(policyPath,
+              Duration.ofMillis(Long.getLong("loadtest.opa-latency-ms", 0)));
+          resources.add(standIn);
+          opaUrl = standIn.url();
+        }
+        Server server = ServerBuilder.forPort(0)
+            .addService(service(mode, policyPath, opaUrl))
+            .build()
+            .start();
+        resources.add(0, () -> server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS));
+        target = "localhost:" + server.getPort();
+      }
+
+      List<AuthPolicyServiceGrpc.AuthPolicyServiceStub> stubs = new ArrayList<>();
+      for (int i = 0; i < channels; i++) {
+        ManagedChannel channel = ManagedChannelBuilder.forTarget(target).usePlaintext().build();
+        resources.add(0, () -> channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS));
+        stubs.add(AuthPolicyServiceGrpc.newStub(channel));
+      }
+
+      System.out.printf("mode=%s target=%s qps=%d batch-size=%d channels=%d warmup=%ds duration=%ds%n",
+          mode, target, qps, batchSize, channels, warmup.toSeconds(), duration.toSeconds());
+      new AuthzLoadTest(qps, batchSize, deadline, maxInFlight).run(stubs, requests, warmup, duration);
+    } finally {
+      for (AutoCloseable resource : resources) {
+        resource.close();
+      }
+    }
+  }
+
+  /**
+   * The service wired the way Spring wires it, minus the container: same
+   * OPA HTTP client, coalescing and (if {@code loadtest.decision-log} is set)
+   * decision log.
+   */
+  private static AuthPolicyGrpcServiceImpl service(Mode mode, String policyPath, String opaUrl) {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    EmbeddedPolicyEngine engine = new EmbeddedPolicyEngine(new DefaultResourceLoader(),
+        mode == Mode.EMBEDDED ? EmbeddedPolicyEngine.Mode.EMBEDDED : EmbeddedPolicyEngine.Mode.OPA, policyPath);
+    if (mode == Mode.EMBEDDED && !engine.isActive()) {
+      throw new IllegalStateException("Policy " + policyPath + " could not be compiled for in-process evaluation");
+    }
+    RestTemplateBuilder restTemplateBuilder = new RestTemplateBuilder(new OpaHttpClientConfig()
+        .opaRestTemplateCustomizer(meterRegistry,
+            OpaHttpClientConfig.Protocol.valueOf(System.getProperty("loadtest.opa-protocol", "HTTP_1_1")),
+            Integer.getInteger("loadtest.opa-max-connections", 200),
+            Duration.ofSeconds(1), Duration.ofSeconds(2), Duration.ofMillis(500), Duration.ofSeconds(30)));
+    PolicyVersionService policyVersionService = new PolicyVersionService(new RestTemplateBuilder(), engine);
+    OpaEvaluatorService evaluator = new OpaEvaluatorService(restTemplateBuilder, policyVersionService, engine,
+        new OpaRequestCoalescer(meterRegistry, Boolean.parseBoolean(System.getProperty("loadtest.coalescing", "true"))),
+        opaUrl + "/v1/data/nebula/authz", opaUrl + "/v1/data/nebula/authz/decisions", opaUrl + "/v1/compile");
+    DecisionLogWriter decisionLog = new DecisionLogWriter(new ObjectMapper().findAndRegisterModules(), meterRegistry,
+        System.getProperty("loadtest.decision-log", ""), 65536, 1000, Duration.ofSeconds(1));
+    return new AuthPolicyGrpcServiceImpl(evaluator, policyVersionService, decisionLog, 1000);
+  }
+
+  private void run(List<AuthPolicyServiceGrpc.AuthPolicyServiceStub> stubs, AuthorizeRequest[] requests,
+      Duration warmup, Duration duration) throws InterruptedException {
+    BatchAuthorizeRequest[] batches = batchSize > 0 ? batches(requests) : null;
+
+    ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+    long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+    long measureFrom = start + warmup.toNanos();
+    long end = measureFrom + duration.toNanos();
+    reporter.scheduleAtFixedRate(this::reportInterval, start + TimeUnit.SECONDS.toNanos(1) - System.nanoTime(),
+        TimeUnit.SECONDS.toNanos(1), TimeUnit.NANOSECONDS);
+
+    long sent = 0;
+    for (long i = 0; ; i++) {
+      long due = start + i * 1_000_000_000L / qps;
+      if (due >= end) {
+        break;
+      }
+      waitUntil(due);
+      boolean measuring = due >= measureFrom;
+      if (!inFlight.tryAcquire()) {
+        if (measuring) {
+          shed.increment();
+        }
+        continue;
+      }
+      AuthPolicyServiceGrpc.AuthPolicyServiceStub stub = stubs.get((int) (i % stubs.size()))
+          .withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS);
+      if (batches != null) {
+        stub.batchAuthorize(batches[(int) (i % batches.length)], new Completion<>(due, measuring, this::count));
+      } else {
+        stub.authorize(requests[(int) (i % requests.length)], new Completion<>(due, measuring, this::count));
+      }
+      if (measuring) {
+        sent++;
+      }
+    }
+
+    // Let the last calls finish, up to the deadline, before reading the totals
+    inFlight.tryAcquire(maxInFlight, deadline.toMillis() * 2, TimeUnit.MILLISECONDS);
+    reporter.shutdownNow();
+    report(sent, duration);
+  }
+
+  private BatchAuthorizeRequest[] batches(AuthorizeRequest[] requests) {
+    BatchAuthorizeRequest[] batches = new BatchAuthorizeRequest[requests.length / batchSize];
+    for (int i = 0; i < batches.length; i++) {
+      batches[i] = BatchAuthorizeRequest.newBuilder()
+          .setBatchId("load-" + i)
+          .addAllRequests(Arrays.asList(requests).subList(i * batchSize, (i + 1) * batchSize))
+          .build();
+    }
+    return batches;
+  }
+
+  private void count(Object response) {
+    if (response instanceof AuthorizeResponse decision) {
+      decisions.increment();
+      if (decision.getAllowed()) {
+        allowed.increment();
+      }
+    } else if (response instanceof BatchAuthorizeResponse batch) {
+      for (AuthorizeResponse decision : batch.getResponsesList()) {
+        count(decision);
+      }
+    }
+  }
+
+  private static void waitUntil(long due) {
+    long remaining;
+    while ((remaining = due - System.nanoTime()) > 0) {
+      // Park for most of the gap and spin the rest; parking alone overshoots by tens of microseconds
+      if (remaining > 100_000) {
+        LockSupport.parkNanos(remaining - 50_000);
+      } else {
+        Thread.onSpinWait();
+      }
+    }
+  }
+
+  private void reportInterval() {
+    Histogram histogram = interval.getIntervalHistogram();
+    System.out.printf("%8d rpc/s  p50=%8.3fms  p99=%8.3fms  max=%8.3fms  in-flight=%d%n",
+        histogram.getTotalCount(), millis(histogram.getValueAtPercentile(50)),
+        millis(histogram.getValueAtPercentile(99)), millis(histogram.getMaxValue()),
+        inFlightCount());
+  }
+
+  private void report(long sent, Duration duration) {
+    Histogram histogram = measured.getIntervalHistogram();
+    double seconds = duration.toMillis() / 1000.0;
+    long completed = histogram.getTotalCount();
+    System.out.println();
+    System.out.printf("target      %d rpc/s, %d sent in %.0fs%n", qps, sent, seconds);
+    System.out.printf("throughput  %.1f rpc/s (%.1f decisions/s)%n", completed / seconds, decisions.sum() / seconds);
+    System.out.printf("latency     p50=%.3fms p90=%.3fms p99=%.3fms p999=%.3fms max=%.3fms%n",
+        millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+        millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+        millis(histogram.getMaxValue()));
+    System.out.printf("errors      %d failed, %d shed at %d in flight, %.1f%% of decisions allowed%n",
+        errors.sum(), shed.sum(), inFlightCount(), 100.0 * allowed.sum() / Math.max(1, decisions.sum()));
+  }
+
+  private int inFlightCount() {
+    return maxInFlight - inFlight.availablePermits();
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+
+  private final class Completion<T> implements StreamObserver<T> {
+
+    private final long due;
+    private final boolean measuring;
+    private final Consumer<T> onResponse;
+
+    Completion(long due, boolean measuring, Consumer<T> onResponse) {
+      this.due = due;
+      this.measuring = measuring;
+      this.onResponse = onResponse;
+    }
+
+    @Override
+    public void onNext(T response) {
+      if (measuring) {
+        onResponse.accept(response);
+      }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      if (measuring) {
+        errors.increment();
+      }
+      inFlight.release();
+    }
+
+    @Override
+    public void onCompleted() {
+      long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due), MAX_LATENCY_MICROS);
+      interval.recordValue(micros);
+      if (measuring) {
+        measured.recordValue(micros);
+      }
+      inFlight.release();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.nebula.authpolicy.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nebula.authpolicy.grpc.AuthorizeResponse;
+import com.nebula.authpolicy.service.EmbeddedPolicyEngine;
+import com.nebula.authpolicy.service.OpaModels;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP server answering the OPA endpoints authpolicy-service calls
+ * ({@code /v1/data/nebula/authz}, {@code .../decisions}, {@code /v1/policies}),
+ * deciding with the embedded engine after an optional fixed delay. It stands
+ * in for the OPA sidecar so the HTTP hop, JSON and connection pool are
+ * measured without needing a running OPA.
+ */
+final class OpaStandIn implements AutoCloseable {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final EmbeddedPolicyEngine engine;
+  private final String policySource;
+  private final Duration latency;
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  OpaStandIn(String policyPath, Duration latency) throws IOException {
+    this.engine = new EmbeddedPolicyEngine(new DefaultResourceLoader(), EmbeddedPolicyEngine.Mode.EMBEDDED, policyPath);
+    if (!engine.isActive()) {
+      throw new IllegalStateException("Policy " + policyPath + " could not be compiled for the OPA stand-in");
+    }
+    this.policySource = new DefaultResourceLoader().getResource(policyPath)
+        .getContentAsString(StandardCharsets.UTF_8);
+    this.latency = latency;
+    this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+    server.setExecutor(executor);
+    server.createContext("/v1/data/nebula/authz", this::decide);
+    server.createContext("/v1/policies", exchange -> respond(exchange,
+        Map.of("result", List.of(Map.of("id", "rbac.rego", "raw", policySource)))));
+    server.start();
+  }
+
+  String url() {
+    return "http://localhost:" + server.getAddress().getPort();
+  }
+
+  private void decide(HttpExchange exchange) throws IOException {
+    try (InputStream body = exchange.getRequestBody()) {
+      delay();
+      if (exchange.getRequestURI().getPath().endsWith("/decisions")) {
+        OpaModels.OpaBatchRequest request = objectMapper.readValue(body, OpaModels.OpaBatchRequest.class);
+        respond(exchange, Map.of("result", request.getInput().getBatch().stream().map(this::result).toList()));
+      } else {
+        OpaModels.OpaRequest request = objectMapper.readValue(body, OpaModels.OpaRequest.class);
+        respond(exchange, Map.of("result", result(request.getInput())));
+      }
+    }
+  }
+
+  private OpaModels.OpaResult result(OpaModels.OpaInput input) {
+    AuthorizeResponse decision = engine.evaluate(input);
+    OpaModels.OpaResult result = new OpaModels.OpaResult();
+    result.setAllow(decision.getAllowed());
+    result.setReason(decision.getReason());
+    return result;
+  }
+
+  private void delay() {
+    if (latency.isZero()) {
+      return;
+    }
+    try {
+      Thread.sleep(latency);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void respond(HttpExchange exchange, Object body) throws IOException {
+    byte[] json = objectMapper.writeValueAsBytes(body);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, json.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(json);
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,104 @@
+package com.nebula.authpolicy.loadtest;
+
+import com.nebula.authpolicy.grpc.AuthorizeRequest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Authorization requests shaped like platform traffic: a few users and a few
+ * projects account for most calls (Zipf), almost everyone is a plain
+ * {@code nebula-user}, reads dominate writes, and a small share of requests
+ * is denied. Generated up front from a fixed seed so runs are comparable.
+ */
+final class RequestMix {
+
+  private static final List<String> ADMIN = List.of("nebula-admin", "nebula-user");
+  private static final List<String> USER = List.of("nebula-user");
+  private static final List<String> NO_ROLE = List.of("offline_access");
+
+  private record Action(String name, String resourcePrefix, double weight) {
+  }
+
+  // Roughly what the services ask for per page view
+  private static final List<Action> ACTIONS = List.of(
+      new Action("code:repository:read", "repository:", 0.45),
+      new Action("view", "project:", 0.25),
+      new Action("view", "folder:", 0.15),
+      new Action("edit", "project:", 0.05),
+      new Action("create_folder", "project:", 0.04),
+      new Action("create_project", "project", 0.02),
+      new Action("code:repository:create", "project:", 0.02),
+      new Action("delete_project", "project:", 0.02));
+
+  private RequestMix() {
+  }
+
+  /**
+   * @param users distinct user ids, Zipf-distributed over requests
+   * @param resources distinct resources per kind, Zipf-distributed over requests
+   */
+  static AuthorizeRequest[] generate(int count, int users, int resources, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    Zipf userRank = new Zipf(users, 1.1);
+    Zipf resourceRank = new Zipf(resources, 1.0);
+    double[] actionCdf = new double[ACTIONS.size()];
+    double total = 0;
+    for (int i = 0; i < actionCdf.length; i++) {
+      total += ACTIONS.get(i).weight();
+      actionCdf[i] = total;
+    }
+
+    AuthorizeRequest[] requests = new AuthorizeRequest[count];
+    for (int i = 0; i < count; i++) {
+      int user = userRank.next(random);
+      Action action = ACTIONS.get(index(actionCdf, random.nextDouble() * total));
+      String resource = action.resourcePrefix().endsWith(":")
+          ? action.resourcePrefix() + resourceRank.next(random)
+          : action.resourcePrefix();
+      requests[i] = AuthorizeRequest.newBuilder()
+          .setUserId("user-" + user)
+          .addAllRoles(roles(user))
+          .setAction(action.name())
+          .setResource(resource)
+          .build();
+    }
+    return requests;
+  }
+
+  // Stable per user: 1 in 50 is an admin, 1 in 20 has no platform role
+  private static List<String> roles(int user) {
+    if (user % 50 == 0) {
+      return ADMIN;
+    }
+    return user % 20 == 7 ? NO_ROLE : USER;
+  }
+
+  private static int index(double[] cdf, double value) {
+    int i = Arrays.binarySearch(cdf, value);
+    return Math.min(i >= 0 ? i : -i - 1, cdf.length - 1);
+  }
+
+  /** Ranks 1..n with P(k) proportional to 1/k^s, sampled by inverting a precomputed CDF. */
+  private static final class Zipf {
+
+    private final double[] cdf;
+
+    Zipf(int n, double s) {
+      cdf = new double[n];
+      double sum = 0;
+      for (int k = 1; k <= n; k++) {
+        sum += 1 / Math.pow(k, s);
+        cdf[k - 1] = sum;
+      }
+      for (int k = 0; k < n; k++) {
+        cdf[k] /= sum;
+      }
+    }
+
+    int next(SplittableRandom random) {
+      return index(cdf, random.nextDouble()) + 1;
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package com.nebula.authpolicy.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * The HTTP client every call to OPA goes through.
+ *
+ * With {@code opa.http.protocol: HTTP_1_1} (the default) requests share a
+ * pool of kept-alive connections whose size and usage are exported as
+ * {@code httpcomponents_httpclient_pool_*}. {@code HTTP_2} switches to the
+ * JDK client, which multiplexes every request over one connection (h2c, so
+ * OPA must run with {@code --h2c}) and falls back to HTTP/1.1 if the server
+ * does not upgrade.
+ */
+@Configuration
+public class OpaHttpClientConfig {
+
+  public enum Protocol { HTTP_1_1, HTTP_2 }
+
+  @Bean
+  public RestTemplateCustomizer opaRestTemplateCustomizer(MeterRegistry meterRegistry,
+      @Value("${opa.http.protocol:HTTP_1_1}") Protocol protocol,
+      @Value("${opa.http.max-connections:200}") int maxConnections,
+      @Value("${opa.http.connect-timeout:1s}") Duration connectTimeout,
+      @Value("${opa.http.read-timeout:2s}") Duration readTimeout,
+      @Value("${opa.http.pool-timeout:500ms}") Duration poolTimeout,
+      @Value("${opa.http.keep-alive:30s}") Duration keepAlive) {
+    ClientHttpRequestFactory requestFactory = protocol == Protocol.HTTP_2
+        ? http2(connectTimeout, readTimeout)
+        : pooled(meterRegistry, maxConnections, connectTimeout, readTimeout, poolTimeout, keepAlive);
+    return restTemplate -> restTemplate.setRequestFactory(requestFactory);
+  }
+
+  private static ClientHttpRequestFactory pooled(MeterRegistry meterRegistry, int maxConnections,
+      Duration connectTimeout, Duration readTimeout, Duration poolTimeout, Duration keepAlive) {
+    PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+        // Every request goes to the same OPA host
+        .setMaxConnTotal(maxConnections)
+        .setMaxConnPerRoute(maxConnections)
+        .setDefaultConnectionConfig(ConnectionConfig.custom()
+            .setConnectTimeout(Timeout.of(connectTimeout))
+            .setSocketTimeout(Timeout.of(readTimeout))
+            .setTimeToLive(TimeValue.of(keepAlive))
+            .build())
+        .build();
+    new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "opa").bindTo(meterRegistry);
+
+    CloseableHttpClient httpClient = HttpClients.custom()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.of(poolTimeout))
+            .setResponseTimeout(Timeout.of(readTimeout))
+            .build())
+        .setKeepAliveStrategy((response, context) -> TimeValue.of(keepAlive))
+        .evictIdleConnections(TimeValue.of(keepAlive))
+        .build();
+    return new HttpComponentsClientHttpRequestFactory(httpClient);
+  }
+
+  private static ClientHttpRequestFactory http2(Duration connectTimeout, Duration readTimeout) {
+    HttpClient httpClient = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .connectTimeout(connectTimeout)
+        .build();
+    JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+    requestFactory.setReadTimeout(readTimeout);
+    return requestFactory;
+  }
+}
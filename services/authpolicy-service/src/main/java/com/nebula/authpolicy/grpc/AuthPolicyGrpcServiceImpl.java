@@ -1,31 +1,138 @@
 package com.nebula.authpolicy.grpc;
 
+import com.nebula.authpolicy.service.DecisionLogWriter;
 import com.nebula.authpolicy.service.OpaEvaluatorService;
+import com.nebula.authpolicy.service.PolicyVersionService;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.server.service.GrpcService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.List;
+import java.util.function.Consumer;
 
 @GrpcService
 public class AuthPolicyGrpcServiceImpl extends AuthPolicyServiceGrpc.AuthPolicyServiceImplBase {
 
   private static final Logger log = LoggerFactory.getLogger(AuthPolicyGrpcServiceImpl.class);
   private final OpaEvaluatorService opaEvaluatorService;
+  private final PolicyVersionService policyVersionService;
+  private final DecisionLogWriter decisionLog;
+  private final int maxBatchSize;
 
-  public AuthPolicyGrpcServiceImpl(OpaEvaluatorService opaEvaluatorService) {
+  public AuthPolicyGrpcServiceImpl(OpaEvaluatorService opaEvaluatorService,
+      PolicyVersionService policyVersionService, DecisionLogWriter decisionLog,
+      @Value("${authpolicy.batch.max-size:1000}") int maxBatchSize) {
     this.opaEvaluatorService = opaEvaluatorService;
+    this.policyVersionService = policyVersionService;
+    this.decisionLog = decisionLog;
+    this.maxBatchSize = maxBatchSize;
   }
 
   @Override
   public void authorize(AuthorizeRequest request, StreamObserver<AuthorizeResponse> responseObserver) {
-    log.info("Received authorization request: User={}, Action={}, Resource={}",
+    log.debug("Received authorization request: User={}, Action={}, Resource={}",
         request.getUserId(), request.getAction(), request.getResource());
 
     AuthorizeResponse response = opaEvaluatorService.evaluate(request);
 
-    log.info("Authorization result: Allowed={}, Reason={}", response.getAllowed(), response.getReason());
+    log.debug("Authorization result: Allowed={}, Reason={}", response.getAllowed(), response.getReason());
+    decisionLog.record(request, response);
 
     responseObserver.onNext(response);
     responseObserver.onCompleted();
   }
+
+  @Override
+  public void batchAuthorize(BatchAuthorizeRequest request, StreamObserver<BatchAuthorizeResponse> responseObserver) {
+    if (request.getRequestsCount() > maxBatchSize) {
+      responseObserver.onError(tooLarge(request));
+      return;
+    }
+    responseObserver.onNext(evaluateBatch(request));
+    responseObserver.onCompleted();
+  }
+
+  @Override
+  public StreamObserver<BatchAuthorizeRequest> streamAuthorize(
+      StreamObserver<BatchAuthorizeResponse> responseObserver) {
+    return new StreamObserver<>() {
+      private boolean failed;
+
+      @Override
+      public void onNext(BatchAuthorizeRequest request) {
+        if (failed) {
+          return;
+        }
+        if (request.getRequestsCount() > maxBatchSize) {
+          failed = true;
+          responseObserver.onError(tooLarge(request));
+          return;
+        }
+        responseObserver.onNext(evaluateBatch(request));
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        log.debug("Authorization stream cancelled by client: {}", t.getMessage());
+      }
+
+      @Override
+      public void onCompleted() {
+        if (!failed) {
+          responseObserver.onCompleted();
+        }
+      }
+    };
+  }
+
+  private BatchAuthorizeResponse evaluateBatch(BatchAuthorizeRequest request) {
+    log.debug("Received batch authorization request {} with {} decisions",
+        request.getBatchId(), request.getRequestsCount());
+    List<AuthorizeResponse> responses = opaEvaluatorService.evaluateBatch(request.getRequestsList());
+    decisionLog.record(request.getRequestsList(), responses);
+    return BatchAuthorizeResponse.newBuilder()
+        .setBatchId(request.getBatchId())
+        .addAllResponses(responses)
+        .build();
+  }
+
+  private Exception tooLarge(BatchAuthorizeRequest request) {
+    return Status.INVALID_ARGUMENT
+        .withDescription("Batch of " + request.getRequestsCount() + " exceeds the limit of " + maxBatchSize)
+        .asRuntimeException();
+  }
+
+  @Override
+  public void compileFilter(CompileFilterRequest request, StreamObserver<CompileFilterResponse> responseObserver) {
+    log.debug("Received filter request: User={}, Action={}", request.getUserId(), request.getAction());
+    opaEvaluatorService.compileFilter(request).ifPresentOrElse(
+        filter -> {
+          responseObserver.onNext(filter);
+          responseObserver.onCompleted();
+        },
+        () -> responseObserver.onError(Status.FAILED_PRECONDITION
+            .withDescription("No filter could be compiled for action '" + request.getAction()
+                + "'; authorize resources individually")
+            .asRuntimeException()));
+  }
+
+  @Override
+  public void watchPolicyVersion(WatchPolicyVersionRequest request, StreamObserver<PolicyVersion> responseObserver) {
+    ServerCallStreamObserver<PolicyVersion> observer = (ServerCallStreamObserver<PolicyVersion>) responseObserver;
+    Consumer<String> listener = version -> {
+      // Listeners are called from the poller thread; gRPC observers are not thread-safe
+      synchronized (observer) {
+        if (!observer.isCancelled()) {
+          observer.onNext(PolicyVersion.newBuilder().setVersion(version).build());
+        }
+      }
+    };
+    observer.setOnCancelHandler(() -> policyVersionService.removeListener(listener));
+    policyVersionService.addListener(listener);
+    listener.accept(policyVersionService.currentVersion());
+  }
 }
@@ -0,0 +1,155 @@
+package com.nebula.authpolicy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nebula.authpolicy.grpc.AuthorizeRequest;
+import com.nebula.authpolicy.grpc.AuthorizeResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Audit log of every decision, written off the RPC threads.
+ *
+ * {@link #record} only puts the decision in a bounded buffer; a single
+ * background thread drains it in batches and appends them to an NDJSON file,
+ * one object per decision with the policy version it was made under. When
+ * the buffer is full decisions are dropped and counted rather than slowing
+ * authorization down. Ship the file on with the platform's log collector.
+ */
+@Component
+public class DecisionLogWriter {
+
+  private static final Logger log = LoggerFactory.getLogger(DecisionLogWriter.class);
+
+  record Entry(Instant timestamp, String userId, List<String> roles, String action, String resource,
+      boolean allowed, String reason, String policyVersion) {
+  }
+
+  private final ObjectMapper objectMapper;
+  private final BlockingQueue<Entry> buffer;
+  private final Path path;
+  private final int batchSize;
+  private final Duration flushInterval;
+  private final Counter written;
+  private final Counter dropped;
+  private final Thread drainer;
+  private volatile boolean running = true;
+
+  public DecisionLogWriter(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+      @Value("${authpolicy.decision-log.path:}") String path,
+      @Value("${authpolicy.decision-log.buffer-size:65536}") int bufferSize,
+      @Value("${authpolicy.decision-log.batch-size:1000}") int batchSize,
+      @Value("${authpolicy.decision-log.flush-interval:1s}") Duration flushInterval) {
+    this.objectMapper = objectMapper;
+    this.path = path.isEmpty() ? null : Path.of(path);
+    this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    this.batchSize = batchSize;
+    this.flushInterval = flushInterval;
+    this.written = Counter.builder("authpolicy.decision.log.written")
+        .description("Decisions appended to the decision log")
+        .register(meterRegistry);
+    this.dropped = Counter.builder("authpolicy.decision.log.dropped")
+        .description("Decisions not logged because the buffer was full or the file could not be written")
+        .register(meterRegistry);
+    Gauge.builder("authpolicy.decision.log.buffered", buffer, BlockingQueue::size)
+        .description("Decisions waiting to be written")
+        .register(meterRegistry);
+
+    this.drainer = new Thread(this::drain, "decision-log-writer");
+    this.drainer.setDaemon(true);
+    if (this.path != null) {
+      this.drainer.start();
+    }
+  }
+
+  public void record(AuthorizeRequest request, AuthorizeResponse response) {
+    if (path == null) {
+      return;
+    }
+    Entry entry = new Entry(Instant.now(), request.getUserId(), request.getRolesList(), request.getAction(),
+        request.getResource(), response.getAllowed(), response.getReason(), response.getPolicyVersion());
+    if (!buffer.offer(entry)) {
+      dropped.increment();
+    }
+  }
+
+  public void record(List<AuthorizeRequest> requests, List<AuthorizeResponse> responses) {
+    for (int i = 0; i < requests.size(); i++) {
+      record(requests.get(i), responses.get(i));
+    }
+  }
+
+  // Not interrupted: that would close the file channel under a write in progress and drop the rest. The
+  // drainer notices within one poll and then writes whatever is still buffered.
+  @PreDestroy
+  public void close() throws InterruptedException {
+    running = false;
+    drainer.join(flushInterval.toMillis() * 2);
+  }
+
+  private void drain() {
+    List<Entry> batch = new ArrayList<>(batchSize);
+    try {
+      if (path.getParent() != null) {
+        Files.createDirectories(path.getParent());
+      }
+    } catch (IOException e) {
+      log.error("Decision log directory for {} cannot be created; decisions will not be logged", path, e);
+      return;
+    }
+    try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      log.info("Writing decision log to {}", path);
+      while (running || !buffer.isEmpty()) {
+        try {
+          Entry first = buffer.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+          if (first == null) {
+            continue;
+          }
+          batch.add(first);
+        } catch (InterruptedException e) {
+          // Not done by close(); stop polling, but still write whatever is buffered
+          running = false;
+        }
+        buffer.drainTo(batch, batchSize - batch.size());
+        write(out, batch);
+        batch.clear();
+      }
+    } catch (IOException e) {
+      log.error("Decision log {} cannot be opened; decisions will not be logged", path, e);
+    }
+  }
+
+  private void write(BufferedWriter out, List<Entry> batch) {
+    try {
+      for (Entry entry : batch) {
+        out.write(objectMapper.writeValueAsString(entry));
+        out.newLine();
+      }
+      out.flush();
+      written.increment(batch.size());
+    } catch (IOException e) {
+      log.warn("Failed to write {} decisions to {}: {}", batch.size(), path, e.getMessage());
+      dropped.increment(batch.size());
+    }
+  }
+}
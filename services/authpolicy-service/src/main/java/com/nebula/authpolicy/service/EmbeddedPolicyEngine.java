@@ -0,0 +1,149 @@
+package com.nebula.authpolicy.service;
+
+import com.nebula.authpolicy.grpc.AuthorizeResponse;
+import com.nebula.authpolicy.service.rego.RegoPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates the RBAC policy inside the JVM, without a round-trip to OPA.
+ *
+ * In EMBEDDED mode the policy file is compiled at startup with
+ * {@link RegoPolicy}. If it cannot be read or uses Rego the embedded compiler
+ * does not support, the engine stays inactive and every decision goes to the
+ * OPA server as in OPA mode.
+ *
+ * {@link #reload()} re-reads the file and, when its digest (the policy
+ * version) has changed, compiles it and swaps it in atomically: a decision
+ * is made entirely under the old policy or entirely under the new one. A
+ * file that no longer compiles leaves the running policy in place.
+ */
+@Service
+public class EmbeddedPolicyEngine {
+
+  public enum Mode { OPA, EMBEDDED }
+
+  private static final Logger log = LoggerFactory.getLogger(EmbeddedPolicyEngine.class);
+
+  private record CompiledPolicy(RegoPolicy policy, String version) {
+  }
+
+  private final Resource resource;
+  private volatile CompiledPolicy compiled;
+  // Version of the file last read, compiled or not, so a broken file is reported once
+  private volatile String lastSeenVersion;
+
+  public EmbeddedPolicyEngine(ResourceLoader resourceLoader,
+      @Value("${authpolicy.engine.mode:OPA}") Mode mode,
+      @Value("${authpolicy.engine.policy-path:file:/policies/rbac.rego}") String policyPath) {
+    this.resource = mode == Mode.EMBEDDED ? resourceLoader.getResource(policyPath) : null;
+    reload();
+  }
+
+  public boolean isActive() {
+    return compiled != null;
+  }
+
+  public String version() {
+    CompiledPolicy current = compiled;
+    return current != null ? current.version() : null;
+  }
+
+  /**
+   * Swaps in the policy file if it changed since it was last read.
+   *
+   * @return whether a new policy is now in effect
+   */
+  public synchronized boolean reload() {
+    if (resource == null) {
+      return false;
+    }
+    String source;
+    try {
+      source = resource.getContentAsString(StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      if (!"".equals(lastSeenVersion)) {
+        CompiledPolicy current = compiled;
+        log.warn("Cannot read policy {}, {}: {}", resource.getDescription(),
+            current == null ? "falling back to OPA" : "still serving version " + current.version(), e.getMessage());
+      }
+      lastSeenVersion = "";
+      return false;
+    }
+
+    String version = PolicyVersionService.digest(Map.of(resource.getDescription(), source));
+    if (version.equals(lastSeenVersion)) {
+      return false;
+    }
+    lastSeenVersion = version;
+    try {
+      CompiledPolicy previous = compiled;
+      compiled = new CompiledPolicy(RegoPolicy.compile(source), version);
+      if (previous == null) {
+        log.info("Evaluating policy {} in-process, version {}", resource.getDescription(), version);
+      } else {
+        log.info("Reloaded policy {}: version {} replaces {}", resource.getDescription(), version,
+            previous.version());
+      }
+      return true;
+    } catch (IllegalArgumentException e) {
+      if (compiled == null) {
+        log.warn("Cannot evaluate policy {} in-process, falling back to OPA: {}", resource.getDescription(),
+            e.getMessage());
+      } else {
+        log.error("Policy {} version {} does not compile, still serving version {}: {}",
+            resource.getDescription(), version, compiled.version(), e.getMessage());
+      }
+      return false;
+    }
+  }
+
+  public AuthorizeResponse evaluate(OpaModels.OpaInput opaInput) {
+    CompiledPolicy current = compiled;
+    Map<String, Object> input = toInput(opaInput);
+    String reason = current.policy().reason(input);
+    return AuthorizeResponse.newBuilder()
+        .setAllowed(current.policy().allow(input))
+        .setReason(reason != null ? reason : "")
+        .setPolicyVersion(current.version())
+        .build();
+  }
+
+  /**
+   * Partially evaluates allow with the resource unknown, see {@link RegoPolicy#partial}.
+   */
+  public List<List<RegoPolicy.Residual>> partial(OpaModels.OpaInput opaInput) {
+    return compiled.policy().partial(toInput(opaInput), List.of("resource"));
+  }
+
+  // Mirrors the JSON document OPA receives; absent fields stay undefined
+  private static Map<String, Object> toInput(OpaModels.OpaInput opaInput) {
+    Map<String, Object> input = new HashMap<>();
+    if (opaInput.getUser() != null) {
+      Map<String, Object> user = new HashMap<>();
+      putIfPresent(user, "id", opaInput.getUser().getId());
+      putIfPresent(user, "roles", opaInput.getUser().getRoles());
+      input.put("user", user);
+    }
+    putIfPresent(input, "action", opaInput.getAction());
+    putIfPresent(input, "resource", opaInput.getResource());
+    putIfPresent(input, "context", opaInput.getContext());
+    return input;
+  }
+
+  private static void putIfPresent(Map<String, Object> map, String key, Object value) {
+    if (value != null) {
+      map.put(key, value);
+    }
+  }
+}
@@ -2,6 +2,11 @@ package com.nebula.authpolicy.service;
 
 import com.nebula.authpolicy.grpc.AuthorizeRequest;
 import com.nebula.authpolicy.grpc.AuthorizeResponse;
+import com.nebula.authpolicy.grpc.CompileFilterRequest;
+import com.nebula.authpolicy.grpc.CompileFilterResponse;
+import com.nebula.authpolicy.grpc.ResidualCondition;
+import com.nebula.authpolicy.grpc.ResidualConjunction;
+import com.nebula.authpolicy.service.rego.RegoPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,42 +15,68 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
 @Service
 public class OpaEvaluatorService {
 
   private static final Logger log = LoggerFactory.getLogger(OpaEvaluatorService.class);
   private final RestTemplate restTemplate;
+  private final PolicyVersionService policyVersionService;
+  private final EmbeddedPolicyEngine embeddedPolicyEngine;
+  private final OpaRequestCoalescer coalescer;
+  private final String opaEndpoint;
+  private final String opaBatchEndpoint;
+  private final String opaCompileEndpoint;
 
-  @Value("${opa.url:http://localhost:8181/v1/data/nebula/authz}")
-  private String opaEndpoint;
-
-  public OpaEvaluatorService(RestTemplateBuilder builder) {
+  public OpaEvaluatorService(RestTemplateBuilder builder, PolicyVersionService policyVersionService,
+      EmbeddedPolicyEngine embeddedPolicyEngine, OpaRequestCoalescer coalescer,
+      @Value("${opa.url:http://localhost:8181/v1/data/nebula/authz}") String opaEndpoint,
+      @Value("${opa.batch-url:http://localhost:8181/v1/data/nebula/authz/decisions}") String opaBatchEndpoint,
+      @Value("${opa.compile-url:http://localhost:8181/v1/compile}") String opaCompileEndpoint) {
     this.restTemplate = builder.build();
+    this.policyVersionService = policyVersionService;
+    this.embeddedPolicyEngine = embeddedPolicyEngine;
+    this.coalescer = coalescer;
+    this.opaEndpoint = opaEndpoint;
+    this.opaBatchEndpoint = opaBatchEndpoint;
+    this.opaCompileEndpoint = opaCompileEndpoint;
   }
 
   public AuthorizeResponse evaluate(AuthorizeRequest grpcRequest) {
+    if (embeddedPolicyEngine.isActive()) {
+      return embeddedPolicyEngine.evaluate(buildOpaInput(grpcRequest));
+    }
+
     OpaModels.OpaRequest opaRequest = buildOpaRequest(grpcRequest);
 
     try {
-      ResponseEntity<OpaModels.OpaResponse> response = restTemplate.postForEntity(
-          opaEndpoint,
-          opaRequest,
-          OpaModels.OpaResponse.class);
+      return coalescer.execute(new OpaCall(opaEndpoint, opaRequest), () -> {
+        // Read before evaluating: a decision must never claim a newer policy than it saw
+        String policyVersion = policyVersionService.currentVersion();
+        ResponseEntity<OpaModels.OpaResponse> response = restTemplate.postForEntity(
+            opaEndpoint,
+            opaRequest,
+            OpaModels.OpaResponse.class);
+
+        OpaModels.OpaResult result = response.getBody() != null ? response.getBody().getResult() : null;
 
-      OpaModels.OpaResult result = response.getBody() != null ? response.getBody().getResult() : null;
+        if (result == null) {
+          log.warn("OPA returned an empty evaluation result. Denying by default.");
+          return AuthorizeResponse.newBuilder()
+              .setAllowed(false)
+              .setReason("Empty response from OPA engine")
+              .build();
+        }
 
-      if (result == null) {
-        log.warn("OPA returned an empty evaluation result. Denying by default.");
         return AuthorizeResponse.newBuilder()
-            .setAllowed(false)
-            .setReason("Empty response from OPA engine")
+            .setAllowed(result.isAllow())
+            .setReason(result.getReason() != null ? result.getReason() : "")
+            .setPolicyVersion(policyVersion)
             .build();
-      }
-
-      return AuthorizeResponse.newBuilder()
-          .setAllowed(result.isAllow())
-          .setReason(result.getReason() != null ? result.getReason() : "")
-          .build();
+      });
 
     } catch (Exception e) {
       log.error("Failed to evaluate policy against OPA engine at {}", opaEndpoint, e);
@@ -57,20 +88,144 @@ public class OpaEvaluatorService {
     }
   }
 
+  /**
+   * Decides all requests with a single query against the policy's
+   * {@code decisions} rule. Responses are in request order; if OPA cannot be
+   * reached or answers with the wrong number of results, every request is
+   * denied.
+   */
+  public List<AuthorizeResponse> evaluateBatch(List<AuthorizeRequest> grpcRequests) {
+    if (grpcRequests.isEmpty()) {
+      return List.of();
+    }
+    if (embeddedPolicyEngine.isActive()) {
+      return grpcRequests.stream().map(request -> embeddedPolicyEngine.evaluate(buildOpaInput(request))).toList();
+    }
+    OpaModels.OpaBatchInput input = new OpaModels.OpaBatchInput();
+    input.setBatch(grpcRequests.stream().map(this::buildOpaInput).toList());
+    OpaModels.OpaBatchRequest opaRequest = new OpaModels.OpaBatchRequest();
+    opaRequest.setInput(input);
+
+    try {
+      return coalescer.execute(new OpaCall(opaBatchEndpoint, opaRequest), () -> {
+        String policyVersion = policyVersionService.currentVersion();
+        ResponseEntity<OpaModels.OpaBatchResponse> response = restTemplate.postForEntity(
+            opaBatchEndpoint,
+            opaRequest,
+            OpaModels.OpaBatchResponse.class);
+
+        List<OpaModels.OpaResult> results = response.getBody() != null ? response.getBody().getResult() : null;
+
+        if (results == null || results.size() != grpcRequests.size()) {
+          log.warn("OPA returned {} batch results for {} requests. Denying by default.",
+              results != null ? results.size() : 0, grpcRequests.size());
+          return denyAll(grpcRequests.size(), "Incomplete response from OPA engine");
+        }
+
+        return results.stream()
+            .map(result -> AuthorizeResponse.newBuilder()
+                .setAllowed(result.isAllow())
+                .setReason(result.getReason() != null ? result.getReason() : "")
+                .setPolicyVersion(policyVersion)
+                .build())
+            .toList();
+      });
+
+    } catch (Exception e) {
+      log.error("Failed to evaluate batch of {} against OPA engine at {}", grpcRequests.size(), opaBatchEndpoint, e);
+      return denyAll(grpcRequests.size(), "Internal policy engine failure");
+    }
+  }
+
+  /**
+   * Partially evaluates {@code allow} for the request's user, action and
+   * context with the resource unknown, leaving the conditions a resource must
+   * meet. Empty if OPA cannot be reached or the residual has conditions a
+   * {@link ResidualCondition} cannot express; callers must then check
+   * resources individually.
+   */
+  public Optional<CompileFilterResponse> compileFilter(CompileFilterRequest grpcRequest) {
+    OpaModels.OpaInput input = buildOpaInput(grpcRequest.getUserId(), grpcRequest.getRolesList(),
+        grpcRequest.getAction(), null, grpcRequest.getContextMap());
+    try {
+      if (embeddedPolicyEngine.isActive()) {
+        // Read before evaluating, as for decisions; a reload in between makes it older, never newer
+        String policyVersion = embeddedPolicyEngine.version();
+        return Optional.of(toFilter(embeddedPolicyEngine.partial(input), policyVersion));
+      }
+
+      OpaModels.OpaCompileRequest opaRequest = new OpaModels.OpaCompileRequest();
+      opaRequest.setQuery("data.nebula.authz.allow == true");
+      opaRequest.setInput(input);
+      opaRequest.setUnknowns(List.of("input.resource"));
+
+      return Optional.of(coalescer.execute(new OpaCall(opaCompileEndpoint, opaRequest), () -> {
+        String policyVersion = policyVersionService.currentVersion();
+        ResponseEntity<OpaModels.OpaCompileResponse> response = restTemplate.postForEntity(
+            opaCompileEndpoint,
+            opaRequest,
+            OpaModels.OpaCompileResponse.class);
+
+        OpaModels.OpaCompileResult result = response.getBody() != null ? response.getBody().getResult() : null;
+        return toFilter(OpaResidualQueries.translate(result), policyVersion);
+      }));
+
+    } catch (IllegalArgumentException e) {
+      log.warn("Policy for action '{}' cannot be compiled into a filter: {}", grpcRequest.getAction(), e.getMessage());
+      return Optional.empty();
+    } catch (Exception e) {
+      log.error("Failed to compile a filter against OPA engine at {}", opaCompileEndpoint, e);
+      return Optional.empty();
+    }
+  }
+
+  private static CompileFilterResponse toFilter(List<List<RegoPolicy.Residual>> residuals, String policyVersion) {
+    CompileFilterResponse.Builder filter = CompileFilterResponse.newBuilder();
+    for (List<RegoPolicy.Residual> conjunction : residuals) {
+      ResidualConjunction.Builder allOf = filter.addAnyOfBuilder();
+      for (RegoPolicy.Residual residual : conjunction) {
+        allOf.addAllOfBuilder()
+            .setOperator(ResidualCondition.Operator.valueOf(residual.operator().name()))
+            .setValue(residual.value());
+      }
+    }
+    return filter.setPolicyVersion(policyVersion).build();
+  }
+
+  // Identical bodies to the same endpoint get identical answers from OPA
+  private record OpaCall(String endpoint, Object body) {
+  }
+
+  private static List<AuthorizeResponse> denyAll(int count, String reason) {
+    return Collections.nCopies(count, AuthorizeResponse.newBuilder()
+        .setAllowed(false)
+        .setReason(reason)
+        .build());
+  }
+
   private OpaModels.OpaRequest buildOpaRequest(AuthorizeRequest grpcRequest) {
+    OpaModels.OpaRequest request = new OpaModels.OpaRequest();
+    request.setInput(buildOpaInput(grpcRequest));
+    log.debug("Sending OPA Request: {}", request);
+    return request;
+  }
+
+  private OpaModels.OpaInput buildOpaInput(AuthorizeRequest grpcRequest) {
+    return buildOpaInput(grpcRequest.getUserId(), grpcRequest.getRolesList(), grpcRequest.getAction(),
+        grpcRequest.getResource(), grpcRequest.getContextMap());
+  }
+
+  private OpaModels.OpaInput buildOpaInput(String userId, List<String> roles, String action, String resource,
+      java.util.Map<String, String> context) {
     OpaModels.User user = new OpaModels.User();
-    user.setId(grpcRequest.getUserId());
-    user.setRoles(new java.util.ArrayList<>(grpcRequest.getRolesList()));
+    user.setId(userId);
+    user.setRoles(new java.util.ArrayList<>(roles));
 
     OpaModels.OpaInput input = new OpaModels.OpaInput();
     input.setUser(user);
-    input.setAction(grpcRequest.getAction());
-    input.setResource(grpcRequest.getResource());
-    input.setContext(grpcRequest.getContextMap());
-
-    OpaModels.OpaRequest request = new OpaModels.OpaRequest();
-    request.setInput(input);
-    log.info("Sending OPA Request: {}", request);
-    return request;
+    input.setAction(action);
+    input.setResource(resource);
+    input.setContext(context);
+    return input;
   }
 }
@@ -1,5 +1,6 @@
 package com.nebula.authpolicy.service;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -10,6 +11,7 @@ public class OpaModels {
 
   @Data
   @NoArgsConstructor
+  @JsonInclude(JsonInclude.Include.NON_NULL)
   public static class OpaInput {
     private User user;
     private String action;
@@ -42,4 +44,44 @@ public class OpaModels {
     private boolean allow;
     private String reason;
   }
+
+  @Data
+  @NoArgsConstructor
+  public static class OpaBatchInput {
+    private List<OpaInput> batch;
+  }
+
+  @Data
+  @NoArgsConstructor
+  public static class OpaBatchRequest {
+    private OpaBatchInput input;
+  }
+
+  @Data
+  @NoArgsConstructor
+  public static class OpaBatchResponse {
+    private List<OpaResult> result;
+  }
+
+  @Data
+  @NoArgsConstructor
+  public static class OpaCompileRequest {
+    private String query;
+    private OpaInput input;
+    private List<String> unknowns;
+  }
+
+  @Data
+  @NoArgsConstructor
+  public static class OpaCompileResponse {
+    private OpaCompileResult result;
+  }
+
+  @Data
+  @NoArgsConstructor
+  public static class OpaCompileResult {
+    // Residual queries as OPA's JSON AST, one list of expressions per query
+    private List<List<Map<String, Object>>> queries;
+    private List<Object> support;
+  }
 }
@@ -0,0 +1,82 @@
+package com.nebula.authpolicy.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight for OPA evaluations: while a call for a given key is in
+ * flight, identical calls wait for its result instead of sending their own.
+ * Nothing is kept once the call completes, so this never serves a stale
+ * decision; it only collapses bursts.
+ *
+ * Calls that went to OPA and calls that shared one are counted as
+ * {@code opa_requests_total{coalesced="false|true"}}.
+ */
+@Component
+public class OpaRequestCoalescer {
+
+  private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+  private final boolean enabled;
+  private final Counter sent;
+  private final Counter coalesced;
+
+  public OpaRequestCoalescer(MeterRegistry meterRegistry,
+      @Value("${opa.coalescing.enabled:true}") boolean enabled) {
+    this.enabled = enabled;
+    this.sent = Counter.builder("opa.requests")
+        .description("OPA evaluations, by whether they shared an identical in-flight call")
+        .tag("coalesced", "false")
+        .register(meterRegistry);
+    this.coalesced = Counter.builder("opa.requests")
+        .description("OPA evaluations, by whether they shared an identical in-flight call")
+        .tag("coalesced", "true")
+        .register(meterRegistry);
+    Gauge.builder("opa.requests.in.flight", inFlight, Map::size)
+        .description("Distinct OPA evaluations currently in flight")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Runs {@code call}, or waits for the in-flight call with an equal key.
+   * An exception thrown by the call is rethrown to everyone who waited on it.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T execute(Object key, Supplier<T> call) {
+    if (!enabled) {
+      sent.increment();
+      return call.get();
+    }
+
+    CompletableFuture<Object> mine = new CompletableFuture<>();
+    CompletableFuture<Object> leader = inFlight.putIfAbsent(key, mine);
+    if (leader != null) {
+      coalesced.increment();
+      try {
+        return (T) leader.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException cause ? cause : e;
+      }
+    }
+
+    sent.increment();
+    try {
+      T result = call.get();
+      mine.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package com.nebula.authpolicy.service;
+
+import com.nebula.authpolicy.service.rego.RegoPolicy.Operator;
+import com.nebula.authpolicy.service.rego.RegoPolicy.Residual;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the residual queries OPA's Compile API returns for {@code allow} with
+ * {@code input.resource} unknown.
+ *
+ * Each query must be a conjunction of {@code ==}/{@code !=} between
+ * {@code input.resource} and a string, or {@code startswith}/{@code endswith}
+ * on it; anything else, support rules included, is rejected rather than
+ * approximated.
+ */
+final class OpaResidualQueries {
+
+  private static final List<Object> RESOURCE_REF = List.of(
+      Map.of("type", "var", "value", "input"),
+      Map.of("type", "string", "value", "resource"));
+
+  private OpaResidualQueries() {
+  }
+
+  /**
+   * @throws IllegalArgumentException if a query uses anything but the supported expressions
+   */
+  static List<List<Residual>> translate(OpaModels.OpaCompileResult result) {
+    if (result == null || result.getQueries() == null) {
+      // No query can make allow true
+      return List.of();
+    }
+    if (result.getSupport() != null && !result.getSupport().isEmpty()) {
+      throw new IllegalArgumentException("Residual depends on support rules");
+    }
+    List<List<Residual>> residuals = new ArrayList<>();
+    for (List<Map<String, Object>> query : result.getQueries()) {
+      List<Residual> conjunction = new ArrayList<>();
+      for (Map<String, Object> expression : query) {
+        conjunction.add(expression(expression));
+      }
+      if (conjunction.isEmpty()) {
+        return List.of(List.of());
+      }
+      residuals.add(List.copyOf(conjunction));
+    }
+    return List.copyOf(residuals);
+  }
+
+  private static Residual expression(Map<String, Object> expression) {
+    if (Boolean.TRUE.equals(expression.get("negated")) || expression.containsKey("with")
+        || !(expression.get("terms") instanceof List<?> terms) || terms.size() != 3) {
+      throw unsupported(expression);
+    }
+    String operator = operator(terms.get(0));
+    Object left = terms.get(1);
+    Object right = terms.get(2);
+    return switch (operator) {
+      case "eq", "equal" -> new Residual(Operator.EQUALS, literal(left, right, expression));
+      case "neq" -> new Residual(Operator.NOT_EQUALS, literal(left, right, expression));
+      case "startswith", "endswith" -> {
+        if (!isResource(left) || string(right) == null) {
+          throw unsupported(expression);
+        }
+        yield new Residual(operator.equals("startswith") ? Operator.STARTS_WITH : Operator.ENDS_WITH,
+            string(right));
+      }
+      default -> throw unsupported(expression);
+    };
+  }
+
+  // The string compared with input.resource, on whichever side it is
+  private static String literal(Object left, Object right, Map<String, Object> expression) {
+    if (isResource(left) && string(right) != null) {
+      return string(right);
+    }
+    if (isResource(right) && string(left) != null) {
+      return string(left);
+    }
+    throw unsupported(expression);
+  }
+
+  private static String operator(Object term) {
+    if (term instanceof Map<?, ?> map && "ref".equals(map.get("type"))
+        && map.get("value") instanceof List<?> ref && ref.size() == 1
+        && ref.get(0) instanceof Map<?, ?> head && head.get("value") instanceof String name) {
+      return name;
+    }
+    return "";
+  }
+
+  private static boolean isResource(Object term) {
+    return term instanceof Map<?, ?> map && "ref".equals(map.get("type")) && RESOURCE_REF.equals(map.get("value"));
+  }
+
+  private static String string(Object term) {
+    if (term instanceof Map<?, ?> map && "string".equals(map.get("type")) && map.get("value") instanceof String value) {
+      return value;
+    }
+    return null;
+  }
+
+  private static IllegalArgumentException unsupported(Map<String, Object> expression) {
+    return new IllegalArgumentException("Unsupported residual expression " + expression);
+  }
+}
@@ -0,0 +1,113 @@
+package com.nebula.authpolicy.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * Tracks which version of the policies decisions are made with.
+ *
+ * The version is a digest of the policy modules, polled from OPA's policy API
+ * (or taken from the {@link EmbeddedPolicyEngine} when it evaluates
+ * in-process, after giving it the chance to reload its file), so it changes
+ * exactly when a policy is added, edited or removed. Decisions carry it and
+ * listeners (the WatchPolicyVersion streams) are told as soon as it moves,
+ * which is what lets clients cache decisions.
+ */
+@Service
+public class PolicyVersionService {
+
+  private static final Logger log = LoggerFactory.getLogger(PolicyVersionService.class);
+
+  private final RestTemplate restTemplate;
+  private final EmbeddedPolicyEngine embeddedPolicyEngine;
+  private final Set<Consumer<String>> listeners = new CopyOnWriteArraySet<>();
+  private volatile String currentVersion = "";
+
+  @Value("${opa.policies-url:http://localhost:8181/v1/policies}")
+  private String policiesEndpoint;
+
+  public PolicyVersionService(RestTemplateBuilder builder, EmbeddedPolicyEngine embeddedPolicyEngine) {
+    this.restTemplate = builder.build();
+    this.embeddedPolicyEngine = embeddedPolicyEngine;
+  }
+
+  public String currentVersion() {
+    return currentVersion;
+  }
+
+  public void addListener(Consumer<String> listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(Consumer<String> listener) {
+    listeners.remove(listener);
+  }
+
+  @Scheduled(initialDelay = 0, fixedDelayString = "${opa.policy-poll-interval-ms:5000}")
+  public void refresh() {
+    embeddedPolicyEngine.reload();
+    String version = embeddedPolicyEngine.isActive() ? embeddedPolicyEngine.version() : opaVersion();
+    if (version == null || version.equals(currentVersion)) {
+      return;
+    }
+    log.info("Policy version changed from '{}' to '{}'", currentVersion, version);
+    currentVersion = version;
+    for (Consumer<String> listener : listeners) {
+      listener.accept(version);
+    }
+  }
+
+  private String opaVersion() {
+    try {
+      return digest(restTemplate.getForObject(policiesEndpoint, JsonNode.class));
+    } catch (Exception e) {
+      log.warn("Failed to read policy modules from OPA at {}: {}", policiesEndpoint, e.getMessage());
+      return null;
+    }
+  }
+
+  private static String digest(JsonNode policies) {
+    if (policies == null) {
+      throw new IllegalStateException("Empty response");
+    }
+    Map<String, String> modules = new TreeMap<>();
+    for (JsonNode module : policies.path("result")) {
+      modules.put(module.path("id").asText(), module.path("raw").asText());
+    }
+    return digest(modules);
+  }
+
+  /**
+   * @param modules policy source by module id, in a stable order
+   */
+  static String digest(Map<String, String> modules) {
+    try {
+      MessageDigest sha = MessageDigest.getInstance("SHA-256");
+      modules.forEach((id, raw) -> {
+        sha.update(id.getBytes(StandardCharsets.UTF_8));
+        sha.update((byte) 0);
+        sha.update(raw.getBytes(StandardCharsets.UTF_8));
+        sha.update((byte) 0);
+      });
+      return HexFormat.of().formatHex(sha.digest(), 0, 8);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,386 @@
+package com.nebula.authpolicy.service.rego;
+
+import com.nebula.authpolicy.service.rego.RegoPolicy.Condition;
+import com.nebula.authpolicy.service.rego.RegoPolicy.Operator;
+import com.nebula.authpolicy.service.rego.RegoPolicy.ReasonClause;
+import com.nebula.authpolicy.service.rego.RegoPolicy.Residual;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles the Rego subset described on {@link RegoPolicy}.
+ */
+final class RegoParser {
+
+  private static final String NEWLINE = "\n";
+
+  private final List<Token> tokens;
+  private int pos;
+
+  private final List<List<Condition>> allowRules = new ArrayList<>();
+  private final List<ReasonClause> reasonClauses = new ArrayList<>();
+  private boolean defaultAllow;
+  private String defaultReason;
+
+  RegoParser(String source) {
+    this.tokens = tokenize(source);
+  }
+
+  RegoPolicy parse() {
+    skipNewlines();
+    expect("package");
+    identifier();
+    endStatement();
+
+    while (true) {
+      skipNewlines();
+      if (atEnd()) {
+        break;
+      }
+      Token head = next();
+      switch (head.text) {
+        case "import" -> {
+          identifier();
+          endStatement();
+        }
+        case "default" -> parseDefault();
+        case "allow" -> parseAllow();
+        case "reason" -> parseReason(head);
+        default -> skipStatement();
+      }
+    }
+    return new RegoPolicy(List.copyOf(allowRules), defaultAllow, List.copyOf(reasonClauses), defaultReason);
+  }
+
+  private void parseDefault() {
+    Token name = next();
+    expectAssignment();
+    Token value = next();
+    switch (name.text) {
+      case "allow" -> {
+        if (!value.text.equals("true") && !value.text.equals("false")) {
+          throw error(value, "default allow must be true or false");
+        }
+        defaultAllow = Boolean.parseBoolean(value.text);
+      }
+      case "reason" -> defaultReason = string(value);
+      default -> throw error(name, "default for unsupported rule '" + name.text + "'");
+    }
+    endStatement();
+  }
+
+  private void parseAllow() {
+    expect("if");
+    allowRules.add(parseBody());
+    endStatement();
+  }
+
+  private void parseReason(Token head) {
+    if (!reasonClauses.isEmpty()) {
+      throw error(head, "reason may only be defined once (use an else chain)");
+    }
+    do {
+      expectAssignment();
+      String value = string(next());
+      List<Condition> body = List.of();
+      if (peek().is("if")) {
+        next();
+        body = parseBody();
+      }
+      reasonClauses.add(new ReasonClause(value, body));
+    } while (nextIsElse());
+    endStatement();
+  }
+
+  private boolean nextIsElse() {
+    int mark = pos;
+    skipNewlines();
+    if (peek().is("else")) {
+      next();
+      return true;
+    }
+    pos = mark;
+    return false;
+  }
+
+  private List<Condition> parseBody() {
+    expect("{");
+    List<Condition> body = new ArrayList<>();
+    while (true) {
+      while (peek().isNewline() || peek().is(";")) {
+        next();
+      }
+      if (peek().is("}")) {
+        next();
+        return List.copyOf(body);
+      }
+      body.add(parseExpression());
+      Token separator = peek();
+      if (!separator.isNewline() && !separator.is(";") && !separator.is("}")) {
+        throw error(separator, "unsupported expression syntax near '" + separator.text + "'");
+      }
+    }
+  }
+
+  private Condition parseExpression() {
+    Token first = next();
+
+    if ((first.is("startswith") || first.is("endswith")) && peek().is("(")) {
+      next();
+      List<String> ref = reference(next());
+      expect(",");
+      String literal = string(next());
+      expect(")");
+      return new Comparison(ref, first.is("startswith") ? Operator.STARTS_WITH : Operator.ENDS_WITH, literal);
+    }
+
+    if (first.string) {
+      Token operator = next();
+      if (operator.is("in")) {
+        return new Membership(reference(next()), first.text);
+      }
+      return comparison(reference(next()), operator, first.text);
+    }
+
+    List<String> ref = reference(first);
+    Token operator = next();
+    return comparison(ref, operator, string(next()));
+  }
+
+  private Condition comparison(List<String> ref, Token operator, String literal) {
+    return switch (operator.text) {
+      case "==" -> new Comparison(ref, Operator.EQUALS, literal);
+      case "!=" -> new Comparison(ref, Operator.NOT_EQUALS, literal);
+      default -> throw error(operator, "unsupported operator '" + operator.text + "'");
+    };
+  }
+
+  private record Comparison(List<String> ref, Operator operator, String literal) implements Condition {
+
+    @Override
+    public boolean test(Map<String, Object> input) {
+      Object value = resolve(input, ref);
+      return switch (operator) {
+        case EQUALS -> literal.equals(value);
+        // An undefined reference makes the expression undefined, not true
+        case NOT_EQUALS -> value != null && !literal.equals(value);
+        case STARTS_WITH -> value instanceof String string && string.startsWith(literal);
+        case ENDS_WITH -> value instanceof String string && string.endsWith(literal);
+      };
+    }
+
+    @Override
+    public Residual residual() {
+      return new Residual(operator, literal);
+    }
+  }
+
+  private record Membership(List<String> ref, String element) implements Condition {
+
+    @Override
+    public boolean test(Map<String, Object> input) {
+      return switch (resolve(input, ref)) {
+        case Collection<?> values -> values.contains(element);
+        case Map<?, ?> values -> values.containsValue(element);
+        case null, default -> false;
+      };
+    }
+
+    @Override
+    public Residual residual() {
+      return null;
+    }
+  }
+
+  private static Object resolve(Map<String, Object> input, List<String> ref) {
+    Object value = input;
+    for (String key : ref) {
+      if (!(value instanceof Map<?, ?> map)) {
+        return null;
+      }
+      value = map.get(key);
+    }
+    return value;
+  }
+
+  private List<String> reference(Token token) {
+    if (token.string || !(token.text.equals("input") || token.text.startsWith("input."))) {
+      throw error(token, "only input references are supported, found '" + token.text + "'");
+    }
+    List<String> path = List.of(token.text.split("\\."));
+    return path.subList(1, path.size());
+  }
+
+  // Skips a rule allow and reason cannot depend on, brackets and else chains included
+  private void skipStatement() {
+    int depth = 0;
+    while (!atEnd()) {
+      Token token = peek();
+      if (depth == 0 && token.isNewline()) {
+        int mark = pos;
+        skipNewlines();
+        if (!peek().is("else")) {
+          pos = mark;
+          return;
+        }
+        continue;
+      }
+      next();
+      if (!token.string) {
+        switch (token.text) {
+          case "{", "[", "(" -> depth++;
+          case "}", "]", ")" -> depth--;
+          default -> {
+          }
+        }
+      }
+    }
+  }
+
+  private void endStatement() {
+    if (!atEnd() && !peek().isNewline()) {
+      throw error(peek(), "unexpected '" + peek().text + "'");
+    }
+  }
+
+  private void expectAssignment() {
+    Token token = next();
+    if (!token.is(":=") && !token.is("=")) {
+      throw error(token, "expected ':=' but found '" + token.text + "'");
+    }
+  }
+
+  private void expect(String text) {
+    Token token = next();
+    if (!token.is(text)) {
+      throw error(token, "expected '" + text + "' but found '" + token.text + "'");
+    }
+  }
+
+  private void identifier() {
+    Token token = next();
+    if (token.string || !Character.isJavaIdentifierStart(token.text.charAt(0))) {
+      throw error(token, "expected a name but found '" + token.text + "'");
+    }
+  }
+
+  private String string(Token token) {
+    if (!token.string) {
+      throw error(token, "expected a string but found '" + token.text + "'");
+    }
+    return token.text;
+  }
+
+  private void skipNewlines() {
+    while (!atEnd() && peek().isNewline()) {
+      pos++;
+    }
+  }
+
+  private boolean atEnd() {
+    return pos >= tokens.size();
+  }
+
+  private Token peek() {
+    return atEnd() ? Token.EOF : tokens.get(pos);
+  }
+
+  private Token next() {
+    if (atEnd()) {
+      throw new IllegalArgumentException("Unexpected end of policy");
+    }
+    return tokens.get(pos++);
+  }
+
+  private static IllegalArgumentException error(Token token, String message) {
+    if (token == Token.EOF) {
+      return new IllegalArgumentException("Unexpected end of policy");
+    }
+    return new IllegalArgumentException("Line " + token.line + ": " + message);
+  }
+
+  private static List<Token> tokenize(String source) {
+    List<Token> tokens = new ArrayList<>();
+    int line = 1;
+    int i = 0;
+    while (i < source.length()) {
+      char c = source.charAt(i);
+      if (c == '\n') {
+        tokens.add(new Token(NEWLINE, false, line++));
+        i++;
+      } else if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '#') {
+        while (i < source.length() && source.charAt(i) != '\n') {
+          i++;
+        }
+      } else if (c == '"') {
+        StringBuilder value = new StringBuilder();
+        i++;
+        while (i < source.length() && source.charAt(i) != '"') {
+          char ch = source.charAt(i++);
+          if (ch == '\\' && i < source.length()) {
+            char escaped = source.charAt(i++);
+            value.append(switch (escaped) {
+              case 'n' -> '\n';
+              case 't' -> '\t';
+              default -> escaped;
+            });
+          } else if (ch == '\n') {
+            throw new IllegalArgumentException("Line " + line + ": unterminated string");
+          } else {
+            value.append(ch);
+          }
+        }
+        if (i >= source.length()) {
+          throw new IllegalArgumentException("Line " + line + ": unterminated string");
+        }
+        i++;
+        tokens.add(new Token(value.toString(), true, line));
+      } else if (c == '`') {
+        int end = source.indexOf('`', i + 1);
+        if (end < 0) {
+          throw new IllegalArgumentException("Line " + line + ": unterminated raw string");
+        }
+        String value = source.substring(i + 1, end);
+        tokens.add(new Token(value, true, line));
+        line += (int) value.chars().filter(ch -> ch == '\n').count();
+        i = end + 1;
+      } else if (Character.isLetterOrDigit(c) || c == '_') {
+        int start = i;
+        while (i < source.length()
+            && (Character.isLetterOrDigit(source.charAt(i)) || source.charAt(i) == '_' || source.charAt(i) == '.')) {
+          i++;
+        }
+        tokens.add(new Token(source.substring(start, i), false, line));
+      } else if (i + 1 < source.length() && isTwoCharOperator(c, source.charAt(i + 1))) {
+        tokens.add(new Token(source.substring(i, i + 2), false, line));
+        i += 2;
+      } else {
+        tokens.add(new Token(String.valueOf(c), false, line));
+        i++;
+      }
+    }
+    return tokens;
+  }
+
+  private static boolean isTwoCharOperator(char first, char second) {
+    return second == '=' && (first == ':' || first == '=' || first == '!' || first == '<' || first == '>');
+  }
+
+  private record Token(String text, boolean string, int line) {
+
+    static final Token EOF = new Token("", false, -1);
+
+    boolean is(String symbol) {
+      return !string && text.equals(symbol);
+    }
+
+    boolean isNewline() {
+      return is(NEWLINE);
+    }
+  }
+}
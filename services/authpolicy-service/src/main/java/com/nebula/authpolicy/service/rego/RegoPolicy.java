@@ -0,0 +1,138 @@
+package com.nebula.authpolicy.service.rego;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Rego module compiled for in-process evaluation.
+ *
+ * Only the part of Rego that Nebula's RBAC policy is written in is supported:
+ * a boolean {@code allow} rule defined by any number of bodies, a
+ * {@code reason} string rule with an else chain, defaults for both, and
+ * bodies made of membership ({@code "x" in input.a.b}), equality or
+ * inequality against a string literal and the {@code startswith} /
+ * {@code endswith} builtins over {@code input} references. Other rules are
+ * skipped, which is safe because allow and reason may only refer to input.
+ * Anything outside the subset fails compilation, so a policy that outgrows it
+ * is evaluated by OPA rather than evaluated differently.
+ */
+public final class RegoPolicy {
+
+  private final List<List<Condition>> allowRules;
+  private final boolean defaultAllow;
+  private final List<ReasonClause> reasonClauses;
+  private final String defaultReason;
+
+  RegoPolicy(List<List<Condition>> allowRules, boolean defaultAllow, List<ReasonClause> reasonClauses,
+      String defaultReason) {
+    this.allowRules = allowRules;
+    this.defaultAllow = defaultAllow;
+    this.reasonClauses = reasonClauses;
+    this.defaultReason = defaultReason;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the module is not valid Rego or uses
+   *                                  constructs outside the supported subset
+   */
+  public static RegoPolicy compile(String source) {
+    return new RegoParser(source).parse();
+  }
+
+  public boolean allow(Map<String, Object> input) {
+    for (List<Condition> body : allowRules) {
+      if (holds(body, input)) {
+        return true;
+      }
+    }
+    return defaultAllow;
+  }
+
+  /**
+   * Partially evaluates {@code allow} with {@code unknown} (a path under
+   * input) left open: conditions on the rest of the input are decided now and
+   * the ones on {@code unknown} are returned, one conjunction per allow body
+   * that can still hold. An empty list means allow is false for every value
+   * of {@code unknown}; an empty conjunction means it is true for all of them.
+   *
+   * @throws IllegalArgumentException if a condition on {@code unknown} has no
+   *                                  residual form
+   */
+  public List<List<Residual>> partial(Map<String, Object> input, List<String> unknown) {
+    if (defaultAllow) {
+      return List.of(List.of());
+    }
+    List<List<Residual>> residuals = new ArrayList<>();
+    for (List<Condition> body : allowRules) {
+      if (!holds(body.stream().filter(condition -> !reads(condition, unknown)).toList(), input)) {
+        continue;
+      }
+      List<Residual> conjunction = new ArrayList<>();
+      for (Condition condition : body) {
+        if (!reads(condition, unknown)) {
+          continue;
+        }
+        Residual residual = condition.ref().equals(unknown) ? condition.residual() : null;
+        if (residual == null) {
+          throw new IllegalArgumentException("Condition on input." + String.join(".", condition.ref())
+              + " has no residual form");
+        }
+        conjunction.add(residual);
+      }
+      if (conjunction.isEmpty()) {
+        return List.of(List.of());
+      }
+      residuals.add(List.copyOf(conjunction));
+    }
+    return List.copyOf(residuals);
+  }
+
+  private static boolean reads(Condition condition, List<String> unknown) {
+    List<String> ref = condition.ref();
+    return ref.size() >= unknown.size() && ref.subList(0, unknown.size()).equals(unknown);
+  }
+
+  /**
+   * @return the reason, or {@code null} when the rule is undefined for this input
+   */
+  public String reason(Map<String, Object> input) {
+    for (ReasonClause clause : reasonClauses) {
+      if (holds(clause.body(), input)) {
+        return clause.value();
+      }
+    }
+    return defaultReason;
+  }
+
+  private static boolean holds(List<Condition> body, Map<String, Object> input) {
+    for (Condition condition : body) {
+      if (!condition.test(input)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public enum Operator { EQUALS, NOT_EQUALS, STARTS_WITH, ENDS_WITH }
+
+  /**
+   * A condition left over from partial evaluation: the unknown value compared
+   * with a string literal.
+   */
+  public record Residual(Operator operator, String value) {
+  }
+
+  interface Condition {
+    boolean test(Map<String, Object> input);
+
+    /** The input path the condition reads. */
+    List<String> ref();
+
+    /** The condition as a residual on {@link #ref()}, or null if it has none. */
+    Residual residual();
+  }
+
+  record ReasonClause(String value, List<Condition> body) {
+  }
+}
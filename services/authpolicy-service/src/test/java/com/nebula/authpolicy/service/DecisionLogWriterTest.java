@@ -0,0 +1,60 @@
+package com.nebula.authpolicy.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nebula.authpolicy.grpc.AuthorizeRequest;
+import com.nebula.authpolicy.grpc.AuthorizeResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecisionLogWriterTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void close_DuringWrite_WritesEverythingBuffered() throws Exception {
+    // Holds the drainer in the middle of its first batch until shutdown has begun
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch closing = new CountDownLatch(1);
+    ObjectMapper objectMapper = new ObjectMapper() {
+      @Override
+      public String writeValueAsString(Object value) throws JsonProcessingException {
+        if (writing.getCount() > 0) {
+          writing.countDown();
+          while (closing.getCount() > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+          }
+          // Give an interrupt from close() time to land
+          LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(200));
+        }
+        return super.writeValueAsString(value);
+      }
+    }.findAndRegisterModules();
+    Path log = dir.resolve("decisions/decisions.ndjson");
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    DecisionLogWriter writer = new DecisionLogWriter(objectMapper, meterRegistry, log.toString(), 1000, 100,
+        Duration.ofSeconds(5));
+
+    for (int i = 0; i < 10; i++) {
+      writer.record(AuthorizeRequest.newBuilder().setUserId("user-" + i).setAction("read").setResource("project")
+          .build(), AuthorizeResponse.newBuilder().setAllowed(true).setPolicyVersion("v1").build());
+    }
+    assertTrue(writing.await(10, TimeUnit.SECONDS));
+    closing.countDown();
+    writer.close();
+
+    assertEquals(10, Files.readAllLines(log).size());
+    assertEquals(0, meterRegistry.get("authpolicy.decision.log.dropped").counter().count());
+  }
+}
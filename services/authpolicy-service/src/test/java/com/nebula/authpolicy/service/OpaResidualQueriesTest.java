@@ -0,0 +1,98 @@
+package com.nebula.authpolicy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nebula.authpolicy.service.rego.RegoPolicy.Operator;
+import com.nebula.authpolicy.service.rego.RegoPolicy.Residual;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpaResidualQueriesTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private static final String RESOURCE = """
+      {"type": "ref", "value": [{"type": "var", "value": "input"}, {"type": "string", "value": "resource"}]}""";
+
+  @Test
+  void translate_NoQueries_AllowsNothing() throws Exception {
+    assertEquals(List.of(), OpaResidualQueries.translate(null));
+    assertEquals(List.of(), OpaResidualQueries.translate(result("{}")));
+  }
+
+  @Test
+  void translate_EmptyQuery_AllowsEverything() throws Exception {
+    assertEquals(List.of(List.of()), OpaResidualQueries.translate(result("""
+        {"queries": [[%s], []]}""".formatted(call("startswith", RESOURCE, string("project:"))))));
+  }
+
+  @Test
+  void translate_BuiltinsPerQuery() throws Exception {
+    List<List<Residual>> residuals = OpaResidualQueries.translate(result("""
+        {"queries": [[%s], [%s, %s]]}""".formatted(
+        call("startswith", RESOURCE, string("project:")),
+        call("startswith", RESOURCE, string("folder:")),
+        call("endswith", RESOURCE, string(":shared")))));
+
+    assertEquals(List.of(
+            List.of(new Residual(Operator.STARTS_WITH, "project:")),
+            List.of(new Residual(Operator.STARTS_WITH, "folder:"), new Residual(Operator.ENDS_WITH, ":shared"))),
+        residuals);
+  }
+
+  @Test
+  void translate_EqualityWithLiteralOnEitherSide() throws Exception {
+    List<List<Residual>> residuals = OpaResidualQueries.translate(result("""
+        {"queries": [[%s], [%s], [%s]]}""".formatted(
+        call("eq", RESOURCE, string("project:1")),
+        call("equal", string("project:2"), RESOURCE),
+        call("neq", RESOURCE, string("project:3")))));
+
+    assertEquals(List.of(
+            List.of(new Residual(Operator.EQUALS, "project:1")),
+            List.of(new Residual(Operator.EQUALS, "project:2")),
+            List.of(new Residual(Operator.NOT_EQUALS, "project:3"))),
+        residuals);
+  }
+
+  @Test
+  void translate_Unsupported_Rejected() throws Exception {
+    String other = """
+        {"type": "ref", "value": [{"type": "var", "value": "input"}, {"type": "string", "value": "action"}]}""";
+    List<String> unsupported = List.of(
+        // support rules
+        "{\"queries\": [[%s]], \"support\": [{}]}".formatted(call("eq", RESOURCE, string("project:1"))),
+        // negated expression
+        "{\"queries\": [[%s]]}".formatted(call("eq", RESOURCE, string("project:1"))
+            .replaceFirst("\\{", "{\"negated\": true, ")),
+        // operator outside the subset
+        "{\"queries\": [[%s]]}".formatted(call("gt", RESOURCE, string("project:1"))),
+        // comparison against something other than input.resource
+        "{\"queries\": [[%s]]}".formatted(call("eq", other, string("view"))),
+        // comparison against a non-string
+        "{\"queries\": [[%s]]}".formatted(call("eq", RESOURCE, "{\"type\": \"number\", \"value\": 1}")),
+        // builtin with the resource as the wrong argument
+        "{\"queries\": [[%s]]}".formatted(call("startswith", string("project:"), RESOURCE)));
+
+    for (String json : unsupported) {
+      OpaModels.OpaCompileResult result = result(json);
+      assertThrows(IllegalArgumentException.class, () -> OpaResidualQueries.translate(result), json);
+    }
+  }
+
+  private static OpaModels.OpaCompileResult result(String json) throws Exception {
+    return MAPPER.readValue(json, OpaModels.OpaCompileResult.class);
+  }
+
+  private static String call(String operator, String left, String right) {
+    return """
+        {"index": 0, "terms": [{"type": "ref", "value": [{"type": "var", "value": "%s"}]}, %s, %s]}"""
+        .formatted(operator, left, right);
+  }
+
+  private static String string(String value) {
+    return "{\"type\": \"string\", \"value\": \"" + value + "\"}";
+  }
+}
@@ -0,0 +1,91 @@
+package com.nebula.authpolicy.service.rego;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The checked-in RBAC policy and inputs covering each of its rules, with the
+ * decisions OPA makes for them.
+ */
+final class RbacPolicyCases {
+
+  static final Path POLICY = Path.of("../../opa-policies/rbac.rego");
+
+  static final String DEFAULT_REASON = "Unknown or denied by default";
+
+  record Case(String name, Map<String, Object> input, boolean allow, String reason) {
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  private RbacPolicyCases() {
+  }
+
+  static String source() {
+    try {
+      return Files.readString(POLICY);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static List<Case> cases() {
+    return List.of(
+        new Case("admin", input(List.of("nebula-admin"), "delete", "project:1"),
+            true, "User is a platform administrator"),
+        new Case("admin wins the reason chain", input(List.of("nebula-user", "nebula-admin"), "create_project", null),
+            true, "User is a platform administrator"),
+        new Case("user creates project", input(List.of("nebula-user"), "create_project", "project"),
+            true, "Users are allowed to create projects"),
+        new Case("user creates folder", input(List.of("nebula-user"), "create_folder", "folder"),
+            true, "Users are allowed to create folders"),
+        new Case("user creates repository", input(List.of("nebula-user"), "code:repository:create", "repo:1"),
+            true, "Users are allowed to create repositories"),
+        new Case("user reads repository", input(List.of("nebula-user"), "code:repository:read", "repo:1"),
+            true, "Users are allowed to read repositories"),
+        new Case("user views project", input(List.of("nebula-user"), "view", "project:42"),
+            true, "Users are allowed to view projects"),
+        new Case("user views folder", input(List.of("nebula-user"), "view", "folder:7"),
+            true, "Users are allowed to view folders"),
+        // Allowed by its own rule but without a reason of its own
+        new Case("user edits project", input(List.of("nebula-user"), "edit", "project:42"),
+            true, DEFAULT_REASON),
+        new Case("user edits folder", input(List.of("nebula-user"), "edit", "folder:7"),
+            false, DEFAULT_REASON),
+        new Case("user views repository", input(List.of("nebula-user"), "view", "repo:1"),
+            false, DEFAULT_REASON),
+        new Case("prefix is case sensitive", input(List.of("nebula-user"), "view", "Project:42"),
+            false, DEFAULT_REASON),
+        new Case("resource missing", input(List.of("nebula-user"), "view", null),
+            false, DEFAULT_REASON),
+        new Case("unknown role", input(List.of("guest"), "create_project", "project"),
+            false, DEFAULT_REASON),
+        new Case("no roles", input(List.of(), "view", "project:42"),
+            false, DEFAULT_REASON),
+        new Case("no user", input(null, "view", "project:42"),
+            false, DEFAULT_REASON));
+  }
+
+  // Absent fields stay undefined, as EmbeddedPolicyEngine builds its input
+  static Map<String, Object> input(List<String> roles, String action, String resource) {
+    Map<String, Object> input = new HashMap<>();
+    if (roles != null) {
+      input.put("user", Map.of("id", "user1", "roles", roles));
+    }
+    if (action != null) {
+      input.put("action", action);
+    }
+    if (resource != null) {
+      input.put("resource", resource);
+    }
+    return input;
+  }
+}
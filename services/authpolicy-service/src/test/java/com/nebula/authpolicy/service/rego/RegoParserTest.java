@@ -0,0 +1,159 @@
+package com.nebula.authpolicy.service.rego;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegoParserTest {
+
+  @Test
+  void compile_RbacPolicy_Succeeds() {
+    assertDoesNotThrow(() -> RegoPolicy.compile(RbacPolicyCases.source()));
+  }
+
+  @Test
+  void compile_NoRules_UsesDefaults() {
+    RegoPolicy policy = RegoPolicy.compile("""
+        package p
+        default allow := true
+        default reason := "open"
+        """);
+
+    assertTrue(policy.allow(Map.of()));
+    assertEquals("open", policy.reason(Map.of()));
+  }
+
+  @Test
+  void compile_NoDefaults_AllowFalseAndReasonUndefined() {
+    RegoPolicy policy = RegoPolicy.compile("package p\n");
+
+    assertFalse(policy.allow(Map.of()));
+    assertNull(policy.reason(Map.of()));
+  }
+
+  @Test
+  void compile_SemicolonsCommentsAndRawStrings() {
+    RegoPolicy policy = RegoPolicy.compile("""
+        package p # trailing comment
+        import rego.v1
+        # allow if { false }
+        allow if { input.a == `x`; input.b != "y" }
+        """);
+
+    assertTrue(policy.allow(Map.of("a", "x", "b", "z")));
+    assertFalse(policy.allow(Map.of("a", "x", "b", "y")));
+    // != on an undefined reference is undefined, so the body does not hold
+    assertFalse(policy.allow(Map.of("a", "x")));
+  }
+
+  @Test
+  void compile_LiteralOnEitherSideOfComparison() {
+    RegoPolicy policy = RegoPolicy.compile("""
+        package p
+        allow if {
+            "x" == input.a
+        }
+        """);
+
+    assertTrue(policy.allow(Map.of("a", "x")));
+  }
+
+  @Test
+  void compile_StringEscapes() {
+    RegoPolicy policy = RegoPolicy.compile("""
+        package p
+        reason := "say \\"hi\\"\\n"
+        """);
+
+    assertEquals("say \"hi\"\n", policy.reason(Map.of()));
+  }
+
+  @Test
+  void compile_MembershipInObjectChecksValues() {
+    RegoPolicy policy = RegoPolicy.compile("""
+        package p
+        allow if {
+            "admin" in input.roles
+        }
+        """);
+
+    assertTrue(policy.allow(Map.of("roles", Map.of("primary", "admin"))));
+    assertFalse(policy.allow(Map.of("roles", Map.of("admin", "user"))));
+    assertFalse(policy.allow(Map.of("roles", "admin")));
+  }
+
+  @Test
+  void compile_SkipsRulesAllowDoesNotUse() {
+    RegoPolicy policy = RegoPolicy.compile("""
+        package p
+        helper := [x |
+            some x in input.items
+        ]
+        other := 1 if {
+            count(input.items) > 1
+        } else := 2
+        allow if {
+            input.a == "x"
+        }
+        """);
+
+    assertTrue(policy.allow(Map.of("a", "x")));
+  }
+
+  @Test
+  void compile_ReasonElseChainTakesFirstMatch() {
+    RegoPolicy policy = RegoPolicy.compile("""
+        package p
+        reason := "a" if {
+            input.k == "a"
+        } else := "b" if {
+            startswith(input.k, "b")
+        } else := "other"
+        """);
+
+    assertEquals("a", policy.reason(Map.of("k", "a")));
+    assertEquals("b", policy.reason(Map.of("k", "bee")));
+    assertEquals("other", policy.reason(Map.of("k", "c")));
+  }
+
+  @Test
+  void compile_UnsupportedConstructs_Fail() {
+    List<String> unsupported = List.of(
+        // builtin outside the subset
+        "package p\nallow if {\n  count(input.roles) > 1\n}\n",
+        // reference to data rather than input
+        "package p\nallow if {\n  data.admins[input.user] == \"x\"\n}\n",
+        // comparison operator outside the subset
+        "package p\nallow if {\n  input.level >= \"3\"\n}\n",
+        // allow with a non-boolean value
+        "package p\nallow := input.flag\n",
+        // default for another rule
+        "package p\ndefault other := 1\n",
+        "package p\ndefault allow := 1\n");
+
+    for (String source : unsupported) {
+      assertThrows(IllegalArgumentException.class, () -> RegoPolicy.compile(source), source);
+    }
+  }
+
+  @Test
+  void compile_ReasonDefinedTwice_Fails() {
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> RegoPolicy.compile("""
+        package p
+        reason := "a"
+        reason := "b"
+        """));
+
+    assertTrue(e.getMessage().startsWith("Line 3:"), e.getMessage());
+  }
+
+  @Test
+  void compile_MalformedSource_Fails() {
+    assertThrows(IllegalArgumentException.class, () -> RegoPolicy.compile("allow if { input.a == \"x\" }\n"));
+    assertThrows(IllegalArgumentException.class, () -> RegoPolicy.compile("package p\nreason := \"open\n"));
+    assertThrows(IllegalArgumentException.class, () -> RegoPolicy.compile("package p\nallow if {\n"));
+  }
+}
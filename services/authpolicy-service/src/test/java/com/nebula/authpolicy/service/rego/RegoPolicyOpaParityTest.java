@@ -0,0 +1,70 @@
+package com.nebula.authpolicy.service.rego;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nebula.authpolicy.service.rego.RbacPolicyCases.Case;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Asks the OPA release deployed next to authpolicy-service for the same
+ * decisions {@link RegoPolicyTest} expects from the embedded evaluator.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RegoPolicyOpaParityTest {
+
+  @Container
+  static final GenericContainer<?> OPA = new GenericContainer<>("openpolicyagent/opa:0.63.0")
+      .withCopyFileToContainer(MountableFile.forHostPath(RbacPolicyCases.POLICY), "/policies/rbac.rego")
+      .withCommand("run", "--server", "--addr=0.0.0.0:8181", "/policies/rbac.rego")
+      .withExposedPorts(8181)
+      .waitingFor(Wait.forHttp("/health").forPort(8181));
+
+  private static final HttpClient HTTP = HttpClient.newHttpClient();
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static RegoPolicy embedded;
+
+  @BeforeAll
+  static void compile() {
+    embedded = RegoPolicy.compile(RbacPolicyCases.source());
+  }
+
+  static List<Case> rbacCases() {
+    return RbacPolicyCases.cases();
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("rbacCases")
+  void rbac_EmbeddedMatchesOpa(Case rbacCase) throws Exception {
+    JsonNode result = evaluate(rbacCase.input());
+
+    assertEquals(result.path("allow").asBoolean(), embedded.allow(rbacCase.input()));
+    assertEquals(result.path("reason").asText(null), embedded.reason(rbacCase.input()));
+  }
+
+  private static JsonNode evaluate(Map<String, Object> input) throws Exception {
+    HttpRequest request = HttpRequest.newBuilder()
+        .uri(URI.create("http://" + OPA.getHost() + ":" + OPA.getMappedPort(8181) + "/v1/data/nebula/authz"))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(Map.of("input", input))))
+        .build();
+    HttpResponse<String> response = HTTP.send(request, HttpResponse.BodyHandlers.ofString());
+    assertEquals(200, response.statusCode(), response.body());
+    return MAPPER.readTree(response.body()).path("result");
+  }
+}
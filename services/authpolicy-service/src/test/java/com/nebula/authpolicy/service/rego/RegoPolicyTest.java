@@ -0,0 +1,114 @@
+package com.nebula.authpolicy.service.rego;
+
+import com.nebula.authpolicy.service.rego.RbacPolicyCases.Case;
+import com.nebula.authpolicy.service.rego.RegoPolicy.Operator;
+import com.nebula.authpolicy.service.rego.RegoPolicy.Residual;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegoPolicyTest {
+
+  private static final RegoPolicy RBAC = RegoPolicy.compile(RbacPolicyCases.source());
+
+  static List<Case> rbacCases() {
+    return RbacPolicyCases.cases();
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("rbacCases")
+  void rbac_MatchesOpaDecision(Case rbacCase) {
+    assertEquals(rbacCase.allow(), RBAC.allow(rbacCase.input()));
+    assertEquals(rbacCase.reason(), RBAC.reason(rbacCase.input()));
+  }
+
+  @Test
+  void partial_UserViews_ResidualPerResourceType() {
+    List<List<Residual>> residuals = RBAC.partial(
+        RbacPolicyCases.input(List.of("nebula-user"), "view", null), List.of("resource"));
+
+    assertEquals(List.of(
+        List.of(new Residual(Operator.STARTS_WITH, "project:")),
+        List.of(new Residual(Operator.STARTS_WITH, "folder:"))), residuals);
+  }
+
+  @Test
+  void partial_Admin_AllowsEverything() {
+    assertEquals(List.of(List.of()), RBAC.partial(
+        RbacPolicyCases.input(List.of("nebula-admin"), "view", null), List.of("resource")));
+  }
+
+  @Test
+  void partial_UserReadsRepositories_AllowsEverythingWithoutResourceCondition() {
+    assertEquals(List.of(List.of()), RBAC.partial(
+        RbacPolicyCases.input(List.of("nebula-user"), "code:repository:read", null), List.of("resource")));
+  }
+
+  @Test
+  void partial_NoMatchingRule_AllowsNothing() {
+    assertEquals(List.of(), RBAC.partial(
+        RbacPolicyCases.input(List.of("guest"), "view", null), List.of("resource")));
+  }
+
+  @Test
+  void partial_KnownResourceIgnored() {
+    // The unknown is left open even if the input happens to carry it
+    assertEquals(2, RBAC.partial(
+        RbacPolicyCases.input(List.of("nebula-user"), "view", "repo:1"), List.of("resource")).size());
+  }
+
+  @Test
+  void partial_DefaultAllow_AllowsEverything() {
+    RegoPolicy policy = RegoPolicy.compile("package p\ndefault allow := true\n");
+
+    assertEquals(List.of(List.of()), policy.partial(Map.of(), List.of("resource")));
+  }
+
+  @Test
+  void partial_EqualityAndSuffixOnUnknown() {
+    RegoPolicy policy = RegoPolicy.compile("""
+        package p
+        allow if {
+            input.resource == "project:1"
+        }
+        allow if {
+            input.resource != "project:2"
+            endswith(input.resource, ":shared")
+        }
+        """);
+
+    assertEquals(List.of(
+        List.of(new Residual(Operator.EQUALS, "project:1")),
+        List.of(new Residual(Operator.NOT_EQUALS, "project:2"), new Residual(Operator.ENDS_WITH, ":shared"))),
+        policy.partial(Map.of(), List.of("resource")));
+  }
+
+  @Test
+  void partial_MembershipOnUnknown_Rejected() {
+    RegoPolicy policy = RegoPolicy.compile("""
+        package p
+        allow if {
+            "x" in input.resource
+        }
+        """);
+
+    assertThrows(IllegalArgumentException.class, () -> policy.partial(Map.of(), List.of("resource")));
+  }
+
+  @Test
+  void partial_ConditionBelowUnknown_Rejected() {
+    RegoPolicy policy = RegoPolicy.compile("""
+        package p
+        allow if {
+            input.resource.owner == "alice"
+        }
+        """);
+
+    assertThrows(IllegalArgumentException.class, () -> policy.partial(Map.of(), List.of("resource")));
+  }
+}
@@ -28,7 +28,10 @@ public class FolderController {
 
   @GetMapping
   public List<FolderResponse> listFolders(@PathVariable UUID projectId,
-      @RequestParam(required = false) UUID parentId) {
-    return folderService.listFolders(projectId, parentId);
+      @RequestParam(required = false) UUID parentId,
+      @RequestHeader(value = "X-Forwarded-User", defaultValue = "system") String username,
+      @RequestHeader(value = "X-Forwarded-Roles", defaultValue = "") String rolesHeader) {
+    List<String> roles = rolesHeader.isEmpty() ? List.of() : List.of(rolesHeader.split(","));
+    return folderService.listFolders(projectId, parentId, username, roles);
   }
 }
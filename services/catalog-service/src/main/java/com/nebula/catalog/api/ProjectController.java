@@ -26,8 +26,11 @@ public class ProjectController {
   }
 
   @GetMapping
-  public List<ProjectResponse> getProjects() {
-    return projectService.getAllProjects();
+  public List<ProjectResponse> getProjects(
+      @RequestHeader(value = "X-Forwarded-User", defaultValue = "system") String username,
+      @RequestHeader(value = "X-Forwarded-Roles", defaultValue = "") String rolesHeader) {
+    List<String> roles = rolesHeader.isEmpty() ? List.of() : List.of(rolesHeader.split(","));
+    return projectService.getAllProjects(username, roles);
   }
 
   @GetMapping("/{id}")
@@ -0,0 +1,57 @@
+package com.nebula.catalog.infrastructure;
+
+import net.devh.boot.grpc.client.channelfactory.GrpcChannelConfigurer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Channel settings for the authpolicy-service client that the starter's
+ * properties cannot express.
+ *
+ * Calls are spread round-robin over every address the name resolves to (use
+ * a {@code dns:///} address so each replica is one), and the read-only RPCs
+ * are hedged: if the first attempt has not answered after the hedging delay a
+ * second one goes to another replica and whichever answers first wins.
+ */
+@Configuration
+public class AuthPolicyChannelConfig {
+
+  private static final String CHANNEL = "authpolicy-service";
+
+  @Bean
+  public GrpcChannelConfigurer authPolicyChannelConfigurer(
+      @Value("${nebula.authz.client.hedging.max-attempts:2}") int maxAttempts,
+      @Value("${nebula.authz.client.hedging.delay:50ms}") Duration delay) {
+    Map<String, Object> serviceConfig = serviceConfig(maxAttempts, delay);
+    return (builder, name) -> {
+      if (CHANNEL.equals(name)) {
+        builder.defaultServiceConfig(serviceConfig).enableRetry();
+      }
+    };
+  }
+
+  private static Map<String, Object> serviceConfig(int maxAttempts, Duration delay) {
+    List<Map<String, Object>> loadBalancing = List.of(Map.of("round_robin", Map.of()));
+    if (maxAttempts < 2) {
+      // A single attempt is no hedge
+      return Map.of("loadBalancingConfig", loadBalancing);
+    }
+    List<Map<String, Object>> hedged = List.of(
+        Map.of("service", "nebula.authpolicy.AuthPolicyService", "method", "Authorize"),
+        Map.of("service", "nebula.authpolicy.AuthPolicyService", "method", "BatchAuthorize"),
+        Map.of("service", "nebula.authpolicy.AuthPolicyService", "method", "CompileFilter"));
+    // Service config numbers are JSON numbers, which grpc-java expects as doubles
+    Map<String, Object> hedgingPolicy = Map.of(
+        "maxAttempts", (double) maxAttempts,
+        "hedgingDelay", delay.toMillis() / 1000.0 + "s",
+        "nonFatalStatusCodes", List.of("UNAVAILABLE"));
+    return Map.of(
+        "loadBalancingConfig", loadBalancing,
+        "methodConfig", List.of(Map.of("name", hedged, "hedgingPolicy", hedgingPolicy)));
+  }
+}
@@ -3,13 +3,27 @@ package com.nebula.catalog.infrastructure;
 import com.nebula.authpolicy.grpc.AuthPolicyServiceGrpc;
 import com.nebula.authpolicy.grpc.AuthorizeRequest;
 import com.nebula.authpolicy.grpc.AuthorizeResponse;
+import com.nebula.authpolicy.grpc.BatchAuthorizeRequest;
+import com.nebula.authpolicy.grpc.BatchAuthorizeResponse;
+import com.nebula.authpolicy.grpc.CompileFilterRequest;
+import com.nebula.authpolicy.grpc.CompileFilterResponse;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class AuthPolicyClient {
@@ -19,29 +33,156 @@ public class AuthPolicyClient {
   @GrpcClient("authpolicy-service")
   private AuthPolicyServiceGrpc.AuthPolicyServiceBlockingStub authPolicyStub;
 
+  @GrpcClient("authpolicy-service")
+  private AuthPolicyServiceGrpc.AuthPolicyServiceFutureStub authPolicyFutureStub;
+
+  private final EdgeDecisionVerifier edgeDecisions;
+  private final Duration deadline;
+  private final int maxBatchSize;
+
+  public AuthPolicyClient(EdgeDecisionVerifier edgeDecisions,
+      @Value("${nebula.authz.client.deadline:500ms}") Duration deadline,
+      @Value("${nebula.authz.client.max-batch-size:1000}") int maxBatchSize) {
+    this.edgeDecisions = edgeDecisions;
+    this.deadline = deadline;
+    this.maxBatchSize = maxBatchSize;
+  }
+
   @CircuitBreaker(name = "authpolicy", fallbackMethod = "authorizeFallback")
   public boolean authorize(String userId, List<String> roles, String action, String resource) {
-    AuthorizeRequest request = AuthorizeRequest.newBuilder()
+    if (edgeDecisions.allows(userId, action, resource)) {
+      return true;
+    }
+    log.debug("Calling AuthPolicy for User: {}, Action: {}, Resource: {}", userId, action, resource);
+    AuthorizeResponse response = authPolicyStub
+        .withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS)
+        .authorize(request(userId, roles, action, resource));
+    return allowed(userId, action, resource, response);
+  }
+
+  public boolean authorizeFallback(String userId, List<String> roles, String action, String resource, Throwable t) {
+    log.error("AuthPolicy Circuit Breaker OPEN or call failed. Failing closed (Deny). " +
+        "Action: {}, Resource: {}, User: {}", action, resource, userId, t);
+    return false; // Fail closed for security
+  }
+
+  /**
+   * Same decision as {@link #authorize}, without holding the calling thread
+   * while authpolicy-service answers. The deadline is the configured one or
+   * the caller's gRPC deadline, whichever comes first.
+   */
+  @CircuitBreaker(name = "authpolicy", fallbackMethod = "authorizeAsyncFallback")
+  public CompletableFuture<Boolean> authorizeAsync(String userId, List<String> roles, String action,
+      String resource) {
+    if (edgeDecisions.allows(userId, action, resource)) {
+      return CompletableFuture.completedFuture(true);
+    }
+    log.debug("Calling AuthPolicy asynchronously for User: {}, Action: {}, Resource: {}", userId, action, resource);
+    CompletableFuture<Boolean> decision = new CompletableFuture<>();
+    Futures.addCallback(authPolicyFutureStub
+            .withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS)
+            .authorize(request(userId, roles, action, resource)),
+        new FutureCallback<>() {
+          @Override
+          public void onSuccess(AuthorizeResponse response) {
+            decision.complete(allowed(userId, action, resource, response));
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            decision.completeExceptionally(t);
+          }
+        },
+        MoreExecutors.directExecutor());
+    return decision;
+  }
+
+  public CompletableFuture<Boolean> authorizeAsyncFallback(String userId, List<String> roles, String action,
+      String resource, Throwable t) {
+    return CompletableFuture.completedFuture(authorizeFallback(userId, roles, action, resource, t));
+  }
+
+  /**
+   * Checks the same action on many resources in BatchAuthorize calls of at
+   * most {@code max-batch-size} decisions each.
+   *
+   * @return one decision per resource, in the same order
+   */
+  @CircuitBreaker(name = "authpolicy", fallbackMethod = "authorizeAllFallback")
+  public List<Boolean> authorizeAll(String userId, List<String> roles, String action, List<String> resources) {
+    List<Boolean> decisions = new ArrayList<>(resources.size());
+    for (int start = 0; start < resources.size(); start += maxBatchSize) {
+      BatchAuthorizeRequest.Builder batch = BatchAuthorizeRequest.newBuilder();
+      for (String resource : resources.subList(start, Math.min(start + maxBatchSize, resources.size()))) {
+        batch.addRequests(request(userId, roles, action, resource));
+      }
+      log.debug("Calling AuthPolicy for User: {}, Action: {} on {} resources", userId, action,
+          batch.getRequestsCount());
+      BatchAuthorizeResponse response = authPolicyStub
+          .withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS)
+          .batchAuthorize(batch.build());
+      for (AuthorizeResponse decision : response.getResponsesList()) {
+        decisions.add(decision.getAllowed());
+      }
+    }
+    return decisions;
+  }
+
+  public List<Boolean> authorizeAllFallback(String userId, List<String> roles, String action, List<String> resources,
+      Throwable t) {
+    log.error("AuthPolicy Circuit Breaker OPEN or batch call failed. Failing closed (Deny). " +
+        "Action: {}, Resources: {}, User: {}", action, resources.size(), userId, t);
+    return Collections.nCopies(resources.size(), false); // Fail closed for security
+  }
+
+  /**
+   * Asks which resources the user may perform the action on, as conditions
+   * for {@link ResidualSpecifications} instead of a decision per resource.
+   *
+   * @return empty when no filter is available, either because the policy for
+   *         this action cannot be expressed as one or because the call
+   *         failed; callers then decide each resource with {@link #authorizeAll}
+   */
+  @CircuitBreaker(name = "authpolicy", fallbackMethod = "compileFilterFallback")
+  public Optional<CompileFilterResponse> compileFilter(String userId, List<String> roles, String action) {
+    CompileFilterRequest request = CompileFilterRequest.newBuilder()
         .setUserId(userId)
         .addAllRoles(roles)
         .setAction(action)
-        .setResource(resource)
         .build();
 
-    log.debug("Calling AuthPolicy for User: {}, Action: {}, Resource: {}", userId, action, resource);
-    AuthorizeResponse response = authPolicyStub.authorize(request);
+    log.debug("Compiling AuthPolicy filter for User: {}, Action: {}", userId, action);
+    return Optional.of(authPolicyStub
+        .withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS)
+        .compileFilter(request));
+  }
 
+  public Optional<CompileFilterResponse> compileFilterFallback(String userId, List<String> roles, String action,
+      Throwable t) {
+    if (FailedPreconditionPredicate.isFailedPrecondition(t)) {
+      log.debug("No AuthPolicy filter for Action: {}, authorizing resources individually: {}", action,
+          t.getMessage());
+    } else {
+      log.error("AuthPolicy Circuit Breaker OPEN or filter compilation failed, authorizing resources individually. " +
+          "Action: {}, User: {}", action, userId, t);
+    }
+    return Optional.empty();
+  }
+
+  private static AuthorizeRequest request(String userId, List<String> roles, String action, String resource) {
+    return AuthorizeRequest.newBuilder()
+        .setUserId(userId)
+        .addAllRoles(roles)
+        .setAction(action)
+        .setResource(resource)
+        .build();
+  }
+
+  private static boolean allowed(String userId, String action, String resource, AuthorizeResponse response) {
     if (!response.getAllowed()) {
       log.warn("AuthPolicy denied action '{}' on resource '{}' for user '{}'. Reason: {}",
           action, resource, userId, response.getReason());
     }
-
     return response.getAllowed();
   }
-
-  public boolean authorizeFallback(String userId, List<String> roles, String action, String resource, Throwable t) {
-    log.error("AuthPolicy Circuit Breaker OPEN or call failed. Failing closed (Deny). " +
-        "Action: {}, Resource: {}, User: {}", action, resource, userId, t);
-    return false; // Fail closed for security
-  }
 }
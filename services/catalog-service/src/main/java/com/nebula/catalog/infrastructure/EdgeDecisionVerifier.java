@@ -0,0 +1,78 @@
+package com.nebula.catalog.infrastructure;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Checks the signed {@code X-Authz-Decision} header the api-gateway adds
+ * after allowing a request at the edge. A valid, unexpired decision for the
+ * same user, action and resource makes asking authpolicy-service again
+ * redundant. Without a shared secret every header is ignored.
+ */
+@Component
+@Slf4j
+public class EdgeDecisionVerifier {
+
+  static final String HEADER = "X-Authz-Decision";
+
+  private static final String ALGORITHM = "HmacSHA256";
+
+  private final SecretKeySpec key;
+
+  public EdgeDecisionVerifier(@Value("${nebula.authz.edge.secret:}") String secret) {
+    this.key = secret.isEmpty() ? null : new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+  }
+
+  /**
+   * @return whether the request being served carries an edge allow for
+   *         exactly this user, action and resource
+   */
+  public boolean allows(String userId, String action, String resource) {
+    if (key == null || !(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+      return false;
+    }
+    HttpServletRequest request = attributes.getRequest();
+    String header = request.getHeader(HEADER);
+    if (header == null) {
+      return false;
+    }
+
+    int dot = header.indexOf('.');
+    if (dot < 0) {
+      return false;
+    }
+    try {
+      Base64.Decoder decoder = Base64.getUrlDecoder();
+      byte[] payload = decoder.decode(header.substring(0, dot));
+      byte[] signature = decoder.decode(header.substring(dot + 1));
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      if (!MessageDigest.isEqual(mac.doFinal(payload), signature)) {
+        log.warn("Ignoring edge decision with a bad signature");
+        return false;
+      }
+
+      String[] fields = new String(payload, StandardCharsets.UTF_8).split("\n", -1);
+      return fields.length == 4
+          && fields[0].equals(userId)
+          && fields[1].equals(action)
+          && fields[2].equals(resource)
+          && Instant.now().getEpochSecond() < Long.parseLong(fields[3]);
+    } catch (IllegalArgumentException | GeneralSecurityException e) {
+      log.warn("Ignoring malformed edge decision", e);
+      return false;
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package com.nebula.catalog.infrastructure;
+
+import io.grpc.Status;
+
+import java.util.function.Predicate;
+
+/**
+ * Keeps FAILED_PRECONDITION answers out of the authpolicy circuit breaker's
+ * failure rate. authpolicy-service returns it from CompileFilter when a
+ * policy has no filter form, which says nothing about the service's health.
+ */
+public class FailedPreconditionPredicate implements Predicate<Throwable> {
+
+  @Override
+  public boolean test(Throwable t) {
+    return isFailedPrecondition(t);
+  }
+
+  static boolean isFailedPrecondition(Throwable t) {
+    return Status.fromThrowable(t).getCode() == Status.Code.FAILED_PRECONDITION;
+  }
+}
@@ -0,0 +1,91 @@
+package com.nebula.catalog.infrastructure;
+
+import com.nebula.authpolicy.grpc.CompileFilterResponse;
+import com.nebula.authpolicy.grpc.ResidualCondition;
+import com.nebula.authpolicy.grpc.ResidualConjunction;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Translates a compiled authorization filter into a query predicate for
+ * entities whose policy resource is {@code <type>:<id>}.
+ *
+ * Equality on a whole resource becomes a primary key comparison and
+ * conditions every (or no) resource of the type meets are folded away, so the
+ * common filters ("all projects", "these folders") stay index lookups; other
+ * prefixes and suffixes fall back to LIKE on the resource string.
+ */
+public final class ResidualSpecifications {
+
+  private ResidualSpecifications() {
+  }
+
+  public static <T> Specification<T> of(CompileFilterResponse filter, String resourceType) {
+    String prefix = resourceType + ":";
+    return (root, query, cb) -> {
+      Path<UUID> id = root.get("id");
+      List<Predicate> anyOf = new ArrayList<>();
+      for (ResidualConjunction conjunction : filter.getAnyOfList()) {
+        List<Predicate> allOf = new ArrayList<>();
+        for (ResidualCondition condition : conjunction.getAllOfList()) {
+          allOf.add(predicate(condition, prefix, id, cb));
+        }
+        anyOf.add(cb.and(allOf.toArray(Predicate[]::new)));
+      }
+      return anyOf.isEmpty() ? cb.disjunction() : cb.or(anyOf.toArray(Predicate[]::new));
+    };
+  }
+
+  private static Predicate predicate(ResidualCondition condition, String prefix, Path<UUID> id,
+      CriteriaBuilder cb) {
+    String value = condition.getValue();
+    return switch (condition.getOperator()) {
+      case EQUALS -> {
+        UUID match = idOf(value, prefix);
+        yield match != null ? cb.equal(id, match) : cb.disjunction();
+      }
+      case NOT_EQUALS -> {
+        UUID match = idOf(value, prefix);
+        yield match != null ? cb.notEqual(id, match) : cb.conjunction();
+      }
+      case STARTS_WITH -> {
+        if (prefix.startsWith(value)) {
+          yield cb.conjunction();
+        }
+        yield value.startsWith(prefix) ? cb.like(resource(prefix, id, cb), escape(value) + "%", '\\')
+            : cb.disjunction();
+      }
+      case ENDS_WITH -> cb.like(resource(prefix, id, cb), "%" + escape(value), '\\');
+      case UNRECOGNIZED -> throw new IllegalArgumentException("Unknown residual operator in " + condition);
+    };
+  }
+
+  private static UUID idOf(String resource, String prefix) {
+    if (!resource.startsWith(prefix)) {
+      return null;
+    }
+    String text = resource.substring(prefix.length());
+    try {
+      UUID id = UUID.fromString(text);
+      // fromString also accepts non-canonical forms no stored id is written as
+      return id.toString().equals(text) ? id : null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static Expression<String> resource(String prefix, Path<UUID> id, CriteriaBuilder cb) {
+    return cb.concat(prefix, id.as(String.class));
+  }
+
+  private static String escape(String literal) {
+    return literal.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+}
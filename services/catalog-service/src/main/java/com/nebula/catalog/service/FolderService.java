@@ -1,5 +1,6 @@
 package com.nebula.catalog.service;
 
+import com.nebula.authpolicy.grpc.CompileFilterResponse;
 import com.nebula.catalog.api.dto.FolderCreateRequest;
 import com.nebula.catalog.api.dto.FolderResponse;
 import com.nebula.catalog.domain.CatalogItem;
@@ -8,19 +9,23 @@ import com.nebula.catalog.domain.Project;
 import com.nebula.catalog.exception.DuplicateResourceException;
 import com.nebula.catalog.exception.ResourceNotFoundException;
 import com.nebula.catalog.infrastructure.AuthPolicyClient;
+import com.nebula.catalog.infrastructure.ResidualSpecifications;
 import com.nebula.catalog.repository.CatalogItemRepository;
 import com.nebula.catalog.repository.FolderRepository;
 import com.nebula.catalog.repository.ProjectRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import com.nebula.catalog.exception.ForbiddenException;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Service
@@ -85,18 +90,37 @@ public class FolderService {
     return FolderResponse.fromEntity(saved);
   }
 
+  /**
+   * Lists the folders directly under the parent (or the project root) that
+   * the user may view, with the location and the policy filter in one query.
+   * Without a compiled filter the folders there are authorized individually.
+   */
   @Transactional(readOnly = true)
-  public List<FolderResponse> listFolders(UUID projectId, UUID parentId) {
-    List<CatalogItem> items;
+  public List<FolderResponse> listFolders(UUID projectId, UUID parentId, String username, List<String> roles) {
+    Specification<Folder> location;
     if (parentId != null) {
-      items = catalogItemRepository.findByParentId(parentId);
+      location = (root, query, cb) -> cb.equal(root.get("parent").get("id"), parentId);
     } else {
-      items = catalogItemRepository.findByProjectIdAndParentIsNull(projectId);
+      location = (root, query, cb) -> cb.and(
+          cb.equal(root.get("project").get("id"), projectId),
+          cb.isNull(root.get("parent")));
     }
 
-    return items.stream()
-        .filter(item -> item instanceof Folder)
-        .map(item -> FolderResponse.fromEntity((Folder) item))
+    Optional<CompileFilterResponse> filter = authPolicyClient.compileFilter(username, roles, "view");
+    List<Folder> folders = filter.isPresent()
+        ? folderRepository.findAll(location.and(ResidualSpecifications.of(filter.get(), "folder")))
+        : authorized(folderRepository.findAll(location), username, roles);
+    return folders.stream()
+        .map(FolderResponse::fromEntity)
         .collect(Collectors.toList());
   }
+
+  private List<Folder> authorized(List<Folder> folders, String username, List<String> roles) {
+    List<Boolean> allowed = authPolicyClient.authorizeAll(username, roles, "view",
+        folders.stream().map(folder -> "folder:" + folder.getId()).toList());
+    return IntStream.range(0, folders.size())
+        .filter(allowed::get)
+        .mapToObj(folders::get)
+        .toList();
+  }
 }
@@ -1,5 +1,6 @@
 package com.nebula.catalog.service;
 
+import com.nebula.authpolicy.grpc.CompileFilterResponse;
 import com.nebula.catalog.api.dto.ProjectCreateRequest;
 import com.nebula.catalog.api.dto.ProjectResponse;
 import com.nebula.catalog.domain.Project;
@@ -7,6 +8,7 @@ import com.nebula.catalog.exception.DuplicateResourceException;
 import com.nebula.catalog.exception.ResourceNotFoundException;
 import com.nebula.catalog.exception.ForbiddenException;
 import com.nebula.catalog.infrastructure.AuthPolicyClient;
+import com.nebula.catalog.infrastructure.ResidualSpecifications;
 import com.nebula.catalog.repository.ProjectRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,8 +17,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Service
@@ -60,13 +64,31 @@ public class ProjectService {
     return ProjectResponse.fromEntity(saved);
   }
 
+  /**
+   * Lists the projects the user may view, filtered by the policy in the query
+   * itself rather than row by row. Without a compiled filter every project is
+   * authorized individually instead.
+   */
   @Transactional(readOnly = true)
-  public List<ProjectResponse> getAllProjects() {
-    return projectRepository.findAll().stream()
+  public List<ProjectResponse> getAllProjects(String username, List<String> roles) {
+    Optional<CompileFilterResponse> filter = authPolicyClient.compileFilter(username, roles, "view");
+    List<Project> projects = filter.isPresent()
+        ? projectRepository.findAll(ResidualSpecifications.of(filter.get(), "project"))
+        : authorized(projectRepository.findAll(), username, roles);
+    return projects.stream()
         .map(ProjectResponse::fromEntity)
         .collect(Collectors.toList());
   }
 
+  private List<Project> authorized(List<Project> projects, String username, List<String> roles) {
+    List<Boolean> allowed = authPolicyClient.authorizeAll(username, roles, "view",
+        projects.stream().map(project -> "project:" + project.getId()).toList());
+    return IntStream.range(0, projects.size())
+        .filter(allowed::get)
+        .mapToObj(projects::get)
+        .toList();
+  }
+
   @Transactional(readOnly = true)
   public ProjectResponse getProject(UUID id) {
     return projectRepository.findById(id)
@@ -0,0 +1,117 @@
+package com.nebula.catalog.infrastructure;
+
+import com.nebula.authpolicy.grpc.CompileFilterResponse;
+import com.nebula.authpolicy.grpc.ResidualCondition;
+import com.nebula.authpolicy.grpc.ResidualCondition.Operator;
+import com.nebula.authpolicy.grpc.ResidualConjunction;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ResidualSpecificationsTest {
+
+  private static final UUID ID = UUID.fromString("7c1f4f8e-2a7b-4d3c-9a51-0f6c3e1b2a44");
+
+  private Root<Object> root;
+  private CriteriaQuery<?> query;
+  private CriteriaBuilder cb;
+  private Path<UUID> id;
+  private Expression<String> resource;
+  private Predicate nothing;
+  private Predicate everything;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    root = mock(Root.class);
+    query = mock(CriteriaQuery.class);
+    cb = mock(CriteriaBuilder.class);
+    id = mock(Path.class);
+    resource = mock(Expression.class);
+    nothing = mock(Predicate.class);
+    everything = mock(Predicate.class);
+    when(root.<UUID>get("id")).thenReturn(id);
+    when(cb.disjunction()).thenReturn(nothing);
+    when(cb.conjunction()).thenReturn(everything);
+    Expression<String> idText = mock(Expression.class);
+    when(id.as(String.class)).thenReturn(idText);
+    when(cb.concat("project:", idText)).thenReturn(resource);
+    when(cb.and(any(Predicate[].class))).thenAnswer(call -> only(call.getArguments()));
+    when(cb.or(any(Predicate[].class))).thenAnswer(call -> only(call.getArguments()));
+  }
+
+  @Test
+  void of_NoConjunctions_MatchesNothing() {
+    assertSame(nothing, toPredicate(CompileFilterResponse.getDefaultInstance()));
+  }
+
+  @Test
+  void of_EqualsOwnType_ComparesPrimaryKey() {
+    Predicate byId = mock(Predicate.class);
+    when(cb.equal(id, ID)).thenReturn(byId);
+
+    assertSame(byId, toPredicate(filter(Operator.EQUALS, "project:" + ID)));
+  }
+
+  @Test
+  void of_EqualsOtherTypeOrNonCanonicalId_MatchesNothing() {
+    assertSame(nothing, toPredicate(filter(Operator.EQUALS, "folder:" + ID)));
+    assertSame(nothing, toPredicate(filter(Operator.EQUALS, "project:" + ID.toString().toUpperCase())));
+  }
+
+  @Test
+  void of_NotEqualsOtherType_MatchesEverything() {
+    assertSame(everything, toPredicate(filter(Operator.NOT_EQUALS, "folder:" + ID)));
+  }
+
+  @Test
+  void of_StartsWithTypePrefix_MatchesEverything() {
+    assertSame(everything, toPredicate(filter(Operator.STARTS_WITH, "project:")));
+    assertSame(everything, toPredicate(filter(Operator.STARTS_WITH, "proj")));
+    assertSame(nothing, toPredicate(filter(Operator.STARTS_WITH, "folder:")));
+  }
+
+  @Test
+  void of_StartsWithIdPrefix_LikeWithEscapedLiteral() {
+    Predicate like = mock(Predicate.class);
+    when(cb.like(resource, "project:7c1f\\_%", '\\')).thenReturn(like);
+
+    assertSame(like, toPredicate(filter(Operator.STARTS_WITH, "project:7c1f_")));
+  }
+
+  @Test
+  void of_EndsWith_LikeOnResource() {
+    Predicate like = mock(Predicate.class);
+    when(cb.like(resource, "%\\%44", '\\')).thenReturn(like);
+
+    assertSame(like, toPredicate(filter(Operator.ENDS_WITH, "%44")));
+  }
+
+  private Predicate toPredicate(CompileFilterResponse filter) {
+    return ResidualSpecifications.<Object>of(filter, "project").toPredicate(root, query, cb);
+  }
+
+  private static CompileFilterResponse filter(Operator operator, String value) {
+    return CompileFilterResponse.newBuilder()
+        .addAnyOf(ResidualConjunction.newBuilder()
+            .addAllOf(ResidualCondition.newBuilder().setOperator(operator).setValue(value)))
+        .build();
+  }
+
+  // and/or over a single predicate is that predicate
+  private static Object only(Object[] predicates) {
+    assertEquals(1, predicates.length);
+    return predicates[0];
+  }
+}
@@ -1,21 +1,29 @@
 package com.nebula.catalog.service;
 
+import com.nebula.authpolicy.grpc.CompileFilterResponse;
 import com.nebula.catalog.api.dto.ProjectCreateRequest;
 import com.nebula.catalog.api.dto.ProjectResponse;
 import com.nebula.catalog.domain.Project;
 import com.nebula.catalog.exception.DuplicateResourceException;
+import com.nebula.catalog.infrastructure.AuthPolicyClient;
 import com.nebula.catalog.repository.ProjectRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.jpa.domain.Specification;
 
 import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,12 +35,16 @@ class ProjectServiceTest {
   @Mock
   private CatalogEventPublisher eventPublisher;
 
+  @Mock
+  private AuthPolicyClient authPolicyClient;
+
   @InjectMocks
   private ProjectService projectService;
 
   @Test
   void createProject_Success() {
     ProjectCreateRequest request = new ProjectCreateRequest("Test Project", "Description");
+    when(authPolicyClient.authorize(anyString(), anyList(), eq("create_project"), eq("project"))).thenReturn(true);
     when(projectRepository.existsByName("Test Project")).thenReturn(false);
 
     Project savedProject = new Project();
@@ -54,6 +66,7 @@ class ProjectServiceTest {
   @Test
   void createProject_DuplicateName_ThrowsException() {
     ProjectCreateRequest request = new ProjectCreateRequest("Existing Project", "Description");
+    when(authPolicyClient.authorize(anyString(), anyList(), eq("create_project"), eq("project"))).thenReturn(true);
     when(projectRepository.existsByName("Existing Project")).thenReturn(true);
 
     assertThrows(DuplicateResourceException.class, () -> {
@@ -63,4 +76,44 @@ class ProjectServiceTest {
     verify(projectRepository, never()).save(any());
     verify(eventPublisher, never()).publishProjectCreated(any());
   }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void getAllProjects_CompiledFilter_FiltersInTheQuery() {
+    Project visible = project("Visible");
+    when(authPolicyClient.compileFilter("alice", List.of("nebula-user"), "view"))
+        .thenReturn(Optional.of(CompileFilterResponse.getDefaultInstance()));
+    when(projectRepository.findAll(any(Specification.class))).thenReturn(List.of(visible));
+
+    List<ProjectResponse> projects = projectService.getAllProjects("alice", List.of("nebula-user"));
+
+    assertEquals(List.of("Visible"), projects.stream().map(ProjectResponse::name).toList());
+    verify(authPolicyClient, never()).authorizeAll(anyString(), anyList(), anyString(), anyList());
+  }
+
+  @Test
+  void getAllProjects_NoFilter_AuthorizesEachProject() {
+    Project first = project("First");
+    Project second = project("Second");
+    Project third = project("Third");
+    when(authPolicyClient.compileFilter("alice", List.of("nebula-user"), "view")).thenReturn(Optional.empty());
+    when(projectRepository.findAll()).thenReturn(List.of(first, second, third));
+    when(authPolicyClient.authorizeAll("alice", List.of("nebula-user"), "view",
+        List.of("project:" + first.getId(), "project:" + second.getId(), "project:" + third.getId())))
+        .thenReturn(List.of(true, false, true));
+
+    List<ProjectResponse> projects = projectService.getAllProjects("alice", List.of("nebula-user"));
+
+    assertEquals(List.of("First", "Third"), projects.stream().map(ProjectResponse::name).toList());
+  }
+
+  private static Project project(String name) {
+    Project project = new Project();
+    project.setId(UUID.randomUUID());
+    project.setName(name);
+    project.setCreatedBy("admin");
+    project.setCreatedAt(OffsetDateTime.now());
+    project.setUpdatedAt(OffsetDateTime.now());
+    return project;
+  }
 }
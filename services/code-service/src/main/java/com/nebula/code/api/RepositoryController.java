@@ -1,31 +1,58 @@
 package com.nebula.code.api;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nebula.authpolicy.grpc.CompileFilterResponse;
 import com.nebula.code.api.dto.CodeDto;
 import com.nebula.code.domain.IdeSession;
 import com.nebula.code.domain.Repository;
 import com.nebula.code.infrastructure.AuthPolicyClient;
 import com.nebula.code.service.CodeManagerService;
+import com.nebula.code.service.CodeSearchIndex;
+import com.nebula.code.service.CommitHistoryIndex;
+import com.nebula.code.service.GitBlob;
 import com.nebula.code.service.GitManager;
 import com.nebula.code.service.IdeOrchestrator;
+import com.nebula.code.service.InvalidCursorException;
 import lombok.RequiredArgsConstructor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/repos")
 @RequiredArgsConstructor
 public class RepositoryController {
 
+  private static final int MAX_TREE_PAGE = 1000;
+  private static final int MAX_COMMIT_PAGE = 500;
+  private static final int MAX_SEARCH_RESULTS = 1000;
+  private static final byte[] EMPTY_ARRAY = "[]".getBytes(StandardCharsets.UTF_8);
+
   private final CodeManagerService codeManagerService;
   private final GitManager gitManager;
+  private final CommitHistoryIndex commitHistoryIndex;
+  private final CodeSearchIndex codeSearchIndex;
   private final IdeOrchestrator ideOrchestrator;
   private final AuthPolicyClient authPolicyClient;
+  private final ObjectMapper objectMapper;
 
   @PostMapping
   public ResponseEntity<CodeDto.RepositoryResponse> createRepository(
@@ -60,33 +87,150 @@ public class RepositoryController {
       return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
     }
 
-    List<CodeDto.RepositoryResponse> responses = codeManagerService.listRepositories(projectId).stream()
+    return ResponseEntity.ok(readableRepositories(username, roles, projectId).stream()
         .map(this::mapToDto)
-        .collect(Collectors.toList());
-    return ResponseEntity.ok(responses);
+        .toList());
+  }
+
+  /**
+   * The project's repositories the user may read: filtered in the listing
+   * query when the policy compiles to a filter, otherwise authorized one by
+   * one in batches.
+   */
+  private List<Repository> readableRepositories(String username, List<String> roles, UUID projectId) {
+    Optional<CompileFilterResponse> readable = authPolicyClient.compileFilter(username, roles, "code:repository:read");
+    if (readable.isPresent()) {
+      return codeManagerService.listRepositories(projectId, readable.get());
+    }
+    List<Repository> repositories = codeManagerService.listRepositories(projectId);
+    List<Boolean> allowed = authPolicyClient.checkPermissions(username, roles, "repository",
+        repositories.stream().map(repository -> repository.getId().toString()).toList(), "code:repository:read");
+    return IntStream.range(0, repositories.size())
+        .filter(allowed::get)
+        .mapToObj(repositories::get)
+        .toList();
   }
 
+  /**
+   * Files on the default branch of every readable repository in the project
+   * matching {@code q}, literally or as a regex, streamed as a JSON array as
+   * they are found, each with its first matching lines.
+   */
+  @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> search(
+      @RequestHeader(value = "X-Forwarded-User", defaultValue = "system") String username,
+      @RequestHeader(value = "X-Forwarded-Roles", defaultValue = "") String rolesHeader,
+      @RequestParam UUID projectId,
+      @RequestParam String q,
+      @RequestParam(defaultValue = "false") boolean regex,
+      @RequestParam(defaultValue = "false") boolean caseSensitive,
+      @RequestParam(defaultValue = "100") int limit) {
+
+    List<String> roles = rolesHeader.isEmpty() ? List.of() : List.of(rolesHeader.split(","));
+    if (!authPolicyClient.checkPermission(username, roles, "project", projectId.toString(), "view")) {
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+    try {
+      codeSearchIndex.validate(q, regex, caseSensitive);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+
+    // Same per-repository read permission as the listing
+    Map<UUID, String> names = readableRepositories(username, roles, projectId).stream()
+        .collect(Collectors.toMap(Repository::getId, Repository::getName));
+
+    return ResponseEntity.ok(out -> {
+      try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)
+          .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+        json.writeStartArray();
+        codeSearchIndex.search(List.copyOf(names.keySet()), q, regex, caseSensitive,
+            Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)), result -> {
+              json.writeObject(CodeDto.SearchResultResponse.builder()
+                  .repositoryId(result.repositoryId())
+                  .repositoryName(names.get(result.repositoryId()))
+                  .path(result.path())
+                  .blobId(result.blobId())
+                  .matches(result.matches().stream()
+                      .map(m -> CodeDto.LineMatchResponse.builder().line(m.line()).text(m.text()).build())
+                      .toList())
+                  .build());
+              json.flush();
+            });
+        json.writeEndArray();
+      }
+    });
+  }
+
+  // The request thread is released while authpolicy-service decides
   @GetMapping("/{id}")
-  public ResponseEntity<CodeDto.RepositoryResponse> getRepository(
+  public CompletableFuture<ResponseEntity<CodeDto.RepositoryResponse>> getRepository(
       @RequestHeader(value = "X-Forwarded-User", defaultValue = "system") String username,
       @RequestHeader(value = "X-Forwarded-Roles", defaultValue = "") String rolesHeader,
       @PathVariable UUID id) {
 
+    Repository repo = codeManagerService.getRepository(id);
+    List<String> roles = rolesHeader.isEmpty() ? List.of() : List.of(rolesHeader.split(","));
+    return authPolicyClient.checkPermissionAsync(username, roles, "project", repo.getProjectId().toString(), "view")
+        .thenApply(allowed -> allowed
+            ? ResponseEntity.ok(mapToDto(repo))
+            : ResponseEntity.status(HttpStatus.FORBIDDEN).<CodeDto.RepositoryResponse>build());
+  }
+
+  // Git File Browsing
+
+  /**
+   * Every file path on the branch, streamed as a JSON array while the tree
+   * is walked. Tagged with the root tree id, so an unchanged tree is a 304.
+   */
+  @GetMapping(value = "/{id}/files", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> listFiles(
+      @RequestHeader(value = "X-Forwarded-User", defaultValue = "system") String username,
+      @RequestHeader(value = "X-Forwarded-Roles", defaultValue = "") String rolesHeader,
+      @PathVariable UUID id,
+      @RequestParam(defaultValue = "main") String branch,
+      WebRequest webRequest) {
+
     Repository repo = codeManagerService.getRepository(id);
     List<String> roles = rolesHeader.isEmpty() ? List.of() : List.of(rolesHeader.split(","));
     if (!authPolicyClient.checkPermission(username, roles, "project", repo.getProjectId().toString(), "view")) {
       return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
     }
-    return ResponseEntity.ok(mapToDto(repo));
+
+    Optional<ObjectId> tree = gitManager.resolveTree(id, branch, "");
+    if (tree.isEmpty()) {
+      // Branch doesn't exist yet (empty repo)
+      return ResponseEntity.ok(out -> out.write(EMPTY_ARRAY));
+    }
+    String eTag = "\"" + tree.get().name() + "\"";
+    if (webRequest.checkNotModified(eTag)) {
+      return null;
+    }
+
+    return ResponseEntity.ok().eTag(eTag).body(out -> {
+      try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)
+          .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+        json.writeStartArray();
+        gitManager.walkPaths(id, tree.get(), json::writeString);
+        json.writeEndArray();
+      }
+    });
   }
 
-  // Git File Browsing
-  @GetMapping("/{id}/files")
-  public ResponseEntity<List<String>> listFiles(
+  /**
+   * One page of a single directory's entries, with type, mode and blob size.
+   * Tagged with the directory's tree id, so an unchanged directory is a 304.
+   */
+  @GetMapping("/{id}/tree")
+  public ResponseEntity<CodeDto.TreePageResponse> listTree(
       @RequestHeader(value = "X-Forwarded-User", defaultValue = "system") String username,
       @RequestHeader(value = "X-Forwarded-Roles", defaultValue = "") String rolesHeader,
       @PathVariable UUID id,
-      @RequestParam(defaultValue = "main") String branch) {
+      @RequestParam(defaultValue = "main") String branch,
+      @RequestParam(defaultValue = "") String path,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "100") int limit,
+      WebRequest webRequest) {
 
     Repository repo = codeManagerService.getRepository(id);
     List<String> roles = rolesHeader.isEmpty() ? List.of() : List.of(rolesHeader.split(","));
@@ -94,7 +238,153 @@ public class RepositoryController {
       return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
     }
 
-    return ResponseEntity.ok(gitManager.listFiles(id, branch));
+    String directory = trimSlashes(path);
+    Optional<ObjectId> tree = gitManager.resolveTree(id, branch, directory);
+    if (tree.isEmpty()) {
+      return ResponseEntity.notFound().build();
+    }
+    String eTag = "\"" + tree.get().name() + "\"";
+    if (webRequest.checkNotModified(eTag)) {
+      return null;
+    }
+
+    GitManager.TreePage page;
+    try {
+      page = gitManager.listDirectory(id, tree.get(), directory, cursor, Math.max(1, Math.min(limit, MAX_TREE_PAGE)));
+    } catch (InvalidCursorException e) {
+      return ResponseEntity.badRequest().build();
+    }
+    return ResponseEntity.ok().eTag(eTag).body(CodeDto.TreePageResponse.builder()
+        .treeId(page.treeId())
+        .path(directory)
+        .entries(page.entries().stream().map(this::mapToDto).toList())
+        .nextCursor(page.nextCursor())
+        .build());
+  }
+
+  /**
+   * A file's raw bytes, streamed with Content-Length and Range support. By
+   * {@code sha} the content can never change and is cacheable for good; by
+   * {@code path} it is revalidated against the blob id each time.
+   */
+  @GetMapping("/{id}/blob")
+  public ResponseEntity<Resource> getBlob(
+      @RequestHeader(value = "X-Forwarded-User", defaultValue = "system") String username,
+      @RequestHeader(value = "X-Forwarded-Roles", defaultValue = "") String rolesHeader,
+      @PathVariable UUID id,
+      @RequestParam(required = false) String sha,
+      @RequestParam(defaultValue = "main") String branch,
+      @RequestParam(required = false) String path,
+      WebRequest webRequest) {
+
+    if ((sha == null) == (path == null) || (sha != null && !ObjectId.isId(sha))) {
+      return ResponseEntity.badRequest().build();
+    }
+    Repository repo = codeManagerService.getRepository(id);
+    List<String> roles = rolesHeader.isEmpty() ? List.of() : List.of(rolesHeader.split(","));
+    if (!authPolicyClient.checkPermission(username, roles, "project", repo.getProjectId().toString(), "view")) {
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+
+    Optional<GitBlob> blob = (sha != null
+        ? Optional.of(ObjectId.fromString(sha))
+        : gitManager.resolveBlob(id, branch, trimSlashes(path)))
+        .flatMap(blobId -> gitManager.readBlob(id, blobId));
+    if (blob.isEmpty()) {
+      return ResponseEntity.notFound().build();
+    }
+    String eTag = "\"" + blob.get().getId().name() + "\"";
+    if (webRequest.checkNotModified(eTag)) {
+      return null;
+    }
+
+    return ResponseEntity.ok()
+        .eTag(eTag)
+        .cacheControl(sha != null
+            ? CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable()
+            : CacheControl.noCache().cachePrivate())
+        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+        // Never let a browser render repository content as a page of this origin
+        .header("X-Content-Type-Options", "nosniff")
+        .body(blob.get());
+  }
+
+  /**
+   * Commits on the branch (the repository's default branch if not given),
+   * newest first, optionally only those changing a file or directory.
+   */
+  @GetMapping("/{id}/commits")
+  public ResponseEntity<CodeDto.CommitPageResponse> listCommits(
+      @RequestHeader(value = "X-Forwarded-User", defaultValue = "system") String username,
+      @RequestHeader(value = "X-Forwarded-Roles", defaultValue = "") String rolesHeader,
+      @PathVariable UUID id,
+      @RequestParam(required = false) String branch,
+      @RequestParam(defaultValue = "") String path,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "50") int limit) {
+
+    Repository repo = codeManagerService.getRepository(id);
+    List<String> roles = rolesHeader.isEmpty() ? List.of() : List.of(rolesHeader.split(","));
+    if (!authPolicyClient.checkPermission(username, roles, "project", repo.getProjectId().toString(), "view")) {
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+
+    GitManager.CommitPage page;
+    try {
+      page = commitHistoryIndex.log(id, repo.getDefaultBranch(), branch != null ? branch : repo.getDefaultBranch(),
+          trimSlashes(path), cursor, Math.max(1, Math.min(limit, MAX_COMMIT_PAGE)));
+    } catch (InvalidCursorException e) {
+      return ResponseEntity.badRequest().build();
+    }
+    return ResponseEntity.ok(CodeDto.CommitPageResponse.builder()
+        .commits(page.commits().stream().map(this::mapToDto).toList())
+        .nextCursor(page.nextCursor())
+        .build());
+  }
+
+  /**
+   * The last commit to change each entry of a page of {@code /tree}, for the
+   * same branch, path, cursor and limit.
+   */
+  @GetMapping("/{id}/tree/commits")
+  public ResponseEntity<List<CodeDto.TreeEntryCommitResponse>> listTreeCommits(
+      @RequestHeader(value = "X-Forwarded-User", defaultValue = "system") String username,
+      @RequestHeader(value = "X-Forwarded-Roles", defaultValue = "") String rolesHeader,
+      @PathVariable UUID id,
+      @RequestParam(defaultValue = "main") String branch,
+      @RequestParam(defaultValue = "") String path,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "100") int limit) {
+
+    Repository repo = codeManagerService.getRepository(id);
+    List<String> roles = rolesHeader.isEmpty() ? List.of() : List.of(rolesHeader.split(","));
+    if (!authPolicyClient.checkPermission(username, roles, "project", repo.getProjectId().toString(), "view")) {
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+
+    String directory = trimSlashes(path);
+    Optional<ObjectId> tree = gitManager.resolveTree(id, branch, directory);
+    if (tree.isEmpty()) {
+      return ResponseEntity.notFound().build();
+    }
+
+    List<String> paths;
+    try {
+      paths = gitManager.listDirectory(id, tree.get(), directory, cursor,
+          Math.max(1, Math.min(limit, MAX_TREE_PAGE))).entries().stream()
+          .map(GitManager.TreeEntry::path)
+          .toList();
+    } catch (InvalidCursorException e) {
+      return ResponseEntity.badRequest().build();
+    }
+    Map<String, GitManager.CommitInfo> commits = commitHistoryIndex.lastCommits(id, repo.getDefaultBranch(), branch,
+        paths);
+    return ResponseEntity.ok(paths.stream()
+        .map(entryPath -> CodeDto.TreeEntryCommitResponse.builder()
+            .path(entryPath)
+            .commit(commits.containsKey(entryPath) ? mapToDto(commits.get(entryPath)) : null)
+            .build())
+        .toList());
   }
 
   // IDE Management
@@ -145,6 +435,39 @@ public class RepositoryController {
         .build();
   }
 
+  private CodeDto.TreeEntryResponse mapToDto(GitManager.TreeEntry e) {
+    return CodeDto.TreeEntryResponse.builder()
+        .name(e.name())
+        .path(e.path())
+        .type(e.type())
+        .mode(e.mode())
+        .size(e.size())
+        .objectId(e.objectId())
+        .build();
+  }
+
+  private CodeDto.CommitResponse mapToDto(GitManager.CommitInfo c) {
+    return CodeDto.CommitResponse.builder()
+        .id(c.id())
+        .authorName(c.authorName())
+        .authorEmail(c.authorEmail())
+        .authoredAt(c.authoredAt())
+        .summary(c.summary())
+        .build();
+  }
+
+  private static String trimSlashes(String path) {
+    int start = 0;
+    int end = path.length();
+    while (start < end && path.charAt(start) == '/') {
+      start++;
+    }
+    while (end > start && path.charAt(end - 1) == '/') {
+      end--;
+    }
+    return path.substring(start, end);
+  }
+
   private CodeDto.IdeSessionResponse mapToDto(IdeSession s) {
     return CodeDto.IdeSessionResponse.builder()
         .id(s.getId())
@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 
 public class CodeDto {
@@ -46,4 +48,85 @@ public class CodeDto {
     private String status;
     private String proxyUrl;
   }
+
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class TreeEntryResponse {
+    private String name;
+    private String path;
+    // blob, tree, symlink or submodule
+    private String type;
+    private String mode;
+    // Blobs only
+    private Long size;
+    private String objectId;
+  }
+
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class TreePageResponse {
+    private String treeId;
+    private String path;
+    private List<TreeEntryResponse> entries;
+    // Null on the last page
+    private String nextCursor;
+  }
+
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class CommitResponse {
+    private String id;
+    private String authorName;
+    private String authorEmail;
+    private Instant authoredAt;
+    private String summary;
+  }
+
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class CommitPageResponse {
+    private List<CommitResponse> commits;
+    // Null on the last page
+    private String nextCursor;
+  }
+
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class TreeEntryCommitResponse {
+    private String path;
+    // Null while the branch's history is being indexed
+    private CommitResponse commit;
+  }
+
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class SearchResultResponse {
+    private UUID repositoryId;
+    private String repositoryName;
+    private String path;
+    private String blobId;
+    private List<LineMatchResponse> matches;
+  }
+
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class LineMatchResponse {
+    // 1-based
+    private int line;
+    private String text;
+  }
 }
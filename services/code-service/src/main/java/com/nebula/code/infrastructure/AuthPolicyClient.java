@@ -3,11 +3,26 @@ package com.nebula.code.infrastructure;
 import com.nebula.authpolicy.grpc.AuthorizeRequest;
 import com.nebula.authpolicy.grpc.AuthorizeResponse;
 import com.nebula.authpolicy.grpc.AuthPolicyServiceGrpc;
+import com.nebula.authpolicy.grpc.BatchAuthorizeRequest;
+import com.nebula.authpolicy.grpc.BatchAuthorizeResponse;
+import com.nebula.authpolicy.grpc.CompileFilterRequest;
+import com.nebula.authpolicy.grpc.CompileFilterResponse;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Status;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
@@ -16,26 +31,170 @@ public class AuthPolicyClient {
   @GrpcClient("authpolicy-service")
   private AuthPolicyServiceGrpc.AuthPolicyServiceBlockingStub authPolicyStub;
 
+  @GrpcClient("authpolicy-service")
+  private AuthPolicyServiceGrpc.AuthPolicyServiceFutureStub authPolicyFutureStub;
+
+  private final AuthDecisionCache decisionCache;
+  private final EdgeDecisionVerifier edgeDecisions;
+  private final Duration deadline;
+  private final int maxBatchSize;
+
+  public AuthPolicyClient(AuthDecisionCache decisionCache, EdgeDecisionVerifier edgeDecisions,
+      @Value("${nebula.authz.client.deadline:500ms}") Duration deadline,
+      @Value("${nebula.authz.client.max-batch-size:1000}") int maxBatchSize) {
+    this.decisionCache = decisionCache;
+    this.edgeDecisions = edgeDecisions;
+    this.deadline = deadline;
+    this.maxBatchSize = maxBatchSize;
+  }
+
   public boolean checkPermission(String userId, List<String> roles, String resourceType, String resourceId,
       String action) {
+    String resource = resourceType + ":" + resourceId;
+    if (edgeDecisions.allows(userId, action, resource)) {
+      return true;
+    }
+    Boolean cached = decisionCache.get(userId, roles, action, resource);
+    if (cached != null) {
+      return cached;
+    }
+
     try {
-      AuthorizeRequest request = AuthorizeRequest.newBuilder()
+      AuthorizeResponse response = authPolicyStub
+          .withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS)
+          .authorize(request(userId, roles, action, resource));
+      return record(userId, roles, action, resource, response);
+    } catch (Exception e) {
+      log.error("Failed to check authorization policy via gRPC", e);
+      return false; // Fail secure
+    }
+  }
+
+  /**
+   * Same decision as {@link #checkPermission}, without holding the calling
+   * thread while authpolicy-service answers. The deadline is the configured
+   * one or the caller's gRPC deadline, whichever comes first.
+   */
+  public CompletableFuture<Boolean> checkPermissionAsync(String userId, List<String> roles, String resourceType,
+      String resourceId, String action) {
+    String resource = resourceType + ":" + resourceId;
+    if (edgeDecisions.allows(userId, action, resource)) {
+      return CompletableFuture.completedFuture(true);
+    }
+    Boolean cached = decisionCache.get(userId, roles, action, resource);
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+
+    CompletableFuture<Boolean> decision = new CompletableFuture<>();
+    Futures.addCallback(authPolicyFutureStub
+            .withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS)
+            .authorize(request(userId, roles, action, resource)),
+        new FutureCallback<>() {
+          @Override
+          public void onSuccess(AuthorizeResponse response) {
+            decision.complete(record(userId, roles, action, resource, response));
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            log.error("Failed to check authorization policy via gRPC", t);
+            decision.complete(false); // Fail secure
+          }
+        },
+        MoreExecutors.directExecutor());
+    return decision;
+  }
+
+  /**
+   * Checks the same action on many resources of one type. Cached decisions
+   * are answered locally and the rest go to authpolicy-service in
+   * BatchAuthorize calls of at most {@code max-batch-size} decisions each.
+   *
+   * @return one decision per resource id, in the same order
+   */
+  public List<Boolean> checkPermissions(String userId, List<String> roles, String resourceType,
+      List<String> resourceIds, String action) {
+    Boolean[] decisions = new Boolean[resourceIds.size()];
+    List<Integer> misses = new ArrayList<>();
+    BatchAuthorizeRequest.Builder batch = BatchAuthorizeRequest.newBuilder();
+    for (int i = 0; i < resourceIds.size(); i++) {
+      String resource = resourceType + ":" + resourceIds.get(i);
+      decisions[i] = decisionCache.get(userId, roles, action, resource);
+      if (decisions[i] == null) {
+        misses.add(i);
+        batch.addRequests(request(userId, roles, action, resource));
+      }
+    }
+
+    for (int start = 0; start < misses.size(); start += maxBatchSize) {
+      int end = Math.min(start + maxBatchSize, misses.size());
+      List<AuthorizeRequest> requests = batch.getRequestsList().subList(start, end);
+      try {
+        BatchAuthorizeResponse response = authPolicyStub
+            .withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS)
+            .batchAuthorize(BatchAuthorizeRequest.newBuilder().addAllRequests(requests).build());
+        for (int i = 0; i < requests.size(); i++) {
+          AuthorizeResponse decision = response.getResponses(i);
+          decisionCache.put(userId, roles, action, requests.get(i).getResource(), decision.getAllowed(),
+              decision.getPolicyVersion());
+          decisions[misses.get(start + i)] = decision.getAllowed();
+        }
+      } catch (Exception e) {
+        log.error("Failed to check {} authorizations via gRPC", requests.size(), e);
+        for (int index : misses.subList(start, end)) {
+          decisions[index] = false; // Fail secure
+        }
+      }
+    }
+    return Arrays.asList(decisions);
+  }
+
+  /**
+   * Asks which resources the user may perform the action on, as conditions
+   * for {@link ResidualSpecifications} instead of a decision per resource.
+   *
+   * @return empty when no filter is available, either because the policy for
+   *         this action cannot be expressed as one or because the call
+   *         failed; callers then decide each resource with {@link #checkPermissions}
+   */
+  public Optional<CompileFilterResponse> compileFilter(String userId, List<String> roles, String action) {
+    try {
+      CompileFilterRequest request = CompileFilterRequest.newBuilder()
           .setUserId(userId)
           .addAllRoles(roles != null ? roles : List.of())
-          .setResource(resourceType + ":" + resourceId)
           .setAction(action)
           .build();
-
-      AuthorizeResponse response = authPolicyStub.authorize(request);
-
-      if (!response.getAllowed()) {
-        log.warn("Access denied. Reason: {}", response.getReason());
+      return Optional.of(authPolicyStub
+          .withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS)
+          .compileFilter(request));
+    } catch (Exception e) {
+      if (Status.fromThrowable(e).getCode() == Status.Code.FAILED_PRECONDITION) {
+        log.debug("No authorization filter for action {}, authorizing resources individually: {}", action,
+            e.getMessage());
+      } else {
+        log.error("Failed to compile authorization filter via gRPC, authorizing resources individually", e);
       }
+      return Optional.empty();
+    }
+  }
 
-      return response.getAllowed();
-    } catch (Exception e) {
-      log.error("Failed to check authorization policy via gRPC", e);
-      return false; // Fail secure
+  private static AuthorizeRequest request(String userId, List<String> roles, String action, String resource) {
+    return AuthorizeRequest.newBuilder()
+        .setUserId(userId)
+        .addAllRoles(roles != null ? roles : List.of())
+        .setResource(resource)
+        .setAction(action)
+        .build();
+  }
+
+  private boolean record(String userId, List<String> roles, String action, String resource,
+      AuthorizeResponse response) {
+    if (!response.getAllowed()) {
+      log.warn("Access denied. Reason: {}", response.getReason());
     }
+
+    decisionCache.put(userId, roles, action, resource, response.getAllowed(), response.getPolicyVersion());
+    return response.getAllowed();
   }
 }
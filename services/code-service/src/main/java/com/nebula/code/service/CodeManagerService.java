@@ -1,12 +1,15 @@
 package com.nebula.code.service;
 
+import com.nebula.authpolicy.grpc.CompileFilterResponse;
 import com.nebula.code.domain.IdeSession;
 import com.nebula.code.domain.IdeSessionRepository;
 import com.nebula.code.domain.Repository;
 import com.nebula.code.domain.RepositoryRepository;
+import com.nebula.code.infrastructure.ResidualSpecifications;
 import com.nebula.code.service.kafka.RepositoryEventProducer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -53,6 +56,15 @@ public class CodeManagerService {
     return repositoryRepository.findByProjectId(projectId);
   }
 
+  /**
+   * Lists the project's repositories that pass the compiled authorization
+   * filter, evaluated by the database in the same query.
+   */
+  public List<Repository> listRepositories(UUID projectId, CompileFilterResponse filter) {
+    Specification<Repository> inProject = (root, query, cb) -> cb.equal(root.get("projectId"), projectId);
+    return repositoryRepository.findAll(inProject.and(ResidualSpecifications.of(filter, "repository")));
+  }
+
   public Repository getRepository(UUID id) {
     return repositoryRepository.findById(id)
         .orElseThrow(() -> new IllegalArgumentException("Repository not found: " + id));
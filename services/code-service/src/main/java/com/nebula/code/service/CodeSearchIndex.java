@@ -0,0 +1,376 @@
+package com.nebula.code.service;
+
+import com.google.re2j.Matcher;
+import com.google.re2j.Pattern;
+import com.google.re2j.PatternSyntaxException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.util.RawParseUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Array;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Code search over the text files of each repository's default branch,
+ * held in Postgres behind a {@code pg_trgm} index so literal and regex
+ * queries only read the files whose trigrams can match.
+ *
+ * On {@link RefsChangedEvent} the index applies the diff between the head
+ * it last indexed and the new one, so a push costs as much as the files it
+ * changed; force pushes are diffed the same way. Binary files and files
+ * over {@code max-file-size} are left out. Results lag a push by up to one
+ * ref poll plus the update.
+ *
+ * A regex query has to be valid both for Postgres, which selects the files,
+ * and for RE2/J, which finds the matching lines in them in linear time
+ * however the pattern is written.
+ */
+@Service
+@Slf4j
+public class CodeSearchIndex {
+
+  /** Shortest literal query; anything shorter has no trigram to look up. */
+  public static final int MIN_QUERY_LENGTH = 3;
+
+  private static final int BATCH_SIZE = 100;
+  private static final int MAX_LINE_LENGTH = 500;
+  private static final String INVALID_REGULAR_EXPRESSION = "2201B";
+
+  public record LineMatch(int line, String text) {
+  }
+
+  public record SearchResult(UUID repositoryId, String path, String blobId, List<LineMatch> matches) {
+  }
+
+  public interface SearchResultConsumer {
+    void accept(SearchResult result) throws IOException;
+  }
+
+  private final GitManager gitManager;
+  private final JdbcTemplate jdbcTemplate;
+  private final JdbcTemplate searchJdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final TransactionTemplate searchTransactionTemplate;
+  private final long maxFileSize;
+  private final int maxMatchesPerFile;
+  private final ExecutorService builders;
+  // Branch to index next for each repository being updated; null once the update running has taken it
+  private final Map<UUID, AtomicReference<String>> pending = new ConcurrentHashMap<>();
+
+  public CodeSearchIndex(GitManager gitManager, JdbcTemplate jdbcTemplate, DataSource dataSource,
+      PlatformTransactionManager transactionManager,
+      @Value("${nebula.git.search-index.builder-threads:2}") int builderThreads,
+      @Value("${nebula.git.search-index.max-file-size:1MB}") DataSize maxFileSize,
+      @Value("${nebula.git.search-index.max-matches-per-file:10}") int maxMatchesPerFile,
+      @Value("${nebula.git.search-index.query-timeout:5s}") Duration queryTimeout) {
+    this.gitManager = gitManager;
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.maxFileSize = maxFileSize.toBytes();
+    this.maxMatchesPerFile = maxMatchesPerFile;
+
+    // Results are fetched in small batches as they are streamed, which Postgres only does inside a transaction
+    this.searchJdbcTemplate = new JdbcTemplate(dataSource);
+    this.searchJdbcTemplate.setFetchSize(20);
+    this.searchJdbcTemplate.setQueryTimeout((int) Math.max(1, queryTimeout.toSeconds()));
+    this.searchTransactionTemplate = new TransactionTemplate(transactionManager);
+    this.searchTransactionTemplate.setReadOnly(true);
+
+    AtomicInteger threads = new AtomicInteger();
+    this.builders = Executors.newFixedThreadPool(builderThreads, runnable -> {
+      Thread thread = new Thread(runnable, "search-index-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PreDestroy
+  public void stop() {
+    builders.shutdownNow();
+  }
+
+  @EventListener
+  public void onRefsChanged(RefsChangedEvent event) {
+    if (event.changed().containsKey(event.defaultBranch())) {
+      schedule(event.repositoryId(), event.defaultBranch());
+    }
+  }
+
+  /**
+   * The pattern results are matched with, line by line.
+   *
+   * @throws IllegalArgumentException if a literal query is too short or a regex does not compile
+   */
+  public static Pattern compile(String query, boolean regex, boolean caseSensitive) {
+    if (!regex && query.length() < MIN_QUERY_LENGTH) {
+      throw new IllegalArgumentException("Query must be at least " + MIN_QUERY_LENGTH + " characters");
+    }
+    int flags = caseSensitive ? 0 : Pattern.CASE_INSENSITIVE;
+    try {
+      return Pattern.compile(regex ? query : Pattern.quote(query), flags | Pattern.MULTILINE);
+    } catch (PatternSyntaxException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Checks the query before anything is streamed, as a regex Postgres
+   * rejects would otherwise only fail once the response has started.
+   *
+   * @throws IllegalArgumentException if {@link #compile} rejects the query, or Postgres rejects the regex
+   */
+  public void validate(String query, boolean regex, boolean caseSensitive) {
+    compile(query, regex, caseSensitive);
+    if (!regex) {
+      return;
+    }
+    try {
+      searchJdbcTemplate.queryForObject(caseSensitive ? "SELECT '' ~ ?" : "SELECT '' ~* ?", Boolean.class, query);
+    } catch (DataAccessException e) {
+      if (e.getCause() instanceof SQLException sql && INVALID_REGULAR_EXPRESSION.equals(sql.getSQLState())) {
+        throw new IllegalArgumentException(sql.getMessage(), e);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Streams up to {@code limit} files of the given repositories matching
+   * the query, each with its first matching lines, as Postgres finds them.
+   * Call {@link #validate} first.
+   */
+  public void search(List<UUID> repositoryIds, String query, boolean regex, boolean caseSensitive, int limit,
+      SearchResultConsumer consumer) throws IOException {
+    if (repositoryIds.isEmpty()) {
+      return;
+    }
+    Pattern pattern = compile(query, regex, caseSensitive);
+    String condition;
+    String operand;
+    if (regex) {
+      condition = caseSensitive ? "content ~ ?" : "content ~* ?";
+      operand = query;
+    } else {
+      condition = caseSensitive ? "content LIKE ?" : "content ILIKE ?";
+      operand = "%" + query.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    try {
+      searchTransactionTemplate.executeWithoutResult(status -> searchJdbcTemplate.query(
+          "SELECT repository_id, path, blob_id, content FROM code_search_file"
+              + " WHERE repository_id = ANY(?) AND " + condition + " LIMIT ?",
+          ps -> {
+            Array ids = ps.getConnection().createArrayOf("uuid", repositoryIds.toArray());
+            ps.setArray(1, ids);
+            ps.setString(2, operand);
+            ps.setInt(3, limit);
+          },
+          rs -> {
+            SearchResult result = new SearchResult(rs.getObject("repository_id", UUID.class), rs.getString("path"),
+                rs.getString("blob_id"), matches(pattern, rs.getString("content")));
+            try {
+              consumer.accept(result);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          }));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  List<LineMatch> matches(Pattern pattern, String content) {
+    List<LineMatch> matches = new ArrayList<>();
+    Matcher matcher = pattern.matcher(content);
+    int line = 1;
+    int counted = 0;
+    int lastLineStart = -1;
+    while (matches.size() < maxMatchesPerFile && matcher.find()) {
+      int start = matcher.start();
+      for (int i = counted; i < start; i++) {
+        if (content.charAt(i) == '\n') {
+          line++;
+        }
+      }
+      counted = start;
+      int lineStart = content.lastIndexOf('\n', start - 1) + 1;
+      if (lineStart != lastLineStart) {
+        int lineEnd = content.indexOf('\n', start);
+        lineEnd = lineEnd < 0 ? content.length() : lineEnd;
+        matches.add(new LineMatch(line, content.substring(lineStart, Math.min(lineEnd, lineStart + MAX_LINE_LENGTH))));
+        lastLineStart = lineStart;
+      }
+    }
+    return matches;
+  }
+
+  // At most one update per repository at a time. One requested while an update runs is run after it, as the
+  // running update may have read the branch head before the push; the poller won't report that push again.
+  private void schedule(UUID repositoryId, String branch) {
+    AtomicReference<String> created = new AtomicReference<>();
+    AtomicReference<String> requested = pending.compute(repositoryId, (id, running) -> {
+      AtomicReference<String> next = running != null ? running : created;
+      next.set(branch);
+      return next;
+    });
+    if (requested == created) {
+      builders.execute(() -> drain(repositoryId, requested));
+    }
+  }
+
+  private void drain(UUID repositoryId, AtomicReference<String> requested) {
+    do {
+      String branch = requested.getAndSet(null);
+      try {
+        update(repositoryId, branch);
+      } catch (RuntimeException e) {
+        log.warn("Failed to update search index of repository {}", repositoryId, e);
+      }
+      // Atomic with schedule(), so a request either lands before this check or starts a new drain
+    } while (pending.computeIfPresent(repositoryId, (id, running) -> running.get() != null ? running : null) != null);
+  }
+
+  private void update(UUID repositoryId, String branch) {
+    transactionTemplate.executeWithoutResult(status -> {
+      // Serializes updates of the same repository across service instances
+      jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> {
+      }, repositoryId.getMostSignificantBits() ^ repositoryId.getLeastSignificantBits() ^ 0x5ea4c4L);
+      try {
+        update(repositoryId, branch, indexedHead(repositoryId).orElse(null));
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to update search index of " + repositoryId, e);
+      }
+    });
+  }
+
+  private void update(UUID repositoryId, String branch, ObjectId indexedHead) throws IOException {
+    ObjectId headId = gitManager.branchHeads(repositoryId).get(branch);
+    if (headId == null) {
+      // Branch deleted, or not pushed yet
+      jdbcTemplate.update("DELETE FROM code_search_file WHERE repository_id = ?", repositoryId);
+      jdbcTemplate.update("DELETE FROM code_search_head WHERE repository_id = ?", repositoryId);
+      return;
+    }
+    if (headId.equals(indexedHead)) {
+      return;
+    }
+
+    try (GitRepositoryCache.Lease lease = gitManager.openRepository(repositoryId);
+        RevWalk revWalk = new RevWalk(lease.repository());
+        TreeWalk treeWalk = new TreeWalk(lease.repository(), revWalk.getObjectReader())) {
+      ObjectReader reader = revWalk.getObjectReader();
+
+      boolean diffed = false;
+      if (indexedHead != null) {
+        try {
+          treeWalk.addTree(revWalk.parseCommit(indexedHead).getTree());
+          diffed = true;
+        } catch (MissingObjectException e) {
+          // Old head was garbage collected after a force push
+        }
+      }
+      if (!diffed) {
+        jdbcTemplate.update("DELETE FROM code_search_file WHERE repository_id = ?", repositoryId);
+        treeWalk.addTree(new EmptyTreeIterator());
+        log.info("Indexing {} of repository {} for search", branch, repositoryId);
+      }
+      treeWalk.addTree(revWalk.parseCommit(headId).getTree());
+      treeWalk.setRecursive(true);
+      treeWalk.setFilter(TreeFilter.ANY_DIFF);
+
+      List<Object[]> upserts = new ArrayList<>();
+      List<Object[]> deletes = new ArrayList<>();
+      int files = 0;
+      while (treeWalk.next()) {
+        String path = treeWalk.getPathString();
+        FileMode mode = treeWalk.getFileMode(1);
+        String content = mode == FileMode.REGULAR_FILE || mode == FileMode.EXECUTABLE_FILE
+            ? text(reader, treeWalk.getObjectId(1))
+            : null;
+        if (content != null) {
+          upserts.add(new Object[] { repositoryId, path, treeWalk.getObjectId(1).name(), content });
+          files++;
+        } else if (diffed) {
+          deletes.add(new Object[] { repositoryId, path });
+        }
+        if (upserts.size() >= BATCH_SIZE || deletes.size() >= BATCH_SIZE) {
+          flush(upserts, deletes);
+        }
+      }
+      flush(upserts, deletes);
+
+      jdbcTemplate.update("""
+          INSERT INTO code_search_head (repository_id, branch, head_commit_id) VALUES (?, ?, ?)
+          ON CONFLICT (repository_id) DO UPDATE
+          SET branch = EXCLUDED.branch, head_commit_id = EXCLUDED.head_commit_id, updated_at = CURRENT_TIMESTAMP""",
+          repositoryId, branch, headId.name());
+      log.debug("Search index of repository {} at {} ({} files written)", repositoryId, headId.name(), files);
+    }
+  }
+
+  // Null for binary files, files too large to index, and text Postgres cannot store
+  private String text(ObjectReader reader, ObjectId blobId) throws IOException {
+    ObjectLoader loader = reader.open(blobId, Constants.OBJ_BLOB);
+    if (loader.getSize() > maxFileSize) {
+      return null;
+    }
+    byte[] bytes = loader.getCachedBytes();
+    if (RawText.isBinary(bytes)) {
+      return null;
+    }
+    String content = RawParseUtils.decode(bytes);
+    return content.indexOf('\0') < 0 ? content : null;
+  }
+
+  private void flush(List<Object[]> upserts, List<Object[]> deletes) {
+    if (!upserts.isEmpty()) {
+      jdbcTemplate.batchUpdate("""
+          INSERT INTO code_search_file (repository_id, path, blob_id, content) VALUES (?, ?, ?, ?)
+          ON CONFLICT (repository_id, path) DO UPDATE SET blob_id = EXCLUDED.blob_id, content = EXCLUDED.content""",
+          upserts);
+      upserts.clear();
+    }
+    if (!deletes.isEmpty()) {
+      jdbcTemplate.batchUpdate("DELETE FROM code_search_file WHERE repository_id = ? AND path = ?", deletes);
+      deletes.clear();
+    }
+  }
+
+  private Optional<ObjectId> indexedHead(UUID repositoryId) {
+    return jdbcTemplate.query("SELECT head_commit_id FROM code_search_head WHERE repository_id = ?",
+        (rs, rowNum) -> ObjectId.fromString(rs.getString("head_commit_id")), repositoryId).stream().findFirst();
+  }
+}
@@ -0,0 +1,407 @@
+package com.nebula.code.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Commit history of each repository's default branch, held in Postgres so
+ * {@code log}, {@code log -- path} and the last commit of every entry in a
+ * directory are index lookups instead of walks over the whole history.
+ *
+ * Commits are numbered in topological order and every commit records the
+ * files and directories it changed. When the branch moves forward only the
+ * new commits are added; a rewritten branch is indexed again from scratch.
+ * Rows are committed in batches, with the branch marked as being indexed
+ * until the last one, so a long first index holds no single transaction
+ * and one cut short is started over.
+ * Updates run in the background on {@link RefsChangedEvent}; a query that
+ * finds the index behind the branch waits briefly for it to catch up and
+ * otherwise falls back to walking the history.
+ */
+@Service
+@Slf4j
+public class CommitHistoryIndex {
+
+  private static final int BATCH_SIZE = 1000;
+
+  // Recorded as the head while rows are added; no branch points at it
+  private static final ObjectId INDEXING = ObjectId.zeroId();
+
+  private record Key(UUID repositoryId, String branch) {
+  }
+
+  private record IndexedHead(ObjectId headId, long commitCount) {
+  }
+
+  private static final RowMapper<GitManager.CommitInfo> COMMIT_MAPPER = (rs, rowNum) -> new GitManager.CommitInfo(
+      rs.getString("commit_id"),
+      rs.getString("author_name"),
+      rs.getString("author_email"),
+      rs.getTimestamp("authored_at").toInstant(),
+      rs.getString("summary"));
+
+  private final GitManager gitManager;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final Duration catchUpTimeout;
+  private final ExecutorService builders;
+  private final Map<Key, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+
+  public CommitHistoryIndex(GitManager gitManager, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+      @Value("${nebula.git.commit-index.builder-threads:2}") int builderThreads,
+      @Value("${nebula.git.commit-index.catch-up-timeout:2s}") Duration catchUpTimeout) {
+    this.gitManager = gitManager;
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+    this.catchUpTimeout = catchUpTimeout;
+    AtomicInteger threads = new AtomicInteger();
+    this.builders = Executors.newFixedThreadPool(builderThreads, runnable -> {
+      Thread thread = new Thread(runnable, "commit-index-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PreDestroy
+  public void stop() {
+    builders.shutdownNow();
+  }
+
+  @EventListener
+  public void onRefsChanged(RefsChangedEvent event) {
+    if (event.changed().containsKey(event.defaultBranch())) {
+      schedule(new Key(event.repositoryId(), event.defaultBranch()));
+    }
+  }
+
+  /**
+   * Commits on the branch, newest first, optionally only those changing
+   * {@code path} (a file or a directory; empty for all). Branches other than
+   * the default one, and a default branch still being indexed, are walked.
+   *
+   * @throws InvalidCursorException if {@code cursor} is not one this method returned
+   */
+  public GitManager.CommitPage log(UUID repositoryId, String defaultBranch, String branch, String path,
+      String cursor, int limit) {
+    // A page of a walk continues the walk; a page of the index stays on the index, whose numbers only grow
+    if (!branch.equals(defaultBranch)
+        || (cursor != null ? cursor.contains(":") : !isCurrent(new Key(repositoryId, branch)))) {
+      return gitManager.walkLog(repositoryId, branch, path, cursor, limit);
+    }
+
+    long before = cursor != null ? parseSeq(cursor) : Long.MAX_VALUE;
+    List<GitManager.CommitInfo> commits;
+    List<Long> seqs = new ArrayList<>();
+    RowMapper<GitManager.CommitInfo> mapper = (rs, rowNum) -> {
+      seqs.add(rs.getLong("seq"));
+      return COMMIT_MAPPER.mapRow(rs, rowNum);
+    };
+    if (path.isEmpty()) {
+      commits = jdbcTemplate.query("""
+          SELECT * FROM commit_history
+          WHERE repository_id = ? AND branch = ? AND seq < ?
+          ORDER BY seq DESC LIMIT ?""", mapper, repositoryId, branch, before, limit + 1);
+    } else {
+      commits = jdbcTemplate.query("""
+          SELECT c.* FROM path_history p
+          JOIN commit_history c ON c.repository_id = p.repository_id AND c.branch = p.branch AND c.seq = p.seq
+          WHERE p.repository_id = ? AND p.branch = ? AND p.path = ? AND p.seq < ?
+          ORDER BY p.seq DESC LIMIT ?""", mapper, repositoryId, branch, path, before, limit + 1);
+    }
+
+    if (commits.size() <= limit) {
+      return new GitManager.CommitPage(commits, null);
+    }
+    return new GitManager.CommitPage(commits.subList(0, limit), String.valueOf(seqs.get(limit - 1)));
+  }
+
+  private static long parseSeq(String cursor) {
+    try {
+      long seq = Long.parseLong(cursor);
+      if (seq > 0) {
+        return seq;
+      }
+    } catch (NumberFormatException e) {
+      // Fall through
+    }
+    throw new InvalidCursorException(cursor);
+  }
+
+  /**
+   * The most recent commit changing each of {@code paths} on the default
+   * branch. Empty while the branch is being indexed, or for other branches.
+   */
+  public Map<String, GitManager.CommitInfo> lastCommits(UUID repositoryId, String defaultBranch, String branch,
+      List<String> paths) {
+    if (paths.isEmpty() || !branch.equals(defaultBranch) || !isCurrent(new Key(repositoryId, branch))) {
+      return Map.of();
+    }
+
+    Map<String, GitManager.CommitInfo> commits = new HashMap<>();
+    jdbcTemplate.query("""
+        SELECT e.path, c.* FROM unnest(?) AS e(path)
+        JOIN LATERAL (
+          SELECT max(p.seq) AS seq FROM path_history p
+          WHERE p.repository_id = ? AND p.branch = ? AND p.path = e.path
+        ) latest ON latest.seq IS NOT NULL
+        JOIN commit_history c ON c.repository_id = ? AND c.branch = ? AND c.seq = latest.seq""",
+        ps -> {
+          Array array = ps.getConnection().createArrayOf("text", paths.toArray());
+          ps.setArray(1, array);
+          ps.setObject(2, repositoryId);
+          ps.setString(3, branch);
+          ps.setObject(4, repositoryId);
+          ps.setString(5, branch);
+        },
+        rs -> {
+          commits.put(rs.getString("path"), COMMIT_MAPPER.mapRow(rs, 0));
+        });
+    return commits;
+  }
+
+  // Brings the index up to the branch head, waiting up to catch-up-timeout for it
+  private boolean isCurrent(Key key) {
+    Optional<IndexedHead> indexed = indexedHead(key);
+    if (indexed.isPresent() && indexed.get().headId().equals(branchHead(key))) {
+      return true;
+    }
+    try {
+      schedule(key).get(catchUpTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException | ExecutionException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    // The update waited for may have started before the branch last moved
+    indexed = indexedHead(key);
+    return indexed.isPresent() && indexed.get().headId().equals(branchHead(key));
+  }
+
+  // At most one update per branch at a time; a caller arriving during one waits for it
+  private CompletableFuture<Void> schedule(Key key) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    CompletableFuture<Void> running = pending.putIfAbsent(key, future);
+    if (running != null) {
+      return running;
+    }
+    builders.execute(() -> {
+      RuntimeException error = null;
+      try {
+        update(key);
+      } catch (RuntimeException e) {
+        log.warn("Failed to index history of {} in repository {}", key.branch(), key.repositoryId(), e);
+        error = e;
+      }
+      pending.remove(key, future);
+      if (error == null) {
+        future.complete(null);
+      } else {
+        future.completeExceptionally(error);
+      }
+    });
+    return future;
+  }
+
+  private void update(Key key) {
+    // Serializes updates of the same branch across service instances. A session lock on a connection of its
+    // own, as the rows are written in several transactions.
+    long lockId = key.repositoryId().getMostSignificantBits() ^ key.repositoryId().getLeastSignificantBits()
+        ^ key.branch().hashCode();
+    jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+      try (PreparedStatement lock = connection.prepareStatement("SELECT pg_advisory_lock(?)")) {
+        lock.setLong(1, lockId);
+        lock.execute();
+      }
+      try {
+        update(key, indexedHead(key).orElse(null));
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to index history of " + key.branch() + " in " + key.repositoryId(), e);
+      } finally {
+        try (PreparedStatement unlock = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+          unlock.setLong(1, lockId);
+          unlock.execute();
+        }
+      }
+      return null;
+    });
+  }
+
+  private void update(Key key, IndexedHead indexed) throws IOException {
+    ObjectId headId = branchHead(key);
+    if (headId == null) {
+      // Branch deleted, or not pushed yet
+      jdbcTemplate.update("DELETE FROM commit_history_head WHERE repository_id = ? AND branch = ?",
+          key.repositoryId(), key.branch());
+      return;
+    }
+    if (indexed != null && indexed.headId().equals(headId)) {
+      return;
+    }
+
+    try (GitRepositoryCache.Lease lease = gitManager.openRepository(key.repositoryId());
+        RevWalk revWalk = new RevWalk(lease.repository())) {
+      RevCommit head = revWalk.parseCommit(headId);
+      RevCommit oldHead = null;
+      if (indexed != null && !indexed.headId().equals(INDEXING)) {
+        try {
+          oldHead = revWalk.parseCommit(indexed.headId());
+          if (!revWalk.isMergedInto(oldHead, head)) {
+            oldHead = null; // Branch was rewritten
+          }
+        } catch (MissingObjectException e) {
+          oldHead = null; // Old head was garbage collected after a force push
+        }
+        revWalk.reset();
+      }
+
+      long seq;
+      if (oldHead != null) {
+        seq = indexed.commitCount();
+        revWalk.markUninteresting(oldHead);
+        jdbcTemplate.update("UPDATE commit_history_head SET head_commit_id = ? WHERE repository_id = ? AND branch = ?",
+            INDEXING.name(), key.repositoryId(), key.branch());
+      } else {
+        seq = 0;
+        transactionTemplate.executeWithoutResult(status -> {
+          jdbcTemplate.update("DELETE FROM commit_history_head WHERE repository_id = ? AND branch = ?",
+              key.repositoryId(), key.branch());
+          jdbcTemplate.update("""
+              INSERT INTO commit_history_head (repository_id, branch, head_commit_id, commit_count)
+              VALUES (?, ?, ?, 0)""", key.repositoryId(), key.branch(), INDEXING.name());
+        });
+        log.info("Indexing history of {} in repository {}", key.branch(), key.repositoryId());
+      }
+      revWalk.markStart(head);
+      revWalk.sort(RevSort.TOPO, true);
+      revWalk.sort(RevSort.REVERSE, true);
+
+      List<Object[]> commitRows = new ArrayList<>();
+      List<Object[]> pathRows = new ArrayList<>();
+      try (TreeWalk treeWalk = new TreeWalk(lease.repository(), revWalk.getObjectReader())) {
+        for (RevCommit commit : revWalk) {
+          seq++;
+          GitManager.CommitInfo info = GitManager.CommitInfo.of(commit);
+          commitRows.add(new Object[] { key.repositoryId(), key.branch(), seq, info.id(), info.authorName(),
+              info.authorEmail(), Timestamp.from(info.authoredAt()), info.summary() });
+          for (String path : changedPaths(revWalk, treeWalk, commit)) {
+            pathRows.add(new Object[] { key.repositoryId(), key.branch(), path, seq });
+          }
+          if (commitRows.size() >= BATCH_SIZE) {
+            flush(key, INDEXING, seq, commitRows, pathRows);
+          }
+        }
+      }
+      flush(key, headId, seq, commitRows, pathRows);
+
+      log.debug("Indexed history of {} in repository {} up to {} ({} commits)", key.branch(), key.repositoryId(),
+          headId.name(), seq);
+    }
+  }
+
+  // Files the commit changed relative to every parent, and the directories containing them
+  private static Set<String> changedPaths(RevWalk revWalk, TreeWalk treeWalk, RevCommit commit) throws IOException {
+    RevCommit[] parents = commit.getParents();
+    treeWalk.reset();
+    treeWalk.setRecursive(true);
+    treeWalk.setFilter(TreeFilter.ANY_DIFF);
+    treeWalk.addTree(commit.getTree());
+    if (parents.length == 0) {
+      treeWalk.addTree(new EmptyTreeIterator());
+    }
+    for (RevCommit parent : parents) {
+      treeWalk.addTree(revWalk.parseCommit(parent).getTree());
+    }
+
+    Set<String> paths = new LinkedHashSet<>();
+    while (treeWalk.next()) {
+      boolean differsFromAll = true;
+      for (int i = 1; i < treeWalk.getTreeCount() && differsFromAll; i++) {
+        differsFromAll = !treeWalk.idEqual(0, i) || treeWalk.getRawMode(0) != treeWalk.getRawMode(i);
+      }
+      if (!differsFromAll) {
+        continue; // Taken unchanged from one side of a merge
+      }
+      String path = treeWalk.getPathString();
+      while (paths.add(path)) {
+        int slash = path.lastIndexOf('/');
+        if (slash < 0) {
+          break;
+        }
+        path = path.substring(0, slash);
+      }
+    }
+    return paths;
+  }
+
+  // Commits the rows along with the head and commit count they bring the index to
+  private void flush(Key key, ObjectId headId, long commitCount, List<Object[]> commitRows, List<Object[]> pathRows) {
+    transactionTemplate.executeWithoutResult(status -> {
+      if (!commitRows.isEmpty()) {
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO commit_history
+              (repository_id, branch, seq, commit_id, author_name, author_email, authored_at, summary)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)""", commitRows);
+      }
+      if (!pathRows.isEmpty()) {
+        jdbcTemplate.batchUpdate("INSERT INTO path_history (repository_id, branch, path, seq) VALUES (?, ?, ?, ?)",
+            pathRows);
+      }
+      jdbcTemplate.update("""
+          UPDATE commit_history_head SET head_commit_id = ?, commit_count = ?, updated_at = CURRENT_TIMESTAMP
+          WHERE repository_id = ? AND branch = ?""", headId.name(), commitCount, key.repositoryId(), key.branch());
+    });
+    commitRows.clear();
+    pathRows.clear();
+  }
+
+  private Optional<IndexedHead> indexedHead(Key key) {
+    return jdbcTemplate.query("""
+        SELECT head_commit_id, commit_count FROM commit_history_head
+        WHERE repository_id = ? AND branch = ?""",
+        (rs, rowNum) -> new IndexedHead(ObjectId.fromString(rs.getString("head_commit_id")),
+            rs.getLong("commit_count")),
+        key.repositoryId(), key.branch()).stream().findFirst();
+  }
+
+  private ObjectId branchHead(Key key) {
+    return gitManager.branchHeads(key.repositoryId()).get(key.branch());
+  }
+}
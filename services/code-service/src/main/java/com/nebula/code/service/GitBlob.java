@@ -0,0 +1,65 @@
+package com.nebula.code.service;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.springframework.core.io.AbstractResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A file's content as a {@link org.springframework.core.io.Resource}, so it
+ * can be returned from a controller with {@code Content-Length} and Range
+ * requests handled by Spring. Small blobs are held in memory; large ones
+ * open a fresh stream from the object database on every read.
+ */
+public class GitBlob extends AbstractResource {
+
+  @FunctionalInterface
+  interface Opener {
+    InputStream open() throws IOException;
+  }
+
+  private final ObjectId id;
+  private final long size;
+  private final byte[] content;
+  private final Opener opener;
+
+  GitBlob(ObjectId id, byte[] content) {
+    this.id = id.copy();
+    this.size = content.length;
+    this.content = content;
+    this.opener = null;
+  }
+
+  GitBlob(ObjectId id, long size, Opener opener) {
+    this.id = id.copy();
+    this.size = size;
+    this.content = null;
+    this.opener = opener;
+  }
+
+  public ObjectId getId() {
+    return id;
+  }
+
+  @Override
+  public boolean exists() {
+    return true;
+  }
+
+  @Override
+  public long contentLength() {
+    return size;
+  }
+
+  @Override
+  public InputStream getInputStream() throws IOException {
+    return content != null ? new ByteArrayInputStream(content) : opener.open();
+  }
+
+  @Override
+  public String getDescription() {
+    return "Git blob " + id.name();
+  }
+}
@@ -0,0 +1,49 @@
+package com.nebula.code.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Content of small, recently read blobs, keyed by object id. A blob never
+ * changes once written, so entries are only ever evicted for space, never
+ * invalidated. Blobs above {@code max-blob-size} are not cached.
+ */
+@Component
+public class GitBlobCache {
+
+  private final Cache<ObjectId, byte[]> blobs;
+  private final long maxBlobSize;
+
+  public GitBlobCache(MeterRegistry meterRegistry,
+      @Value("${nebula.git.blob-cache.max-size:128MB}") DataSize maxSize,
+      @Value("${nebula.git.blob-cache.max-blob-size:256KB}") DataSize maxBlobSize) {
+    this.maxBlobSize = maxBlobSize.toBytes();
+    this.blobs = Caffeine.newBuilder()
+        .maximumWeight(maxSize.toBytes())
+        .weigher((ObjectId id, byte[] content) -> content.length)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, blobs, "git.blobs");
+  }
+
+  public boolean accepts(long size) {
+    return size <= maxBlobSize;
+  }
+
+  public byte[] get(AnyObjectId id) {
+    return blobs.getIfPresent(id.toObjectId());
+  }
+
+  public void put(AnyObjectId id, byte[] content) {
+    if (accepts(content.length)) {
+      blobs.put(id.copy(), content);
+    }
+  }
+}
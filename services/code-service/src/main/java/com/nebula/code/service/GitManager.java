@@ -2,30 +2,53 @@ package com.nebula.code.service;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 @Service
 public class GitManager {
 
   private final String gitStoragePath;
+  private final GitRepositoryCache repositoryCache;
+  private final GitBlobCache blobCache;
 
-  public GitManager(@Value("${nebula.git.storage-path}") String gitStoragePath) {
+  public GitManager(@Value("${nebula.git.storage-path}") String gitStoragePath,
+      GitRepositoryCache repositoryCache, GitBlobCache blobCache) {
     this.gitStoragePath = gitStoragePath;
+    this.repositoryCache = repositoryCache;
+    this.blobCache = blobCache;
   }
 
   public File getRepoDirectory(UUID repositoryId) {
@@ -38,6 +61,7 @@ public class GitManager {
 
   public void initializeBareRepository(UUID repositoryId) {
     File repoDir = getRepoDirectory(repositoryId);
+    repositoryCache.invalidate(repositoryId);
     try {
       Git.init().setDirectory(repoDir).setBare(true).call().close();
     } catch (GitAPIException | IllegalStateException e) {
@@ -75,66 +99,325 @@ public class GitManager {
     }
   }
 
-  public List<String> listFiles(UUID repositoryId, String branchPath) {
-    File repoDir = getRepoDirectory(repositoryId);
-    List<String> files = new ArrayList<>();
+  public record TreeEntry(String name, String path, String type, String mode, Long size, String objectId) {
+  }
+
+  /**
+   * @param nextCursor pass back to get the entries after these; null on the last page
+   */
+  public record TreePage(String treeId, List<TreeEntry> entries, String nextCursor) {
+  }
+
+  @FunctionalInterface
+  public interface PathConsumer {
+    void accept(String path) throws IOException;
+  }
+
+  /**
+   * Id of the directory at {@code path} (empty for the root) on the branch;
+   * empty if the branch, or a directory at that path, does not exist.
+   */
+  public Optional<ObjectId> resolveTree(UUID repositoryId, String branchPath, String path) {
+    return resolve(repositoryId, branchPath, path, mode -> mode == FileMode.TREE);
+  }
+
+  /**
+   * Id of the file at {@code path} on the branch; empty if the branch, or a
+   * file at that path, does not exist.
+   */
+  public Optional<ObjectId> resolveBlob(UUID repositoryId, String branchPath, String path) {
+    return resolve(repositoryId, branchPath, path, mode -> mode.getObjectType() == Constants.OBJ_BLOB);
+  }
+
+  /**
+   * The blob, if this repository has it. Small blobs come from (and go to)
+   * the {@link GitBlobCache}; larger ones are streamed from the object
+   * database each time they are read.
+   */
+  public Optional<GitBlob> readBlob(UUID repositoryId, ObjectId blobId) {
+    try (GitRepositoryCache.Lease lease = repositoryCache.open(repositoryId, getRepoDirectory(repositoryId))) {
+      org.eclipse.jgit.lib.Repository repo = lease.repository();
+      byte[] cached = blobCache.get(blobId);
+      if (cached != null) {
+        // Cached by content alone; only serve it to repositories that have it
+        return repo.getObjectDatabase().has(blobId) ? Optional.of(new GitBlob(blobId, cached)) : Optional.empty();
+      }
+
+      ObjectLoader loader = repo.open(blobId, Constants.OBJ_BLOB);
+      if (blobCache.accepts(loader.getSize())) {
+        byte[] content = loader.getCachedBytes();
+        blobCache.put(blobId, content);
+        return Optional.of(new GitBlob(blobId, content));
+      }
+      return Optional.of(new GitBlob(blobId, loader.getSize(), () -> openBlob(repositoryId, blobId)));
+    } catch (MissingObjectException | IncorrectObjectTypeException e) {
+      return Optional.empty();
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to read blob " + blobId.name() + " in " + repositoryId, e);
+    }
+  }
+
+  // Keeps the repository leased until the stream is closed
+  private InputStream openBlob(UUID repositoryId, ObjectId blobId) throws IOException {
+    GitRepositoryCache.Lease lease = repositoryCache.open(repositoryId, getRepoDirectory(repositoryId));
+    try {
+      return new FilterInputStream(lease.repository().open(blobId, Constants.OBJ_BLOB).openStream()) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            lease.close();
+          }
+        }
+      };
+    } catch (IOException | RuntimeException e) {
+      lease.close();
+      throw e;
+    }
+  }
 
+  private Optional<ObjectId> resolve(UUID repositoryId, String branchPath, String path, Predicate<FileMode> accept) {
+    File repoDir = getRepoDirectory(repositoryId);
     if (!repoDir.exists()) {
-      return files;
+      return Optional.empty();
     }
 
-    try (org.eclipse.jgit.lib.Repository repo = Git.open(repoDir).getRepository();
-        RevWalk revWalk = new RevWalk(repo)) {
+    try (GitRepositoryCache.Lease lease = repositoryCache.open(repositoryId, repoDir);
+        RevWalk revWalk = new RevWalk(lease.repository())) {
 
+      org.eclipse.jgit.lib.Repository repo = lease.repository();
       ObjectId headId = repo.resolve(branchPath);
       if (headId == null) {
-        return files; // Branch doesn't exist yet (empty repo)
+        return Optional.empty(); // Branch doesn't exist yet (empty repo)
+      }
+
+      RevTree root = revWalk.parseCommit(headId).getTree();
+      if (path.isEmpty()) {
+        return accept.test(FileMode.TREE) ? Optional.of(root.getId()) : Optional.empty();
       }
+      try (TreeWalk treeWalk = TreeWalk.forPath(repo, path, root)) {
+        return treeWalk != null && accept.test(treeWalk.getFileMode(0))
+            ? Optional.of(treeWalk.getObjectId(0))
+            : Optional.empty();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to resolve " + branchPath + ":" + path + " in " + repositoryId, e);
+    }
+  }
+
+  /**
+   * One page of a single directory, without descending into subdirectories.
+   * Entries come in git tree order and the cursor is the last entry's sort
+   * key, so paging stays consistent even if the branch moves in between.
+   *
+   * @param path the directory's path, prefixed to entry names
+   * @throws InvalidCursorException if {@code cursor} is not one this method returned
+   */
+  public TreePage listDirectory(UUID repositoryId, ObjectId treeId, String path, String cursor, int limit) {
+    byte[] after = null;
+    if (cursor != null) {
+      try {
+        after = Base64.getUrlDecoder().decode(cursor);
+      } catch (IllegalArgumentException e) {
+        throw new InvalidCursorException(cursor);
+      }
+    }
+    String prefix = path.isEmpty() ? "" : path + "/";
+    List<TreeEntry> entries = new ArrayList<>(limit);
 
-      RevCommit commit = revWalk.parseCommit(headId);
-      RevTree tree = commit.getTree();
+    try (GitRepositoryCache.Lease lease = repositoryCache.open(repositoryId, getRepoDirectory(repositoryId));
+        TreeWalk treeWalk = new TreeWalk(lease.repository())) {
+      treeWalk.addTree(treeId);
+      ObjectReader reader = treeWalk.getObjectReader();
 
-      try (TreeWalk treeWalk = new TreeWalk(repo)) {
-        treeWalk.addTree(tree);
-        treeWalk.setRecursive(true);
-        while (treeWalk.next()) {
-          files.add(treeWalk.getPathString());
+      byte[] lastKey = null;
+      while (treeWalk.next()) {
+        FileMode mode = treeWalk.getFileMode(0);
+        byte[] key = sortKey(treeWalk, mode);
+        if (after != null && Arrays.compareUnsigned(key, after) <= 0) {
+          continue;
         }
+        if (entries.size() == limit) {
+          return new TreePage(treeId.name(), entries, Base64.getUrlEncoder().withoutPadding().encodeToString(lastKey));
+        }
+
+        ObjectId objectId = treeWalk.getObjectId(0);
+        String name = treeWalk.getNameString();
+        Long size = mode.getObjectType() == Constants.OBJ_BLOB
+            ? reader.getObjectSize(objectId, Constants.OBJ_BLOB)
+            : null;
+        entries.add(new TreeEntry(name, prefix + name, type(mode), String.format("%06o", mode.getBits()), size,
+            objectId.name()));
+        lastKey = key;
       }
+      return new TreePage(treeId.name(), entries, null);
     } catch (IOException e) {
-      throw new RuntimeException("Failed to list files for " + repositoryId, e);
+      throw new RuntimeException("Failed to list " + path + " in " + repositoryId, e);
     }
+  }
 
-    return files;
+  /**
+   * Hands every file path under the tree to {@code consumer} as the tree is
+   * walked, so callers can stream them out without collecting them.
+   */
+  public void walkPaths(UUID repositoryId, ObjectId treeId, PathConsumer consumer) throws IOException {
+    try (GitRepositoryCache.Lease lease = repositoryCache.open(repositoryId, getRepoDirectory(repositoryId));
+        TreeWalk treeWalk = new TreeWalk(lease.repository())) {
+      treeWalk.addTree(treeId);
+      treeWalk.setRecursive(true);
+      while (treeWalk.next()) {
+        consumer.accept(treeWalk.getPathString());
+      }
+    }
   }
 
-  public String readFileContent(UUID repositoryId, String branchPath, String filePath) {
-    File repoDir = getRepoDirectory(repositoryId);
-    try (org.eclipse.jgit.lib.Repository repo = Git.open(repoDir).getRepository();
-        RevWalk revWalk = new RevWalk(repo)) {
+  public record CommitInfo(String id, String authorName, String authorEmail, Instant authoredAt, String summary) {
 
-      ObjectId headId = repo.resolve(branchPath);
-      if (headId == null)
-        return null;
+    static CommitInfo of(RevCommit commit) {
+      PersonIdent author = commit.getAuthorIdent();
+      return new CommitInfo(commit.name(), author.getName(), author.getEmailAddress(), author.getWhen().toInstant(),
+          commit.getShortMessage());
+    }
+  }
 
-      RevCommit commit = revWalk.parseCommit(headId);
-      RevTree tree = commit.getTree();
+  /**
+   * @param nextCursor pass back to get the commits after these; null on the last page
+   */
+  public record CommitPage(List<CommitInfo> commits, String nextCursor) {
+  }
+
+  /** The repository itself, for walks that need more than the methods here; close the lease when done. */
+  public GitRepositoryCache.Lease openRepository(UUID repositoryId) throws IOException {
+    return repositoryCache.open(repositoryId, getRepoDirectory(repositoryId));
+  }
 
-      try (TreeWalk treeWalk = new TreeWalk(repo)) {
-        treeWalk.addTree(tree);
-        treeWalk.setRecursive(true);
-        treeWalk.setFilter(PathFilter.create(filePath));
+  /** Closes the open handle of a repository that was deleted, once nothing is reading it. */
+  public void forget(UUID repositoryId) {
+    repositoryCache.invalidate(repositoryId);
+  }
 
-        if (!treeWalk.next()) {
-          return null; // File not found
+  /** Short branch name to head commit, for every branch in the repository. */
+  public Map<String, ObjectId> branchHeads(UUID repositoryId) {
+    File repoDir = getRepoDirectory(repositoryId);
+    if (!repoDir.exists()) {
+      return Map.of();
+    }
+    // Polled for every repository, so it must not churn the cache
+    try (GitRepositoryCache.Lease lease = repositoryCache.openQuietly(repositoryId, repoDir)) {
+      Map<String, ObjectId> heads = new HashMap<>();
+      for (Ref ref : lease.repository().getRefDatabase().getRefsByPrefix(Constants.R_HEADS)) {
+        if (ref.getObjectId() != null) {
+          heads.put(ref.getName().substring(Constants.R_HEADS.length()), ref.getObjectId());
         }
+      }
+      return heads;
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to read branches of " + repositoryId, e);
+    }
+  }
 
-        ObjectId objectId = treeWalk.getObjectId(0);
-        ObjectLoader loader = repo.open(objectId);
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        loader.copyTo(out);
-        return out.toString();
+  /**
+   * Commits on the branch, newest first, optionally only those changing
+   * {@code path}, found by walking the history. Cost grows with how far back
+   * the page is; {@link CommitHistoryIndex} answers the same from its index.
+   *
+   * @throws InvalidCursorException if {@code cursor} is not one this method returned
+   */
+  public CommitPage walkLog(UUID repositoryId, String branchPath, String path, String cursor, int limit) {
+    File repoDir = getRepoDirectory(repositoryId);
+    if (!repoDir.exists()) {
+      return new CommitPage(List.of(), null);
+    }
+
+    try (GitRepositoryCache.Lease lease = repositoryCache.open(repositoryId, repoDir);
+        RevWalk revWalk = new RevWalk(lease.repository())) {
+
+      // The cursor pins the head the first page was walked from, then counts commits into it
+      ObjectId headId;
+      int skip;
+      if (cursor != null) {
+        int colon = cursor.indexOf(':');
+        if (colon < 0 || !ObjectId.isId(cursor.substring(0, colon))) {
+          throw new InvalidCursorException(cursor);
+        }
+        headId = ObjectId.fromString(cursor.substring(0, colon));
+        try {
+          skip = Integer.parseInt(cursor.substring(colon + 1));
+        } catch (NumberFormatException e) {
+          throw new InvalidCursorException(cursor);
+        }
+        if (skip < 0) {
+          throw new InvalidCursorException(cursor);
+        }
+      } else {
+        headId = lease.repository().resolve(branchPath);
+        skip = 0;
+      }
+      if (headId == null) {
+        return new CommitPage(List.of(), null); // Branch doesn't exist yet (empty repo)
+      }
+
+      RevCommit head;
+      try {
+        head = revWalk.parseCommit(headId);
+      } catch (MissingObjectException | IncorrectObjectTypeException e) {
+        if (cursor == null) {
+          throw e;
+        }
+        throw new InvalidCursorException(cursor);
+      }
+      revWalk.markStart(head);
+      if (!path.isEmpty()) {
+        revWalk.setTreeFilter(AndTreeFilter.create(PathFilter.create(path), TreeFilter.ANY_DIFF));
       }
+      List<CommitInfo> commits = new ArrayList<>(limit);
+      int seen = 0;
+      for (RevCommit commit : revWalk) {
+        if (seen++ < skip) {
+          continue;
+        }
+        if (commits.size() == limit) {
+          return new CommitPage(commits, headId.name() + ":" + (skip + limit));
+        }
+        commits.add(CommitInfo.of(commit));
+      }
+      return new CommitPage(commits, null);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to walk history of " + branchPath + " in " + repositoryId, e);
+    }
+  }
+
+  // Git orders tree entries by name bytes, with directories compared as if followed by '/'.
+  // The walk is not recursive, so the raw path is just the name.
+  private static byte[] sortKey(TreeWalk treeWalk, FileMode mode) {
+    byte[] name = treeWalk.getRawPath();
+    if (mode != FileMode.TREE) {
+      return name;
+    }
+    byte[] key = Arrays.copyOf(name, name.length + 1);
+    key[name.length] = '/';
+    return key;
+  }
+
+  private static String type(FileMode mode) {
+    if (mode == FileMode.TREE) {
+      return "tree";
+    }
+    if (mode == FileMode.SYMLINK) {
+      return "symlink";
+    }
+    return mode == FileMode.GITLINK ? "submodule" : "blob";
+  }
+
+  public String readFileContent(UUID repositoryId, String branchPath, String filePath) {
+    Optional<GitBlob> blob = resolveBlob(repositoryId, branchPath, filePath)
+        .flatMap(blobId -> readBlob(repositoryId, blobId));
+    if (blob.isEmpty()) {
+      return null; // File not found
+    }
+    try (InputStream in = blob.get().getInputStream()) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
     } catch (IOException e) {
       throw new RuntimeException("Failed to read file content for " + filePath, e);
     }
@@ -0,0 +1,204 @@
+package com.nebula.code.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Open bare repositories, shared between requests so refs, packed-refs and
+ * pack indexes are read from disk once instead of on every browse.
+ *
+ * Callers take a {@link Lease} and close it when done. An entry evicted
+ * (too many open, idle past {@code idle-timeout}, or gone from disk) is
+ * closed once its last lease is returned; removals are handled on the
+ * calling thread, so after {@link #close()} only leased repositories remain
+ * open. Pushes need no invalidation: JGit notices new refs and packs from
+ * their file snapshots.
+ *
+ * Object reads go through JGit's process-wide {@link WindowCacheConfig},
+ * sized here so pack windows and delta bases of hot repositories stay in
+ * memory between requests.
+ */
+@Component
+@Slf4j
+public class GitRepositoryCache {
+
+  private final Cache<UUID, Handle> repositories;
+
+  public GitRepositoryCache(MeterRegistry meterRegistry,
+      @Value("${nebula.git.repository-cache.max-open:256}") long maxOpen,
+      @Value("${nebula.git.repository-cache.idle-timeout:10m}") Duration idleTimeout,
+      @Value("${nebula.git.window-cache.packed-git-limit:256MB}") DataSize packedGitLimit,
+      @Value("${nebula.git.window-cache.packed-git-window-size:64KB}") DataSize packedGitWindowSize,
+      @Value("${nebula.git.window-cache.packed-git-open-files:512}") int packedGitOpenFiles,
+      @Value("${nebula.git.window-cache.delta-base-cache-limit:64MB}") DataSize deltaBaseCacheLimit,
+      @Value("${nebula.git.window-cache.stream-file-threshold:16MB}") DataSize streamFileThreshold) {
+    this.repositories = Caffeine.newBuilder()
+        .maximumSize(maxOpen)
+        .expireAfterAccess(idleTimeout)
+        .executor(Runnable::run)
+        .removalListener((UUID id, Handle handle, RemovalCause cause) -> {
+          if (handle != null) {
+            handle.evict();
+          }
+        })
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, repositories, "git.repositories");
+
+    WindowCacheConfig windowCache = new WindowCacheConfig();
+    windowCache.setPackedGitLimit(packedGitLimit.toBytes());
+    windowCache.setPackedGitWindowSize((int) packedGitWindowSize.toBytes());
+    windowCache.setPackedGitOpenFiles(packedGitOpenFiles);
+    windowCache.setDeltaBaseCacheLimit((int) deltaBaseCacheLimit.toBytes());
+    windowCache.setStreamFileThreshold((int) streamFileThreshold.toBytes());
+    windowCache.install();
+  }
+
+  /**
+   * @param gitDir where the repository is on disk, used if it is not open yet
+   * @throws RepositoryNotFoundException if there is no repository at {@code gitDir}
+   */
+  public Lease open(UUID repositoryId, File gitDir) throws IOException {
+    if (!gitDir.isDirectory()) {
+      // Deleted or moved away; don't keep serving the old handle
+      invalidate(repositoryId);
+      throw new RepositoryNotFoundException(gitDir);
+    }
+    while (true) {
+      Handle handle;
+      try {
+        handle = repositories.get(repositoryId, id -> load(gitDir));
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      if (handle.retain()) {
+        return new Lease(handle);
+      }
+      // Evicted and closed between the lookup and the retain
+      repositories.asMap().remove(repositoryId, handle);
+    }
+  }
+
+  /**
+   * Like {@link #open}, but for background scans over every repository: a
+   * repository that is open already is used without counting as an access,
+   * and any other is opened for this lease alone and closed with it, so the
+   * scan does not evict the repositories requests are using.
+   */
+  public Lease openQuietly(UUID repositoryId, File gitDir) throws IOException {
+    Handle cached = repositories.policy().getIfPresentQuietly(repositoryId);
+    if (cached != null && gitDir.isDirectory() && cached.retain()) {
+      return new Lease(cached);
+    }
+    Handle handle;
+    try {
+      handle = load(gitDir);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    handle.retain();
+    handle.evict();
+    return new Lease(handle);
+  }
+
+  /** Drops the cached repository, e.g. after it was deleted or replaced on disk. */
+  public void invalidate(UUID repositoryId) {
+    repositories.invalidate(repositoryId);
+  }
+
+  @PreDestroy
+  public void close() {
+    repositories.invalidateAll();
+    repositories.cleanUp();
+  }
+
+  private static Handle load(File gitDir) {
+    try {
+      return new Handle(new FileRepositoryBuilder()
+          .setGitDir(gitDir)
+          .setMustExist(true)
+          .build());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** A repository in use; closing the lease hands it back to the cache. */
+  public static final class Lease implements AutoCloseable {
+
+    private final Handle handle;
+    private boolean released;
+
+    private Lease(Handle handle) {
+      this.handle = handle;
+    }
+
+    public Repository repository() {
+      return handle.repository;
+    }
+
+    @Override
+    public void close() {
+      if (!released) {
+        released = true;
+        handle.release();
+      }
+    }
+  }
+
+  private static final class Handle {
+
+    private final Repository repository;
+    private int leases;
+    private boolean evicted;
+    private boolean closed;
+
+    Handle(Repository repository) {
+      this.repository = repository;
+    }
+
+    synchronized boolean retain() {
+      if (closed) {
+        return false;
+      }
+      leases++;
+      return true;
+    }
+
+    synchronized void release() {
+      leases--;
+      closeIfUnused();
+    }
+
+    synchronized void evict() {
+      evicted = true;
+      closeIfUnused();
+    }
+
+    private void closeIfUnused() {
+      if (evicted && leases == 0 && !closed) {
+        closed = true;
+        repository.close();
+        log.debug("Closed cached repository {}", repository.getDirectory());
+      }
+    }
+  }
+}
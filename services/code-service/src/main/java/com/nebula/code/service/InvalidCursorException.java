@@ -0,0 +1,9 @@
+package com.nebula.code.service;
+
+/** A paging cursor the client sent back that this service did not hand out. */
+public class InvalidCursorException extends IllegalArgumentException {
+
+  public InvalidCursorException(String cursor) {
+    super("Invalid cursor: " + cursor);
+  }
+}
@@ -0,0 +1,77 @@
+package com.nebula.code.service;
+
+import com.nebula.code.domain.Repository;
+import com.nebula.code.domain.RepositoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Notices pushes to the bare repositories. Pushes arrive from the IDE
+ * workspaces straight onto disk, with no hook into this service, so the
+ * branch heads are polled and a {@link RefsChangedEvent} is published for
+ * every repository whose branches moved. The first poll after startup
+ * reports every branch, so indexes catch up on pushes made while down.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RefUpdateWatcher {
+
+  private final RepositoryRepository repositoryRepository;
+  private final GitManager gitManager;
+  private final ApplicationEventPublisher eventPublisher;
+  private final Map<UUID, Map<String, ObjectId>> lastSeen = new ConcurrentHashMap<>();
+
+  @Scheduled(fixedDelayString = "${nebula.git.ref-poll-interval:10s}")
+  public void poll() {
+    Set<UUID> present = new HashSet<>();
+    for (Repository repository : repositoryRepository.findAll()) {
+      present.add(repository.getId());
+      try {
+        poll(repository);
+      } catch (RuntimeException e) {
+        log.warn("Failed to poll branches of repository {}", repository.getId(), e);
+      }
+    }
+    // Repositories deleted since the last poll
+    for (UUID gone : Set.copyOf(lastSeen.keySet())) {
+      if (!present.contains(gone)) {
+        lastSeen.remove(gone);
+        gitManager.forget(gone);
+      }
+    }
+  }
+
+  private void poll(Repository repository) {
+    Map<String, ObjectId> heads = gitManager.branchHeads(repository.getId());
+    Map<String, ObjectId> previous = lastSeen.getOrDefault(repository.getId(), Map.of());
+
+    Map<String, ObjectId> changed = new HashMap<>();
+    heads.forEach((branch, head) -> {
+      if (!head.equals(previous.get(branch))) {
+        changed.put(branch, head);
+      }
+    });
+    previous.keySet().stream()
+        .filter(branch -> !heads.containsKey(branch))
+        .forEach(branch -> changed.put(branch, ObjectId.zeroId()));
+
+    lastSeen.put(repository.getId(), heads);
+    if (!changed.isEmpty()) {
+      log.debug("Branches moved in repository {}: {}", repository.getId(), changed.keySet());
+      eventPublisher.publishEvent(new RefsChangedEvent(repository.getId(), repository.getProjectId(),
+          repository.getDefaultBranch(), changed));
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package com.nebula.code.service;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Branches of a repository that moved since the last time they were seen,
+ * published by {@link RefUpdateWatcher}.
+ *
+ * @param changed short branch name to its new head; {@link ObjectId#zeroId()} if the branch was deleted
+ */
+public record RefsChangedEvent(UUID repositoryId, UUID projectId, String defaultBranch,
+    Map<String, ObjectId> changed) {
+}
@@ -0,0 +1,34 @@
+-- Commit history of each repository's default branch, kept up to date as the branch moves.
+-- Commits are numbered in topological order (parents first), so "newest first" is seq descending.
+
+CREATE TABLE commit_history_head (
+    repository_id UUID NOT NULL REFERENCES repository(id) ON DELETE CASCADE,
+    branch VARCHAR(255) NOT NULL,
+    head_commit_id CHAR(40) NOT NULL,
+    commit_count BIGINT NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (repository_id, branch)
+);
+
+CREATE TABLE commit_history (
+    repository_id UUID NOT NULL,
+    branch VARCHAR(255) NOT NULL,
+    seq BIGINT NOT NULL,
+    commit_id CHAR(40) NOT NULL,
+    author_name TEXT,
+    author_email TEXT,
+    authored_at TIMESTAMP WITH TIME ZONE,
+    summary TEXT,
+    PRIMARY KEY (repository_id, branch, seq),
+    FOREIGN KEY (repository_id, branch) REFERENCES commit_history_head(repository_id, branch) ON DELETE CASCADE
+);
+
+-- One row per commit and every file or directory it changed (relative to all of its parents)
+CREATE TABLE path_history (
+    repository_id UUID NOT NULL,
+    branch VARCHAR(255) NOT NULL,
+    path TEXT NOT NULL,
+    seq BIGINT NOT NULL,
+    PRIMARY KEY (repository_id, branch, path, seq),
+    FOREIGN KEY (repository_id, branch) REFERENCES commit_history_head(repository_id, branch) ON DELETE CASCADE
+);
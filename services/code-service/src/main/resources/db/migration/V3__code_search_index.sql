@@ -0,0 +1,22 @@
+-- Text files of each repository's default branch, searchable through a trigram index.
+-- Kept in step with the branch by applying the diff between the indexed and the new head.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE TABLE code_search_head (
+    repository_id UUID PRIMARY KEY REFERENCES repository(id) ON DELETE CASCADE,
+    branch VARCHAR(255) NOT NULL,
+    head_commit_id CHAR(40) NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE code_search_file (
+    repository_id UUID NOT NULL REFERENCES repository(id) ON DELETE CASCADE,
+    path TEXT NOT NULL,
+    blob_id CHAR(40) NOT NULL,
+    content TEXT NOT NULL,
+    PRIMARY KEY (repository_id, path)
+);
+
+-- Serves LIKE, ILIKE, ~ and ~* on content
+CREATE INDEX idx_code_search_file_content ON code_search_file USING gin (content gin_trgm_ops);
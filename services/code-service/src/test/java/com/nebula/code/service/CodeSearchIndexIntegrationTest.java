@@ -0,0 +1,171 @@
+package com.nebula.code.service;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.unit.DataSize;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+@Testcontainers(disabledWithoutDocker = true)
+class CodeSearchIndexIntegrationTest {
+
+  @SuppressWarnings("resource")
+  @Container
+  static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+  @TempDir
+  Path storage;
+
+  private DataSource dataSource;
+  private JdbcTemplate jdbcTemplate;
+  private GitManager gitManager;
+  private CodeSearchIndex index;
+
+  @BeforeAll
+  static void migrate() {
+    Flyway.configure().dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()).load()
+        .migrate();
+  }
+
+  @BeforeEach
+  void setUp() {
+    dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(),
+        postgres.getPassword());
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    gitManager = GitFixture.gitManager(storage);
+    index = searchIndex(gitManager);
+  }
+
+  @AfterEach
+  void tearDown() {
+    index.stop();
+  }
+
+  @Test
+  void search_Regex_ReturnsMatchingLines() throws Exception {
+    try (GitFixture repo = fixture()) {
+      repo.commit("init", Map.of("src/Main.java", "class Main {\n  void run() {}\n}\n", "README.md", "hello\n"));
+      publish(repo);
+      awaitIndexed(repo);
+
+      List<CodeSearchIndex.SearchResult> results = search(repo, "void \\w+\\(", true);
+
+      assertEquals(1, results.size());
+      assertEquals("src/Main.java", results.get(0).path());
+      assertEquals(List.of(new CodeSearchIndex.LineMatch(2, "  void run() {}")), results.get(0).matches());
+    }
+  }
+
+  @Test
+  void search_Literal_EscapesLikeWildcards() throws Exception {
+    try (GitFixture repo = fixture()) {
+      repo.commit("init", Map.of("a.txt", "100% done\n", "b.txt", "100 percent done\n"));
+      publish(repo);
+      awaitIndexed(repo);
+
+      List<CodeSearchIndex.SearchResult> results = search(repo, "0% d", false);
+
+      assertEquals(List.of("a.txt"), results.stream().map(CodeSearchIndex.SearchResult::path).toList());
+    }
+  }
+
+  @Test
+  void onRefsChanged_PushDuringUpdate_IndexesNewHead() throws Exception {
+    // The first update stalls right after reading the branch head, until the branch has moved on
+    CountDownLatch headRead = new CountDownLatch(1);
+    CountDownLatch pushed = new CountDownLatch(1);
+    AtomicBoolean stalled = new AtomicBoolean();
+    GitManager stalling = spy(gitManager);
+    doAnswer(invocation -> {
+      Object heads = invocation.callRealMethod();
+      if (Thread.currentThread().getName().startsWith("search-index-") && !stalled.getAndSet(true)) {
+        headRead.countDown();
+        assertTrue(pushed.await(30, TimeUnit.SECONDS));
+      }
+      return heads;
+    }).when(stalling).branchHeads(any());
+    index.stop();
+    index = searchIndex(stalling);
+
+    try (GitFixture repo = fixture()) {
+      repo.commit("first", Map.of("a.txt", "old content\n"));
+      publish(repo);
+      assertTrue(headRead.await(30, TimeUnit.SECONDS));
+      repo.commit("second", Map.of("a.txt", "new content\n"));
+      publish(repo);
+      pushed.countDown();
+      awaitIndexed(repo);
+
+      assertEquals(1, search(repo, "new content", false).size());
+      assertEquals(0, search(repo, "old content", false).size());
+    }
+  }
+
+  @Test
+  void validate_RegexOnlyPostgresRejects_ThrowsIllegalArgument() {
+    // Fine for RE2/J, but not an ARE
+    assertDoesNotThrow(() -> CodeSearchIndex.compile("(?P<name>abc)", true, true));
+
+    assertThrows(IllegalArgumentException.class, () -> index.validate("(?P<name>abc)", true, true));
+    assertDoesNotThrow(() -> index.validate("ab+c", true, false));
+  }
+
+  private GitFixture fixture() throws Exception {
+    GitFixture repo = new GitFixture(gitManager, storage);
+    jdbcTemplate.update("INSERT INTO repository (id, project_id, name) VALUES (?, ?, ?)", repo.repositoryId,
+        UUID.randomUUID(), "repo-" + repo.repositoryId);
+    return repo;
+  }
+
+  private CodeSearchIndex searchIndex(GitManager gitManager) {
+    return new CodeSearchIndex(gitManager, jdbcTemplate, dataSource, new DataSourceTransactionManager(dataSource), 1,
+        DataSize.ofMegabytes(1), 10, Duration.ofSeconds(5));
+  }
+
+  // What the ref poller does when it sees the branch move
+  private void publish(GitFixture repo) {
+    index.onRefsChanged(new RefsChangedEvent(repo.repositoryId, UUID.randomUUID(), "main",
+        gitManager.branchHeads(repo.repositoryId)));
+  }
+
+  private void awaitIndexed(GitFixture repo) throws InterruptedException {
+    String head = gitManager.branchHeads(repo.repositoryId).get("main").name();
+    long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+    while (jdbcTemplate.queryForList("SELECT head_commit_id FROM code_search_head WHERE repository_id = ?",
+        String.class, repo.repositoryId).stream().noneMatch(head::equals)) {
+      assertTrue(System.nanoTime() < deadline, "Search index did not catch up");
+      Thread.sleep(50);
+    }
+  }
+
+  private List<CodeSearchIndex.SearchResult> search(GitFixture repo, String query, boolean regex) throws Exception {
+    index.validate(query, regex, true);
+    List<CodeSearchIndex.SearchResult> results = new ArrayList<>();
+    index.search(List.of(repo.repositoryId), query, regex, true, 10, results::add);
+    return results;
+  }
+}
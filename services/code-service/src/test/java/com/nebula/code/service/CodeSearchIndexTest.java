@@ -0,0 +1,69 @@
+package com.nebula.code.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class CodeSearchIndexTest {
+
+  private CodeSearchIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new CodeSearchIndex(mock(GitManager.class), mock(JdbcTemplate.class), mock(DataSource.class),
+        mock(PlatformTransactionManager.class), 1, DataSize.ofMegabytes(1), 3, Duration.ofSeconds(5));
+    index.stop();
+  }
+
+  @Test
+  void matches_Literal_ReturnsEachMatchingLineOnce() {
+    List<CodeSearchIndex.LineMatch> matches = index.matches(CodeSearchIndex.compile("foo", false, true),
+        "foo foo\nbar\nfoo.bar\n");
+
+    assertEquals(List.of(new CodeSearchIndex.LineMatch(1, "foo foo"), new CodeSearchIndex.LineMatch(3, "foo.bar")),
+        matches);
+  }
+
+  @Test
+  void matches_CaseInsensitive_MatchesAnyCase() {
+    List<CodeSearchIndex.LineMatch> matches = index.matches(CodeSearchIndex.compile("straße", false, false),
+        "STRASSE\nStraße\n");
+
+    assertEquals(List.of(new CodeSearchIndex.LineMatch(2, "Straße")), matches);
+  }
+
+  @Test
+  void matches_EmptyMatches_MoveOnToLaterLines() {
+    List<CodeSearchIndex.LineMatch> matches = index.matches(CodeSearchIndex.compile("^", true, true), "a\n\nc\nd");
+
+    assertEquals(List.of(new CodeSearchIndex.LineMatch(1, "a"), new CodeSearchIndex.LineMatch(2, ""),
+        new CodeSearchIndex.LineMatch(3, "c")), matches);
+  }
+
+  @Test
+  void matches_CatastrophicBacktrackingPattern_RunsInLinearTime() {
+    String content = "a".repeat(1 << 20) + "!";
+
+    List<CodeSearchIndex.LineMatch> matches = assertTimeoutPreemptively(Duration.ofSeconds(10),
+        () -> index.matches(CodeSearchIndex.compile("(a+)+$", true, true), content));
+
+    assertTrue(matches.isEmpty());
+  }
+
+  @Test
+  void compile_InvalidQueries_ThrowIllegalArgument() {
+    assertThrows(IllegalArgumentException.class, () -> CodeSearchIndex.compile("ab", false, true));
+    assertThrows(IllegalArgumentException.class, () -> CodeSearchIndex.compile("(unclosed", true, true));
+    // Backreferences would need backtracking
+    assertThrows(IllegalArgumentException.class, () -> CodeSearchIndex.compile("(a)\\1", true, true));
+  }
+}
@@ -0,0 +1,147 @@
+package com.nebula.code.service;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers(disabledWithoutDocker = true)
+class CommitHistoryIndexIntegrationTest {
+
+  @SuppressWarnings("resource")
+  @Container
+  static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+  @TempDir
+  Path storage;
+
+  private JdbcTemplate jdbcTemplate;
+  private GitManager gitManager;
+  private CommitHistoryIndex index;
+
+  @BeforeAll
+  static void migrate() {
+    Flyway.configure().dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()).load()
+        .migrate();
+  }
+
+  @BeforeEach
+  void setUp() {
+    DataSource dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(),
+        postgres.getPassword());
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    gitManager = GitFixture.gitManager(storage);
+    index = new CommitHistoryIndex(gitManager, jdbcTemplate,
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource)), 1, Duration.ofSeconds(30));
+  }
+
+  @AfterEach
+  void tearDown() {
+    index.stop();
+  }
+
+  @Test
+  void log_IndexedBranch_PagesLikeTheWalk() throws Exception {
+    try (GitFixture repo = fixture()) {
+      for (int i = 0; i < 5; i++) {
+        repo.commit("commit " + i, Map.of("src/a.txt", "v" + i, i % 2 == 0 ? "even.txt" : "odd.txt", "v" + i));
+      }
+
+      assertEquals(walk(repo.repositoryId, ""), pages(repo.repositoryId, ""));
+      assertEquals(walk(repo.repositoryId, "even.txt"), pages(repo.repositoryId, "even.txt"));
+      assertEquals(walk(repo.repositoryId, "src"), pages(repo.repositoryId, "src"));
+    }
+  }
+
+  @Test
+  void log_BranchMovedOn_IndexesNewCommits() throws Exception {
+    try (GitFixture repo = fixture()) {
+      repo.commit("first", Map.of("a.txt", "a"));
+      pages(repo.repositoryId, "");
+      repo.commit("second", Map.of("b.txt", "b"));
+
+      assertEquals(walk(repo.repositoryId, ""), pages(repo.repositoryId, ""));
+      assertEquals(2L, commitCount(repo.repositoryId));
+    }
+  }
+
+  @Test
+  void log_BranchRewritten_IndexesAgain() throws Exception {
+    try (GitFixture repo = fixture()) {
+      ObjectId first = repo.commit("first", Map.of("a.txt", "a"));
+      repo.commit("second", Map.of("b.txt", "b"));
+      pages(repo.repositoryId, "");
+      repo.resetHard(first);
+      repo.commit("replacement", Map.of("c.txt", "c"));
+
+      assertEquals(walk(repo.repositoryId, ""), pages(repo.repositoryId, ""));
+      assertEquals(2L, commitCount(repo.repositoryId));
+    }
+  }
+
+  @Test
+  void lastCommits_ReturnsLatestCommitPerPath() throws Exception {
+    try (GitFixture repo = fixture()) {
+      ObjectId first = repo.commit("first", Map.of("a.txt", "a", "dir/b.txt", "b"));
+      ObjectId second = repo.commit("second", Map.of("dir/b.txt", "b2"));
+
+      Map<String, GitManager.CommitInfo> commits = index.lastCommits(repo.repositoryId, "main", "main",
+          List.of("a.txt", "dir", "missing.txt"));
+
+      assertEquals(first.name(), commits.get("a.txt").id());
+      assertEquals(second.name(), commits.get("dir").id());
+      assertFalse(commits.containsKey("missing.txt"));
+    }
+  }
+
+  private GitFixture fixture() throws Exception {
+    GitFixture repo = new GitFixture(gitManager, storage);
+    jdbcTemplate.update("INSERT INTO repository (id, project_id, name) VALUES (?, ?, ?)", repo.repositoryId,
+        UUID.randomUUID(), "repo-" + repo.repositoryId);
+    return repo;
+  }
+
+  private List<String> pages(UUID repositoryId, String path) {
+    List<String> ids = new ArrayList<>();
+    String cursor = null;
+    do {
+      GitManager.CommitPage page = index.log(repositoryId, "main", "main", path, cursor, 2);
+      page.commits().forEach(commit -> ids.add(commit.id()));
+      cursor = page.nextCursor();
+      // Served from the index, not a walk
+      assertTrue(cursor == null || !cursor.contains(":"), cursor);
+    } while (cursor != null);
+    return ids;
+  }
+
+  private List<String> walk(UUID repositoryId, String path) {
+    return gitManager.walkLog(repositoryId, "main", path, null, 100).commits().stream()
+        .map(GitManager.CommitInfo::id)
+        .toList();
+  }
+
+  private Long commitCount(UUID repositoryId) {
+    return jdbcTemplate.queryForObject("SELECT commit_count FROM commit_history_head WHERE repository_id = ?",
+        Long.class, repositoryId);
+  }
+}
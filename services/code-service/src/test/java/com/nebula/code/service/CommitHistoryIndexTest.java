@@ -0,0 +1,32 @@
+package com.nebula.code.service;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class CommitHistoryIndexTest {
+
+  @ParameterizedTest
+  @ValueSource(strings = { "abc", "0", "-5", "1e3", "99999999999999999999" })
+  void log_MalformedIndexCursor_ThrowsInvalidCursor(String cursor) {
+    GitManager gitManager = mock(GitManager.class);
+    JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    CommitHistoryIndex index = new CommitHistoryIndex(gitManager, jdbcTemplate, mock(TransactionTemplate.class), 1,
+        Duration.ZERO);
+    try {
+      assertThrows(InvalidCursorException.class,
+          () -> index.log(UUID.randomUUID(), "main", "main", "", cursor, 10));
+      verifyNoInteractions(gitManager, jdbcTemplate);
+    } finally {
+      index.stop();
+    }
+  }
+}
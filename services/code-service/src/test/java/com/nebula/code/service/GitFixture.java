@@ -0,0 +1,74 @@
+package com.nebula.code.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+/** A bare repository managed by a {@link GitManager}, with a workspace to commit and push from. */
+class GitFixture implements AutoCloseable {
+
+  final UUID repositoryId = UUID.randomUUID();
+  private final Git workspace;
+  private int commits;
+
+  GitFixture(GitManager gitManager, Path root) throws Exception {
+    gitManager.initializeBareRepository(repositoryId);
+    File bare = gitManager.getRepoDirectory(repositoryId);
+    workspace = Git.init().setInitialBranch("main").setDirectory(root.resolve(repositoryId + "-ws").toFile()).call();
+    workspace.getRepository().getConfig().setString("remote", "origin", "url", bare.getAbsolutePath());
+    workspace.getRepository().getConfig().save();
+  }
+
+  static GitManager gitManager(Path storage) {
+    GitRepositoryCache repositoryCache = new GitRepositoryCache(new SimpleMeterRegistry(), 16, Duration.ofMinutes(1),
+        DataSize.ofMegabytes(32), DataSize.ofKilobytes(8), 64, DataSize.ofMegabytes(8), DataSize.ofMegabytes(1));
+    GitBlobCache blobCache = new GitBlobCache(new SimpleMeterRegistry(), DataSize.ofMegabytes(1),
+        DataSize.ofKilobytes(64));
+    return new GitManager(storage.toString(), repositoryCache, blobCache);
+  }
+
+  /** Writes (or, for a null value, deletes) files, commits them to main and pushes. */
+  ObjectId commit(String message, Map<String, String> files) throws Exception {
+    File root = workspace.getRepository().getWorkTree();
+    for (Map.Entry<String, String> file : files.entrySet()) {
+      Path path = root.toPath().resolve(file.getKey());
+      if (file.getValue() == null) {
+        workspace.rm().addFilepattern(file.getKey()).call();
+      } else {
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, file.getValue(), StandardCharsets.UTF_8);
+        workspace.add().addFilepattern(file.getKey()).call();
+      }
+    }
+    PersonIdent author = new PersonIdent("Alice", "alice@example.com", 1_700_000_000_000L + commits++ * 60_000L, 0);
+    ObjectId id = workspace.commit().setMessage(message).setAuthor(author).setCommitter(author).call();
+    push();
+    return id;
+  }
+
+  /** Points main back at an earlier commit and force-pushes it. */
+  void resetHard(ObjectId commit) throws Exception {
+    workspace.reset().setMode(ResetCommand.ResetType.HARD).setRef(commit.name()).call();
+    push();
+  }
+
+  private void push() throws Exception {
+    workspace.push().setRemote("origin").add("main").setForce(true).call();
+  }
+
+  @Override
+  public void close() {
+    workspace.close();
+  }
+}
@@ -0,0 +1,86 @@
+package com.nebula.code.service;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitManagerTest {
+
+  @TempDir
+  Path storage;
+
+  @Test
+  void listDirectory_PagesInTreeOrder() throws Exception {
+    GitManager gitManager = GitFixture.gitManager(storage);
+    try (GitFixture repo = new GitFixture(gitManager, storage)) {
+      repo.commit("init", Map.of("a.txt", "a", "a/b.txt", "b", "a-c.txt", "c", "z.txt", "z"));
+      ObjectId tree = gitManager.resolveTree(repo.repositoryId, "main", "").orElseThrow();
+
+      List<String> names = new ArrayList<>();
+      String cursor = null;
+      do {
+        GitManager.TreePage page = gitManager.listDirectory(repo.repositoryId, tree, "", cursor, 2);
+        page.entries().forEach(entry -> names.add(entry.name()));
+        cursor = page.nextCursor();
+      } while (cursor != null);
+
+      // "a" is a directory, sorted as "a/" after "a-c.txt"
+      assertEquals(List.of("a-c.txt", "a.txt", "a", "z.txt"), names);
+    }
+  }
+
+  @Test
+  void listDirectory_MalformedCursor_ThrowsInvalidCursor() throws Exception {
+    GitManager gitManager = GitFixture.gitManager(storage);
+    try (GitFixture repo = new GitFixture(gitManager, storage)) {
+      repo.commit("init", Map.of("a.txt", "a"));
+      ObjectId tree = gitManager.resolveTree(repo.repositoryId, "main", "").orElseThrow();
+
+      assertThrows(InvalidCursorException.class,
+          () -> gitManager.listDirectory(repo.repositoryId, tree, "", "not base64!", 10));
+    }
+  }
+
+  @Test
+  void walkLog_PagesNewestFirst() throws Exception {
+    GitManager gitManager = GitFixture.gitManager(storage);
+    try (GitFixture repo = new GitFixture(gitManager, storage)) {
+      List<String> expected = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        expected.add(0, repo.commit("commit " + i, Map.of("a.txt", "v" + i)).name());
+      }
+
+      List<String> ids = new ArrayList<>();
+      String cursor = null;
+      do {
+        GitManager.CommitPage page = gitManager.walkLog(repo.repositoryId, "main", "", cursor, 2);
+        page.commits().forEach(commit -> ids.add(commit.id()));
+        cursor = page.nextCursor();
+      } while (cursor != null);
+
+      assertEquals(expected, ids);
+    }
+  }
+
+  @Test
+  void walkLog_MalformedCursor_ThrowsInvalidCursor() throws Exception {
+    GitManager gitManager = GitFixture.gitManager(storage);
+    try (GitFixture repo = new GitFixture(gitManager, storage)) {
+      ObjectId head = repo.commit("init", Map.of("a.txt", "a"));
+      ObjectId blob = gitManager.resolveBlob(repo.repositoryId, "main", "a.txt").orElseThrow();
+
+      for (String cursor : List.of("12", "not-an-id:2", head.name() + ":two", head.name() + ":-1",
+          blob.name() + ":0", ObjectId.fromString("0123456789012345678901234567890123456789").name() + ":0")) {
+        assertThrows(InvalidCursorException.class,
+            () -> gitManager.walkLog(repo.repositoryId, "main", "", cursor, 10), cursor);
+      }
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.nebula.code.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitRepositoryCacheTest {
+
+  @TempDir
+  Path storage;
+
+  private SimpleMeterRegistry meterRegistry;
+  private GitRepositoryCache cache;
+  private GitManager gitManager;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    cache = new GitRepositoryCache(meterRegistry, 2, Duration.ofMinutes(1), DataSize.ofMegabytes(32),
+        DataSize.ofKilobytes(8), 64, DataSize.ofMegabytes(8), DataSize.ofMegabytes(1));
+    gitManager = new GitManager(storage.toString(), cache,
+        new GitBlobCache(new SimpleMeterRegistry(), DataSize.ofMegabytes(1), DataSize.ofKilobytes(64)));
+  }
+
+  @Test
+  void open_DeletedRepository_ThrowsAndDropsHandle() throws Exception {
+    try (GitFixture repo = new GitFixture(gitManager, storage)) {
+      repo.commit("init", Map.of("a.txt", "a"));
+      File gitDir = gitManager.getRepoDirectory(repo.repositoryId);
+      cache.open(repo.repositoryId, gitDir).close();
+      assertEquals(1, openRepositories());
+
+      FileUtils.delete(gitDir, FileUtils.RECURSIVE);
+
+      assertThrows(RepositoryNotFoundException.class, () -> cache.open(repo.repositoryId, gitDir));
+      assertEquals(0, openRepositories());
+    }
+  }
+
+  @Test
+  void openQuietly_NotOpen_LeavesCacheAlone() throws Exception {
+    try (GitFixture repo = new GitFixture(gitManager, storage)) {
+      repo.commit("init", Map.of("a.txt", "a"));
+
+      assertEquals(1, gitManager.branchHeads(repo.repositoryId).size());
+      assertEquals(0, openRepositories());
+    }
+  }
+
+  @Test
+  void openQuietly_AlreadyOpen_SharesHandle() throws Exception {
+    try (GitFixture repo = new GitFixture(gitManager, storage)) {
+      repo.commit("init", Map.of("a.txt", "a"));
+      File gitDir = gitManager.getRepoDirectory(repo.repositoryId);
+
+      try (GitRepositoryCache.Lease open = cache.open(repo.repositoryId, gitDir);
+          GitRepositoryCache.Lease quiet = cache.openQuietly(repo.repositoryId, gitDir)) {
+        assertSame(open.repository(), quiet.repository());
+      }
+      assertEquals(1, openRepositories());
+    }
+  }
+
+  @Test
+  void close_LeasedRepository_StaysReadableUntilReleased() throws Exception {
+    try (GitFixture repo = new GitFixture(gitManager, storage)) {
+      repo.commit("init", Map.of("a.txt", "a"));
+      File gitDir = gitManager.getRepoDirectory(repo.repositoryId);
+
+      try (GitRepositoryCache.Lease lease = cache.open(repo.repositoryId, gitDir)) {
+        cache.close();
+        assertEquals(0, openRepositories());
+        assertNotNull(lease.repository().resolve("refs/heads/main"));
+      }
+    }
+  }
+
+  @Test
+  void forget_ReinitializedRepository_OpensNewHandle() throws Exception {
+    try (GitFixture repo = new GitFixture(gitManager, storage)) {
+      repo.commit("init", Map.of("a.txt", "a"));
+      File gitDir = gitManager.getRepoDirectory(repo.repositoryId);
+      GitRepositoryCache.Lease first = cache.open(repo.repositoryId, gitDir);
+      first.close();
+
+      gitManager.forget(repo.repositoryId);
+
+      try (GitRepositoryCache.Lease second = cache.open(repo.repositoryId, gitDir)) {
+        assertNotSame(first.repository(), second.repository());
+      }
+    }
+  }
+
+  private double openRepositories() {
+    return meterRegistry.get("cache.size").tag("cache", "git.repositories").gauge().value();
+  }
+}
@@ -0,0 +1,149 @@
+package com.nebula.dataset.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nebula.dataset.service.DeltaLakeService;
+import com.nebula.dataset.service.delta.DeltaLogReader;
+import com.nebula.dataset.service.spark.SparkSessionProvider;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.functions;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Metadata and read paths of {@link DeltaLakeService} against a local Delta
+ * table of {@code commits} appends, each written as {@code filesPerCommit}
+ * files with {@code columns} columns.
+ *
+ * Tables are built once per parameter combination under
+ * {@code build/jmh-tables} and reused by later forks and runs, since writing
+ * a few hundred commits takes far longer than the benchmarks themselves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeltaLakeServiceBenchmark {
+
+  @Param({"10", "100"})
+  public int commits;
+
+  @Param({"4"})
+  public int filesPerCommit;
+
+  @Param({"10", "100"})
+  public int columns;
+
+  private SparkSessionProvider sparkSessionProvider;
+  private DeltaLakeService deltaLakeService;
+  private String tablePath;
+  private long latestVersion;
+  private StructType schema;
+  private Path scratchDir;
+  private int createdTables;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    SparkSession spark = SparkSession.builder()
+        .appName("dataset-service-jmh")
+        .master("local[2]")
+        .config("spark.sql.extensions", "io.delta.sql.DeltaSparkSessionExtension")
+        .config("spark.sql.catalog.spark_catalog", "org.apache.spark.sql.delta.catalog.DeltaCatalog")
+        .config("spark.sql.shuffle.partitions", "1")
+        .config("spark.ui.enabled", "false")
+        .getOrCreate();
+    sparkSessionProvider = new SparkSessionProvider(() -> spark, Duration.ofMinutes(30));
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    DeltaLogReader deltaLogReader = new DeltaLogReader(spark.sparkContext().hadoopConfiguration(), objectMapper);
+    deltaLakeService = new DeltaLakeService(sparkSessionProvider, deltaLogReader, objectMapper);
+
+    Path tables = Path.of(System.getProperty("nebula.jmh.tables", "build/jmh-tables"));
+    Path table = tables.resolve(String.format("c%d-f%d-n%d", commits, filesPerCommit, columns));
+    if (!Files.exists(table.resolve("_READY"))) {
+      deleteRecursively(table);
+      writeTable(spark, table.toAbsolutePath().toString());
+      Files.createFile(table.resolve("_READY"));
+    }
+    tablePath = table.toAbsolutePath().toString();
+    latestVersion = deltaLakeService.latestVersion(tablePath);
+    schema = deltaLakeService.getSchema(tablePath);
+    scratchDir = Files.createTempDirectory("jmh-delta");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    sparkSessionProvider.close();
+    deleteRecursively(scratchDir);
+  }
+
+  @Benchmark
+  public StructType getSchema() {
+    return deltaLakeService.getSchema(tablePath);
+  }
+
+  @Benchmark
+  public StructType getSchemaAtVersion() {
+    return deltaLakeService.getSchema(tablePath, latestVersion / 2);
+  }
+
+  @Benchmark
+  public List<DeltaLakeService.DeltaHistoryInfo> getHistory() {
+    return deltaLakeService.getHistory(tablePath);
+  }
+
+  @Benchmark
+  public List<Row> readVersionLimit() {
+    return deltaLakeService.readVersion(tablePath, latestVersion).limit(100).collectAsList();
+  }
+
+  @Benchmark
+  public void createEmptyTable() {
+    deltaLakeService.createEmptyTable(scratchDir.resolve("t" + createdTables++).toString(), schema);
+  }
+
+  private void writeTable(SparkSession spark, String path) {
+    Column[] columnExprs = IntStream.range(0, columns)
+        .mapToObj(i -> switch (i % 3) {
+          case 0 -> functions.col("id").plus(i).as("c" + i);
+          case 1 -> functions.concat(functions.lit("v"), functions.col("id").mod(97)).as("c" + i);
+          default -> functions.col("id").cast(DataTypes.DoubleType).divide(7).as("c" + i);
+        })
+        .toArray(Column[]::new);
+
+    for (int commit = 0; commit < commits; commit++) {
+      spark.range(commit * 1000L, (commit + 1) * 1000L)
+          .select(columnExprs)
+          .repartition(filesPerCommit)
+          .write()
+          .format("delta")
+          .mode("append")
+          .save(path);
+    }
+  }
+
+  private static void deleteRecursively(Path dir) throws IOException {
+    if (!Files.exists(dir)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(dir)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+}
@@ -4,14 +4,19 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.actuate.autoconfigure.security.servlet.ManagementWebSecurityAutoConfiguration;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(exclude = {
     SecurityAutoConfiguration.class,
     ManagementWebSecurityAutoConfiguration.class
 })
+@EnableScheduling
 public class DatasetServiceApplication {
 
   public static void main(String[] args) {
+    // arrow-memory-netty is binary-incompatible with the Netty version managed by
+    // Spring Boot, so Arrow (Flight export, Spark Arrow paths) uses Unsafe buffers.
+    System.setProperty("arrow.allocation.manager.type", "Unsafe");
     SpringApplication.run(DatasetServiceApplication.class, args);
   }
 
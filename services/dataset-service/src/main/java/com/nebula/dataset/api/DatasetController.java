@@ -1,21 +1,30 @@
 package com.nebula.dataset.api;
 
 import com.nebula.dataset.api.dto.DatasetCreateRequest;
+import com.nebula.dataset.api.dto.DatasetProfileResponse;
 import com.nebula.dataset.api.dto.DatasetResponse;
 import com.nebula.dataset.api.dto.DatasetVersionResponse;
+import com.nebula.dataset.domain.ColumnProfileRepository;
 import com.nebula.dataset.domain.Dataset;
 import com.nebula.dataset.domain.DatasetRepository;
 import com.nebula.dataset.domain.DatasetVersionRepository;
 import com.nebula.dataset.infrastructure.AuthPolicyClient;
 import com.nebula.dataset.service.DatasetManagerService;
-import com.nebula.dataset.service.DeltaLakeService;
+import com.nebula.dataset.service.DatasetPreviewService;
+import com.nebula.dataset.service.RowFilter;
+import com.nebula.dataset.service.SchemaSnapshotCache;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.apache.spark.sql.Row;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @RestController
@@ -27,7 +36,9 @@ public class DatasetController {
   private final DatasetRepository datasetRepository;
   private final DatasetVersionRepository datasetVersionRepository;
   private final AuthPolicyClient authPolicyClient;
-  private final DeltaLakeService deltaLakeService;
+  private final DatasetPreviewService datasetPreviewService;
+  private final SchemaSnapshotCache schemaSnapshotCache;
+  private final ColumnProfileRepository columnProfileRepository;
 
   @PostMapping
   @ResponseStatus(HttpStatus.CREATED)
@@ -51,21 +62,21 @@ public class DatasetController {
     return DatasetResponse.fromEntity(dataset);
   }
 
+  // The request thread is released while authpolicy-service decides
   @GetMapping("/{id}")
-  public DatasetResponse getDataset(@PathVariable String id,
+  public CompletableFuture<DatasetResponse> getDataset(@PathVariable String id,
       @RequestHeader(value = "X-Forwarded-User", defaultValue = "system") String username) {
 
     Dataset dataset = datasetRepository.findById(id)
         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Dataset not found"));
 
-    boolean isAllowed = authPolicyClient.authorize(
-        username, List.of(), "dataset:read", "project:" + dataset.getProjectId());
-
-    if (!isAllowed) {
-      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not authorized to read this dataset");
-    }
-
-    return DatasetResponse.fromEntity(dataset);
+    return authPolicyClient.authorizeAsync(username, List.of(), "dataset:read", "project:" + dataset.getProjectId())
+        .thenApply(isAllowed -> {
+          if (!isAllowed) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not authorized to read this dataset");
+          }
+          return DatasetResponse.fromEntity(dataset);
+        });
   }
 
   @DeleteMapping("/{id}")
@@ -106,9 +117,8 @@ public class DatasetController {
         .collect(Collectors.toList());
   }
 
-  // Example of a time-travel read endpoint returning just the schema for now
-  // Actual data payloads would typically be too large for REST or returned via
-  // pagination/streams.
+  // Time-travel schema lookup, served from the versioned schema snapshot cache.
+  // Row data is available through /rows and the Flight endpoint.
   @GetMapping("/{id}/schema")
   public String getDatasetSchema(@PathVariable String id,
       @RequestParam(required = false) Long version,
@@ -124,6 +134,71 @@ public class DatasetController {
       throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not authorized to read this dataset");
     }
 
-    return deltaLakeService.getSchemaJson(dataset.getStoragePath());
+    try {
+      return schemaSnapshotCache.getSchemaJson(dataset, version);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+    }
+  }
+
+  // Column statistics from the profile index; never scans the table.
+  @GetMapping("/{id}/profile")
+  public DatasetProfileResponse getDatasetProfile(@PathVariable String id,
+      @RequestParam(required = false) Long version,
+      @RequestHeader(value = "X-Forwarded-User", defaultValue = "system") String username) {
+
+    Dataset dataset = datasetRepository.findById(id)
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Dataset not found"));
+
+    boolean isAllowed = authPolicyClient.authorize(
+        username, List.of(), "dataset:read", "project:" + dataset.getProjectId());
+
+    if (!isAllowed) {
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not authorized to read this dataset");
+    }
+
+    Long profiledVersion = (version == null
+        ? columnProfileRepository.findLatestVersionNumber(id)
+        : columnProfileRepository.findLatestVersionNumberAtOrBefore(id, version))
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Dataset has not been profiled yet"));
+
+    return DatasetProfileResponse.fromEntities(id, profiledVersion,
+        columnProfileRepository.findByDatasetIdAndVersionNumberOrderByColumnIndexAsc(id, profiledVersion));
+  }
+
+  // Paged row preview as NDJSON. The page is bounded by max-rows and collected
+  // before anything is written, so a slow client never holds a Spark slot.
+  // This deliberately trades user-001's incremental partition reads for that.
+  @GetMapping(value = "/{id}/rows", produces = "application/x-ndjson")
+  public ResponseEntity<StreamingResponseBody> getDatasetRows(@PathVariable String id,
+      @RequestParam(required = false) Long version,
+      @RequestParam(required = false) List<String> columns,
+      @RequestParam(required = false) List<String> filter,
+      @RequestParam(defaultValue = "0") int offset,
+      @RequestParam(defaultValue = "100") int limit,
+      @RequestHeader(value = "X-Forwarded-User", defaultValue = "system") String username) {
+
+    Dataset dataset = datasetRepository.findById(id)
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Dataset not found"));
+
+    boolean isAllowed = authPolicyClient.authorize(
+        username, List.of(), "dataset:read", "project:" + dataset.getProjectId());
+
+    if (!isAllowed) {
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not authorized to read this dataset");
+    }
+
+    org.apache.spark.sql.Dataset<Row> rows;
+    try {
+      List<RowFilter> filters = filter == null ? List.of() : filter.stream().map(RowFilter::parse).toList();
+      rows = datasetPreviewService.preparePreview(dataset, version, columns, filters, offset, limit);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+
+    StreamingResponseBody body = out -> datasetPreviewService.writeNdjson(dataset, rows, out);
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType("application/x-ndjson"))
+        .body(body);
   }
 }
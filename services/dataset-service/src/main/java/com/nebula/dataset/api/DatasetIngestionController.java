@@ -0,0 +1,52 @@
+package com.nebula.dataset.api;
+
+import com.nebula.dataset.api.dto.IngestionRequest;
+import com.nebula.dataset.api.dto.IngestionResponse;
+import com.nebula.dataset.domain.Dataset;
+import com.nebula.dataset.domain.DatasetRepository;
+import com.nebula.dataset.infrastructure.AuthPolicyClient;
+import com.nebula.dataset.service.ingest.DatasetIngestionService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/datasets/{id}/uploads")
+@RequiredArgsConstructor
+public class DatasetIngestionController {
+
+  private final DatasetRepository datasetRepository;
+  private final DatasetIngestionService ingestionService;
+  private final AuthPolicyClient authPolicyClient;
+
+  // The file is sent as the raw request body and streamed to object storage
+  // as it arrives, e.g. curl -T data.csv ".../uploads?format=CSV"
+  @PostMapping
+  @ResponseStatus(HttpStatus.CREATED)
+  public IngestionResponse upload(@PathVariable String id,
+      @Valid IngestionRequest request,
+      InputStream body,
+      @RequestHeader(value = "X-Forwarded-User", defaultValue = "system") String username) {
+
+    Dataset dataset = datasetRepository.findById(id)
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Dataset not found"));
+
+    boolean isAllowed = authPolicyClient.authorize(
+        username, List.of(), "dataset:write", "project:" + dataset.getProjectId());
+
+    if (!isAllowed) {
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not authorized to write to this dataset");
+    }
+
+    try {
+      return ingestionService.ingest(dataset, request, body);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package com.nebula.dataset.api;
+
+import com.nebula.dataset.api.dto.DatasetMaintenanceResponse;
+import com.nebula.dataset.api.dto.MaintenancePolicyRequest;
+import com.nebula.dataset.api.dto.MaintenanceRunResponse;
+import com.nebula.dataset.domain.Dataset;
+import com.nebula.dataset.domain.DatasetRepository;
+import com.nebula.dataset.infrastructure.AuthPolicyClient;
+import com.nebula.dataset.service.maintenance.DatasetMaintenanceService;
+import com.nebula.dataset.service.maintenance.DatasetMaintenanceService.Operation;
+import com.nebula.dataset.service.spark.SparkJobHandle;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/datasets/{id}/maintenance")
+@RequiredArgsConstructor
+public class DatasetMaintenanceController {
+
+  private final DatasetRepository datasetRepository;
+  private final DatasetMaintenanceService maintenanceService;
+  private final AuthPolicyClient authPolicyClient;
+
+  @GetMapping
+  public DatasetMaintenanceResponse getMaintenance(@PathVariable String id,
+      @RequestHeader(value = "X-Forwarded-User", defaultValue = "system") String username) {
+
+    Dataset dataset = findAuthorized(id, username, "dataset:read");
+    return DatasetMaintenanceResponse.fromEntity(maintenanceService.getMaintenance(dataset));
+  }
+
+  @PutMapping
+  public DatasetMaintenanceResponse updatePolicy(@PathVariable String id,
+      @RequestBody @Valid MaintenancePolicyRequest request,
+      @RequestHeader(value = "X-Forwarded-User", defaultValue = "system") String username) {
+
+    Dataset dataset = findAuthorized(id, username, "dataset:maintain");
+    try {
+      return DatasetMaintenanceResponse.fromEntity(maintenanceService.updatePolicy(dataset, request));
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+  }
+
+  @PostMapping("/optimize")
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public MaintenanceRunResponse optimize(@PathVariable String id,
+      @RequestHeader(value = "X-Forwarded-User", defaultValue = "system") String username) {
+
+    return trigger(findAuthorized(id, username, "dataset:maintain"), Operation.OPTIMIZE);
+  }
+
+  @PostMapping("/vacuum")
+  @ResponseStatus(HttpStatus.ACCEPTED)
+  public MaintenanceRunResponse vacuum(@PathVariable String id,
+      @RequestHeader(value = "X-Forwarded-User", defaultValue = "system") String username) {
+
+    return trigger(findAuthorized(id, username, "dataset:maintain"), Operation.VACUUM);
+  }
+
+  private MaintenanceRunResponse trigger(Dataset dataset, Operation operation) {
+    SparkJobHandle<Void> handle;
+    try {
+      handle = maintenanceService.trigger(dataset, operation);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+    return new MaintenanceRunResponse(dataset.getId(), operation.name(), handle.getJobGroup());
+  }
+
+  private Dataset findAuthorized(String id, String username, String action) {
+    Dataset dataset = datasetRepository.findById(id)
+        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Dataset not found"));
+
+    boolean isAllowed = authPolicyClient.authorize(
+        username, List.of(), action, "project:" + dataset.getProjectId());
+
+    if (!isAllowed) {
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not authorized to access this dataset");
+    }
+    return dataset;
+  }
+}
@@ -0,0 +1,31 @@
+package com.nebula.dataset.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.nebula.dataset.domain.ColumnProfile;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ColumnProfileResponse {
+  private String name;
+  private String dataType;
+  private long nullCount;
+  private String minValue;
+  private String maxValue;
+  private Long distinctEstimate;
+  @JsonRawValue
+  private String histogram;
+
+  public static ColumnProfileResponse fromEntity(ColumnProfile column) {
+    return ColumnProfileResponse.builder()
+        .name(column.getColumnName())
+        .dataType(column.getDataType())
+        .nullCount(column.getNullCount())
+        .minValue(column.getMinValue())
+        .maxValue(column.getMaxValue())
+        .distinctEstimate(column.getDistinctEstimate())
+        .histogram(column.getHistogram())
+        .build();
+  }
+}
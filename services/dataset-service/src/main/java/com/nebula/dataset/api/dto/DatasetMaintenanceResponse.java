@@ -0,0 +1,48 @@
+package com.nebula.dataset.api.dto;
+
+import com.nebula.dataset.domain.DatasetMaintenance;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Data
+@Builder
+public class DatasetMaintenanceResponse {
+  private String datasetId;
+  private boolean optimizeEnabled;
+  private List<String> zorderColumns;
+  private int minSmallFiles;
+  private boolean vacuumEnabled;
+  private int vacuumRetentionHours;
+  private Long fileCount;
+  private Long smallFileCount;
+  private Long totalBytes;
+  private Long statsVersion;
+  private OffsetDateTime statsUpdatedAt;
+  private OffsetDateTime lastOptimizedAt;
+  private OffsetDateTime lastVacuumedAt;
+  private String lastError;
+
+  public static DatasetMaintenanceResponse fromEntity(DatasetMaintenance maintenance) {
+    return DatasetMaintenanceResponse.builder()
+        .datasetId(maintenance.getDatasetId())
+        .optimizeEnabled(maintenance.isOptimizeEnabled())
+        .zorderColumns(maintenance.getZorderColumns() == null || maintenance.getZorderColumns().isBlank()
+            ? List.of()
+            : List.of(maintenance.getZorderColumns().split(",")))
+        .minSmallFiles(maintenance.getMinSmallFiles())
+        .vacuumEnabled(maintenance.isVacuumEnabled())
+        .vacuumRetentionHours(maintenance.getVacuumRetentionHours())
+        .fileCount(maintenance.getFileCount())
+        .smallFileCount(maintenance.getSmallFileCount())
+        .totalBytes(maintenance.getTotalBytes())
+        .statsVersion(maintenance.getStatsVersion())
+        .statsUpdatedAt(maintenance.getStatsUpdatedAt())
+        .lastOptimizedAt(maintenance.getLastOptimizedAt())
+        .lastVacuumedAt(maintenance.getLastVacuumedAt())
+        .lastError(maintenance.getLastError())
+        .build();
+  }
+}
@@ -0,0 +1,27 @@
+package com.nebula.dataset.api.dto;
+
+import com.nebula.dataset.domain.ColumnProfile;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class DatasetProfileResponse {
+  private String datasetId;
+  // Version the profile was computed at, the newest one at or below the requested version
+  private Long versionNumber;
+  private long rowCount;
+  private List<ColumnProfileResponse> columns;
+
+  public static DatasetProfileResponse fromEntities(String datasetId, Long versionNumber,
+      List<ColumnProfile> columns) {
+    return DatasetProfileResponse.builder()
+        .datasetId(datasetId)
+        .versionNumber(versionNumber)
+        .rowCount(columns.isEmpty() ? 0 : columns.get(0).getRowCount())
+        .columns(columns.stream().map(ColumnProfileResponse::fromEntity).toList())
+        .build();
+  }
+}
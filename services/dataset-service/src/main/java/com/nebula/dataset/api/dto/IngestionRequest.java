@@ -0,0 +1,31 @@
+package com.nebula.dataset.api.dto;
+
+import com.nebula.dataset.domain.DatasetFormat;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Query parameters of an upload; the file itself is the raw request body.
+ */
+@Data
+public class IngestionRequest {
+  public enum Mode { APPEND, MERGE }
+
+  // CSV, JSON (one object per line) or PARQUET
+  @NotNull
+  private DatasetFormat format;
+
+  private Mode mode = Mode.APPEND;
+
+  // Columns matching uploaded rows to existing ones, required for MERGE
+  private List<String> mergeKeys = List.of();
+
+  private boolean header = true;
+
+  private String delimiter = ",";
+
+  // Add columns the upload has but the table does not
+  private boolean evolveSchema = false;
+}
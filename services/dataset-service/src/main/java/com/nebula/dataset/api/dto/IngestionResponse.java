@@ -0,0 +1,17 @@
+package com.nebula.dataset.api.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class IngestionResponse {
+  private String datasetId;
+  private String uploadId;
+  // Delta version committed by this upload
+  private long version;
+  private long bytesReceived;
+  private long rowsInserted;
+  private long rowsUpdated;
+  private long durationMs;
+}
@@ -0,0 +1,22 @@
+package com.nebula.dataset.api.dto;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class MaintenancePolicyRequest {
+  private boolean optimizeEnabled = true;
+
+  private List<String> zorderColumns = List.of();
+
+  @Min(2)
+  private int minSmallFiles = 32;
+
+  private boolean vacuumEnabled = true;
+
+  // Delta refuses to vacuum below its 7-day safety window by default
+  @Min(168)
+  private int vacuumRetentionHours = 168;
+}
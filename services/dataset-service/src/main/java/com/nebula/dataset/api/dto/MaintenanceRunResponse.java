@@ -0,0 +1,13 @@
+package com.nebula.dataset.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class MaintenanceRunResponse {
+  private String datasetId;
+  private String operation;
+  // Spark job group of the run, useful for correlating with driver logs
+  private String jobGroup;
+}
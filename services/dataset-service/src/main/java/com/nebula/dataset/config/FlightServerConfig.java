@@ -0,0 +1,52 @@
+package com.nebula.dataset.config;
+
+import com.nebula.dataset.service.flight.DatasetFlightProducer;
+import com.nebula.dataset.service.flight.FlightIdentityMiddleware;
+import org.apache.arrow.flight.FlightServer;
+import org.apache.arrow.flight.Location;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.io.IOException;
+
+@Configuration
+@ConditionalOnProperty(name = "nebula.flight.enabled", havingValue = "true", matchIfMissing = true)
+public class FlightServerConfig {
+
+  @Value("${nebula.flight.port:8815}")
+  private int flightPort;
+
+  // Off-heap budget shared by all concurrent Flight streams
+  @Value("${nebula.flight.max-memory-bytes:1073741824}")
+  private long maxMemoryBytes;
+
+  @Value("${nebula.flight.jwt.issuer-uri}")
+  private String issuerUri;
+
+  @Value("${nebula.flight.jwt.jwk-set-uri}")
+  private String jwkSetUri;
+
+  @Bean(destroyMethod = "close")
+  public BufferAllocator flightAllocator() {
+    return new RootAllocator(maxMemoryBytes);
+  }
+
+  @Bean(destroyMethod = "close")
+  public FlightServer flightServer(BufferAllocator flightAllocator, DatasetFlightProducer producer)
+      throws IOException {
+    // Keys are fetched on the first call, so a Keycloak outage does not block startup
+    NimbusJwtDecoder jwtDecoder = NimbusJwtDecoder.withJwkSetUri(jwkSetUri).build();
+    jwtDecoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+
+    return FlightServer.builder(flightAllocator, Location.forGrpcInsecure("0.0.0.0", flightPort), producer)
+        .middleware(FlightIdentityMiddleware.KEY, new FlightIdentityMiddleware.Factory(jwtDecoder))
+        .build()
+        .start();
+  }
+}
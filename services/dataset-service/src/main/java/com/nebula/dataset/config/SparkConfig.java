@@ -1,11 +1,13 @@
 package com.nebula.dataset.config;
 
+import com.nebula.dataset.service.spark.SparkSessionProvider;
 import org.apache.spark.sql.SparkSession;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
 
 @Configuration
 public class SparkConfig {
@@ -22,11 +24,39 @@ public class SparkConfig {
   @Value("${minio.secretKey}")
   private String minioSecretKey;
 
-  private SparkSession sparkSession;
+  // Default for jobs that do not ask for a specific partition count
+  @Value("${nebula.spark.default-shuffle-partitions:1}")
+  private int defaultShufflePartitions;
 
+  @Value("${nebula.spark.tenant-session-idle-timeout:30m}")
+  private Duration tenantSessionIdleTimeout;
+
+  // Uploads and table writes go to MinIO in blocks of this size, buffered
+  // off-heap, so memory per open stream is bounded by block size x active blocks
+  @Value("${nebula.dataset.ingest.upload-block-size:32M}")
+  private String uploadBlockSize;
+
+  @Value("${nebula.dataset.ingest.upload-active-blocks:4}")
+  private int uploadActiveBlocks;
+
+  // The SparkSession is only built when the first Spark job runs; see
+  // SparkSessionProvider. Metadata reads never need it.
+  @Bean(destroyMethod = "close")
+  public SparkSessionProvider sparkSessionProvider() {
+    return new SparkSessionProvider(this::createSparkSession, tenantSessionIdleTimeout);
+  }
+
+  // Hadoop settings for code that reads table files directly, without
+  // starting Spark. Spark gets the same settings under the spark.hadoop. prefix.
   @Bean
-  public SparkSession sparkSession() {
-    sparkSession = SparkSession.builder()
+  public org.apache.hadoop.conf.Configuration hadoopConfiguration() {
+    org.apache.hadoop.conf.Configuration conf = new org.apache.hadoop.conf.Configuration();
+    s3aProperties().forEach(conf::set);
+    return conf;
+  }
+
+  private SparkSession createSparkSession() {
+    SparkSession.Builder builder = SparkSession.builder()
         .appName("dataset-service-metadata")
         .master(sparkMaster)
         // Delta Lake configurations
@@ -35,25 +65,28 @@ public class SparkConfig {
 
         // Keep memory usage minimal
         .config("spark.driver.memory", "1g")
-        .config("spark.sql.shuffle.partitions", "1")
+        .config("spark.sql.shuffle.partitions", String.valueOf(defaultShufflePartitions))
         .config("spark.ui.enabled", "false")
+        // Lets concurrent jobs from different tenants share executor slots
+        .config("spark.scheduler.mode", "FAIR")
+        // Record VACUUM runs in the table history like OPTIMIZE
+        .config("spark.databricks.delta.vacuum.logging.enabled", "true");
 
-        // Hadoop S3A configurations for MinIO
-        .config("spark.hadoop.fs.s3a.endpoint", minioEndpoint)
-        .config("spark.hadoop.fs.s3a.access.key", minioAccessKey)
-        .config("spark.hadoop.fs.s3a.secret.key", minioSecretKey)
-        .config("spark.hadoop.fs.s3a.path.style.access", "true")
-        .config("spark.hadoop.fs.s3a.impl", "org.apache.hadoop.fs.s3a.S3AFileSystem")
-        .config("spark.hadoop.fs.s3a.connection.ssl.enabled", "false")
-        .getOrCreate();
-
-    return sparkSession;
+    // Hadoop S3A configurations for MinIO
+    s3aProperties().forEach((key, value) -> builder.config("spark.hadoop." + key, value));
+    return builder.getOrCreate();
   }
 
-  @PreDestroy
-  public void closeSparkSession() {
-    if (sparkSession != null) {
-      sparkSession.stop();
-    }
+  private Map<String, String> s3aProperties() {
+    return Map.of(
+        "fs.s3a.endpoint", minioEndpoint,
+        "fs.s3a.access.key", minioAccessKey,
+        "fs.s3a.secret.key", minioSecretKey,
+        "fs.s3a.path.style.access", "true",
+        "fs.s3a.impl", "org.apache.hadoop.fs.s3a.S3AFileSystem",
+        "fs.s3a.connection.ssl.enabled", "false",
+        "fs.s3a.fast.upload.buffer", "bytebuffer",
+        "fs.s3a.multipart.size", uploadBlockSize,
+        "fs.s3a.fast.upload.active.blocks", String.valueOf(uploadActiveBlocks));
   }
 }
@@ -0,0 +1,74 @@
+package com.nebula.dataset.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Statistics of one top-level column of a dataset as of a table version.
+ */
+@Entity
+@Table(name = "column_profile", uniqueConstraints = {
+    @UniqueConstraint(columnNames = { "dataset_id", "version_number", "column_name" })
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ColumnProfile {
+
+  @Id
+  @Column(length = 36, updatable = false, nullable = false)
+  private String id;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "dataset_id", nullable = false)
+  private Dataset dataset;
+
+  @Column(name = "version_number", nullable = false)
+  private Long versionNumber;
+
+  // Position of the column in the table schema
+  @Column(name = "column_index", nullable = false)
+  private int columnIndex;
+
+  @Column(name = "column_name", nullable = false)
+  private String columnName;
+
+  @Column(name = "data_type", nullable = false)
+  private String dataType;
+
+  @Column(name = "row_count", nullable = false)
+  private long rowCount;
+
+  @Column(name = "null_count", nullable = false)
+  private long nullCount;
+
+  // From Delta file statistics; null when some file has none for this column
+  @Column(name = "min_value")
+  private String minValue;
+
+  @Column(name = "max_value")
+  private String maxValue;
+
+  @Column(name = "distinct_estimate")
+  private Long distinctEstimate;
+
+  // HyperLogLog sketch, kept on the latest profiled version only so the next
+  // append can be merged into it
+  @Column(name = "hll_sketch")
+  private byte[] hllSketch;
+
+  @JdbcTypeCode(SqlTypes.JSON)
+  @Column(name = "histogram", columnDefinition = "jsonb")
+  private String histogram;
+
+  @CreationTimestamp
+  @Column(name = "created_at", updatable = false)
+  private OffsetDateTime createdAt;
+}
@@ -0,0 +1,28 @@
+package com.nebula.dataset.domain;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ColumnProfileRepository extends JpaRepository<ColumnProfile, String> {
+  List<ColumnProfile> findByDatasetIdAndVersionNumberOrderByColumnIndexAsc(String datasetId, Long versionNumber);
+
+  @Query("select max(p.versionNumber) from ColumnProfile p where p.dataset.id = :datasetId")
+  Optional<Long> findLatestVersionNumber(@Param("datasetId") String datasetId);
+
+  @Query("select max(p.versionNumber) from ColumnProfile p "
+      + "where p.dataset.id = :datasetId and p.versionNumber <= :version")
+  Optional<Long> findLatestVersionNumberAtOrBefore(@Param("datasetId") String datasetId,
+      @Param("version") Long version);
+
+  @Modifying
+  @Query("update ColumnProfile p set p.hllSketch = null "
+      + "where p.dataset.id = :datasetId and p.versionNumber < :version and p.hllSketch is not null")
+  int clearSketchesBefore(@Param("datasetId") String datasetId, @Param("version") Long version);
+}
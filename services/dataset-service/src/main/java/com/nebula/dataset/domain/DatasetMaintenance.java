@@ -0,0 +1,73 @@
+package com.nebula.dataset.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Maintenance policy of a Delta dataset together with the file layout
+ * statistics the scheduler uses to decide when compaction is due.
+ */
+@Entity
+@Table(name = "dataset_maintenance")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DatasetMaintenance {
+
+  @Id
+  @Column(name = "dataset_id", length = 36, updatable = false, nullable = false)
+  private String datasetId;
+
+  @Builder.Default
+  @Column(name = "optimize_enabled", nullable = false)
+  private boolean optimizeEnabled = true;
+
+  // Comma-separated; empty means plain bin-packing compaction
+  @Column(name = "zorder_columns", length = 1024)
+  private String zorderColumns;
+
+  @Builder.Default
+  @Column(name = "min_small_files", nullable = false)
+  private int minSmallFiles = 32;
+
+  @Builder.Default
+  @Column(name = "vacuum_enabled", nullable = false)
+  private boolean vacuumEnabled = true;
+
+  @Builder.Default
+  @Column(name = "vacuum_retention_hours", nullable = false)
+  private int vacuumRetentionHours = 168;
+
+  @Column(name = "file_count")
+  private Long fileCount;
+
+  @Column(name = "small_file_count")
+  private Long smallFileCount;
+
+  @Column(name = "total_bytes")
+  private Long totalBytes;
+
+  // Table version the file statistics were computed at
+  @Column(name = "stats_version")
+  private Long statsVersion;
+
+  @Column(name = "stats_updated_at")
+  private OffsetDateTime statsUpdatedAt;
+
+  // Table version right after the last OPTIMIZE; not compacted again until it has changed
+  @Column(name = "optimized_version")
+  private Long optimizedVersion;
+
+  @Column(name = "last_optimized_at")
+  private OffsetDateTime lastOptimizedAt;
+
+  @Column(name = "last_vacuumed_at")
+  private OffsetDateTime lastVacuumedAt;
+
+  @Column(name = "last_error")
+  private String lastError;
+}
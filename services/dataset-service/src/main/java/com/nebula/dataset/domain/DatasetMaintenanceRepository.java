@@ -0,0 +1,8 @@
+package com.nebula.dataset.domain;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DatasetMaintenanceRepository extends JpaRepository<DatasetMaintenance, String> {
+}
@@ -2,6 +2,8 @@ package com.nebula.dataset.domain;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.OffsetDateTime;
 
@@ -32,6 +34,7 @@ public class DatasetVersion {
 
   private String operation;
 
+  @JdbcTypeCode(SqlTypes.JSON)
   @Column(name = "operation_parameters", columnDefinition = "jsonb")
   private String operationParameters; // JSON string
 }
@@ -1,6 +1,8 @@
 package com.nebula.dataset.domain;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +13,21 @@ public interface DatasetVersionRepository extends JpaRepository<DatasetVersion,
   List<DatasetVersion> findByDatasetIdOrderByVersionNumberDesc(String datasetId);
 
   Optional<DatasetVersion> findByDatasetIdAndVersionNumber(String datasetId, Long versionNumber);
+
+  @Query("select max(v.versionNumber) from DatasetVersion v where v.dataset.id = :datasetId")
+  Optional<Long> findLatestVersionNumber(@Param("datasetId") String datasetId);
+
+  @Query("select v.dataset.id as datasetId, max(v.versionNumber) as versionNumber "
+      + "from DatasetVersion v group by v.dataset.id")
+  List<LatestVersion> findLatestVersionNumbers();
+
+  // Transaction-scoped, so it is released on commit or rollback
+  @Query(value = "select pg_try_advisory_xact_lock(hashtext(:datasetId))", nativeQuery = true)
+  boolean tryLockForIndexing(@Param("datasetId") String datasetId);
+
+  interface LatestVersion {
+    String getDatasetId();
+
+    Long getVersionNumber();
+  }
 }
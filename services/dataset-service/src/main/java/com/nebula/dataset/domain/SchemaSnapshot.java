@@ -3,6 +3,8 @@ package com.nebula.dataset.domain;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.OffsetDateTime;
 
@@ -28,6 +30,7 @@ public class SchemaSnapshot {
   @Column(name = "version_number", nullable = false)
   private Long versionNumber;
 
+  @JdbcTypeCode(SqlTypes.JSON)
   @Column(name = "schema_json", columnDefinition = "jsonb", nullable = false)
   private String schemaJson;
 
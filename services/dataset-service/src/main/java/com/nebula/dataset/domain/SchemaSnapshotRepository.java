@@ -1,13 +1,24 @@
 package com.nebula.dataset.domain;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface SchemaSnapshotRepository extends JpaRepository<SchemaSnapshot, String> {
   Optional<SchemaSnapshot> findFirstByDatasetIdOrderByVersionNumberDesc(String datasetId);
 
   Optional<SchemaSnapshot> findByDatasetIdAndVersionNumber(String datasetId, Long versionNumber);
+
+  Optional<SchemaSnapshot> findFirstByDatasetIdAndVersionNumberLessThanEqualOrderByVersionNumberDesc(
+      String datasetId, Long versionNumber);
+
+  @Query("select s.versionNumber from SchemaSnapshot s "
+      + "where s.dataset.id = :datasetId and s.versionNumber between :fromVersion and :toVersion")
+  Set<Long> findVersionNumbersBetween(@Param("datasetId") String datasetId,
+      @Param("fromVersion") Long fromVersion, @Param("toVersion") Long toVersion);
 }
@@ -0,0 +1,11 @@
+package com.nebula.dataset.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ConcurrentDatasetUpdateException extends RuntimeException {
+  public ConcurrentDatasetUpdateException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
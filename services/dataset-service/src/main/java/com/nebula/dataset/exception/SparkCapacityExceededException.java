@@ -0,0 +1,15 @@
+package com.nebula.dataset.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class SparkCapacityExceededException extends RuntimeException {
+  public SparkCapacityExceededException(String message) {
+    super(message);
+  }
+
+  public SparkCapacityExceededException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
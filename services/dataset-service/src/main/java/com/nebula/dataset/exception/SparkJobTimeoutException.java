@@ -0,0 +1,11 @@
+package com.nebula.dataset.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+public class SparkJobTimeoutException extends RuntimeException {
+  public SparkJobTimeoutException(String message) {
+    super(message);
+  }
+}
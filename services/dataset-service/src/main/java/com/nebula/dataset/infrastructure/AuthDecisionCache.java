@@ -0,0 +1,119 @@
+package com.nebula.dataset.infrastructure;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Authorization decisions recently returned by authpolicy-service.
+ *
+ * Decisions are keyed by user, sorted roles, action and resource. Allows and
+ * denies expire on their own TTLs (a zero deny TTL turns negative caching
+ * off), and everything is dropped as soon as a decision or the
+ * WatchPolicyVersion stream reports a policy version other than the one the
+ * cached decisions were made under. Decisions without a version are the
+ * engine's deny-on-failure answers and are neither cached nor tracked.
+ */
+@Component
+@Slf4j
+public class AuthDecisionCache {
+
+  private final Cache<DecisionKey, Boolean> decisions;
+  private final AtomicReference<String> policyVersion = new AtomicReference<>();
+  private final Counter invalidations;
+  private final boolean enabled;
+  private final boolean cacheDenies;
+
+  public AuthDecisionCache(MeterRegistry meterRegistry,
+      @Value("${nebula.authz.decision-cache.enabled:true}") boolean enabled,
+      @Value("${nebula.authz.decision-cache.max-entries:10000}") long maxEntries,
+      @Value("${nebula.authz.decision-cache.allow-ttl:60s}") Duration allowTtl,
+      @Value("${nebula.authz.decision-cache.deny-ttl:10s}") Duration denyTtl) {
+    this.enabled = enabled;
+    this.cacheDenies = !denyTtl.isZero();
+    this.decisions = Caffeine.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfter(new Expiry<DecisionKey, Boolean>() {
+          @Override
+          public long expireAfterCreate(DecisionKey key, Boolean allowed, long currentTime) {
+            return (allowed ? allowTtl : denyTtl).toNanos();
+          }
+
+          @Override
+          public long expireAfterUpdate(DecisionKey key, Boolean allowed, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, allowed, currentTime);
+          }
+
+          @Override
+          public long expireAfterRead(DecisionKey key, Boolean allowed, long currentTime, long currentDuration) {
+            return currentDuration;
+          }
+        })
+        .recordStats()
+        .build();
+    this.invalidations = Counter.builder("authz.decisions.invalidations")
+        .description("Decision cache flushes caused by a policy version change")
+        .register(meterRegistry);
+    CaffeineCacheMetrics.monitor(meterRegistry, decisions, "authz.decisions");
+  }
+
+  /**
+   * @return the cached decision, or {@code null} when authpolicy-service has
+   *         to be asked
+   */
+  public Boolean get(String userId, List<String> roles, String action, String resource) {
+    return enabled ? decisions.getIfPresent(DecisionKey.of(userId, roles, action, resource)) : null;
+  }
+
+  public void put(String userId, List<String> roles, String action, String resource, boolean allowed,
+      String decisionPolicyVersion) {
+    if (isUnversioned(decisionPolicyVersion)) {
+      return;
+    }
+    // A decision made under a different version than the one last seen is
+    // either stale or the first sign of a change; flush, but don't cache it
+    if (!Objects.equals(decisionPolicyVersion, policyVersion.get())) {
+      onPolicyVersion(decisionPolicyVersion);
+      return;
+    }
+    if (enabled && (allowed || cacheDenies)) {
+      decisions.put(DecisionKey.of(userId, roles, action, resource), allowed);
+    }
+  }
+
+  public void onPolicyVersion(String version) {
+    if (isUnversioned(version)) {
+      return;
+    }
+    String previous = policyVersion.getAndSet(version);
+    if (previous != null && !previous.equals(version)) {
+      log.info("Policy version changed from '{}' to '{}', dropping cached authorization decisions",
+          previous, version);
+      decisions.invalidateAll();
+      invalidations.increment();
+    }
+  }
+
+  private static boolean isUnversioned(String version) {
+    return version == null || version.isEmpty();
+  }
+
+  private record DecisionKey(String userId, List<String> roles, String action, String resource) {
+
+    static DecisionKey of(String userId, List<String> roles, String action, String resource) {
+      return new DecisionKey(userId, roles != null ? roles.stream().sorted().toList() : List.of(), action,
+          resource);
+    }
+  }
+}
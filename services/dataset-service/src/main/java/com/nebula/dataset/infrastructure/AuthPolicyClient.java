@@ -3,13 +3,20 @@ package com.nebula.dataset.infrastructure;
 import com.nebula.authpolicy.grpc.AuthPolicyServiceGrpc;
 import com.nebula.authpolicy.grpc.AuthorizeRequest;
 import com.nebula.authpolicy.grpc.AuthorizeResponse;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class AuthPolicyClient {
@@ -19,29 +26,93 @@ public class AuthPolicyClient {
   @GrpcClient("authpolicy-service")
   private AuthPolicyServiceGrpc.AuthPolicyServiceBlockingStub authPolicyStub;
 
+  @GrpcClient("authpolicy-service")
+  private AuthPolicyServiceGrpc.AuthPolicyServiceFutureStub authPolicyFutureStub;
+
+  private final AuthDecisionCache decisionCache;
+  private final Duration deadline;
+
+  public AuthPolicyClient(AuthDecisionCache decisionCache,
+      @Value("${nebula.authz.client.deadline:500ms}") Duration deadline) {
+    this.decisionCache = decisionCache;
+    this.deadline = deadline;
+  }
+
   @CircuitBreaker(name = "authpolicy", fallbackMethod = "authorizeFallback")
   public boolean authorize(String userId, List<String> roles, String action, String resource) {
-    AuthorizeRequest request = AuthorizeRequest.newBuilder()
+    Boolean cached = decisionCache.get(userId, roles, action, resource);
+    if (cached != null) {
+      return cached;
+    }
+
+    log.debug("Calling AuthPolicy for User: {}, Action: {}, Resource: {}", userId, action, resource);
+    AuthorizeResponse response = authPolicyStub
+        .withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS)
+        .authorize(request(userId, roles, action, resource));
+    return record(userId, roles, action, resource, response);
+  }
+
+  public boolean authorizeFallback(String userId, List<String> roles, String action, String resource, Throwable t) {
+    log.error("AuthPolicy Circuit Breaker OPEN or call failed. Failing closed (Deny). " +
+        "Action: {}, Resource: {}, User: {}", action, resource, userId, t);
+    return false; // Fail closed for security
+  }
+
+  /**
+   * Same decision as {@link #authorize}, without holding the calling thread
+   * while authpolicy-service answers. The deadline is the configured one or
+   * the caller's gRPC deadline, whichever comes first.
+   */
+  @CircuitBreaker(name = "authpolicy", fallbackMethod = "authorizeAsyncFallback")
+  public CompletableFuture<Boolean> authorizeAsync(String userId, List<String> roles, String action,
+      String resource) {
+    Boolean cached = decisionCache.get(userId, roles, action, resource);
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+
+    log.debug("Calling AuthPolicy asynchronously for User: {}, Action: {}, Resource: {}", userId, action, resource);
+    CompletableFuture<Boolean> decision = new CompletableFuture<>();
+    Futures.addCallback(authPolicyFutureStub
+            .withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS)
+            .authorize(request(userId, roles, action, resource)),
+        new FutureCallback<>() {
+          @Override
+          public void onSuccess(AuthorizeResponse response) {
+            decision.complete(record(userId, roles, action, resource, response));
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            decision.completeExceptionally(t);
+          }
+        },
+        MoreExecutors.directExecutor());
+    return decision;
+  }
+
+  public CompletableFuture<Boolean> authorizeAsyncFallback(String userId, List<String> roles, String action,
+      String resource, Throwable t) {
+    return CompletableFuture.completedFuture(authorizeFallback(userId, roles, action, resource, t));
+  }
+
+  private static AuthorizeRequest request(String userId, List<String> roles, String action, String resource) {
+    return AuthorizeRequest.newBuilder()
         .setUserId(userId)
         .addAllRoles(roles)
         .setAction(action)
         .setResource(resource)
         .build();
+  }
 
-    log.debug("Calling AuthPolicy for User: {}, Action: {}, Resource: {}", userId, action, resource);
-    AuthorizeResponse response = authPolicyStub.authorize(request);
-
+  private boolean record(String userId, List<String> roles, String action, String resource,
+      AuthorizeResponse response) {
     if (!response.getAllowed()) {
       log.warn("AuthPolicy denied action '{}' on resource '{}' for user '{}'. Reason: {}",
           action, resource, userId, response.getReason());
     }
 
+    decisionCache.put(userId, roles, action, resource, response.getAllowed(), response.getPolicyVersion());
     return response.getAllowed();
   }
-
-  public boolean authorizeFallback(String userId, List<String> roles, String action, String resource, Throwable t) {
-    log.error("AuthPolicy Circuit Breaker OPEN or call failed. Failing closed (Deny). " +
-        "Action: {}, Resource: {}, User: {}", action, resource, userId, t);
-    return false; // Fail closed for security
-  }
 }
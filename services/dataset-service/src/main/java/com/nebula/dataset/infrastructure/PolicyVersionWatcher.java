@@ -0,0 +1,89 @@
+package com.nebula.dataset.infrastructure;
+
+import com.nebula.authpolicy.grpc.AuthPolicyServiceGrpc;
+import com.nebula.authpolicy.grpc.PolicyVersion;
+import com.nebula.authpolicy.grpc.WatchPolicyVersionRequest;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a WatchPolicyVersion stream open to authpolicy-service and feeds the
+ * announced versions to the {@link AuthDecisionCache}. The stream is reopened
+ * with exponential backoff whenever it ends; the server sends the current
+ * version first on every new stream, so a change missed while disconnected
+ * is still noticed on reconnect.
+ */
+@Component
+@Slf4j
+public class PolicyVersionWatcher {
+
+  private static final long MIN_BACKOFF_MS = 1_000;
+  private static final long MAX_BACKOFF_MS = 30_000;
+
+  @GrpcClient("authpolicy-service")
+  private AuthPolicyServiceGrpc.AuthPolicyServiceStub authPolicyStub;
+
+  private final AuthDecisionCache decisionCache;
+  private final ScheduledExecutorService reconnector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "policy-version-watcher");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private volatile boolean running;
+  private volatile long backoffMs = MIN_BACKOFF_MS;
+
+  public PolicyVersionWatcher(AuthDecisionCache decisionCache) {
+    this.decisionCache = decisionCache;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    running = true;
+    watch();
+  }
+
+  @PreDestroy
+  public void stop() {
+    running = false;
+    reconnector.shutdownNow();
+  }
+
+  private void watch() {
+    authPolicyStub.watchPolicyVersion(WatchPolicyVersionRequest.getDefaultInstance(), new StreamObserver<>() {
+      @Override
+      public void onNext(PolicyVersion version) {
+        backoffMs = MIN_BACKOFF_MS;
+        decisionCache.onPolicyVersion(version.getVersion());
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        log.debug("Policy version stream failed: {}", t.getMessage());
+        reconnect();
+      }
+
+      @Override
+      public void onCompleted() {
+        reconnect();
+      }
+    });
+  }
+
+  private void reconnect() {
+    if (!running) {
+      return;
+    }
+    long delay = backoffMs;
+    backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+    reconnector.schedule(this::watch, delay, TimeUnit.MILLISECONDS);
+  }
+}
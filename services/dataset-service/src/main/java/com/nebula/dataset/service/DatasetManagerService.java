@@ -2,6 +2,8 @@ package com.nebula.dataset.service;
 
 import com.nebula.dataset.domain.*;
 import com.nebula.dataset.service.kafka.DatasetEventProducer;
+import com.nebula.dataset.service.spark.SparkJobExecutor;
+import com.nebula.dataset.service.spark.SparkJobOptions;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.spark.sql.types.StructType;
@@ -24,6 +26,8 @@ public class DatasetManagerService {
   private final SchemaSnapshotRepository schemaRepository;
   private final DeltaLakeService deltaLakeService;
   private final DatasetEventProducer eventProducer;
+  private final SchemaSnapshotCache schemaSnapshotCache;
+  private final SparkJobExecutor sparkJobExecutor;
 
   @Transactional
   public Dataset createDataset(String projectId, String name, String description, DatasetFormat format) {
@@ -50,7 +54,10 @@ public class DatasetManagerService {
       // Initialize empty Delta table with an empty schema
       log.info("Initializing empty Delta table at {}", storagePath);
       StructType emptySchema = new StructType();
-      deltaLakeService.createEmptyTable(storagePath, emptySchema);
+      sparkJobExecutor.run(SparkJobOptions.forTenant(projectId, "create table " + datasetId), session -> {
+        deltaLakeService.createEmptyTable(storagePath, emptySchema);
+        return null;
+      });
 
       // Record initial version 0
       DatasetVersion version0 = DatasetVersion.builder()
@@ -85,6 +92,7 @@ public class DatasetManagerService {
 
     // MinIO deletion is left for a background cleanup job or separate service
     datasetRepository.delete(dataset);
+    schemaSnapshotCache.evict(dataset.getStoragePath());
     log.info("Deleted dataset metadata for datasetId: {}", datasetId);
   }
 
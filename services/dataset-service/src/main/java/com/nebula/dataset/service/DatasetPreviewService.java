@@ -0,0 +1,108 @@
+package com.nebula.dataset.service;
+
+import com.nebula.dataset.domain.Dataset;
+import com.nebula.dataset.domain.DatasetFormat;
+import com.nebula.dataset.service.spark.SparkJobExecutor;
+import com.nebula.dataset.service.spark.SparkJobOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.sql.AnalysisException;
+import org.apache.spark.sql.Row;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Serves bounded, paged row previews of Delta datasets. Planning and reading
+ * the page run on {@link SparkJobExecutor} in the owning project's session;
+ * the page is capped at {@code max-rows}, so it is collected on the driver
+ * and only written out as NDJSON once the Spark slot has been released. A
+ * slow client therefore never holds one of the executor's few slots.
+ */
+@Service
+@Slf4j
+public class DatasetPreviewService {
+
+  private static final int FLUSH_EVERY_ROWS = 500;
+
+  private final DeltaLakeService deltaLakeService;
+  private final SparkJobExecutor sparkJobExecutor;
+  private final int maxRows;
+  private final Duration readTimeout;
+
+  public DatasetPreviewService(DeltaLakeService deltaLakeService,
+      SparkJobExecutor sparkJobExecutor,
+      @Value("${nebula.dataset.preview.max-rows:10000}") int maxRows,
+      @Value("${nebula.dataset.preview.read-timeout:60s}") Duration readTimeout) {
+    this.deltaLakeService = deltaLakeService;
+    this.sparkJobExecutor = sparkJobExecutor;
+    this.maxRows = maxRows;
+    this.readTimeout = readTimeout;
+  }
+
+  /**
+   * Resolves and analyzes the preview query up front so that bad columns or
+   * filters surface as {@link IllegalArgumentException} before any bytes are
+   * streamed to the client.
+   */
+  public org.apache.spark.sql.Dataset<Row> preparePreview(Dataset dataset, Long version, List<String> columns,
+      List<RowFilter> filters, int offset, int limit) {
+    if (dataset.getFormat() != DatasetFormat.DELTA) {
+      throw new IllegalArgumentException("Row previews are only supported for DELTA datasets");
+    }
+    if (offset < 0) {
+      throw new IllegalArgumentException("offset must be >= 0");
+    }
+    if (limit < 1 || limit > maxRows) {
+      throw new IllegalArgumentException("limit must be between 1 and " + maxRows);
+    }
+
+    SparkJobOptions options = SparkJobOptions.forTenant(dataset.getProjectId(), "plan preview " + dataset.getId());
+    return sparkJobExecutor.run(options, session -> {
+      try {
+        org.apache.spark.sql.Dataset<Row> rows = deltaLakeService.readRows(
+            dataset.getStoragePath(), version, columns, filters);
+        if (offset > 0) {
+          rows = rows.offset(offset);
+        }
+        return rows.limit(limit);
+      } catch (Exception e) {
+        if (e instanceof AnalysisException) {
+          throw new IllegalArgumentException(((AnalysisException) e).getSimpleMessage(), e);
+        }
+        throw e;
+      }
+    });
+  }
+
+  /**
+   * Reads the prepared page and writes it as newline-delimited JSON, flushing
+   * periodically so large pages reach the client in chunks.
+   */
+  public long writeNdjson(Dataset dataset, org.apache.spark.sql.Dataset<Row> rows, OutputStream out)
+      throws IOException {
+    SparkJobOptions options = SparkJobOptions.forTenant(dataset.getProjectId(), "read preview " + dataset.getId())
+        .withTimeout(readTimeout);
+    List<Row> page = sparkJobExecutor.run(options, session -> rows.collectAsList());
+
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    long written = 0;
+    for (Row row : page) {
+      writer.write(row.json());
+      writer.write('\n');
+      if (++written % FLUSH_EVERY_ROWS == 0) {
+        writer.flush();
+      }
+    }
+    writer.flush();
+    log.debug("Streamed {} preview rows", written);
+    return written;
+  }
+}
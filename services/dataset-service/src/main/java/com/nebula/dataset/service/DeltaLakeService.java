@@ -1,64 +1,360 @@
 package com.nebula.dataset.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nebula.dataset.domain.DatasetFormat;
+import com.nebula.dataset.service.delta.DeltaCommit;
+import com.nebula.dataset.service.delta.DeltaLogReader;
+import com.nebula.dataset.service.spark.SparkSessionProvider;
+import io.delta.tables.DeltaOptimizeBuilder;
 import io.delta.tables.DeltaTable;
+import org.apache.hadoop.fs.Path;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.DataFrameReader;
 import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.delta.DeltaLog;
+import org.apache.spark.sql.delta.Snapshot;
+import org.apache.spark.sql.functions;
+import org.apache.spark.sql.types.DataType;
 import org.apache.spark.sql.types.StructType;
 import org.springframework.stereotype.Service;
+import scala.Option;
 
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 
 @Service
 public class DeltaLakeService {
 
-  private final SparkSession spark;
+  private static final String SHUFFLE_PARTITIONS = "spark.sql.shuffle.partitions";
+  private static final String COMMIT_USER_METADATA = "spark.databricks.delta.commitInfo.userMetadata";
 
-  public DeltaLakeService(SparkSession spark) {
-    this.spark = spark;
+  private final SparkSessionProvider sparkSessionProvider;
+  private final DeltaLogReader deltaLogReader;
+  private final ObjectMapper objectMapper;
+
+  public DeltaLakeService(SparkSessionProvider sparkSessionProvider, DeltaLogReader deltaLogReader,
+      ObjectMapper objectMapper) {
+    this.sparkSessionProvider = sparkSessionProvider;
+    this.deltaLogReader = deltaLogReader;
+    this.objectMapper = objectMapper;
   }
 
-  public void createEmptyTable(String path, StructType schema) {
-    // Create an empty dataframe with the given schema
-    Dataset<Row> emptyDf = spark.createDataFrame(spark.emptyDataFrame().rdd(), schema);
+  // The tenant session when called from SparkJobExecutor, the shared one otherwise
+  private SparkSession spark() {
+    return sparkSessionProvider.current();
+  }
 
-    // Write it out as a delta table to initialize it
-    emptyDf.write()
-        .format("delta")
-        .mode("ignore")
-        .save(path);
+  /**
+   * Creates the table with the given (possibly empty) schema unless one
+   * already exists. Goes through the table builder because Delta refuses to
+   * write a DataFrame without columns.
+   */
+  public void createEmptyTable(String path, StructType schema) {
+    DeltaTable.createIfNotExists(spark())
+        .location(path)
+        .addColumns(schema)
+        .execute();
   }
 
   public boolean tableExists(String path) {
-    return DeltaTable.isDeltaTable(spark, path);
+    return deltaLogReader.latestVersion(path) >= 0;
   }
 
   public StructType getSchema(String path) {
-    return spark.read().format("delta").load(path).schema();
+    long version = latestVersion(path);
+    if (version < 0) {
+      throw new IllegalArgumentException("No Delta table at " + path);
+    }
+    return getSchema(path, version);
   }
 
   public String getSchemaJson(String path) {
     return getSchema(path).json();
   }
 
-  public List<DeltaHistoryInfo> getHistory(String path) {
-    DeltaTable table = DeltaTable.forPath(spark, path);
-    Dataset<Row> history = table.history();
+  /**
+   * Schema as of a specific table version. Read straight from the log when
+   * possible; Spark is only consulted for log layouts the reader does not
+   * understand.
+   */
+  public StructType getSchema(String path, long version) {
+    return deltaLogReader.readSchema(path, version)
+        .map(json -> (StructType) DataType.fromJson(json))
+        .orElseGet(() -> DeltaLog.forTable(spark(), path).getSnapshotAt(version, Option.empty()).schema());
+  }
 
-    return history.collectAsList().stream().map(row -> {
-      Long version = row.getAs("version");
-      java.sql.Timestamp timestamp = row.getAs("timestamp");
-      String operation = row.getAs("operation");
-      // The operation parameters are returned as a map
-      java.util.Map<String, String> opParams = row.getAs("operationParameters");
+  /**
+   * Latest committed version, or -1 when the path holds no Delta commits.
+   */
+  public long latestVersion(String path) {
+    return deltaLogReader.latestVersion(path);
+  }
 
-      return new DeltaHistoryInfo(version, timestamp.getTime(), operation, opParams);
-    }).collect(Collectors.toList());
+  /**
+   * Retained commit history, newest first.
+   */
+  public List<DeltaHistoryInfo> getHistory(String path) {
+    List<DeltaCommit> commits = deltaLogReader.readHistory(path);
+    List<DeltaHistoryInfo> history = new ArrayList<>(commits.size());
+    for (int i = commits.size() - 1; i >= 0; i--) {
+      DeltaCommit commit = commits.get(i);
+      history.add(new DeltaHistoryInfo(commit.version(), commit.timestamp(), commit.operation(),
+          parseStringMap(commit.operationParametersJson())));
+    }
+    return history;
+  }
+
+  private Map<String, String> parseStringMap(String json) {
+    if (json == null) {
+      return Map.of();
+    }
+    try {
+      return objectMapper.readValue(json, new TypeReference<Map<String, String>>() {
+      });
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Malformed commitInfo in Delta commit", e);
+    }
   }
 
   public Dataset<Row> readVersion(String path, long version) {
-    return spark.read().format("delta").option("versionAsOf", version).load(path);
+    return spark().read().format("delta").option("versionAsOf", version).load(path);
+  }
+
+  /**
+   * Builds a lazy plan over the table (optionally at a given version). The
+   * filters are ANDed and applied before the projection so they may reference
+   * columns that are not returned; Delta uses them for file skipping and
+   * Parquet predicate pushdown.
+   */
+  public Dataset<Row> readRows(String path, Long version, List<String> columns, List<RowFilter> filters) {
+    DataFrameReader reader = spark().read().format("delta");
+    if (version != null) {
+      reader = reader.option("versionAsOf", version);
+    }
+
+    Dataset<Row> df = reader.load(path);
+    for (RowFilter filter : filters) {
+      df = df.where(filter.toColumn(df.schema()));
+    }
+    if (columns != null && !columns.isEmpty()) {
+      df = df.select(columns.stream().map(functions::col).toArray(Column[]::new));
+    }
+    return df;
+  }
+
+  /**
+   * Lists the absolute URIs of the data files in a snapshot, newest first, so
+   * the first file always carries the most recent additively-evolved schema.
+   */
+  public List<String> listDataFiles(String path, Long version) {
+    DeltaLog deltaLog = DeltaLog.forTable(spark(), path);
+    Snapshot snapshot = version != null
+        ? deltaLog.getSnapshotAt(version, Option.empty())
+        : deltaLog.update(false, Option.empty());
+
+    return snapshot.allFiles()
+        .orderBy(functions.col("modificationTime").desc())
+        .select("path")
+        .as(Encoders.STRING())
+        .collectAsList()
+        .stream()
+        .map(file -> new Path(deltaLog.dataPath(), new Path(URI.create(file))).toUri().toString())
+        .toList();
+  }
+
+  /**
+   * Whether the table's Parquet files can be served verbatim: partition values
+   * only live in the Delta log, column mapping renames physical columns and
+   * deletion vectors hide rows, so any of those requires going through Spark.
+   */
+  public boolean isDirectlyReadable(String path) {
+    Row detail = DeltaTable.forPath(spark(), path).detail().head();
+    List<String> partitionColumns = detail.getList(detail.fieldIndex("partitionColumns"));
+    Map<String, String> properties = detail.getJavaMap(detail.fieldIndex("properties"));
+
+    return partitionColumns.isEmpty()
+        && "none".equals(properties.getOrDefault("delta.columnMapping.mode", "none"))
+        && !"true".equals(properties.get("delta.enableDeletionVectors"));
+  }
+
+  /**
+   * Path and statistics JSON of every data file of the table at
+   * {@code version}, straight from the Delta log. Paths are relative to the
+   * table root as recorded in the log.
+   */
+  public List<DataFileStats> listFileStats(String path, long version) {
+    Snapshot snapshot = DeltaLog.forTable(spark(), path).getSnapshotAt(version, Option.empty());
+
+    List<DataFileStats> files = new ArrayList<>();
+    Iterator<Row> rows = snapshot.allFiles().select("path", "stats").toLocalIterator();
+    while (rows.hasNext()) {
+      Row row = rows.next();
+      files.add(new DataFileStats(row.getString(0), row.getString(1)));
+    }
+    return files;
+  }
+
+  /**
+   * Reads the given data files as plain Parquet, bypassing the log. Only
+   * meaningful for tables that are {@link #isDirectlyReadable(String)}.
+   */
+  public Dataset<Row> readDataFiles(String path, StructType schema, List<String> files) {
+    Path tablePath = new Path(path);
+    String[] resolved = files.stream()
+        .map(file -> new Path(tablePath, new Path(URI.create(file))).toUri().toString())
+        .toArray(String[]::new);
+    return spark().read().schema(schema).parquet(resolved);
+  }
+
+  /**
+   * Reads an uploaded CSV, JSON (one object per line) or Parquet file. CSV and
+   * JSON rows must match {@code schema} when one is given, otherwise the
+   * schema is inferred from the file.
+   */
+  public Dataset<Row> readUpload(String file, DatasetFormat format, StructType schema, Map<String, String> options) {
+    DataFrameReader reader = spark().read().options(options);
+    if (format != DatasetFormat.PARQUET) {
+      reader = schema != null
+          ? reader.schema(schema).option("mode", "FAILFAST")
+          : reader.option("inferSchema", "true");
+    }
+
+    return switch (format) {
+      case CSV -> reader.csv(file);
+      case JSON -> reader.json(file);
+      case PARQUET -> reader.parquet(file);
+      default -> throw new IllegalArgumentException("Unsupported upload format: " + format);
+    };
+  }
+
+  /**
+   * Appends the rows in a single commit tagged with {@code tag}, and returns
+   * that commit.
+   */
+  public CommitInfo append(String path, Dataset<Row> rows, boolean mergeSchema, String tag) {
+    long before = latestVersion(path);
+    rows.write()
+        .format("delta")
+        .mode("append")
+        .option("mergeSchema", mergeSchema)
+        .option("userMetadata", tag)
+        .save(path);
+    return findCommit(path, before, tag);
+  }
+
+  /**
+   * Upserts the rows on the given key columns in a single commit, and returns
+   * that commit.
+   */
+  public CommitInfo merge(String path, Dataset<Row> rows, List<String> keys) {
+    Column condition = keys.stream()
+        .map(key -> functions.col("t." + quote(key)).equalTo(functions.col("s." + quote(key))))
+        .reduce(Column::and)
+        .orElseThrow(() -> new IllegalArgumentException("MERGE needs at least one key column"));
+
+    // MERGE takes no commit options, only the session-wide userMetadata
+    // setting; a child session keeps the tag off other jobs' commits
+    SparkSession spark = spark();
+    SparkSession tagged = spark.newSession();
+    tagged.conf().set(SHUFFLE_PARTITIONS, spark.conf().get(SHUFFLE_PARTITIONS));
+    String tag = "merge " + UUID.randomUUID();
+    tagged.conf().set(COMMIT_USER_METADATA, tag);
+
+    long before = latestVersion(path);
+    DeltaTable.forPath(tagged, path).as("t")
+        .merge(rows.as("s"), condition)
+        .whenMatched().updateAll()
+        .whenNotMatched().insertAll()
+        .execute();
+    return findCommit(path, before, tag);
+  }
+
+  // Other writers may commit in between, so look for the tag among every
+  // commit since the write started rather than taking the newest one
+  private CommitInfo findCommit(String path, long before, String tag) {
+    return deltaLogReader.readCommitsAfter(path, before, Integer.MAX_VALUE).stream()
+        .filter(commit -> tag.equals(commit.userMetadata()))
+        .findFirst()
+        .map(commit -> new CommitInfo(commit.version(), parseStringMap(commit.operationMetricsJson())))
+        .orElseThrow(() -> new IllegalStateException("No commit tagged '" + tag + "' in " + path));
+  }
+
+  private static String quote(String name) {
+    return "`" + name.replace("`", "``") + "`";
+  }
+
+  /**
+   * File layout of the latest snapshot, replayed from the Delta log alone.
+   * Empty when the log cannot be replayed without Spark.
+   */
+  public Optional<FileLayoutStats> readFileStats(String path, long smallFileBytes) {
+    long version = deltaLogReader.latestVersion(path);
+    if (version < 0) {
+      return Optional.empty();
+    }
+    return deltaLogReader.readLiveFileSizes(path, version).map(sizes -> {
+      long totalBytes = 0;
+      long smallFiles = 0;
+      for (long size : sizes.values()) {
+        totalBytes += size;
+        if (size < smallFileBytes) {
+          smallFiles++;
+        }
+      }
+      return new FileLayoutStats(version, sizes.size(), totalBytes, smallFiles);
+    });
+  }
+
+  /**
+   * File layout of the latest snapshot. Read from the log when possible,
+   * otherwise computed by Spark from the add actions in the Delta log state,
+   * still without touching the data files.
+   */
+  public FileLayoutStats computeFileStats(String path, long smallFileBytes) {
+    return readFileStats(path, smallFileBytes).orElseGet(() -> {
+      Snapshot snapshot = DeltaLog.forTable(spark(), path).update(false, Option.empty());
+      Row stats = snapshot.allFiles()
+          .agg(functions.count(functions.lit(1)),
+              functions.coalesce(functions.sum("size"), functions.lit(0L)),
+              functions.count(functions.when(functions.col("size").lt(smallFileBytes), 1)))
+          .head();
+      return new FileLayoutStats(snapshot.version(), stats.getLong(0), stats.getLong(1), stats.getLong(2));
+    });
+  }
+
+  /**
+   * Compacts small files, clustering by the given columns when any are set.
+   */
+  public void optimize(String path, List<String> zorderColumns) {
+    DeltaOptimizeBuilder optimize = DeltaTable.forPath(spark(), path).optimize();
+    if (zorderColumns.isEmpty()) {
+      optimize.executeCompaction();
+    } else {
+      optimize.executeZOrderBy(zorderColumns.toArray(String[]::new));
+    }
+  }
+
+  public void vacuum(String path, int retentionHours) {
+    DeltaTable.forPath(spark(), path).vacuum(retentionHours);
+  }
+
+  public record FileLayoutStats(long version, long fileCount, long totalBytes, long smallFileCount) {
+  }
+
+  public record CommitInfo(long version, Map<String, String> operationMetrics) {
+  }
+
+  public record DataFileStats(String path, String statsJson) {
   }
 
   public record DeltaHistoryInfo(Long version, Long timestamp, String operation,
@@ -0,0 +1,133 @@
+package com.nebula.dataset.service;
+
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.functions;
+import org.apache.spark.sql.types.BooleanType;
+import org.apache.spark.sql.types.ByteType;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DateType;
+import org.apache.spark.sql.types.DecimalType;
+import org.apache.spark.sql.types.DoubleType;
+import org.apache.spark.sql.types.FloatType;
+import org.apache.spark.sql.types.IntegerType;
+import org.apache.spark.sql.types.LongType;
+import org.apache.spark.sql.types.ShortType;
+import org.apache.spark.sql.types.StringType;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.apache.spark.sql.types.TimestampType;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * One {@code column:operator[:value]} condition of a row preview. Built into
+ * a {@link Column} against the table's schema rather than parsed as SQL, so
+ * a client can only compare a top-level column of a scalar type with a
+ * literal of that type.
+ */
+public record RowFilter(String column, Operator operator, String value) {
+
+  public enum Operator {
+    EQ, NE, LT, LTE, GT, GTE, IS_NULL, NOT_NULL;
+
+    boolean takesValue() {
+      return this != IS_NULL && this != NOT_NULL;
+    }
+  }
+
+  /**
+   * @param filter {@code column:operator:value}, or {@code column:is_null} / {@code column:not_null};
+   *               the value may itself contain colons
+   * @throws IllegalArgumentException if the filter is not of that form
+   */
+  public static RowFilter parse(String filter) {
+    String[] parts = filter.split(":", 3);
+    if (parts.length < 2 || parts[0].isEmpty()) {
+      throw new IllegalArgumentException("Filter must be column:operator[:value], got: " + filter);
+    }
+    Operator operator;
+    try {
+      operator = Operator.valueOf(parts[1].toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown filter operator '" + parts[1] + "', expected one of "
+          + Arrays.toString(Operator.values()).toLowerCase(Locale.ROOT));
+    }
+    if (operator.takesValue() != (parts.length == 3)) {
+      throw new IllegalArgumentException(operator.takesValue()
+          ? "Filter operator " + parts[1] + " needs a value"
+          : "Filter operator " + parts[1] + " takes no value");
+    }
+    return new RowFilter(parts[0], operator, parts.length == 3 ? parts[2] : null);
+  }
+
+  /**
+   * @throws IllegalArgumentException if the column is not in {@code schema}, is
+   *                                  not of a scalar type, or the value does not parse as that type
+   */
+  public Column toColumn(StructType schema) {
+    StructField field = Arrays.stream(schema.fields())
+        .filter(f -> f.name().equals(column))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("Unknown filter column: " + column));
+    Column target = functions.col("`" + column.replace("`", "``") + "`");
+
+    return switch (operator) {
+      case IS_NULL -> target.isNull();
+      case NOT_NULL -> target.isNotNull();
+      case EQ -> target.equalTo(literal(field.dataType()));
+      case NE -> target.notEqual(literal(field.dataType()));
+      case LT -> target.lt(literal(field.dataType()));
+      case LTE -> target.leq(literal(field.dataType()));
+      case GT -> target.gt(literal(field.dataType()));
+      case GTE -> target.geq(literal(field.dataType()));
+    };
+  }
+
+  private Column literal(DataType type) {
+    try {
+      Object parsed;
+      if (type instanceof StringType) {
+        parsed = value;
+      } else if (type instanceof ByteType) {
+        parsed = Byte.parseByte(value);
+      } else if (type instanceof ShortType) {
+        parsed = Short.parseShort(value);
+      } else if (type instanceof IntegerType) {
+        parsed = Integer.parseInt(value);
+      } else if (type instanceof LongType) {
+        parsed = Long.parseLong(value);
+      } else if (type instanceof FloatType) {
+        parsed = Float.parseFloat(value);
+      } else if (type instanceof DoubleType) {
+        parsed = Double.parseDouble(value);
+      } else if (type instanceof DecimalType) {
+        parsed = new BigDecimal(value);
+      } else if (type instanceof BooleanType) {
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+          throw new IllegalArgumentException(invalidValue(type));
+        }
+        parsed = Boolean.parseBoolean(value);
+      } else if (type instanceof DateType) {
+        parsed = Date.valueOf(LocalDate.parse(value));
+      } else if (type instanceof TimestampType) {
+        parsed = Timestamp.from(Instant.parse(value));
+      } else {
+        throw new IllegalArgumentException("Cannot filter on column " + column + " of type " + type.simpleString());
+      }
+      return functions.lit(parsed).cast(type);
+    } catch (NumberFormatException | DateTimeParseException e) {
+      throw new IllegalArgumentException(invalidValue(type));
+    }
+  }
+
+  private String invalidValue(DataType type) {
+    return "Filter value '" + value + "' is not a valid " + type.simpleString() + " for column " + column;
+  }
+}
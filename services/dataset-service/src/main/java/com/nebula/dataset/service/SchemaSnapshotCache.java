@@ -0,0 +1,131 @@
+package com.nebula.dataset.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nebula.dataset.domain.Dataset;
+import com.nebula.dataset.domain.DatasetVersionRepository;
+import com.nebula.dataset.domain.SchemaSnapshot;
+import com.nebula.dataset.domain.SchemaSnapshotRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Versioned schema lookups for Delta datasets.
+ *
+ * The schema of a committed version never changes, so entries keyed by
+ * (storagePath, version) are cached in memory and persisted to
+ * {@code schema_snapshot} the first time they are resolved. Only "latest"
+ * is mutable; it is resolved by listing {@code _delta_log} and held for a
+ * short TTL, so a new commit is picked up without replaying the log.
+ */
+@Service
+@Slf4j
+public class SchemaSnapshotCache {
+
+  private final SchemaSnapshotRepository schemaRepository;
+  private final DatasetVersionRepository versionRepository;
+  private final DeltaLakeService deltaLakeService;
+  private final Cache<SchemaKey, String> schemas;
+  private final Cache<String, Long> latestVersions;
+
+  public SchemaSnapshotCache(SchemaSnapshotRepository schemaRepository,
+      DatasetVersionRepository versionRepository,
+      DeltaLakeService deltaLakeService,
+      MeterRegistry meterRegistry,
+      @Value("${nebula.dataset.schema-cache.max-entries:10000}") long maxEntries,
+      @Value("${nebula.dataset.schema-cache.latest-version-ttl:5s}") Duration latestVersionTtl) {
+    this.schemaRepository = schemaRepository;
+    this.versionRepository = versionRepository;
+    this.deltaLakeService = deltaLakeService;
+    this.schemas = Caffeine.newBuilder()
+        .maximumSize(maxEntries)
+        .recordStats()
+        .build();
+    this.latestVersions = Caffeine.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfterWrite(latestVersionTtl)
+        .recordStats()
+        .build();
+
+    CaffeineCacheMetrics.monitor(meterRegistry, schemas, "dataset.schema");
+    CaffeineCacheMetrics.monitor(meterRegistry, latestVersions, "dataset.latest-version");
+  }
+
+  /**
+   * Returns the schema JSON of the dataset at the given version, or at the
+   * latest committed version when {@code version} is null.
+   *
+   * @throws IllegalArgumentException if the version does not exist
+   */
+  public String getSchemaJson(Dataset dataset, Long version) {
+    long latest = latestVersion(dataset.getStoragePath());
+    if (latest < 0) {
+      throw new IllegalArgumentException("Dataset has no committed versions");
+    }
+
+    long resolved = version != null ? version : latest;
+    if (resolved < 0 || resolved > latest) {
+      throw new IllegalArgumentException("Version " + resolved + " does not exist");
+    }
+
+    return schemas.get(new SchemaKey(dataset.getStoragePath(), resolved), key -> load(dataset, key));
+  }
+
+  public long latestVersion(String storagePath) {
+    return latestVersions.get(storagePath, deltaLakeService::latestVersion);
+  }
+
+  /**
+   * Drops everything cached for a table, e.g. after it has been deleted or
+   * rewritten out of band.
+   */
+  public void evict(String storagePath) {
+    latestVersions.invalidate(storagePath);
+    schemas.asMap().keySet().removeIf(key -> key.storagePath().equals(storagePath));
+  }
+
+  private String load(Dataset dataset, SchemaKey key) {
+    return schemaRepository.findByDatasetIdAndVersionNumber(dataset.getId(), key.version())
+        .or(() -> indexedSnapshot(dataset, key.version()))
+        .map(SchemaSnapshot::getSchemaJson)
+        .orElseGet(() -> snapshot(dataset, key));
+  }
+
+  // The log indexer records a snapshot for every schema change, so for any
+  // version it has reached the nearest snapshot below it is authoritative.
+  private Optional<SchemaSnapshot> indexedSnapshot(Dataset dataset, long version) {
+    if (versionRepository.findLatestVersionNumber(dataset.getId()).orElse(-1L) < version) {
+      return Optional.empty();
+    }
+    return schemaRepository.findFirstByDatasetIdAndVersionNumberLessThanEqualOrderByVersionNumberDesc(
+        dataset.getId(), version);
+  }
+
+  private String snapshot(Dataset dataset, SchemaKey key) {
+    String schemaJson = deltaLakeService.getSchema(key.storagePath(), key.version()).json();
+
+    try {
+      schemaRepository.save(SchemaSnapshot.builder()
+          .id(UUID.randomUUID().toString())
+          .dataset(dataset)
+          .versionNumber(key.version())
+          .schemaJson(schemaJson)
+          .build());
+    } catch (DataIntegrityViolationException e) {
+      // Another instance recorded the same version first
+      log.debug("Schema snapshot for dataset {} v{} already recorded", dataset.getId(), key.version());
+    }
+    return schemaJson;
+  }
+
+  private record SchemaKey(String storagePath, long version) {
+  }
+}
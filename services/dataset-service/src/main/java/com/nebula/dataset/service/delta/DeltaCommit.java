@@ -0,0 +1,12 @@
+package com.nebula.dataset.service.delta;
+
+/**
+ * The parts of a single Delta commit file that are indexed into Postgres.
+ *
+ * @param userMetadata Free-form tag the writer attached to the commit, or null
+ * @param schemaString Spark schema JSON from a {@code metaData} action, or
+ *                     null if the commit did not touch table metadata
+ */
+public record DeltaCommit(long version, long timestamp, String operation,
+    String operationParametersJson, String operationMetricsJson, String userMetadata, String schemaString) {
+}
@@ -0,0 +1,18 @@
+package com.nebula.dataset.service.delta;
+
+/**
+ * An {@code add} or {@code remove} action from a Delta commit file.
+ *
+ * @param path              file path as written in the log, relative to the
+ *                          table root unless absolute
+ * @param size              file size in bytes, or -1 if not recorded (it is
+ *                          optional on {@code remove})
+ * @param statsJson         per-file statistics ({@code numRecords},
+ *                          {@code minValues}, {@code maxValues},
+ *                          {@code nullCount}), or null if not collected
+ * @param hasDeletionVector whether rows of the file are masked by a
+ *                          deletion vector
+ */
+public record DeltaFileAction(boolean add, String path, boolean dataChange, long size, String statsJson,
+    boolean hasDeletionVector) {
+}
@@ -0,0 +1,194 @@
+package com.nebula.dataset.service.delta;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nebula.dataset.domain.Dataset;
+import com.nebula.dataset.domain.DatasetFormat;
+import com.nebula.dataset.domain.DatasetRepository;
+import com.nebula.dataset.domain.DatasetVersion;
+import com.nebula.dataset.domain.DatasetVersionRepository;
+import com.nebula.dataset.domain.SchemaSnapshot;
+import com.nebula.dataset.domain.SchemaSnapshotRepository;
+import com.nebula.dataset.service.DeltaLakeService;
+import com.nebula.dataset.service.kafka.DatasetEventProducer;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps {@code dataset_version} and {@code schema_snapshot} in step with each
+ * table's {@code _delta_log}.
+ *
+ * Each pass only reads commits newer than the highest version already
+ * indexed, so {@code /versions} stays a plain indexed query no matter how
+ * long a table's history grows. A schema snapshot is only written when a
+ * commit actually changes the schema, which means the schema of any indexed
+ * version is the nearest snapshot at or below it.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "nebula.dataset.indexer.enabled", havingValue = "true", matchIfMissing = true)
+public class DeltaLogIndexer {
+
+  private final DatasetRepository datasetRepository;
+  private final DatasetVersionRepository versionRepository;
+  private final SchemaSnapshotRepository schemaRepository;
+  private final DeltaLogReader deltaLogReader;
+  private final DeltaLakeService deltaLakeService;
+  private final DatasetEventProducer eventProducer;
+  private final EntityManager entityManager;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectMapper objectMapper;
+  private final int maxCommitsPerRun;
+
+  public DeltaLogIndexer(DatasetRepository datasetRepository,
+      DatasetVersionRepository versionRepository,
+      SchemaSnapshotRepository schemaRepository,
+      DeltaLogReader deltaLogReader,
+      DeltaLakeService deltaLakeService,
+      DatasetEventProducer eventProducer,
+      EntityManager entityManager,
+      PlatformTransactionManager transactionManager,
+      ObjectMapper objectMapper,
+      @Value("${nebula.dataset.indexer.max-commits-per-run:1000}") int maxCommitsPerRun) {
+    this.datasetRepository = datasetRepository;
+    this.versionRepository = versionRepository;
+    this.schemaRepository = schemaRepository;
+    this.deltaLogReader = deltaLogReader;
+    this.deltaLakeService = deltaLakeService;
+    this.eventProducer = eventProducer;
+    this.entityManager = entityManager;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.objectMapper = objectMapper;
+    this.maxCommitsPerRun = maxCommitsPerRun;
+  }
+
+  @Scheduled(fixedDelayString = "${nebula.dataset.indexer.interval-ms:30000}",
+      initialDelayString = "${nebula.dataset.indexer.initial-delay-ms:30000}")
+  public void indexAll() {
+    Map<String, Long> indexed = versionRepository.findLatestVersionNumbers().stream()
+        .collect(Collectors.toMap(DatasetVersionRepository.LatestVersion::getDatasetId,
+            DatasetVersionRepository.LatestVersion::getVersionNumber));
+
+    for (Dataset dataset : datasetRepository.findByFormat(DatasetFormat.DELTA)) {
+      try {
+        indexDataset(dataset, indexed.getOrDefault(dataset.getId(), -1L));
+      } catch (Exception e) {
+        log.warn("Failed to index Delta log for dataset {}", dataset.getId(), e);
+      }
+    }
+  }
+
+  /**
+   * Indexes up to one batch of commits newer than {@code indexedVersion}.
+   * Returns the number of commits recorded.
+   */
+  public int indexDataset(Dataset dataset, long indexedVersion) {
+    List<DeltaCommit> commits = deltaLogReader.readCommitsAfter(
+        dataset.getStoragePath(), indexedVersion, maxCommitsPerRun);
+    if (commits.isEmpty()) {
+      return 0;
+    }
+
+    // Older commits were cleaned up before we saw them, so the schema at the
+    // resume point cannot be derived from the log we are about to read.
+    DeltaCommit first = commits.get(0);
+    String resumeSchema = first.version() != indexedVersion + 1 && first.schemaString() == null
+        ? deltaLakeService.getSchema(dataset.getStoragePath(), first.version()).json()
+        : null;
+
+    List<DeltaCommit> schemaChanges = transactionTemplate.execute(status -> {
+      // Another replica is indexing this table, or got there first
+      if (!versionRepository.tryLockForIndexing(dataset.getId())
+          || versionRepository.findLatestVersionNumber(dataset.getId()).orElse(-1L) != indexedVersion) {
+        return null;
+      }
+      return persist(dataset, indexedVersion, commits, resumeSchema);
+    });
+
+    if (schemaChanges == null) {
+      return 0;
+    }
+
+    DeltaCommit last = commits.get(commits.size() - 1);
+    for (DeltaCommit change : schemaChanges) {
+      eventProducer.publishSchemaChanged(dataset.getId(), dataset.getProjectId(), change.version(),
+          change.schemaString());
+    }
+    eventProducer.publishDatasetUpdated(dataset.getId(), dataset.getProjectId(), last.version());
+
+    log.debug("Indexed Delta versions {}..{} for dataset {}", first.version(), last.version(), dataset.getId());
+    return commits.size();
+  }
+
+  private List<DeltaCommit> persist(Dataset dataset, long indexedVersion, List<DeltaCommit> commits,
+      String resumeSchema) {
+    Dataset datasetRef = entityManager.getReference(Dataset.class, dataset.getId());
+    DeltaCommit first = commits.get(0);
+    DeltaCommit last = commits.get(commits.size() - 1);
+
+    String currentSchema = schemaRepository
+        .findFirstByDatasetIdAndVersionNumberLessThanEqualOrderByVersionNumberDesc(dataset.getId(), indexedVersion)
+        .map(SchemaSnapshot::getSchemaJson)
+        .orElse(null);
+    // Snapshots may already exist for versions the schema cache resolved on demand
+    Set<Long> recorded = schemaRepository.findVersionNumbersBetween(
+        dataset.getId(), first.version(), last.version());
+
+    List<DeltaCommit> schemaChanges = new ArrayList<>();
+    for (DeltaCommit commit : commits) {
+      entityManager.persist(DatasetVersion.builder()
+          .id(UUID.randomUUID().toString())
+          .dataset(datasetRef)
+          .versionNumber(commit.version())
+          .commitTimestamp(OffsetDateTime.ofInstant(Instant.ofEpochMilli(commit.timestamp()), ZoneOffset.UTC))
+          .operation(commit.operation())
+          .operationParameters(commit.operationParametersJson())
+          .build());
+
+      String schema = commit == first && resumeSchema != null ? resumeSchema : commit.schemaString();
+      if (schema == null || sameSchema(currentSchema, schema)) {
+        continue;
+      }
+      if (!recorded.contains(commit.version())) {
+        entityManager.persist(SchemaSnapshot.builder()
+            .id(UUID.randomUUID().toString())
+            .dataset(datasetRef)
+            .versionNumber(commit.version())
+            .schemaJson(schema)
+            .build());
+      }
+      currentSchema = schema;
+      schemaChanges.add(new DeltaCommit(commit.version(), commit.timestamp(), commit.operation(),
+          commit.operationParametersJson(), commit.operationMetricsJson(), commit.userMetadata(), schema));
+    }
+    return schemaChanges;
+  }
+
+  // jsonb normalizes whitespace and key order, so compare structurally
+  private boolean sameSchema(String a, String b) {
+    if (a == null) {
+      return false;
+    }
+    try {
+      return objectMapper.readTree(a).equals(objectMapper.readTree(b));
+    } catch (JsonProcessingException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,412 @@
+package com.nebula.dataset.service.delta;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.api.ReadSupport;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads Delta table metadata straight from {@code _delta_log} without going
+ * through Spark.
+ *
+ * Commits are fetched by their well-known file name, so tailing a table that
+ * has no new commits costs a single failed open rather than a log listing.
+ * The directory is only listed when log cleanup has removed the commit that
+ * would come next, or when time travel reaches behind the last checkpoint.
+ * Only classic (single or multi-part Parquet) checkpoints are understood;
+ * callers fall back to Spark when a lookup comes back empty.
+ */
+@Component
+public class DeltaLogReader {
+
+  private static final Pattern COMMIT_FILE = Pattern.compile("(\\d{20})\\.json");
+  private static final Pattern CHECKPOINT_FILE =
+      Pattern.compile("(\\d{20})\\.checkpoint(?:\\.(\\d{10})\\.(\\d{10}))?\\.parquet");
+
+  // Only the metadata action's schema, or the add actions' path and size, are read from checkpoints
+  private static final String CHECKPOINT_METADATA_PROJECTION =
+      "message checkpoint { optional group metaData { optional binary schemaString (UTF8); } }";
+  private static final String CHECKPOINT_ADD_PROJECTION =
+      "message checkpoint { optional group add { optional binary path (UTF8); optional int64 size; } }";
+
+  private final Configuration hadoopConfiguration;
+  private final Configuration checkpointConfiguration;
+  private final Configuration checkpointAddConfiguration;
+  private final ObjectMapper objectMapper;
+  // Checkpoint files are immutable, so their schema never needs re-reading
+  private final Cache<Path, Optional<String>> checkpointSchemas = Caffeine.newBuilder()
+      .maximumSize(1_000)
+      .build();
+
+  public DeltaLogReader(Configuration hadoopConfiguration, ObjectMapper objectMapper) {
+    this.hadoopConfiguration = hadoopConfiguration;
+    this.checkpointConfiguration = new Configuration(hadoopConfiguration);
+    this.checkpointConfiguration.set(ReadSupport.PARQUET_READ_SCHEMA, CHECKPOINT_METADATA_PROJECTION);
+    this.checkpointAddConfiguration = new Configuration(hadoopConfiguration);
+    this.checkpointAddConfiguration.set(ReadSupport.PARQUET_READ_SCHEMA, CHECKPOINT_ADD_PROJECTION);
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Returns up to {@code maxCommits} consecutive commits newer than
+   * {@code afterVersion}, in version order. If the commit right after
+   * {@code afterVersion} has already been cleaned up, reading resumes at the
+   * oldest commit still retained.
+   */
+  public List<DeltaCommit> readCommitsAfter(String tablePath, long afterVersion, int maxCommits) {
+    Path logPath = new Path(tablePath, "_delta_log");
+    try {
+      FileSystem fs = logPath.getFileSystem(hadoopConfiguration);
+
+      long next = afterVersion + 1;
+      Optional<DeltaCommit> commit = readCommit(fs, logPath, next);
+      if (commit.isEmpty() && lastCheckpoint(fs, logPath).version() > afterVersion) {
+        next = oldestCommitAfter(fs, logPath, afterVersion);
+        commit = next < 0 ? Optional.empty() : readCommit(fs, logPath, next);
+      }
+
+      List<DeltaCommit> commits = new ArrayList<>();
+      while (commit.isPresent()) {
+        commits.add(commit.get());
+        if (commits.size() >= maxCommits) {
+          break;
+        }
+        commit = readCommit(fs, logPath, ++next);
+      }
+      return commits;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read Delta log at " + logPath, e);
+    }
+  }
+
+  /**
+   * Latest committed version, or -1 if the path is not a Delta table. Starts
+   * from {@code _last_checkpoint} and probes forward, so it normally costs a
+   * handful of small reads regardless of how long the log is.
+   */
+  public long latestVersion(String tablePath) {
+    Path logPath = new Path(tablePath, "_delta_log");
+    try {
+      FileSystem fs = logPath.getFileSystem(hadoopConfiguration);
+      long version = Math.max(lastCheckpoint(fs, logPath).version(), -1);
+      while (fs.exists(commitFile(logPath, version + 1))) {
+        version++;
+      }
+      if (version < 0) {
+        // No checkpoint and no version 0: either not a table, or the early
+        // commits were cleaned up and _last_checkpoint is missing.
+        version = newestCommit(fs, logPath);
+      }
+      return version;
+    } catch (FileNotFoundException e) {
+      return -1;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read Delta log at " + logPath, e);
+    }
+  }
+
+  /**
+   * Schema JSON of the table as of {@code version}: the newest metaData
+   * action at or below it, found by walking back through commit files to the
+   * nearest checkpoint. Empty if the log layout is not one this reader
+   * understands.
+   */
+  public Optional<String> readSchema(String tablePath, long version) {
+    Path logPath = new Path(tablePath, "_delta_log");
+    try {
+      FileSystem fs = logPath.getFileSystem(hadoopConfiguration);
+
+      LastCheckpoint checkpoint = lastCheckpoint(fs, logPath);
+      if (checkpoint.version() > version) {
+        checkpoint = checkpointAtOrBefore(fs, logPath, version);
+      }
+
+      for (long v = version; v > checkpoint.version(); v--) {
+        Optional<DeltaCommit> commit = readCommit(fs, logPath, v);
+        if (commit.isEmpty()) {
+          // Cleaned up without a checkpoint to stand in for it
+          return Optional.empty();
+        }
+        if (commit.get().schemaString() != null) {
+          return Optional.of(commit.get().schemaString());
+        }
+      }
+      if (checkpoint.version() < 0) {
+        return Optional.empty();
+      }
+      LastCheckpoint found = checkpoint;
+      return checkpointSchemas.get(checkpointFiles(logPath, found).get(0), key -> readCheckpointSchema(logPath, found));
+    } catch (FileNotFoundException e) {
+      return Optional.empty();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read Delta log at " + logPath, e);
+    }
+  }
+
+  /**
+   * Sizes of the data files in the snapshot at {@code version}, keyed by path
+   * as written in the log: the adds of the nearest checkpoint with the later
+   * commits replayed on top. Empty if a commit in that range has been cleaned
+   * up, in which case only Spark can reconstruct the snapshot.
+   */
+  public Optional<Map<String, Long>> readLiveFileSizes(String tablePath, long version) {
+    Path logPath = new Path(tablePath, "_delta_log");
+    try {
+      FileSystem fs = logPath.getFileSystem(hadoopConfiguration);
+
+      LastCheckpoint checkpoint = lastCheckpoint(fs, logPath);
+      if (checkpoint.version() > version) {
+        checkpoint = checkpointAtOrBefore(fs, logPath, version);
+      }
+
+      Map<String, Long> sizes = new HashMap<>();
+      if (checkpoint.version() >= 0) {
+        readCheckpointFileSizes(logPath, checkpoint, sizes);
+      }
+      for (long v = checkpoint.version() + 1; v <= version; v++) {
+        Optional<List<DeltaFileAction>> actions = readFileActions(tablePath, v);
+        if (actions.isEmpty()) {
+          return Optional.empty();
+        }
+        // Updating a file's deletion vector removes and re-adds the same path in one commit
+        for (DeltaFileAction action : actions.get()) {
+          if (!action.add()) {
+            sizes.remove(action.path());
+          }
+        }
+        for (DeltaFileAction action : actions.get()) {
+          if (action.add()) {
+            sizes.put(action.path(), action.size());
+          }
+        }
+      }
+      return Optional.of(sizes);
+    } catch (FileNotFoundException e) {
+      return Optional.empty();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read Delta log at " + logPath, e);
+    }
+  }
+
+  /**
+   * All retained commits, oldest first.
+   */
+  public List<DeltaCommit> readHistory(String tablePath) {
+    return readCommitsAfter(tablePath, -1, Integer.MAX_VALUE);
+  }
+
+  /**
+   * The {@code add} and {@code remove} actions of a single commit, or empty if
+   * the commit file no longer exists.
+   */
+  public Optional<List<DeltaFileAction>> readFileActions(String tablePath, long version) {
+    Path file = commitFile(new Path(tablePath, "_delta_log"), version);
+    try {
+      FileSystem fs = file.getFileSystem(hadoopConfiguration);
+      List<DeltaFileAction> actions = new ArrayList<>();
+      try (FSDataInputStream in = fs.open(file);
+          BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          boolean add = line.startsWith("{\"add\"");
+          if (!add && !line.startsWith("{\"remove\"")) {
+            continue;
+          }
+          JsonNode action = objectMapper.readTree(line).path(add ? "add" : "remove");
+          actions.add(new DeltaFileAction(add, action.path("path").asText(),
+              action.path("dataChange").asBoolean(true), action.path("size").asLong(-1),
+              action.path("stats").asText(null),
+              action.hasNonNull("deletionVector")));
+        }
+      }
+      return Optional.of(actions);
+    } catch (FileNotFoundException e) {
+      return Optional.empty();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read Delta commit " + file, e);
+    }
+  }
+
+  private Optional<String> readCheckpointSchema(Path logPath, LastCheckpoint checkpoint) {
+    FilterCompat.Filter hasMetadata = FilterCompat.get(
+        FilterApi.notEq(FilterApi.binaryColumn("metaData.schemaString"), null));
+
+    for (Path part : checkpointFiles(logPath, checkpoint)) {
+      try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), part)
+          .withConf(checkpointConfiguration)
+          .withFilter(hasMetadata)
+          .build()) {
+        Group row;
+        while ((row = reader.read()) != null) {
+          if (row.getFieldRepetitionCount("metaData") > 0) {
+            return Optional.of(row.getGroup("metaData", 0).getString("schemaString", 0));
+          }
+        }
+      } catch (FileNotFoundException e) {
+        return Optional.empty();
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to read Delta checkpoint " + part, e);
+      }
+    }
+    return Optional.empty();
+  }
+
+  // Checkpoints hold only live files, so every add in them counts
+  private void readCheckpointFileSizes(Path logPath, LastCheckpoint checkpoint, Map<String, Long> sizes)
+      throws IOException {
+    FilterCompat.Filter hasAdd = FilterCompat.get(FilterApi.notEq(FilterApi.binaryColumn("add.path"), null));
+
+    for (Path part : checkpointFiles(logPath, checkpoint)) {
+      try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), part)
+          .withConf(checkpointAddConfiguration)
+          .withFilter(hasAdd)
+          .build()) {
+        Group row;
+        while ((row = reader.read()) != null) {
+          if (row.getFieldRepetitionCount("add") > 0) {
+            Group add = row.getGroup("add", 0);
+            sizes.put(add.getString("path", 0), add.getFieldRepetitionCount("size") > 0 ? add.getLong("size", 0) : -1);
+          }
+        }
+      }
+    }
+  }
+
+  private static List<Path> checkpointFiles(Path logPath, LastCheckpoint checkpoint) {
+    if (checkpoint.parts() <= 1) {
+      return List.of(new Path(logPath, String.format("%020d.checkpoint.parquet", checkpoint.version())));
+    }
+    List<Path> parts = new ArrayList<>();
+    for (int part = 1; part <= checkpoint.parts(); part++) {
+      parts.add(new Path(logPath, String.format("%020d.checkpoint.%010d.%010d.parquet",
+          checkpoint.version(), part, checkpoint.parts())));
+    }
+    return parts;
+  }
+
+  private static Path commitFile(Path logPath, long version) {
+    return new Path(logPath, String.format("%020d.json", version));
+  }
+
+  private Optional<DeltaCommit> readCommit(FileSystem fs, Path logPath, long version) throws IOException {
+    Path file = commitFile(logPath, version);
+
+    long timestamp = -1;
+    String operation = null;
+    String operationParameters = null;
+    String operationMetrics = null;
+    String userMetadata = null;
+    String schemaString = null;
+
+    try (FSDataInputStream in = fs.open(file);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        // Every action is a single-key object on its own line; skip parsing the
+        // (potentially thousands of) add/remove actions we do not index.
+        if (line.startsWith("{\"commitInfo\"")) {
+          JsonNode info = objectMapper.readTree(line).path("commitInfo");
+          timestamp = info.path("timestamp").asLong(-1);
+          operation = info.path("operation").asText(null);
+          if (info.hasNonNull("operationParameters")) {
+            operationParameters = info.get("operationParameters").toString();
+          }
+          if (info.hasNonNull("operationMetrics")) {
+            operationMetrics = info.get("operationMetrics").toString();
+          }
+          userMetadata = info.path("userMetadata").asText(null);
+        } else if (line.startsWith("{\"metaData\"")) {
+          schemaString = objectMapper.readTree(line).path("metaData").path("schemaString").asText(null);
+        }
+      }
+    } catch (FileNotFoundException e) {
+      return Optional.empty();
+    }
+
+    if (timestamp < 0) {
+      // commitInfo is optional in the protocol; fall back to the file's mtime
+      timestamp = fs.getFileStatus(file).getModificationTime();
+    }
+    return Optional.of(new DeltaCommit(version, timestamp, operation, operationParameters,
+        operationMetrics, userMetadata, schemaString));
+  }
+
+  private LastCheckpoint lastCheckpoint(FileSystem fs, Path logPath) throws IOException {
+    try (FSDataInputStream in = fs.open(new Path(logPath, "_last_checkpoint"))) {
+      JsonNode node = objectMapper.readTree(in);
+      return new LastCheckpoint(node.path("version").asLong(-1), node.path("parts").asInt(1));
+    } catch (FileNotFoundException e) {
+      return LastCheckpoint.NONE;
+    }
+  }
+
+  private LastCheckpoint checkpointAtOrBefore(FileSystem fs, Path logPath, long version) throws IOException {
+    LastCheckpoint best = LastCheckpoint.NONE;
+    for (FileStatus status : fs.listStatus(logPath)) {
+      Matcher matcher = CHECKPOINT_FILE.matcher(status.getPath().getName());
+      if (matcher.matches()) {
+        long checkpointVersion = Long.parseLong(matcher.group(1));
+        if (checkpointVersion <= version && checkpointVersion > best.version()) {
+          int parts = matcher.group(3) == null ? 1 : Integer.parseInt(matcher.group(3));
+          best = new LastCheckpoint(checkpointVersion, parts);
+        }
+      }
+    }
+    return best;
+  }
+
+  private long newestCommit(FileSystem fs, Path logPath) throws IOException {
+    long newest = -1;
+    for (FileStatus status : fs.listStatus(logPath)) {
+      Matcher matcher = COMMIT_FILE.matcher(status.getPath().getName());
+      if (matcher.matches()) {
+        newest = Math.max(newest, Long.parseLong(matcher.group(1)));
+      }
+    }
+    return newest;
+  }
+
+  private long oldestCommitAfter(FileSystem fs, Path logPath, long afterVersion) throws IOException {
+    long oldest = -1;
+    for (FileStatus status : fs.listStatus(logPath)) {
+      Matcher matcher = COMMIT_FILE.matcher(status.getPath().getName());
+      if (matcher.matches()) {
+        long version = Long.parseLong(matcher.group(1));
+        if (version > afterVersion && (oldest < 0 || version < oldest)) {
+          oldest = version;
+        }
+      }
+    }
+    return oldest;
+  }
+
+  private record LastCheckpoint(long version, int parts) {
+    static final LastCheckpoint NONE = new LastCheckpoint(-1, 1);
+  }
+}
@@ -0,0 +1,276 @@
+package com.nebula.dataset.service.flight;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nebula.dataset.domain.Dataset;
+import com.nebula.dataset.domain.DatasetFormat;
+import com.nebula.dataset.domain.DatasetRepository;
+import com.nebula.dataset.infrastructure.AuthPolicyClient;
+import com.nebula.dataset.service.DeltaLakeService;
+import com.nebula.dataset.service.spark.SparkJobExecutor;
+import com.nebula.dataset.service.spark.SparkJobOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.arrow.dataset.file.FileFormat;
+import org.apache.arrow.dataset.file.FileSystemDatasetFactory;
+import org.apache.arrow.dataset.jni.NativeMemoryPool;
+import org.apache.arrow.dataset.scanner.ScanOptions;
+import org.apache.arrow.dataset.scanner.Scanner;
+import org.apache.arrow.dataset.source.DatasetFactory;
+import org.apache.arrow.flight.BackpressureStrategy;
+import org.apache.arrow.flight.CallStatus;
+import org.apache.arrow.flight.FlightDescriptor;
+import org.apache.arrow.flight.FlightEndpoint;
+import org.apache.arrow.flight.FlightInfo;
+import org.apache.arrow.flight.FlightRuntimeException;
+import org.apache.arrow.flight.NoOpFlightProducer;
+import org.apache.arrow.flight.Ticket;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.VectorLoader;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.VectorUnloader;
+import org.apache.arrow.vector.ipc.ArrowReader;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Arrow Flight producer for bulk, columnar export of Delta datasets.
+ *
+ * Spark is only used to resolve which Parquet files make up the requested
+ * snapshot. The files themselves are scanned by the native Arrow Dataset
+ * reader and their record batches are handed to the Flight stream without
+ * ever being materialized as Spark {@code Row}s.
+ *
+ * Callers are identified by {@link FlightIdentityMiddleware}. The native S3
+ * reader takes MinIO credentials from the standard AWS environment variables,
+ * so they never appear in the file URIs or in the errors that echo them.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "nebula.flight.enabled", havingValue = "true", matchIfMissing = true)
+public class DatasetFlightProducer extends NoOpFlightProducer {
+
+  private static final long BACKPRESSURE_TIMEOUT_MS = 30_000;
+
+  private final DatasetRepository datasetRepository;
+  private final DeltaLakeService deltaLakeService;
+  private final SparkJobExecutor sparkJobExecutor;
+  private final AuthPolicyClient authPolicyClient;
+  private final BufferAllocator allocator;
+  private final ObjectMapper objectMapper;
+  private final long batchSize;
+  private final URI minioEndpoint;
+
+  public DatasetFlightProducer(DatasetRepository datasetRepository,
+      DeltaLakeService deltaLakeService,
+      SparkJobExecutor sparkJobExecutor,
+      AuthPolicyClient authPolicyClient,
+      BufferAllocator flightAllocator,
+      ObjectMapper objectMapper,
+      @Value("${nebula.flight.batch-size:65536}") long batchSize,
+      @Value("${minio.endpoint}") String minioEndpoint) {
+    this.datasetRepository = datasetRepository;
+    this.deltaLakeService = deltaLakeService;
+    this.sparkJobExecutor = sparkJobExecutor;
+    this.authPolicyClient = authPolicyClient;
+    this.allocator = flightAllocator;
+    this.objectMapper = objectMapper;
+    this.batchSize = batchSize;
+    this.minioEndpoint = URI.create(minioEndpoint);
+  }
+
+  @Override
+  public FlightInfo getFlightInfo(CallContext context, FlightDescriptor descriptor) {
+    if (!descriptor.isCommand()) {
+      throw CallStatus.INVALID_ARGUMENT.withDescription("Expected a dataset command descriptor").toRuntimeException();
+    }
+
+    ResolvedRead read = resolve(context, parseTicket(descriptor.getCommand()));
+    Schema schema = new Schema(List.of());
+    if (!read.fileUris().isEmpty()) {
+      try (DatasetFactory factory = newFactory(read.fileUris().get(0))) {
+        schema = project(factory.inspect(), read.columns());
+      } catch (FlightRuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw CallStatus.INTERNAL.withDescription("Failed to inspect dataset files").withCause(e).toRuntimeException();
+      }
+    }
+
+    FlightEndpoint endpoint = new FlightEndpoint(new Ticket(descriptor.getCommand()));
+    return new FlightInfo(schema, descriptor, List.of(endpoint), -1, -1);
+  }
+
+  @Override
+  public void getStream(CallContext context, Ticket ticket, ServerStreamListener listener) {
+    ResolvedRead read;
+    try {
+      read = resolve(context, parseTicket(ticket.getBytes()));
+    } catch (RuntimeException e) {
+      listener.error(e);
+      return;
+    }
+
+    BackpressureStrategy backpressure = new BackpressureStrategy.CallbackBackpressureStrategy();
+    backpressure.register(listener);
+
+    ScanOptions options = new ScanOptions(batchSize,
+        read.columns().isEmpty() ? Optional.empty() : Optional.of(read.columns().toArray(String[]::new)));
+
+    VectorSchemaRoot out = null;
+    Schema datasetSchema = null;
+    long batches = 0;
+    try {
+      for (String uri : read.fileUris()) {
+        try (DatasetFactory factory = newFactory(uri)) {
+          if (datasetSchema == null) {
+            // The first file fixes the stream schema; later files are scanned
+            // against it so columns missing after schema evolution come back null.
+            datasetSchema = factory.inspect();
+            project(datasetSchema, read.columns());
+          }
+
+          try (org.apache.arrow.dataset.source.Dataset source = factory.finish(datasetSchema);
+              Scanner scanner = source.newScan(options);
+              ArrowReader reader = scanner.scanBatches()) {
+
+            if (out == null) {
+              out = VectorSchemaRoot.create(reader.getVectorSchemaRoot().getSchema(), allocator);
+              listener.start(out);
+            }
+
+            VectorLoader loader = new VectorLoader(out);
+            while (reader.loadNextBatch()) {
+              if (backpressure.waitForListener(BACKPRESSURE_TIMEOUT_MS) != BackpressureStrategy.WaitResult.READY) {
+                log.info("Flight client for dataset {} went away after {} batches", read.datasetId(), batches);
+                return;
+              }
+              // Hands the scanner's buffers to the outgoing root by reference
+              try (ArrowRecordBatch batch = new VectorUnloader(reader.getVectorSchemaRoot()).getRecordBatch()) {
+                loader.load(batch);
+              }
+              listener.putNext();
+              batches++;
+            }
+          }
+        }
+      }
+
+      if (out == null) {
+        out = VectorSchemaRoot.create(new Schema(List.of()), allocator);
+        listener.start(out);
+      }
+      listener.completed();
+      log.debug("Served {} Arrow batches for dataset {}", batches, read.datasetId());
+    } catch (FlightRuntimeException e) {
+      listener.error(e);
+    } catch (Exception e) {
+      log.error("Flight stream for dataset {} failed", read.datasetId(), e);
+      listener.error(CallStatus.INTERNAL.withDescription("Failed to stream dataset").withCause(e).toRuntimeException());
+    } finally {
+      if (out != null) {
+        out.close();
+      }
+    }
+  }
+
+  private ResolvedRead resolve(CallContext context, DatasetTicket ticket) {
+    if (ticket.datasetId() == null || ticket.datasetId().isBlank()) {
+      throw CallStatus.INVALID_ARGUMENT.withDescription("datasetId is required").toRuntimeException();
+    }
+
+    Dataset dataset = datasetRepository.findById(ticket.datasetId())
+        .orElseThrow(() -> CallStatus.NOT_FOUND.withDescription("Dataset not found").toRuntimeException());
+
+    FlightIdentityMiddleware identity = context.getMiddleware(FlightIdentityMiddleware.KEY);
+    if (!authPolicyClient.authorize(identity.username(), identity.roles(), "dataset:read",
+        "project:" + dataset.getProjectId())) {
+      throw CallStatus.UNAUTHORIZED.withDescription("Not authorized to read this dataset").toRuntimeException();
+    }
+
+    if (dataset.getFormat() != DatasetFormat.DELTA) {
+      throw CallStatus.UNIMPLEMENTED.withDescription("Flight export is only supported for DELTA datasets")
+          .toRuntimeException();
+    }
+    SparkJobOptions options = SparkJobOptions.forTenant(dataset.getProjectId(), "flight plan " + dataset.getId());
+    List<String> files = sparkJobExecutor.run(options, session -> {
+      if (!deltaLakeService.isDirectlyReadable(dataset.getStoragePath())) {
+        throw CallStatus.UNIMPLEMENTED
+            .withDescription("Table uses partitioning, column mapping or deletion vectors; use /rows instead")
+            .toRuntimeException();
+      }
+      return deltaLakeService.listDataFiles(dataset.getStoragePath(), ticket.version());
+    });
+
+    List<String> fileUris = files.stream()
+        .map(this::toArrowUri)
+        .toList();
+    List<String> columns = ticket.columns() != null ? ticket.columns() : List.of();
+
+    return new ResolvedRead(dataset.getId(), fileUris, columns);
+  }
+
+  private DatasetTicket parseTicket(byte[] bytes) {
+    try {
+      return objectMapper.readValue(bytes, DatasetTicket.class);
+    } catch (IOException e) {
+      throw CallStatus.INVALID_ARGUMENT.withDescription("Malformed dataset ticket").withCause(e).toRuntimeException();
+    }
+  }
+
+  private DatasetFactory newFactory(String uri) {
+    return new FileSystemDatasetFactory(allocator, NativeMemoryPool.getDefault(), FileFormat.PARQUET, uri);
+  }
+
+  /**
+   * @throws FlightRuntimeException with {@code INVALID_ARGUMENT} for columns not in {@code schema}
+   */
+  static Schema project(Schema schema, List<String> columns) {
+    if (columns.isEmpty()) {
+      return schema;
+    }
+    List<Field> fields = new ArrayList<>(columns.size());
+    for (String column : columns) {
+      try {
+        fields.add(schema.findField(column));
+      } catch (IllegalArgumentException e) {
+        throw CallStatus.INVALID_ARGUMENT.withDescription("Unknown column: " + column).toRuntimeException();
+      }
+    }
+    return new Schema(fields);
+  }
+
+  /**
+   * Translates Hadoop paths into URIs understood by Arrow's C++ filesystems.
+   * MinIO is addressed through the S3 filesystem with an endpoint override.
+   */
+  String toArrowUri(String path) {
+    URI uri = URI.create(path);
+    String scheme = uri.getScheme() == null ? "file" : uri.getScheme();
+
+    if (scheme.startsWith("s3")) {
+      String endpoint = minioEndpoint.getHost() + (minioEndpoint.getPort() > 0 ? ":" + minioEndpoint.getPort() : "");
+      return "s3://" + uri.getHost() + uri.getRawPath()
+          + "?scheme=" + minioEndpoint.getScheme()
+          + "&endpoint_override=" + encode(endpoint);
+    }
+    return "file://" + uri.getRawPath();
+  }
+
+  private static String encode(String value) {
+    return URLEncoder.encode(value, StandardCharsets.UTF_8);
+  }
+
+  private record ResolvedRead(String datasetId, List<String> fileUris, List<String> columns) {
+  }
+}
@@ -0,0 +1,11 @@
+package com.nebula.dataset.service.flight;
+
+import java.util.List;
+
+/**
+ * Payload of Flight tickets and descriptor commands, encoded as JSON, e.g.
+ * {@code {"datasetId": "...", "version": 3, "columns": ["id", "amount"]}}.
+ * A null version reads the latest snapshot; null or empty columns read all.
+ */
+public record DatasetTicket(String datasetId, Long version, List<String> columns) {
+}
@@ -0,0 +1,100 @@
+package com.nebula.dataset.service.flight;
+
+import org.apache.arrow.flight.CallHeaders;
+import org.apache.arrow.flight.CallInfo;
+import org.apache.arrow.flight.CallStatus;
+import org.apache.arrow.flight.FlightServerMiddleware;
+import org.apache.arrow.flight.RequestContext;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Identity of the caller of a Flight RPC, taken from the access token in its
+ * {@code authorization: Bearer} header. Flight clients connect to this service
+ * directly, so there is no gateway in front that could be trusted to set
+ * {@code X-Forwarded-User}; calls without a valid token are rejected with
+ * {@code UNAUTHENTICATED} before they reach the producer.
+ */
+public class FlightIdentityMiddleware implements FlightServerMiddleware {
+
+  public static final Key<FlightIdentityMiddleware> KEY = Key.of("nebula-identity");
+
+  private static final String BEARER_PREFIX = "Bearer ";
+
+  private final String username;
+  private final List<String> roles;
+
+  FlightIdentityMiddleware(String username, List<String> roles) {
+    this.username = username;
+    this.roles = roles;
+  }
+
+  public String username() {
+    return username;
+  }
+
+  public List<String> roles() {
+    return roles;
+  }
+
+  @Override
+  public void onBeforeSendingHeaders(CallHeaders outgoingHeaders) {
+  }
+
+  @Override
+  public void onCallCompleted(CallStatus status) {
+  }
+
+  @Override
+  public void onCallErrored(Throwable err) {
+  }
+
+  public static class Factory implements FlightServerMiddleware.Factory<FlightIdentityMiddleware> {
+
+    private final JwtDecoder jwtDecoder;
+
+    public Factory(JwtDecoder jwtDecoder) {
+      this.jwtDecoder = jwtDecoder;
+    }
+
+    @Override
+    public FlightIdentityMiddleware onCallStarted(CallInfo info, CallHeaders incomingHeaders,
+        RequestContext context) {
+      String authorization = incomingHeaders.get("authorization");
+      if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+        throw CallStatus.UNAUTHENTICATED.withDescription("Bearer token required").toRuntimeException();
+      }
+
+      Jwt jwt;
+      try {
+        jwt = jwtDecoder.decode(authorization.substring(BEARER_PREFIX.length()).trim());
+      } catch (JwtException e) {
+        throw CallStatus.UNAUTHENTICATED.withDescription("Invalid bearer token").toRuntimeException();
+      }
+      return identity(jwt);
+    }
+
+    // Same claims the gateway forwards for HTTP calls
+    private static FlightIdentityMiddleware identity(Jwt jwt) {
+      String username = jwt.getClaimAsString("preferred_username");
+      if (username == null) {
+        username = jwt.getSubject();
+      }
+      if (username == null) {
+        throw CallStatus.UNAUTHENTICATED.withDescription("Token names no user").toRuntimeException();
+      }
+
+      List<String> roles = List.of();
+      Map<String, Object> realmAccess = jwt.getClaimAsMap("realm_access");
+      if (realmAccess != null && realmAccess.get("roles") instanceof Collection<?> roleList) {
+        roles = roleList.stream().map(String::valueOf).toList();
+      }
+      return new FlightIdentityMiddleware(username, roles);
+    }
+  }
+}
@@ -0,0 +1,248 @@
+package com.nebula.dataset.service.ingest;
+
+import com.nebula.dataset.api.dto.IngestionRequest;
+import com.nebula.dataset.api.dto.IngestionResponse;
+import com.nebula.dataset.domain.Dataset;
+import com.nebula.dataset.domain.DatasetFormat;
+import com.nebula.dataset.domain.DatasetVersionRepository;
+import com.nebula.dataset.exception.ConcurrentDatasetUpdateException;
+import com.nebula.dataset.exception.SparkCapacityExceededException;
+import com.nebula.dataset.service.DeltaLakeService;
+import com.nebula.dataset.service.DeltaLakeService.CommitInfo;
+import com.nebula.dataset.service.delta.DeltaLogIndexer;
+import com.nebula.dataset.service.spark.SparkJobExecutor;
+import com.nebula.dataset.service.spark.SparkJobOptions;
+import io.delta.exceptions.DeltaConcurrentModificationException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.spark.SparkThrowable;
+import org.apache.spark.sql.AnalysisException;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.types.StructType;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Loads uploaded files into Delta datasets.
+ *
+ * The request body is copied straight into a staging object through S3A's
+ * block upload, so an upload never sits in the heap however large it is:
+ * S3A holds at most a few multipart blocks off-heap while they are sent. The
+ * staged file is then appended or merged into the table by a Spark job in a
+ * single Delta commit, which the log indexer records as a dataset version
+ * (publishing DatasetUpdated / SchemaChanged) before the request returns.
+ */
+@Service
+@Slf4j
+public class DatasetIngestionService {
+
+  private static final int COPY_BUFFER_BYTES = 1 << 20;
+
+  private final DeltaLakeService deltaLakeService;
+  private final SparkJobExecutor sparkJobExecutor;
+  private final DatasetVersionRepository versionRepository;
+  private final ObjectProvider<DeltaLogIndexer> deltaLogIndexer;
+  private final Configuration hadoopConfiguration;
+  private final String stagingRoot;
+  private final Duration jobTimeout;
+  private final int shufflePartitions;
+  private final Semaphore permits;
+
+  public DatasetIngestionService(DeltaLakeService deltaLakeService,
+      SparkJobExecutor sparkJobExecutor,
+      DatasetVersionRepository versionRepository,
+      ObjectProvider<DeltaLogIndexer> deltaLogIndexer,
+      Configuration hadoopConfiguration,
+      @Value("${nebula.dataset.ingest.staging-path:s3a://nebula-data/_staging}") String stagingRoot,
+      @Value("${nebula.dataset.ingest.job-timeout:30m}") Duration jobTimeout,
+      @Value("${nebula.dataset.ingest.shuffle-partitions:8}") int shufflePartitions,
+      @Value("${nebula.dataset.ingest.max-concurrent:4}") int maxConcurrent) {
+    this.deltaLakeService = deltaLakeService;
+    this.sparkJobExecutor = sparkJobExecutor;
+    this.versionRepository = versionRepository;
+    this.deltaLogIndexer = deltaLogIndexer;
+    this.hadoopConfiguration = hadoopConfiguration;
+    this.stagingRoot = stagingRoot;
+    this.jobTimeout = jobTimeout;
+    this.shufflePartitions = shufflePartitions;
+    this.permits = new Semaphore(maxConcurrent);
+  }
+
+  public IngestionResponse ingest(Dataset dataset, IngestionRequest request, InputStream body) {
+    validate(dataset, request);
+    if (!permits.tryAcquire()) {
+      throw new SparkCapacityExceededException("Too many uploads in progress, try again later");
+    }
+
+    long start = System.currentTimeMillis();
+    String uploadId = UUID.randomUUID().toString();
+    Path stagingDir = new Path(stagingRoot, dataset.getId() + "/" + uploadId);
+    try {
+      Path stagedFile = new Path(stagingDir, "upload." + request.getFormat().name().toLowerCase());
+      long bytes = stage(body, stagedFile);
+
+      SparkJobOptions options = SparkJobOptions.forTenant(dataset.getProjectId(), "ingest " + dataset.getId())
+          .withShufflePartitions(shufflePartitions)
+          .withTimeout(jobTimeout);
+      CommitInfo commit = sparkJobExecutor.run(options, session -> write(dataset, request, stagedFile, uploadId));
+
+      deltaLogIndexer.ifAvailable(indexer -> indexer.indexDataset(dataset,
+          versionRepository.findLatestVersionNumber(dataset.getId()).orElse(-1L)));
+
+      Map<String, String> metrics = commit.operationMetrics();
+      long duration = System.currentTimeMillis() - start;
+      log.info("Ingested {} bytes into dataset {} as version {} in {} ms", bytes, dataset.getId(),
+          commit.version(), duration);
+      return IngestionResponse.builder()
+          .datasetId(dataset.getId())
+          .uploadId(uploadId)
+          .version(commit.version())
+          .bytesReceived(bytes)
+          .rowsInserted(metric(metrics, request.getMode() == IngestionRequest.Mode.MERGE
+              ? "numTargetRowsInserted" : "numOutputRows"))
+          .rowsUpdated(metric(metrics, "numTargetRowsUpdated"))
+          .durationMs(duration)
+          .build();
+    } finally {
+      permits.release();
+      deleteQuietly(stagingDir);
+    }
+  }
+
+  // Runs on a Spark job thread
+  private CommitInfo write(Dataset dataset, IngestionRequest request, Path stagedFile, String uploadId) {
+    String path = dataset.getStoragePath();
+    // A new dataset's table has no columns until its first upload
+    StructType tableSchema = deltaLakeService.tableExists(path) ? deltaLakeService.getSchema(path) : new StructType();
+    boolean inferSchema = request.isEvolveSchema() || tableSchema.isEmpty();
+
+    try {
+      org.apache.spark.sql.Dataset<Row> rows = deltaLakeService.readUpload(stagedFile.toString(),
+          request.getFormat(), inferSchema ? null : tableSchema,
+          Map.of("header", String.valueOf(request.isHeader()), "sep", request.getDelimiter()));
+      if (inferSchema && !tableSchema.isEmpty()) {
+        rows = alignToTable(rows, tableSchema);
+      }
+
+      if (request.getMode() == IngestionRequest.Mode.MERGE) {
+        if (tableSchema.isEmpty()) {
+          throw new IllegalArgumentException("Dataset has no data to merge into yet, upload with mode APPEND first");
+        }
+        List<String> columns = Arrays.asList(tableSchema.fieldNames());
+        for (String key : request.getMergeKeys()) {
+          if (!columns.contains(key)) {
+            throw new IllegalArgumentException("Unknown merge key column: " + key);
+          }
+        }
+        return deltaLakeService.merge(path, rows, request.getMergeKeys());
+      }
+      return deltaLakeService.append(path, rows, inferSchema, "upload " + uploadId);
+    } catch (DeltaConcurrentModificationException e) {
+      throw new ConcurrentDatasetUpdateException("Dataset was modified concurrently, retry the upload", e);
+    } catch (Exception e) {
+      // Spark's analysis errors are checked exceptions as far as Java is concerned
+      if (e instanceof AnalysisException analysisException) {
+        throw new IllegalArgumentException(analysisException.getSimpleMessage(), e);
+      }
+      String badInput = badInputMessage(e);
+      if (badInput != null) {
+        throw new IllegalArgumentException(badInput, e);
+      }
+      if (e instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException("Ingestion into dataset " + dataset.getId() + " failed", e);
+    }
+  }
+
+  // Inference may pick a different type for an existing column (long for an
+  // int, say); keep the table's type so only genuinely new columns are added
+  private static org.apache.spark.sql.Dataset<Row> alignToTable(org.apache.spark.sql.Dataset<Row> rows,
+      StructType tableSchema) {
+    List<String> tableColumns = Arrays.asList(tableSchema.fieldNames());
+    Column[] columns = Arrays.stream(rows.columns())
+        .map(name -> tableColumns.contains(name)
+            ? rows.col(name).cast(tableSchema.apply(name).dataType()).as(name)
+            : rows.col(name))
+        .toArray(Column[]::new);
+    return rows.select(columns);
+  }
+
+  private long stage(InputStream body, Path stagedFile) {
+    try {
+      FileSystem fs = stagedFile.getFileSystem(hadoopConfiguration);
+      byte[] buffer = new byte[COPY_BUFFER_BYTES];
+      long total = 0;
+      try (FSDataOutputStream out = fs.create(stagedFile, false)) {
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+          out.write(buffer, 0, read);
+          total += read;
+        }
+      }
+      if (total == 0) {
+        throw new IllegalArgumentException("Upload is empty");
+      }
+      return total;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to stage upload at " + stagedFile, e);
+    }
+  }
+
+  private void deleteQuietly(Path dir) {
+    try {
+      dir.getFileSystem(hadoopConfiguration).delete(dir, true);
+    } catch (IOException e) {
+      log.warn("Failed to delete staged upload {}", dir, e);
+    }
+  }
+
+  private static void validate(Dataset dataset, IngestionRequest request) {
+    if (dataset.getFormat() != DatasetFormat.DELTA) {
+      throw new IllegalArgumentException("Uploads are only supported for DELTA datasets");
+    }
+    if (request.getFormat() == DatasetFormat.DELTA) {
+      throw new IllegalArgumentException("Upload format must be CSV, JSON or PARQUET");
+    }
+    if (request.getMode() == IngestionRequest.Mode.MERGE) {
+      if (request.getMergeKeys() == null || request.getMergeKeys().isEmpty()) {
+        throw new IllegalArgumentException("MERGE uploads need mergeKeys");
+      }
+      if (request.isEvolveSchema()) {
+        throw new IllegalArgumentException("evolveSchema is only supported for APPEND uploads");
+      }
+    }
+  }
+
+  // Malformed rows (FAILFAST) and ambiguous merge sources are the client's fault
+  private static String badInputMessage(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SparkThrowable sparkThrowable && sparkThrowable.getErrorClass() != null
+          && (sparkThrowable.getErrorClass().startsWith("MALFORMED_RECORD")
+          || sparkThrowable.getErrorClass().startsWith("DELTA_MULTIPLE_SOURCE_ROW"))) {
+        return cause.getMessage();
+      }
+    }
+    return null;
+  }
+
+  private static long metric(Map<String, String> metrics, String name) {
+    String value = metrics.get(name);
+    return value != null ? Long.parseLong(value) : 0;
+  }
+}
@@ -0,0 +1,286 @@
+package com.nebula.dataset.service.maintenance;
+
+import com.nebula.dataset.api.dto.MaintenancePolicyRequest;
+import com.nebula.dataset.domain.Dataset;
+import com.nebula.dataset.domain.DatasetFormat;
+import com.nebula.dataset.domain.DatasetMaintenance;
+import com.nebula.dataset.domain.DatasetMaintenanceRepository;
+import com.nebula.dataset.domain.DatasetRepository;
+import com.nebula.dataset.domain.DatasetVersionRepository;
+import com.nebula.dataset.exception.SparkCapacityExceededException;
+import com.nebula.dataset.service.DeltaLakeService;
+import com.nebula.dataset.service.DeltaLakeService.FileLayoutStats;
+import com.nebula.dataset.service.SchemaSnapshotCache;
+import com.nebula.dataset.service.delta.DeltaLogIndexer;
+import com.nebula.dataset.service.spark.SparkJobExecutor;
+import com.nebula.dataset.service.spark.SparkJobHandle;
+import com.nebula.dataset.service.spark.SparkJobOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.StructType;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Keeps Delta tables compact as they age.
+ *
+ * File layout statistics are refreshed from the Delta log whenever a table
+ * gets a new version. Tables that have accumulated enough small files are
+ * compacted with OPTIMIZE (Z-ordered when the policy names columns), at most
+ * once per table version since compaction cannot always bring the count
+ * down, and removed files are vacuumed on a fixed interval. Runs are throttled to a
+ * small number of concurrent jobs so maintenance never monopolises the
+ * shared Spark executor, and each run's commit is indexed into
+ * {@code dataset_version} straight away.
+ */
+@Service
+@Slf4j
+public class DatasetMaintenanceService {
+
+  public enum Operation { OPTIMIZE, VACUUM }
+
+  private final DatasetRepository datasetRepository;
+  private final DatasetMaintenanceRepository maintenanceRepository;
+  private final DatasetVersionRepository versionRepository;
+  private final DeltaLakeService deltaLakeService;
+  private final SchemaSnapshotCache schemaSnapshotCache;
+  private final SparkJobExecutor sparkJobExecutor;
+  private final ObjectProvider<DeltaLogIndexer> deltaLogIndexer;
+  private final long smallFileBytes;
+  private final Duration vacuumInterval;
+  private final Duration jobTimeout;
+  private final int shufflePartitions;
+  private final boolean scheduleEnabled;
+
+  private final Semaphore permits;
+  private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+  public DatasetMaintenanceService(DatasetRepository datasetRepository,
+      DatasetMaintenanceRepository maintenanceRepository,
+      DatasetVersionRepository versionRepository,
+      DeltaLakeService deltaLakeService,
+      SchemaSnapshotCache schemaSnapshotCache,
+      SparkJobExecutor sparkJobExecutor,
+      ObjectProvider<DeltaLogIndexer> deltaLogIndexer,
+      @Value("${nebula.dataset.maintenance.small-file-bytes:33554432}") long smallFileBytes,
+      @Value("${nebula.dataset.maintenance.vacuum-interval:24h}") Duration vacuumInterval,
+      @Value("${nebula.dataset.maintenance.job-timeout:30m}") Duration jobTimeout,
+      @Value("${nebula.dataset.maintenance.shuffle-partitions:8}") int shufflePartitions,
+      @Value("${nebula.dataset.maintenance.max-concurrent:1}") int maxConcurrent,
+      @Value("${nebula.dataset.maintenance.schedule-enabled:true}") boolean scheduleEnabled) {
+    this.datasetRepository = datasetRepository;
+    this.maintenanceRepository = maintenanceRepository;
+    this.versionRepository = versionRepository;
+    this.deltaLakeService = deltaLakeService;
+    this.schemaSnapshotCache = schemaSnapshotCache;
+    this.sparkJobExecutor = sparkJobExecutor;
+    this.deltaLogIndexer = deltaLogIndexer;
+    this.smallFileBytes = smallFileBytes;
+    this.vacuumInterval = vacuumInterval;
+    this.jobTimeout = jobTimeout;
+    this.shufflePartitions = shufflePartitions;
+    this.scheduleEnabled = scheduleEnabled;
+    this.permits = new Semaphore(maxConcurrent);
+  }
+
+  public DatasetMaintenance getMaintenance(Dataset dataset) {
+    return maintenanceRepository.findById(dataset.getId())
+        .orElseGet(() -> DatasetMaintenance.builder().datasetId(dataset.getId()).build());
+  }
+
+  public DatasetMaintenance updatePolicy(Dataset dataset, MaintenancePolicyRequest request) {
+    requireDelta(dataset);
+
+    List<String> zorderColumns = request.getZorderColumns() != null ? request.getZorderColumns() : List.of();
+    if (!zorderColumns.isEmpty()) {
+      StructType schema = (StructType) DataType.fromJson(schemaSnapshotCache.getSchemaJson(dataset, null));
+      List<String> known = Arrays.asList(schema.fieldNames());
+      for (String column : zorderColumns) {
+        if (!known.contains(column)) {
+          throw new IllegalArgumentException("Unknown Z-ORDER column: " + column);
+        }
+      }
+    }
+
+    DatasetMaintenance maintenance = getMaintenance(dataset);
+    maintenance.setOptimizeEnabled(request.isOptimizeEnabled());
+    maintenance.setZorderColumns(zorderColumns.isEmpty() ? null : String.join(",", zorderColumns));
+    maintenance.setMinSmallFiles(request.getMinSmallFiles());
+    maintenance.setVacuumEnabled(request.isVacuumEnabled());
+    maintenance.setVacuumRetentionHours(request.getVacuumRetentionHours());
+    return maintenanceRepository.save(maintenance);
+  }
+
+  /**
+   * Starts a maintenance run in the background.
+   *
+   * @throws SparkCapacityExceededException if the dataset is already being
+   *                                        maintained or no run slot is free
+   */
+  public SparkJobHandle<Void> trigger(Dataset dataset, Operation operation) {
+    requireDelta(dataset);
+    if (!tryStart(dataset.getId())) {
+      throw new SparkCapacityExceededException("A maintenance run is already in progress, try again later");
+    }
+
+    SparkJobHandle<Void> handle;
+    try {
+      handle = sparkJobExecutor.submit(options(dataset, operation.name().toLowerCase()), session -> {
+        execute(dataset, operation);
+        return null;
+      });
+    } catch (RuntimeException e) {
+      finish(dataset.getId());
+      throw e;
+    }
+    // Also covers runs cancelled through the handle before they started
+    handle.whenDone(() -> finish(dataset.getId()));
+    return handle;
+  }
+
+  @Scheduled(fixedDelayString = "${nebula.dataset.maintenance.interval-ms:600000}",
+      initialDelayString = "${nebula.dataset.maintenance.initial-delay-ms:120000}")
+  public void runDueMaintenance() {
+    if (!scheduleEnabled) {
+      return;
+    }
+    for (Dataset dataset : datasetRepository.findByFormat(DatasetFormat.DELTA)) {
+      try {
+        DatasetMaintenance maintenance = refreshStats(dataset, getMaintenance(dataset));
+        Operation due = dueOperation(maintenance);
+        if (due == null || !tryStart(dataset.getId())) {
+          continue;
+        }
+        try {
+          sparkJobExecutor.run(options(dataset, due.name().toLowerCase()), session -> {
+            execute(dataset, due);
+            return null;
+          });
+        } finally {
+          finish(dataset.getId());
+        }
+      } catch (Exception e) {
+        log.warn("Maintenance pass failed for dataset {}", dataset.getId(), e);
+      }
+    }
+  }
+
+  // VACUUM first, so tables that keep needing compaction are still vacuumed
+  private Operation dueOperation(DatasetMaintenance maintenance) {
+    if (maintenance.isVacuumEnabled() && (maintenance.getLastVacuumedAt() == null
+        || maintenance.getLastVacuumedAt().isBefore(now().minus(vacuumInterval)))) {
+      return Operation.VACUUM;
+    }
+    if (maintenance.isOptimizeEnabled() && maintenance.getSmallFileCount() != null
+        && maintenance.getSmallFileCount() >= maintenance.getMinSmallFiles()
+        && (maintenance.getOptimizedVersion() == null
+            || maintenance.getStatsVersion() > maintenance.getOptimizedVersion())) {
+      return Operation.OPTIMIZE;
+    }
+    return null;
+  }
+
+  // Runs on a Spark job thread
+  private void execute(Dataset dataset, Operation operation) {
+    DatasetMaintenance maintenance = getMaintenance(dataset);
+    long start = System.currentTimeMillis();
+    try {
+      // Whether the table is unchanged since the last OPTIMIZE, as of the stats read before this run
+      boolean optimized = maintenance.getOptimizedVersion() != null
+          && Objects.equals(maintenance.getStatsVersion(), maintenance.getOptimizedVersion());
+      if (operation == Operation.OPTIMIZE) {
+        deltaLakeService.optimize(dataset.getStoragePath(), zorderColumns(maintenance));
+        maintenance.setLastOptimizedAt(now());
+      } else {
+        deltaLakeService.vacuum(dataset.getStoragePath(), maintenance.getVacuumRetentionHours());
+        maintenance.setLastVacuumedAt(now());
+      }
+      maintenance.setLastError(null);
+      applyStats(maintenance, deltaLakeService.computeFileStats(dataset.getStoragePath(), smallFileBytes));
+      // A VACUUM commit leaves the file layout as it was
+      if (operation == Operation.OPTIMIZE || optimized) {
+        maintenance.setOptimizedVersion(maintenance.getStatsVersion());
+      }
+      log.info("{} of dataset {} finished in {} ms", operation, dataset.getId(), System.currentTimeMillis() - start);
+    } catch (RuntimeException e) {
+      maintenance.setLastError(operation + " failed: " + e.getMessage());
+      throw e;
+    } finally {
+      maintenanceRepository.save(maintenance);
+    }
+
+    // Record the OPTIMIZE / VACUUM commits as dataset versions right away
+    deltaLogIndexer.ifAvailable(indexer -> indexer.indexDataset(dataset,
+        versionRepository.findLatestVersionNumber(dataset.getId()).orElse(-1L)));
+  }
+
+  private DatasetMaintenance refreshStats(Dataset dataset, DatasetMaintenance maintenance) {
+    long latest = deltaLakeService.latestVersion(dataset.getStoragePath());
+    if (latest < 0 || Objects.equals(maintenance.getStatsVersion(), latest)) {
+      return maintenance;
+    }
+    // Spark is only needed when the log has been cleaned up past the last checkpoint
+    FileLayoutStats stats = deltaLakeService.readFileStats(dataset.getStoragePath(), smallFileBytes)
+        .orElseGet(() -> sparkJobExecutor.run(options(dataset, "file stats"),
+            session -> deltaLakeService.computeFileStats(dataset.getStoragePath(), smallFileBytes)));
+    applyStats(maintenance, stats);
+    return maintenanceRepository.save(maintenance);
+  }
+
+  private void applyStats(DatasetMaintenance maintenance, FileLayoutStats stats) {
+    maintenance.setFileCount(stats.fileCount());
+    maintenance.setSmallFileCount(stats.smallFileCount());
+    maintenance.setTotalBytes(stats.totalBytes());
+    maintenance.setStatsVersion(stats.version());
+    maintenance.setStatsUpdatedAt(now());
+  }
+
+  private SparkJobOptions options(Dataset dataset, String what) {
+    return SparkJobOptions.forTenant(dataset.getProjectId(), "maintenance " + what + " " + dataset.getId())
+        .withShufflePartitions(shufflePartitions)
+        .withTimeout(jobTimeout);
+  }
+
+  private boolean tryStart(String datasetId) {
+    if (!running.add(datasetId)) {
+      return false;
+    }
+    if (!permits.tryAcquire()) {
+      running.remove(datasetId);
+      return false;
+    }
+    return true;
+  }
+
+  private void finish(String datasetId) {
+    running.remove(datasetId);
+    permits.release();
+  }
+
+  private static List<String> zorderColumns(DatasetMaintenance maintenance) {
+    String columns = maintenance.getZorderColumns();
+    return columns == null || columns.isBlank() ? List.of() : List.of(columns.split(","));
+  }
+
+  private static void requireDelta(Dataset dataset) {
+    if (dataset.getFormat() != DatasetFormat.DELTA) {
+      throw new IllegalArgumentException("Maintenance is only supported for DELTA datasets");
+    }
+  }
+
+  private static OffsetDateTime now() {
+    return OffsetDateTime.now(ZoneOffset.UTC);
+  }
+}
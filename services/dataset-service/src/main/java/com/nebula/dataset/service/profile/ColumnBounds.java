@@ -0,0 +1,75 @@
+package com.nebula.dataset.service.profile;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.NumericType;
+
+import java.math.BigDecimal;
+
+/**
+ * Running min/max of one column, folded from Delta per-file statistics.
+ * Becomes unknown as soon as a file without usable statistics for the column
+ * is seen, since its values could lie anywhere.
+ */
+final class ColumnBounds {
+
+  private final String column;
+  private final boolean numeric;
+  private String min;
+  private String max;
+  private boolean known = true;
+
+  ColumnBounds(String column, DataType type) {
+    this.column = column;
+    this.numeric = type instanceof NumericType;
+  }
+
+  void addFile(JsonNode stats) {
+    if (!known) {
+      return;
+    }
+    JsonNode lower = stats.path("minValues").path(column);
+    JsonNode upper = stats.path("maxValues").path(column);
+    if (lower.isMissingNode() || lower.isNull() || upper.isMissingNode() || upper.isNull()) {
+      // Delta leaves out bounds for columns that are entirely null in the file
+      JsonNode nulls = stats.path("nullCount").path(column);
+      known = nulls.isNumber() && nulls.asLong() == stats.path("numRecords").asLong(-1);
+      return;
+    }
+    add(lower.asText(), upper.asText());
+  }
+
+  void add(String lower, String upper) {
+    if (!known) {
+      return;
+    }
+    try {
+      if (min == null || compare(lower, min) < 0) {
+        min = lower;
+      }
+      if (max == null || compare(upper, max) > 0) {
+        max = upper;
+      }
+    } catch (NumberFormatException e) {
+      // NaN and infinities are written as strings and have no useful order
+      known = false;
+    }
+  }
+
+  void invalidate() {
+    known = false;
+  }
+
+  String min() {
+    return known ? min : null;
+  }
+
+  String max() {
+    return known ? max : null;
+  }
+
+  // Non-numeric bounds (strings, ISO dates and timestamps) order lexically
+  private int compare(String a, String b) {
+    return numeric ? new BigDecimal(a).compareTo(new BigDecimal(b)) : a.compareTo(b);
+  }
+}
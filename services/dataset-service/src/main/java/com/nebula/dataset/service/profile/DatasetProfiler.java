@@ -0,0 +1,498 @@
+package com.nebula.dataset.service.profile;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nebula.dataset.domain.ColumnProfile;
+import com.nebula.dataset.domain.ColumnProfileRepository;
+import com.nebula.dataset.domain.Dataset;
+import com.nebula.dataset.domain.DatasetFormat;
+import com.nebula.dataset.domain.DatasetRepository;
+import com.nebula.dataset.domain.DatasetVersionRepository;
+import com.nebula.dataset.service.DeltaLakeService;
+import com.nebula.dataset.service.DeltaLakeService.DataFileStats;
+import com.nebula.dataset.service.SchemaSnapshotCache;
+import com.nebula.dataset.service.delta.DeltaFileAction;
+import com.nebula.dataset.service.delta.DeltaLogReader;
+import com.nebula.dataset.service.spark.SparkJobExecutor;
+import com.nebula.dataset.service.spark.SparkJobOptions;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.functions;
+import org.apache.spark.sql.types.ArrayType;
+import org.apache.spark.sql.types.BinaryType;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.IntegerType;
+import org.apache.spark.sql.types.LongType;
+import org.apache.spark.sql.types.MapType;
+import org.apache.spark.sql.types.NullType;
+import org.apache.spark.sql.types.NumericType;
+import org.apache.spark.sql.types.StringType;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps per-column statistics of Delta datasets in {@code column_profile}, so
+ * catalog browsing never has to scan a table.
+ *
+ * Profiles follow the versions recorded by the log indexer and are built
+ * incrementally. Commits that only rewrite files (OPTIMIZE, Z-ORDER) carry
+ * the previous profile forward untouched. Appends are folded in by scanning
+ * just the appended files: counts are added up, min/max come from the files'
+ * Delta statistics and each column's HyperLogLog sketch is unioned with the
+ * previous one. Anything else (deletes, overwrites, schema changes) rebuilds
+ * the profile from the whole version. Histograms of numeric columns are
+ * taken from a bounded sample of files.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "nebula.dataset.profiler.enabled", havingValue = "true", matchIfMissing = true)
+public class DatasetProfiler {
+
+  private static final int HLL_LG_CONFIG_K = 12;
+
+  private final DatasetRepository datasetRepository;
+  private final DatasetVersionRepository versionRepository;
+  private final ColumnProfileRepository profileRepository;
+  private final DeltaLogReader deltaLogReader;
+  private final DeltaLakeService deltaLakeService;
+  private final SchemaSnapshotCache schemaSnapshotCache;
+  private final SparkJobExecutor sparkJobExecutor;
+  private final EntityManager entityManager;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectMapper objectMapper;
+  private final int maxIncrementalCommits;
+  private final long sampleRows;
+  private final int histogramBuckets;
+  private final Duration jobTimeout;
+
+  public DatasetProfiler(DatasetRepository datasetRepository,
+      DatasetVersionRepository versionRepository,
+      ColumnProfileRepository profileRepository,
+      DeltaLogReader deltaLogReader,
+      DeltaLakeService deltaLakeService,
+      SchemaSnapshotCache schemaSnapshotCache,
+      SparkJobExecutor sparkJobExecutor,
+      EntityManager entityManager,
+      PlatformTransactionManager transactionManager,
+      ObjectMapper objectMapper,
+      @Value("${nebula.dataset.profiler.max-incremental-commits:100}") int maxIncrementalCommits,
+      @Value("${nebula.dataset.profiler.sample-rows:100000}") long sampleRows,
+      @Value("${nebula.dataset.profiler.histogram-buckets:20}") int histogramBuckets,
+      @Value("${nebula.dataset.profiler.job-timeout:10m}") Duration jobTimeout) {
+    this.datasetRepository = datasetRepository;
+    this.versionRepository = versionRepository;
+    this.profileRepository = profileRepository;
+    this.deltaLogReader = deltaLogReader;
+    this.deltaLakeService = deltaLakeService;
+    this.schemaSnapshotCache = schemaSnapshotCache;
+    this.sparkJobExecutor = sparkJobExecutor;
+    this.entityManager = entityManager;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.objectMapper = objectMapper;
+    this.maxIncrementalCommits = maxIncrementalCommits;
+    this.sampleRows = sampleRows;
+    this.histogramBuckets = histogramBuckets;
+    this.jobTimeout = jobTimeout;
+  }
+
+  @Scheduled(fixedDelayString = "${nebula.dataset.profiler.interval-ms:60000}",
+      initialDelayString = "${nebula.dataset.profiler.initial-delay-ms:60000}")
+  public void profileAll() {
+    Map<String, Long> indexed = versionRepository.findLatestVersionNumbers().stream()
+        .collect(Collectors.toMap(DatasetVersionRepository.LatestVersion::getDatasetId,
+            DatasetVersionRepository.LatestVersion::getVersionNumber));
+
+    for (Dataset dataset : datasetRepository.findByFormat(DatasetFormat.DELTA)) {
+      Long version = indexed.get(dataset.getId());
+      if (version == null) {
+        continue;
+      }
+      try {
+        profileDataset(dataset, version);
+      } catch (Exception e) {
+        log.warn("Failed to profile dataset {} at version {}", dataset.getId(), version, e);
+      }
+    }
+  }
+
+  /**
+   * Profiles {@code version} of the dataset, building on the newest existing
+   * profile where possible. Returns false if it is already profiled.
+   */
+  public boolean profileDataset(Dataset dataset, long version) {
+    long profiled = profileRepository.findLatestVersionNumber(dataset.getId()).orElse(-1L);
+    if (profiled >= version) {
+      return false;
+    }
+
+    StructType schema = (StructType) DataType.fromJson(schemaSnapshotCache.getSchemaJson(dataset, version));
+    List<StructField> fields = profiledFields(schema);
+    List<ColumnProfile> previous = profiled < 0 ? List.of()
+        : profileRepository.findByDatasetIdAndVersionNumberOrderByColumnIndexAsc(dataset.getId(), profiled);
+    List<DeltaFileAction> appended = canExtend(previous, fields)
+        ? appendedFiles(dataset.getStoragePath(), profiled, version)
+        : null;
+
+    List<ColumnProfile> columns;
+    if (appended != null && appended.isEmpty()) {
+      // Only file rewrites since the last profile, the data is unchanged
+      columns = previous.stream().map(DatasetProfiler::copyOf).toList();
+    } else {
+      SparkJobOptions options = SparkJobOptions.forTenant(dataset.getProjectId(),
+          "profile " + dataset.getId() + "@" + version).withTimeout(jobTimeout);
+      columns = sparkJobExecutor.run(options, session -> {
+        boolean directlyReadable = deltaLakeService.isDirectlyReadable(dataset.getStoragePath());
+        return appended != null && directlyReadable
+            ? extend(session, dataset.getStoragePath(), schema, fields, previous, appended, version)
+            : rebuild(session, dataset.getStoragePath(), fields, version, directlyReadable);
+      });
+    }
+
+    save(dataset, version, columns);
+    log.debug("Profiled dataset {} at version {} ({})", dataset.getId(), version,
+        appended == null ? "rebuilt" : appended.isEmpty() ? "carried forward" : appended.size() + " files appended");
+    return true;
+  }
+
+  private List<ColumnProfile> rebuild(SparkSession session, String path, List<StructField> fields, long version,
+      boolean directlyReadable) {
+    org.apache.spark.sql.Dataset<Row> rows = deltaLakeService.readVersion(path, version);
+    Row scan = rows.select(scanAggregates(fields)).head();
+    List<DataFileStats> files = deltaLakeService.listFileStats(path, version);
+
+    List<ColumnBounds> bounds = fields.stream().map(f -> new ColumnBounds(f.name(), f.dataType())).toList();
+    for (DataFileStats file : files) {
+      JsonNode stats = parseStats(file.statsJson());
+      for (ColumnBounds columnBounds : bounds) {
+        if (stats == null) {
+          columnBounds.invalidate();
+        } else {
+          columnBounds.addFile(stats);
+        }
+      }
+    }
+
+    List<byte[]> sketches = new ArrayList<>();
+    List<ColumnProfile> columns = new ArrayList<>();
+    long rowCount = scan.getLong(0);
+    for (int i = 0; i < fields.size(); i++) {
+      StructField field = fields.get(i);
+      columns.add(ColumnProfile.builder()
+          .columnIndex(i)
+          .columnName(field.name())
+          .dataType(field.dataType().simpleString())
+          .rowCount(rowCount)
+          .nullCount(rowCount - scan.getLong(1 + 2 * i))
+          .minValue(bounds.get(i).min())
+          .maxValue(bounds.get(i).max())
+          .build());
+      sketches.add(scan.getAs(2 + 2 * i));
+    }
+
+    applySketches(session, columns, Collections.nCopies(columns.size(), null), sketches);
+    applyHistograms(path, fields, columns, files, version, directlyReadable);
+    return columns;
+  }
+
+  private List<ColumnProfile> extend(SparkSession session, String path, StructType schema, List<StructField> fields,
+      List<ColumnProfile> previous, List<DeltaFileAction> appended, long version) {
+    Row scan = deltaLakeService.readDataFiles(path, schema, appended.stream().map(DeltaFileAction::path).toList())
+        .select(scanAggregates(fields))
+        .head();
+
+    List<JsonNode> appendedStats = appended.stream().map(action -> parseStats(action.statsJson())).toList();
+    List<byte[]> previousSketches = new ArrayList<>();
+    List<byte[]> sketches = new ArrayList<>();
+    List<ColumnProfile> columns = new ArrayList<>();
+    long appendedRows = scan.getLong(0);
+    for (int i = 0; i < fields.size(); i++) {
+      StructField field = fields.get(i);
+      ColumnProfile before = previous.get(i);
+
+      ColumnBounds bounds = new ColumnBounds(field.name(), field.dataType());
+      if (before.getMinValue() != null) {
+        bounds.add(before.getMinValue(), before.getMaxValue());
+      } else if (before.getNullCount() < before.getRowCount()) {
+        bounds.invalidate();
+      }
+      for (JsonNode stats : appendedStats) {
+        if (stats == null) {
+          bounds.invalidate();
+        } else {
+          bounds.addFile(stats);
+        }
+      }
+
+      columns.add(ColumnProfile.builder()
+          .columnIndex(i)
+          .columnName(field.name())
+          .dataType(before.getDataType())
+          .rowCount(before.getRowCount() + appendedRows)
+          .nullCount(before.getNullCount() + appendedRows - scan.getLong(1 + 2 * i))
+          .minValue(bounds.min())
+          .maxValue(bounds.max())
+          .build());
+      previousSketches.add(before.getHllSketch());
+      sketches.add(scan.getAs(2 + 2 * i));
+    }
+
+    applySketches(session, columns, previousSketches, sketches);
+    applyHistograms(path, fields, columns, deltaLakeService.listFileStats(path, version), version, true);
+    return columns;
+  }
+
+  // Row count, then non-null count and HLL sketch for each column
+  private static Column[] scanAggregates(List<StructField> fields) {
+    List<Column> aggregates = new ArrayList<>();
+    aggregates.add(functions.count(functions.lit(1)));
+    for (StructField field : fields) {
+      Column column = functions.col(quote(field.name()));
+      aggregates.add(functions.count(column));
+      aggregates.add(functions.hll_sketch_agg(sketchInput(column, field.dataType()), HLL_LG_CONFIG_K));
+    }
+    return aggregates.toArray(Column[]::new);
+  }
+
+  // Unions each scanned sketch with the previous one and estimates distinct counts
+  private static void applySketches(SparkSession session, List<ColumnProfile> columns, List<byte[]> previous,
+      List<byte[]> scanned) {
+    if (columns.isEmpty()) {
+      return;
+    }
+    List<Column> selected = new ArrayList<>();
+    for (int i = 0; i < columns.size(); i++) {
+      Column sketch = previous.get(i) == null
+          ? functions.lit(scanned.get(i))
+          : functions.hll_union(functions.lit(previous.get(i)), functions.lit(scanned.get(i)), true);
+      selected.add(sketch);
+      selected.add(functions.hll_sketch_estimate(sketch));
+    }
+    Row result = session.range(1).select(selected.toArray(Column[]::new)).head();
+    for (int i = 0; i < columns.size(); i++) {
+      columns.get(i).setHllSketch(result.getAs(2 * i));
+      columns.get(i).setDistinctEstimate(result.getLong(2 * i + 1));
+    }
+  }
+
+  /**
+   * Equi-width histograms over each numeric column's [min, max], counted on
+   * a sample of roughly {@code sampleRows} rows and scaled to the column's
+   * non-null count.
+   */
+  private void applyHistograms(String path, List<StructField> fields, List<ColumnProfile> columns,
+      List<DataFileStats> files, long version, boolean directlyReadable) {
+    List<Column> entries = new ArrayList<>();
+    for (int i = 0; i < fields.size(); i++) {
+      ColumnProfile column = columns.get(i);
+      if (!(fields.get(i).dataType() instanceof NumericType) || column.getMinValue() == null
+          || column.getMinValue().equals(column.getMaxValue())) {
+        column.setHistogram(null);
+        continue;
+      }
+      Column bucket = functions.width_bucket(functions.col(quote(column.getColumnName())).cast("double"),
+          functions.lit(Double.parseDouble(column.getMinValue())),
+          functions.lit(Double.parseDouble(column.getMaxValue())),
+          functions.lit(histogramBuckets));
+      entries.add(functions.struct(functions.lit(i).as("c"), bucket.as("b")));
+    }
+    if (entries.isEmpty()) {
+      return;
+    }
+
+    long[][] counts = new long[fields.size()][histogramBuckets];
+    long[] sampled = new long[fields.size()];
+    List<Row> buckets = sample(path, fields, files, columns.get(0).getRowCount(), version, directlyReadable)
+        .select(functions.explode(functions.array(entries.toArray(Column[]::new))).as("e"))
+        .where(functions.col("e.b").isNotNull())
+        .groupBy("e.c", "e.b")
+        .count()
+        .collectAsList();
+    for (Row row : buckets) {
+      int column = row.getInt(0);
+      counts[column][bucketIndex(row.getLong(1), histogramBuckets)] += row.getLong(2);
+      sampled[column] += row.getLong(2);
+    }
+
+    for (int i = 0; i < fields.size(); i++) {
+      ColumnProfile column = columns.get(i);
+      if (sampled[i] == 0) {
+        continue;
+      }
+      double scale = (column.getRowCount() - column.getNullCount()) / (double) sampled[i];
+      Map<String, Object> histogram = new LinkedHashMap<>();
+      histogram.put("lower", Double.parseDouble(column.getMinValue()));
+      histogram.put("upper", Double.parseDouble(column.getMaxValue()));
+      histogram.put("counts", Arrays.stream(counts[i]).map(count -> Math.round(count * scale)).toArray());
+      histogram.put("sampled", sampled[i] < column.getRowCount() - column.getNullCount());
+      try {
+        column.setHistogram(objectMapper.writeValueAsString(histogram));
+      } catch (JsonProcessingException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  /**
+   * Array index for a {@code width_bucket} result. The maximum itself lands in
+   * bucket n + 1, and values the bounds do not cover (stale or truncated file
+   * statistics, precision lost in the cast to double) in 0 or n + 1, so both
+   * ends are folded into the outermost buckets.
+   */
+  static int bucketIndex(long widthBucket, int buckets) {
+    return (int) Math.min(Math.max(widthBucket, 1), buckets) - 1;
+  }
+
+  // Whole files picked at random until about sampleRows rows, so the sample
+  // costs a fraction of a full scan rather than a filtered full scan
+  private org.apache.spark.sql.Dataset<Row> sample(String path, List<StructField> fields, List<DataFileStats> files,
+      long rowCount, long version, boolean directlyReadable) {
+    org.apache.spark.sql.Dataset<Row> rows;
+    if (rowCount <= sampleRows) {
+      rows = deltaLakeService.readVersion(path, version);
+    } else if (directlyReadable) {
+      List<DataFileStats> shuffled = new ArrayList<>(files);
+      Collections.shuffle(shuffled, new Random(version));
+      List<String> picked = new ArrayList<>();
+      long pickedRows = 0;
+      for (DataFileStats file : shuffled) {
+        picked.add(file.path());
+        JsonNode stats = parseStats(file.statsJson());
+        pickedRows += stats != null ? stats.path("numRecords").asLong(0) : 0;
+        if (pickedRows >= sampleRows) {
+          break;
+        }
+      }
+      StructType schema = new StructType(fields.toArray(StructField[]::new));
+      rows = deltaLakeService.readDataFiles(path, schema, picked);
+    } else {
+      rows = deltaLakeService.readVersion(path, version).sample(sampleRows / (double) rowCount, version);
+    }
+    return rows;
+  }
+
+  /**
+   * Data-changing file actions committed after {@code profiled} up to
+   * {@code version}, or null if any of them is not a plain append (or the
+   * range is too long to be worth replaying).
+   */
+  private List<DeltaFileAction> appendedFiles(String path, long profiled, long version) {
+    if (version - profiled > maxIncrementalCommits) {
+      return null;
+    }
+    List<DeltaFileAction> appended = new ArrayList<>();
+    for (long v = profiled + 1; v <= version; v++) {
+      Optional<List<DeltaFileAction>> actions = deltaLogReader.readFileActions(path, v);
+      if (actions.isEmpty()) {
+        return null;
+      }
+      for (DeltaFileAction action : actions.get()) {
+        if (!action.dataChange()) {
+          continue;
+        }
+        if (!action.add() || action.hasDeletionVector()) {
+          return null;
+        }
+        appended.add(action);
+      }
+    }
+    return appended;
+  }
+
+  private void save(Dataset dataset, long version, List<ColumnProfile> columns) {
+    transactionTemplate.executeWithoutResult(status -> {
+      // Another replica got there first
+      if (profileRepository.findLatestVersionNumber(dataset.getId()).orElse(-1L) >= version) {
+        return;
+      }
+      Dataset datasetRef = entityManager.getReference(Dataset.class, dataset.getId());
+      for (ColumnProfile column : columns) {
+        column.setId(UUID.randomUUID().toString());
+        column.setDataset(datasetRef);
+        column.setVersionNumber(version);
+        entityManager.persist(column);
+      }
+      // Only the newest profile is ever extended, older sketches are dead weight
+      profileRepository.clearSketchesBefore(dataset.getId(), version);
+    });
+  }
+
+  private JsonNode parseStats(String statsJson) {
+    if (statsJson == null) {
+      return null;
+    }
+    try {
+      return objectMapper.readTree(statsJson);
+    } catch (JsonProcessingException e) {
+      return null;
+    }
+  }
+
+  private static boolean canExtend(List<ColumnProfile> previous, List<StructField> fields) {
+    if (previous.isEmpty() || previous.size() != fields.size()) {
+      return false;
+    }
+    for (int i = 0; i < fields.size(); i++) {
+      ColumnProfile column = previous.get(i);
+      if (!column.getColumnName().equals(fields.get(i).name())
+          || !column.getDataType().equals(fields.get(i).dataType().simpleString())
+          || column.getHllSketch() == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static List<StructField> profiledFields(StructType schema) {
+    return Arrays.stream(schema.fields())
+        .filter(field -> !(field.dataType() instanceof StructType || field.dataType() instanceof ArrayType
+            || field.dataType() instanceof MapType || field.dataType() instanceof NullType))
+        .toList();
+  }
+
+  // hll_sketch_agg only accepts ints, longs, strings and binary
+  private static Column sketchInput(Column column, DataType type) {
+    return type instanceof IntegerType || type instanceof LongType || type instanceof StringType
+        || type instanceof BinaryType ? column : column.cast("string");
+  }
+
+  private static String quote(String name) {
+    return "`" + name.replace("`", "``") + "`";
+  }
+
+  private static ColumnProfile copyOf(ColumnProfile column) {
+    return ColumnProfile.builder()
+        .columnIndex(column.getColumnIndex())
+        .columnName(column.getColumnName())
+        .dataType(column.getDataType())
+        .rowCount(column.getRowCount())
+        .nullCount(column.getNullCount())
+        .minValue(column.getMinValue())
+        .maxValue(column.getMaxValue())
+        .distinctEstimate(column.getDistinctEstimate())
+        .hllSketch(column.getHllSketch())
+        .histogram(column.getHistogram())
+        .build();
+  }
+}
@@ -0,0 +1,151 @@
+package com.nebula.dataset.service.spark;
+
+import com.nebula.dataset.exception.SparkCapacityExceededException;
+import com.nebula.dataset.exception.SparkJobTimeoutException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.SparkContext;
+import org.apache.spark.sql.SparkSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs Spark work for request handlers on a bounded pool.
+ *
+ * Every job is tagged with its own Spark job group so a timeout, an
+ * interrupted caller or an explicit {@link SparkJobHandle#cancel()} stops the
+ * running stages rather than just abandoning them. When the pool and its queue
+ * are full new work is rejected immediately instead of piling up behind a busy
+ * driver.
+ */
+@Service
+@Slf4j
+public class SparkJobExecutor {
+
+  private static final String DEFAULT_TENANT = "default";
+
+  private final SparkSessionProvider sessionProvider;
+  private final ThreadPoolExecutor pool;
+  private final Duration defaultTimeout;
+
+  public SparkJobExecutor(SparkSessionProvider sessionProvider,
+      @Value("${nebula.spark.executor.pool-size:4}") int poolSize,
+      @Value("${nebula.spark.executor.queue-capacity:32}") int queueCapacity,
+      @Value("${nebula.spark.executor.default-timeout:60s}") Duration defaultTimeout) {
+    this.sessionProvider = sessionProvider;
+    this.defaultTimeout = defaultTimeout;
+
+    AtomicInteger threadCount = new AtomicInteger();
+    this.pool = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        runnable -> {
+          Thread thread = new Thread(runnable, "spark-job-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /**
+   * Runs the job and waits for its result, cancelling it if it exceeds the
+   * job's timeout or the calling thread is interrupted.
+   */
+  public <T> T run(SparkJobOptions options, Function<SparkSession, T> job) {
+    SparkJobHandle<T> handle = submit(options, job);
+    Duration timeout = options.timeout() != null ? options.timeout() : defaultTimeout;
+
+    try {
+      return handle.getFuture().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      handle.cancel();
+      throw new SparkJobTimeoutException("Spark job '" + options.description() + "' exceeded " + timeout);
+    } catch (InterruptedException e) {
+      handle.cancel();
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for Spark job", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw new IllegalStateException("Spark job '" + options.description() + "' failed", e.getCause());
+    }
+  }
+
+  /**
+   * Queues the job and returns immediately with a handle that can be used to
+   * wait for or cancel it.
+   */
+  public <T> SparkJobHandle<T> submit(SparkJobOptions options, Function<SparkSession, T> job) {
+    String jobGroup = "nebula-" + UUID.randomUUID();
+
+    JobTask<T> task = new JobTask<>(() -> execute(jobGroup, options, job));
+    try {
+      pool.execute(task);
+    } catch (RejectedExecutionException e) {
+      throw new SparkCapacityExceededException("Too many concurrent Spark jobs, try again later", e);
+    }
+    return new SparkJobHandle<>(jobGroup, task, task.done, this);
+  }
+
+  void cancel(String jobGroup) {
+    if (sessionProvider.isStarted()) {
+      sessionProvider.root().sparkContext().cancelJobGroup(jobGroup);
+    }
+  }
+
+  private <T> T execute(String jobGroup, SparkJobOptions options, Function<SparkSession, T> job) {
+    String tenant = options.tenant() != null ? options.tenant() : DEFAULT_TENANT;
+    SparkSession session = sessionProvider.forTenant(tenant, options.shufflePartitions());
+    SparkContext context = session.sparkContext();
+
+    SparkSession.setActiveSession(session);
+    context.setJobGroup(jobGroup, options.description(), true);
+    // One FAIR scheduler pool per tenant so a heavy tenant cannot starve others
+    context.setLocalProperty("spark.scheduler.pool", tenant);
+    try {
+      return job.apply(session);
+    } finally {
+      context.setLocalProperty("spark.scheduler.pool", null);
+      context.clearJobGroup();
+      SparkSession.clearActiveSession();
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    // Cancel what never started so completion callbacks still run
+    pool.shutdownNow().forEach(queued -> ((Future<?>) queued).cancel(false));
+  }
+
+  // FutureTask calls done() on completion and on cancellation, even before the job started
+  private static final class JobTask<T> extends FutureTask<T> {
+
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    JobTask(Callable<T> callable) {
+      super(callable);
+    }
+
+    @Override
+    protected void done() {
+      done.complete(null);
+    }
+  }
+}
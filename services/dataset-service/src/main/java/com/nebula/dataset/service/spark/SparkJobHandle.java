@@ -0,0 +1,42 @@
+package com.nebula.dataset.service.spark;
+
+import lombok.Getter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * A submitted Spark job. Cancelling it both interrupts the worker thread and
+ * cancels the job group, so stages already running on the executors stop too.
+ */
+@Getter
+public class SparkJobHandle<T> {
+
+  private final String jobGroup;
+  private final Future<T> future;
+  @Getter(lombok.AccessLevel.NONE)
+  private final CompletableFuture<Void> done;
+  @Getter(lombok.AccessLevel.NONE)
+  private final SparkJobExecutor executor;
+
+  SparkJobHandle(String jobGroup, Future<T> future, CompletableFuture<Void> done, SparkJobExecutor executor) {
+    this.jobGroup = jobGroup;
+    this.future = future;
+    this.done = done;
+    this.executor = executor;
+  }
+
+  /**
+   * Runs {@code callback} once the job is over: finished, failed, cancelled
+   * (whether or not it ever started) or dropped by an executor shutdown. Runs
+   * it right away if that has already happened.
+   */
+  public void whenDone(Runnable callback) {
+    done.thenRun(callback);
+  }
+
+  public void cancel() {
+    future.cancel(true);
+    executor.cancel(jobGroup);
+  }
+}
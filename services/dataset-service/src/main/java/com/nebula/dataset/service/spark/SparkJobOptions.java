@@ -0,0 +1,28 @@
+package com.nebula.dataset.service.spark;
+
+import java.time.Duration;
+
+/**
+ * Per-job execution settings.
+ *
+ * @param tenant            isolation key; jobs of one tenant share a session
+ *                          (temp views, SQL conf), other tenants never see it
+ * @param shufflePartitions overrides {@code spark.sql.shuffle.partitions}, or
+ *                          null for the service default
+ * @param timeout           how long the caller waits before the job is cancelled,
+ *                          or null for the service default
+ */
+public record SparkJobOptions(String tenant, Integer shufflePartitions, Duration timeout, String description) {
+
+  public static SparkJobOptions forTenant(String tenant, String description) {
+    return new SparkJobOptions(tenant, null, null, description);
+  }
+
+  public SparkJobOptions withShufflePartitions(int partitions) {
+    return new SparkJobOptions(tenant, partitions, timeout, description);
+  }
+
+  public SparkJobOptions withTimeout(Duration jobTimeout) {
+    return new SparkJobOptions(tenant, shufflePartitions, jobTimeout, description);
+  }
+}
@@ -0,0 +1,86 @@
+package com.nebula.dataset.service.spark;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.sql.SparkSession;
+import scala.Option;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Owns the embedded Spark runtime. Nothing is started until the first caller
+ * actually needs a session, so the service boots and idles without a Spark
+ * driver.
+ *
+ * Tenant sessions are created with {@link SparkSession#newSession()}: they
+ * share the SparkContext and cached data, but each has its own SQL conf and
+ * temporary views.
+ */
+@Slf4j
+public class SparkSessionProvider implements AutoCloseable {
+
+  private final Supplier<SparkSession> factory;
+  private final Cache<SessionKey, SparkSession> tenantSessions;
+  private volatile SparkSession root;
+
+  public SparkSessionProvider(Supplier<SparkSession> factory, Duration tenantSessionIdleTimeout) {
+    this.factory = factory;
+    this.tenantSessions = Caffeine.newBuilder()
+        .expireAfterAccess(tenantSessionIdleTimeout)
+        .build();
+  }
+
+  public SparkSession root() {
+    SparkSession session = root;
+    if (session == null) {
+      synchronized (this) {
+        session = root;
+        if (session == null) {
+          long start = System.currentTimeMillis();
+          session = factory.get();
+          root = session;
+          log.info("Started embedded Spark in {} ms", System.currentTimeMillis() - start);
+        }
+      }
+    }
+    return session;
+  }
+
+  /**
+   * The session bound to the current thread by {@link SparkJobExecutor}, or
+   * the root session for work running outside the executor.
+   */
+  public SparkSession current() {
+    Option<SparkSession> active = SparkSession.getActiveSession();
+    return active.isDefined() ? active.get() : root();
+  }
+
+  SparkSession forTenant(String tenant, Integer shufflePartitions) {
+    return tenantSessions.get(new SessionKey(tenant, shufflePartitions), key -> {
+      SparkSession session = root().newSession();
+      if (key.shufflePartitions() != null) {
+        session.conf().set("spark.sql.shuffle.partitions", key.shufflePartitions());
+      }
+      return session;
+    });
+  }
+
+  boolean isStarted() {
+    return root != null;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (root != null) {
+      root.stop();
+      root = null;
+    }
+  }
+
+  // Session conf is session-wide, so jobs with a different partition count
+  // get their own session rather than mutating one that may be in use.
+  private record SessionKey(String tenant, Integer shufflePartitions) {
+  }
+}
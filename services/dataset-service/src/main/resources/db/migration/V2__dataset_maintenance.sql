@@ -0,0 +1,16 @@
+CREATE TABLE dataset_maintenance (
+    dataset_id VARCHAR(36) PRIMARY KEY REFERENCES dataset(id) ON DELETE CASCADE,
+    optimize_enabled BOOLEAN NOT NULL DEFAULT TRUE,
+    zorder_columns VARCHAR(1024),
+    min_small_files INTEGER NOT NULL DEFAULT 32,
+    vacuum_enabled BOOLEAN NOT NULL DEFAULT TRUE,
+    vacuum_retention_hours INTEGER NOT NULL DEFAULT 168,
+    file_count BIGINT,
+    small_file_count BIGINT,
+    total_bytes BIGINT,
+    stats_version BIGINT,
+    stats_updated_at TIMESTAMP WITH TIME ZONE,
+    last_optimized_at TIMESTAMP WITH TIME ZONE,
+    last_vacuumed_at TIMESTAMP WITH TIME ZONE,
+    last_error TEXT
+);
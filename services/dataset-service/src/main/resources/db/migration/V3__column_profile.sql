@@ -0,0 +1,17 @@
+CREATE TABLE column_profile (
+    id VARCHAR(36) PRIMARY KEY,
+    dataset_id VARCHAR(36) NOT NULL REFERENCES dataset(id) ON DELETE CASCADE,
+    version_number BIGINT NOT NULL,
+    column_index INTEGER NOT NULL,
+    column_name VARCHAR(255) NOT NULL,
+    data_type VARCHAR(255) NOT NULL,
+    row_count BIGINT NOT NULL,
+    null_count BIGINT NOT NULL,
+    min_value TEXT,
+    max_value TEXT,
+    distinct_estimate BIGINT,
+    hll_sketch BYTEA,
+    histogram JSONB,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE(dataset_id, version_number, column_name)
+);
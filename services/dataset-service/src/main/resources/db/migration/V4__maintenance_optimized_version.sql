@@ -0,0 +1,2 @@
+-- Table version right after the last OPTIMIZE; compaction waits for the table to change past it
+ALTER TABLE dataset_maintenance ADD COLUMN optimized_version BIGINT;
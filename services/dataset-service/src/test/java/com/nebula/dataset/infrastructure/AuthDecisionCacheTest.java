@@ -0,0 +1,71 @@
+package com.nebula.dataset.infrastructure;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthDecisionCacheTest {
+
+  private SimpleMeterRegistry meterRegistry;
+  private AuthDecisionCache cache;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    cache = new AuthDecisionCache(meterRegistry, true, 100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+    cache.onPolicyVersion("v1");
+  }
+
+  @Test
+  void put_SameVersion_CachesDecision() {
+    cache.put("alice", List.of("b", "a"), "read", "project:1", true, "v1");
+
+    assertEquals(Boolean.TRUE, cache.get("alice", List.of("a", "b"), "read", "project:1"));
+  }
+
+  @Test
+  void put_NewVersion_FlushesAndSkipsDecision() {
+    cache.put("alice", List.of(), "read", "project:1", true, "v1");
+
+    cache.put("bob", List.of(), "read", "project:1", false, "v2");
+
+    assertNull(cache.get("alice", List.of(), "read", "project:1"));
+    assertNull(cache.get("bob", List.of(), "read", "project:1"));
+    assertEquals(1, invalidations());
+  }
+
+  @Test
+  void put_UnversionedFallbackDeny_KeepsCacheAndIsNotCached() {
+    cache.put("alice", List.of(), "read", "project:1", true, "v1");
+
+    cache.put("bob", List.of(), "read", "project:1", false, "");
+    cache.put("carol", List.of(), "read", "project:1", false, null);
+
+    assertEquals(Boolean.TRUE, cache.get("alice", List.of(), "read", "project:1"));
+    assertNull(cache.get("bob", List.of(), "read", "project:1"));
+    assertEquals(0, invalidations());
+
+    // The next versioned decision is still compared against v1
+    cache.put("dave", List.of(), "read", "project:1", true, "v1");
+    assertEquals(Boolean.TRUE, cache.get("dave", List.of(), "read", "project:1"));
+  }
+
+  @Test
+  void onPolicyVersion_Empty_IsIgnored() {
+    cache.put("alice", List.of(), "read", "project:1", true, "v1");
+
+    cache.onPolicyVersion("");
+
+    assertEquals(Boolean.TRUE, cache.get("alice", List.of(), "read", "project:1"));
+    assertEquals(0, invalidations());
+  }
+
+  private double invalidations() {
+    return meterRegistry.counter("authz.decisions.invalidations").count();
+  }
+}
@@ -0,0 +1,90 @@
+package com.nebula.dataset.service;
+
+import com.nebula.dataset.domain.Dataset;
+import com.nebula.dataset.domain.DatasetFormat;
+import com.nebula.dataset.service.spark.SparkJobExecutor;
+import com.nebula.dataset.service.spark.SparkJobOptions;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("spark")
+class DatasetPreviewServiceTest {
+
+  @TempDir
+  Path tempDir;
+
+  private SparkJobExecutor sparkJobExecutor;
+  private DatasetPreviewService previewService;
+  private Dataset dataset;
+
+  @BeforeEach
+  void setUp() {
+    // A single slot, so a preview holding it while writing would block every other job
+    sparkJobExecutor = new SparkJobExecutor(LocalDelta.sessionProvider(), 1, 4, Duration.ofSeconds(30));
+    previewService = new DatasetPreviewService(LocalDelta.deltaLakeService(), sparkJobExecutor, 100,
+        Duration.ofSeconds(30));
+
+    String table = tempDir.resolve("table").toString();
+    StructType schema = new StructType().add("id", DataTypes.LongType).add("name", DataTypes.StringType);
+    List<Row> rows = LongStream.rangeClosed(1, 10).mapToObj(i -> RowFactory.create(i, "row-" + i)).toList();
+    LocalDelta.spark().createDataFrame(rows, schema).coalesce(1).write().format("delta").save(table);
+
+    dataset = Dataset.builder()
+        .id("d1")
+        .projectId("p1")
+        .name("rows")
+        .format(DatasetFormat.DELTA)
+        .storagePath(table)
+        .build();
+  }
+
+  @Test
+  void writeNdjson_WritesOneJsonObjectPerRow() throws Exception {
+    org.apache.spark.sql.Dataset<Row> rows = previewService.preparePreview(dataset, null, List.of("id", "name"),
+        List.of(RowFilter.parse("id:gt:7")), 0, 100);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    long written = previewService.writeNdjson(dataset, rows, out);
+
+    assertEquals(3, written);
+    assertEquals("""
+        {"id":8,"name":"row-8"}
+        {"id":9,"name":"row-9"}
+        {"id":10,"name":"row-10"}
+        """, out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void writeNdjson_ReleasesTheSparkSlotBeforeWriting() throws Exception {
+    org.apache.spark.sql.Dataset<Row> rows = previewService.preparePreview(dataset, null, List.of(), List.of(), 0, 5);
+    SparkJobOptions probe = SparkJobOptions.forTenant("p2", "probe").withTimeout(Duration.ofSeconds(10));
+
+    // Stands in for a slow client: another job must be able to run while the response is written
+    OutputStream slowClient = new ByteArrayOutputStream() {
+      @Override
+      public void write(byte[] b, int off, int len) {
+        Integer probed = sparkJobExecutor.run(probe, session -> 1);
+        assertEquals(1, probed);
+        super.write(b, off, len);
+      }
+    };
+
+    assertEquals(5, previewService.writeNdjson(dataset, rows, slowClient));
+  }
+}
@@ -0,0 +1,112 @@
+package com.nebula.dataset.service;
+
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("spark")
+class DeltaLakeServiceTest {
+
+  private static final StructType SCHEMA = new StructType()
+      .add("id", DataTypes.LongType)
+      .add("name", DataTypes.StringType);
+
+  @TempDir
+  Path tempDir;
+
+  private SparkSession spark;
+  private DeltaLakeService deltaLakeService;
+  private String table;
+
+  @BeforeEach
+  void setUp() {
+    spark = LocalDelta.spark();
+    deltaLakeService = LocalDelta.deltaLakeService();
+    table = tempDir.resolve("table").toString();
+    spark.createDataFrame(List.of(
+            RowFactory.create(1L, "alice"),
+            RowFactory.create(2L, "bob"),
+            RowFactory.create(3L, null)), SCHEMA)
+        .write().format("delta").save(table);
+  }
+
+  @Test
+  void readRows_AppliesFiltersAndProjection() {
+    List<Row> rows = deltaLakeService.readRows(table, null, List.of("name"),
+            List.of(RowFilter.parse("id:gte:2"), RowFilter.parse("name:not_null")))
+        .collectAsList();
+
+    assertEquals(List.of(RowFactory.create("bob")), rows);
+  }
+
+  @Test
+  void readRows_SqlInFilterValueMatchesNothing() {
+    List<Row> rows = deltaLakeService.readRows(table, null, List.of(),
+            List.of(RowFilter.parse("name:eq:x' OR 1=1 OR name='")))
+        .collectAsList();
+
+    assertTrue(rows.isEmpty());
+  }
+
+  @Test
+  void createEmptyTable_NoColumns_FirstAppendAddsThem() {
+    String empty = tempDir.resolve("empty").toString();
+    deltaLakeService.createEmptyTable(empty, new StructType());
+
+    assertEquals(0, deltaLakeService.latestVersion(empty));
+    assertTrue(deltaLakeService.getSchema(empty).isEmpty());
+
+    DeltaLakeService.CommitInfo commit = deltaLakeService.append(empty, rows(RowFactory.create(9L, "zed")), true,
+        "first");
+
+    assertEquals(1, commit.version());
+    assertEquals(SCHEMA, deltaLakeService.getSchema(empty));
+  }
+
+  @Test
+  void append_ReturnsTheTaggedCommitAndItsMetrics() {
+    DeltaLakeService.CommitInfo commit = deltaLakeService.append(table,
+        rows(RowFactory.create(4L, "dave"), RowFactory.create(5L, "eve")), false, "upload 1");
+
+    assertEquals(1, commit.version());
+    assertEquals("2", commit.operationMetrics().get("numOutputRows"));
+  }
+
+  @Test
+  void merge_ReturnsItsOwnCommitAndMetrics() {
+    deltaLakeService.append(table, rows(RowFactory.create(4L, "dave")), false, "upload 1");
+
+    DeltaLakeService.CommitInfo commit = deltaLakeService.merge(table,
+        rows(RowFactory.create(1L, "alicia"), RowFactory.create(6L, "frank")), List.of("id"));
+
+    assertEquals(2, commit.version());
+    assertEquals("1", commit.operationMetrics().get("numTargetRowsUpdated"));
+    assertEquals("1", commit.operationMetrics().get("numTargetRowsInserted"));
+    assertEquals(List.of(RowFactory.create("alicia")),
+        deltaLakeService.readRows(table, null, List.of("name"), List.of(RowFilter.parse("id:eq:1"))).collectAsList());
+  }
+
+  @Test
+  void merge_DoesNotTagLaterCommitsOfTheSession() {
+    deltaLakeService.merge(table, rows(RowFactory.create(1L, "alicia")), List.of("id"));
+    spark.sql("DELETE FROM delta.`" + table + "` WHERE id = 2");
+
+    assertTrue(spark.conf().getOption("spark.databricks.delta.commitInfo.userMetadata").isEmpty());
+    assertNull(LocalDelta.deltaLogReader().readCommitsAfter(table, 1, 10).get(0).userMetadata());
+  }
+
+  private org.apache.spark.sql.Dataset<Row> rows(Row... rows) {
+    return spark.createDataFrame(List.of(rows), SCHEMA);
+  }
+}
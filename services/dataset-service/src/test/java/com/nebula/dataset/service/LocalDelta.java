@@ -0,0 +1,47 @@
+package com.nebula.dataset.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nebula.dataset.service.delta.DeltaLogReader;
+import com.nebula.dataset.service.spark.SparkSessionProvider;
+import org.apache.spark.sql.SparkSession;
+
+import java.time.Duration;
+
+/**
+ * A local Spark session with the Delta extensions, shared by every test in
+ * the JVM since starting one takes several seconds.
+ */
+public final class LocalDelta {
+
+  private static SparkSession spark;
+
+  private LocalDelta() {
+  }
+
+  public static synchronized SparkSession spark() {
+    if (spark == null) {
+      spark = SparkSession.builder()
+          .appName("dataset-service-test")
+          .master("local[2]")
+          .config("spark.sql.extensions", "io.delta.sql.DeltaSparkSessionExtension")
+          .config("spark.sql.catalog.spark_catalog", "org.apache.spark.sql.delta.catalog.DeltaCatalog")
+          .config("spark.sql.shuffle.partitions", "1")
+          .config("spark.ui.enabled", "false")
+          .getOrCreate();
+    }
+    return spark;
+  }
+
+  public static SparkSessionProvider sessionProvider() {
+    SparkSession session = spark();
+    return new SparkSessionProvider(() -> session, Duration.ofMinutes(30));
+  }
+
+  public static DeltaLogReader deltaLogReader() {
+    return new DeltaLogReader(spark().sparkContext().hadoopConfiguration(), new ObjectMapper());
+  }
+
+  public static DeltaLakeService deltaLakeService() {
+    return new DeltaLakeService(sessionProvider(), deltaLogReader(), new ObjectMapper());
+  }
+}
@@ -0,0 +1,73 @@
+package com.nebula.dataset.service;
+
+import org.apache.spark.sql.catalyst.expressions.EqualTo;
+import org.apache.spark.sql.catalyst.expressions.Expression;
+import org.apache.spark.sql.catalyst.expressions.Literal;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowFilterTest {
+
+  private static final StructType SCHEMA = new StructType()
+      .add("name", DataTypes.StringType)
+      .add("age", DataTypes.IntegerType)
+      .add("active", DataTypes.BooleanType)
+      .add("born", DataTypes.DateType)
+      .add("tags", DataTypes.createArrayType(DataTypes.StringType));
+
+  @Test
+  void parse_ValueMayContainColons() {
+    RowFilter filter = RowFilter.parse("name:eq:a:b");
+
+    assertEquals(new RowFilter("name", RowFilter.Operator.EQ, "a:b"), filter);
+  }
+
+  @Test
+  void parse_OperatorIsCaseInsensitive() {
+    assertEquals(new RowFilter("age", RowFilter.Operator.NOT_NULL, null), RowFilter.parse("age:NOT_NULL"));
+  }
+
+  @Test
+  void parse_RejectsMalformedFilters() {
+    assertThrows(IllegalArgumentException.class, () -> RowFilter.parse("age > 3"));
+    assertThrows(IllegalArgumentException.class, () -> RowFilter.parse(":eq:3"));
+    assertThrows(IllegalArgumentException.class, () -> RowFilter.parse("age:like:3"));
+    assertThrows(IllegalArgumentException.class, () -> RowFilter.parse("age:gt"));
+    assertThrows(IllegalArgumentException.class, () -> RowFilter.parse("age:is_null:3"));
+  }
+
+  @Test
+  void toColumn_UnknownColumn_Throws() {
+    RowFilter filter = RowFilter.parse("missing:eq:1");
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> filter.toColumn(SCHEMA));
+    assertTrue(e.getMessage().contains("missing"));
+  }
+
+  @Test
+  void toColumn_ValueOfWrongType_Throws() {
+    assertThrows(IllegalArgumentException.class, () -> RowFilter.parse("age:gt:1 OR 1=1").toColumn(SCHEMA));
+    assertThrows(IllegalArgumentException.class, () -> RowFilter.parse("active:eq:yes").toColumn(SCHEMA));
+    assertThrows(IllegalArgumentException.class, () -> RowFilter.parse("born:lt:yesterday").toColumn(SCHEMA));
+  }
+
+  @Test
+  void toColumn_NonScalarColumn_OnlyAllowsNullChecks() {
+    assertThrows(IllegalArgumentException.class, () -> RowFilter.parse("tags:eq:a").toColumn(SCHEMA));
+    assertNotNull(RowFilter.parse("tags:is_null").toColumn(SCHEMA));
+  }
+
+  @Test
+  void toColumn_SqlInValueStaysALiteral() {
+    String value = "x' OR reflect('java.lang.System', 'exit', 1) OR '";
+
+    Expression condition = RowFilter.parse("name:eq:" + value).toColumn(SCHEMA).expr();
+
+    EqualTo equalTo = assertInstanceOf(EqualTo.class, condition);
+    Literal literal = assertInstanceOf(Literal.class, equalTo.right().children().head());
+    assertEquals(value, literal.value().toString());
+  }
+}
@@ -0,0 +1,77 @@
+package com.nebula.dataset.service.delta;
+
+import com.nebula.dataset.service.LocalDelta;
+import io.delta.tables.DeltaTable;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.delta.DeltaLog;
+import org.apache.spark.sql.functions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import scala.Option;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("spark")
+class DeltaLogReaderTest {
+
+  @TempDir
+  Path tempDir;
+
+  private SparkSession spark;
+  private DeltaLogReader reader;
+  private String table;
+
+  @BeforeEach
+  void setUp() {
+    spark = LocalDelta.spark();
+    reader = LocalDelta.deltaLogReader();
+    table = tempDir.resolve("table").toString();
+  }
+
+  @Test
+  void readLiveFileSizes_MatchesSparkSnapshot() {
+    // Checkpoints at versions 3 and 6, with appends and a delete on both sides of them
+    spark.range(0, 100).repartition(2).write().format("delta").save(table);
+    spark.sql("ALTER TABLE delta.`" + table + "` SET TBLPROPERTIES ('delta.checkpointInterval' = '3')");
+    for (int i = 1; i <= 5; i++) {
+      spark.range(i * 100L, i * 100L + 50).repartition(2).write().format("delta").mode("append").save(table);
+    }
+    DeltaTable.forPath(spark, table).delete(functions.col("id").lt(40));
+    spark.range(1000, 1010).write().format("delta").mode("append").save(table);
+
+    long latest = reader.latestVersion(table);
+    assertTrue(Files.exists(tempDir.resolve("table/_delta_log/00000000000000000006.checkpoint.parquet")));
+
+    for (long version : new long[] {0, 2, 3, 5, latest}) {
+      assertEquals(Optional.of(sparkFileSizes(version)), reader.readLiveFileSizes(table, version),
+          "version " + version);
+    }
+  }
+
+  @Test
+  void readLiveFileSizes_CleanedUpCommit_IsEmpty() throws Exception {
+    spark.range(0, 10).write().format("delta").save(table);
+    spark.range(10, 20).write().format("delta").mode("append").save(table);
+    Files.delete(tempDir.resolve("table/_delta_log/00000000000000000000.json"));
+
+    assertEquals(Optional.empty(), reader.readLiveFileSizes(table, 1));
+  }
+
+  private Map<String, Long> sparkFileSizes(long version) {
+    Map<String, Long> sizes = new HashMap<>();
+    for (Row row : DeltaLog.forTable(spark, table).getSnapshotAt(version, Option.empty())
+        .allFiles().select("path", "size").collectAsList()) {
+      sizes.put(row.getString(0), row.getLong(1));
+    }
+    return sizes;
+  }
+}
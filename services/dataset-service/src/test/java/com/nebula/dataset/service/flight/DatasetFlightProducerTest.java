@@ -0,0 +1,44 @@
+package com.nebula.dataset.service.flight;
+
+import org.apache.arrow.flight.CallStatus;
+import org.apache.arrow.flight.FlightRuntimeException;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatasetFlightProducerTest {
+
+  private static final Schema SCHEMA = new Schema(List.of(
+      Field.nullable("id", new ArrowType.Int(64, true)),
+      Field.nullable("name", ArrowType.Utf8.INSTANCE)));
+
+  @Test
+  void project_SelectsColumnsInRequestedOrder() {
+    Schema projected = DatasetFlightProducer.project(SCHEMA, List.of("name", "id"));
+
+    assertEquals(List.of("name", "id"), projected.getFields().stream().map(Field::getName).toList());
+  }
+
+  @Test
+  void project_UnknownColumn_IsInvalidArgument() {
+    FlightRuntimeException e = assertThrows(FlightRuntimeException.class,
+        () -> DatasetFlightProducer.project(SCHEMA, List.of("id", "missing")));
+
+    assertEquals(CallStatus.INVALID_ARGUMENT.code(), e.status().code());
+  }
+
+  @Test
+  void toArrowUri_S3PathCarriesNoCredentials() {
+    DatasetFlightProducer producer = new DatasetFlightProducer(null, null, null, null, null, null, 1024,
+        "http://minio:9000");
+
+    assertEquals("s3://nebula-data/datasets/d1/part-0.parquet?scheme=http&endpoint_override=minio%3A9000",
+        producer.toArrowUri("s3a://nebula-data/datasets/d1/part-0.parquet"));
+    assertEquals("file:///tmp/d1/part-0.parquet", producer.toArrowUri("/tmp/d1/part-0.parquet"));
+  }
+}
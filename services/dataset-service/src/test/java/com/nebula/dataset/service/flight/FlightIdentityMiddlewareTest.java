@@ -0,0 +1,96 @@
+package com.nebula.dataset.service.flight;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import org.apache.arrow.flight.CallInfo;
+import org.apache.arrow.flight.CallStatus;
+import org.apache.arrow.flight.FlightCallHeaders;
+import org.apache.arrow.flight.FlightMethod;
+import org.apache.arrow.flight.FlightRuntimeException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightIdentityMiddlewareTest {
+
+  private NimbusJwtEncoder encoder;
+  private FlightIdentityMiddleware.Factory factory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    KeyPair keyPair = generator.generateKeyPair();
+    RSAKey key = new RSAKey.Builder((RSAPublicKey) keyPair.getPublic())
+        .privateKey((RSAPrivateKey) keyPair.getPrivate())
+        .build();
+
+    encoder = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(key)));
+    factory = new FlightIdentityMiddleware.Factory(
+        NimbusJwtDecoder.withPublicKey((RSAPublicKey) keyPair.getPublic()).build());
+  }
+
+  @Test
+  void onCallStarted_ValidToken_ExposesUserAndRealmRoles() {
+    String token = token(Instant.now().plusSeconds(60));
+
+    FlightIdentityMiddleware identity = factory.onCallStarted(
+        new CallInfo(FlightMethod.DO_GET), headers("Bearer " + token), null);
+
+    assertEquals("alice", identity.username());
+    assertEquals(List.of("analyst", "viewer"), identity.roles());
+  }
+
+  @Test
+  void onCallStarted_ForwardedHeadersWithoutToken_AreRejected() {
+    FlightCallHeaders headers = new FlightCallHeaders();
+    headers.insert("x-forwarded-user", "admin");
+    headers.insert("x-forwarded-roles", "ADMIN");
+
+    assertUnauthenticated(headers);
+  }
+
+  @Test
+  void onCallStarted_ExpiredOrForgedToken_IsRejected() {
+    assertUnauthenticated(headers("Bearer " + token(Instant.now().minusSeconds(600))));
+    assertUnauthenticated(headers("Bearer not-a-jwt"));
+    assertUnauthenticated(headers("Basic YWRtaW46YWRtaW4="));
+  }
+
+  private void assertUnauthenticated(FlightCallHeaders headers) {
+    FlightRuntimeException e = assertThrows(FlightRuntimeException.class,
+        () -> factory.onCallStarted(new CallInfo(FlightMethod.DO_GET), headers, null));
+    assertEquals(CallStatus.UNAUTHENTICATED.code(), e.status().code());
+  }
+
+  private String token(Instant expiresAt) {
+    JwtClaimsSet claims = JwtClaimsSet.builder()
+        .subject("5b1c0f7e")
+        .claim("preferred_username", "alice")
+        .claim("realm_access", Map.of("roles", List.of("analyst", "viewer")))
+        .issuedAt(expiresAt.minusSeconds(300))
+        .expiresAt(expiresAt)
+        .build();
+    return encoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
+  }
+
+  private static FlightCallHeaders headers(String authorization) {
+    FlightCallHeaders headers = new FlightCallHeaders();
+    headers.insert("authorization", authorization);
+    return headers;
+  }
+}
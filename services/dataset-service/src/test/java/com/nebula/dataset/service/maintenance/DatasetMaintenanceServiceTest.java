@@ -0,0 +1,216 @@
+package com.nebula.dataset.service.maintenance;
+
+import com.nebula.dataset.domain.Dataset;
+import com.nebula.dataset.domain.DatasetFormat;
+import com.nebula.dataset.domain.DatasetMaintenance;
+import com.nebula.dataset.domain.DatasetMaintenanceRepository;
+import com.nebula.dataset.domain.DatasetRepository;
+import com.nebula.dataset.domain.DatasetVersionRepository;
+import com.nebula.dataset.exception.SparkCapacityExceededException;
+import com.nebula.dataset.service.DeltaLakeService;
+import com.nebula.dataset.service.DeltaLakeService.FileLayoutStats;
+import com.nebula.dataset.service.SchemaSnapshotCache;
+import com.nebula.dataset.service.delta.DeltaLogIndexer;
+import com.nebula.dataset.service.spark.SparkJobExecutor;
+import com.nebula.dataset.service.spark.SparkJobHandle;
+import com.nebula.dataset.service.spark.SparkJobOptions;
+import com.nebula.dataset.service.spark.SparkSessionProvider;
+import org.apache.spark.sql.SparkSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DatasetMaintenanceServiceTest {
+
+  private static final long SMALL_FILE_BYTES = 32L << 20;
+
+  @Mock
+  private DatasetRepository datasetRepository;
+  @Mock
+  private DatasetMaintenanceRepository maintenanceRepository;
+  @Mock
+  private DatasetVersionRepository versionRepository;
+  @Mock
+  private DeltaLakeService deltaLakeService;
+  @Mock
+  private SchemaSnapshotCache schemaSnapshotCache;
+  @Mock
+  private ObjectProvider<DeltaLogIndexer> deltaLogIndexer;
+
+  private final AtomicInteger sparkStarts = new AtomicInteger();
+  private SparkJobExecutor sparkJobExecutor;
+  private DatasetMaintenanceService maintenanceService;
+  private Dataset dataset;
+
+  @BeforeEach
+  void setUp() {
+    SparkSessionProvider sessionProvider = new SparkSessionProvider(() -> {
+      sparkStarts.incrementAndGet();
+      return mock(SparkSession.class, RETURNS_DEEP_STUBS);
+    }, Duration.ofMinutes(1));
+    sparkJobExecutor = new SparkJobExecutor(sessionProvider, 1, 4, Duration.ofSeconds(10));
+    maintenanceService = new DatasetMaintenanceService(datasetRepository, maintenanceRepository, versionRepository,
+        deltaLakeService, schemaSnapshotCache, sparkJobExecutor, deltaLogIndexer, SMALL_FILE_BYTES,
+        Duration.ofHours(24), Duration.ofMinutes(1), 8, 1, true);
+
+    dataset = Dataset.builder()
+        .id("d1")
+        .projectId("p1")
+        .name("events")
+        .format(DatasetFormat.DELTA)
+        .storagePath("s3a://nebula-data/p1/events")
+        .build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    sparkJobExecutor.shutdown();
+  }
+
+  @Test
+  void trigger_CancelledBeforeItStarts_ReleasesItsSlot() {
+    CountDownLatch release = new CountDownLatch(1);
+    occupyTheOnlySlot(release);
+
+    try {
+      SparkJobHandle<Void> queued = maintenanceService.trigger(dataset, DatasetMaintenanceService.Operation.OPTIMIZE);
+      queued.cancel();
+
+      // With the default of one concurrent run, a leaked permit would refuse this for good
+      SparkJobHandle<Void> next = maintenanceService.trigger(dataset, DatasetMaintenanceService.Operation.OPTIMIZE);
+      next.cancel();
+    } finally {
+      release.countDown();
+    }
+    verify(deltaLakeService, never()).optimize(any(), any());
+  }
+
+  @Test
+  void trigger_DroppedByShutdown_ReleasesItsSlot() {
+    CountDownLatch release = new CountDownLatch(1);
+    occupyTheOnlySlot(release);
+    SparkJobHandle<Void> queued = maintenanceService.trigger(dataset, DatasetMaintenanceService.Operation.VACUUM);
+
+    sparkJobExecutor.shutdown();
+
+    assertTrue(queued.getFuture().isCancelled());
+    // Refused by the stopped executor, no longer by a run that will never finish
+    SparkCapacityExceededException e = assertThrows(SparkCapacityExceededException.class,
+        () -> maintenanceService.trigger(dataset, DatasetMaintenanceService.Operation.VACUUM));
+    assertTrue(e.getMessage().startsWith("Too many concurrent Spark jobs"), e.getMessage());
+  }
+
+  @Test
+  void runDueMaintenance_RefreshesStatsFromTheLogWithoutSpark() {
+    DatasetMaintenance maintenance = DatasetMaintenance.builder()
+        .datasetId("d1")
+        .vacuumEnabled(false)
+        .build();
+    when(datasetRepository.findByFormat(DatasetFormat.DELTA)).thenReturn(List.of(dataset));
+    when(maintenanceRepository.findById("d1")).thenReturn(Optional.of(maintenance));
+    when(maintenanceRepository.save(maintenance)).thenReturn(maintenance);
+    when(deltaLakeService.latestVersion(dataset.getStoragePath())).thenReturn(4L);
+    when(deltaLakeService.readFileStats(dataset.getStoragePath(), SMALL_FILE_BYTES))
+        .thenReturn(Optional.of(new FileLayoutStats(4, 10, 1_000, 3)));
+
+    maintenanceService.runDueMaintenance();
+
+    assertEquals(4L, maintenance.getStatsVersion());
+    assertEquals(10L, maintenance.getFileCount());
+    assertEquals(3L, maintenance.getSmallFileCount());
+    verify(deltaLakeService, never()).computeFileStats(any(), anyLong());
+    assertEquals(0, sparkStarts.get());
+  }
+
+  @Test
+  void runDueMaintenance_UnchangedSinceLastOptimize_SkipsOptimize() {
+    DatasetMaintenance maintenance = DatasetMaintenance.builder()
+        .datasetId("d1")
+        .vacuumEnabled(false)
+        .smallFileCount(40L)
+        .statsVersion(4L)
+        .optimizedVersion(4L)
+        .build();
+    when(datasetRepository.findByFormat(DatasetFormat.DELTA)).thenReturn(List.of(dataset));
+    when(maintenanceRepository.findById("d1")).thenReturn(Optional.of(maintenance));
+    when(deltaLakeService.latestVersion(dataset.getStoragePath())).thenReturn(4L);
+
+    maintenanceService.runDueMaintenance();
+
+    verify(deltaLakeService, never()).optimize(any(), any());
+    assertEquals(0, sparkStarts.get());
+  }
+
+  @Test
+  void runDueMaintenance_SmallFilesLeft_OptimizesOncePerVersion() {
+    DatasetMaintenance maintenance = DatasetMaintenance.builder()
+        .datasetId("d1")
+        .vacuumEnabled(false)
+        .smallFileCount(40L)
+        .statsVersion(4L)
+        .build();
+    when(datasetRepository.findByFormat(DatasetFormat.DELTA)).thenReturn(List.of(dataset));
+    when(maintenanceRepository.findById("d1")).thenReturn(Optional.of(maintenance));
+    when(deltaLakeService.latestVersion(dataset.getStoragePath())).thenReturn(4L, 5L);
+    // Compaction commits version 5 but leaves the single-file partitions as they were
+    when(deltaLakeService.computeFileStats(dataset.getStoragePath(), SMALL_FILE_BYTES))
+        .thenReturn(new FileLayoutStats(5, 40, 1_000, 40));
+
+    maintenanceService.runDueMaintenance();
+    maintenanceService.runDueMaintenance();
+
+    verify(deltaLakeService, times(1)).optimize(eq(dataset.getStoragePath()), any());
+    assertEquals(5L, maintenance.getOptimizedVersion());
+  }
+
+  @Test
+  void runDueMaintenance_VacuumOverdue_RunsBeforeOptimize() {
+    DatasetMaintenance maintenance = DatasetMaintenance.builder()
+        .datasetId("d1")
+        .smallFileCount(40L)
+        .statsVersion(4L)
+        .optimizedVersion(3L)
+        .build();
+    when(datasetRepository.findByFormat(DatasetFormat.DELTA)).thenReturn(List.of(dataset));
+    when(maintenanceRepository.findById("d1")).thenReturn(Optional.of(maintenance));
+    when(deltaLakeService.latestVersion(dataset.getStoragePath())).thenReturn(4L);
+    when(deltaLakeService.computeFileStats(dataset.getStoragePath(), SMALL_FILE_BYTES))
+        .thenReturn(new FileLayoutStats(6, 40, 1_000, 40));
+
+    maintenanceService.runDueMaintenance();
+
+    verify(deltaLakeService).vacuum(dataset.getStoragePath(), 168);
+    verify(deltaLakeService, never()).optimize(any(), any());
+    assertNotNull(maintenance.getLastVacuumedAt());
+    // Still due: the table changed since it was last compacted
+    assertEquals(3L, maintenance.getOptimizedVersion());
+  }
+
+  private void occupyTheOnlySlot(CountDownLatch release) {
+    sparkJobExecutor.submit(SparkJobOptions.forTenant("p2", "busy"), session -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return null;
+    });
+  }
+}
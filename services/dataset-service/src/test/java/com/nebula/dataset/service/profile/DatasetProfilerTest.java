@@ -0,0 +1,172 @@
+package com.nebula.dataset.service.profile;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nebula.dataset.domain.ColumnProfile;
+import com.nebula.dataset.domain.ColumnProfileRepository;
+import com.nebula.dataset.domain.Dataset;
+import com.nebula.dataset.domain.DatasetFormat;
+import com.nebula.dataset.domain.DatasetRepository;
+import com.nebula.dataset.domain.DatasetVersionRepository;
+import com.nebula.dataset.service.DeltaLakeService;
+import com.nebula.dataset.service.LocalDelta;
+import com.nebula.dataset.service.SchemaSnapshotCache;
+import com.nebula.dataset.service.spark.SparkJobExecutor;
+import io.delta.tables.DeltaTable;
+import jakarta.persistence.EntityManager;
+import org.apache.spark.sql.SparkSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@Tag("spark")
+class DatasetProfilerTest {
+
+  private static final int BUCKETS = 10;
+
+  @TempDir
+  Path tempDir;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  // Stands in for column_profile
+  private final List<ColumnProfile> saved = new ArrayList<>();
+
+  private SparkSession spark;
+  private SparkJobExecutor sparkJobExecutor;
+  private DatasetProfiler profiler;
+  private Dataset dataset;
+
+  @BeforeEach
+  void setUp() {
+    spark = LocalDelta.spark();
+    sparkJobExecutor = new SparkJobExecutor(LocalDelta.sessionProvider(), 1, 4, Duration.ofMinutes(1));
+    DeltaLakeService deltaLakeService = LocalDelta.deltaLakeService();
+
+    dataset = Dataset.builder()
+        .id("d1")
+        .projectId("p1")
+        .name("scores")
+        .format(DatasetFormat.DELTA)
+        .storagePath(tempDir.resolve("table").toString())
+        .build();
+
+    ColumnProfileRepository profileRepository = mock(ColumnProfileRepository.class);
+    when(profileRepository.findLatestVersionNumber("d1")).thenAnswer(invocation ->
+        saved.stream().map(ColumnProfile::getVersionNumber).max(Long::compare));
+    when(profileRepository.findByDatasetIdAndVersionNumberOrderByColumnIndexAsc(eq("d1"), anyLong()))
+        .thenAnswer(invocation -> profile(invocation.getArgument(1)));
+
+    SchemaSnapshotCache schemaSnapshotCache = mock(SchemaSnapshotCache.class);
+    when(schemaSnapshotCache.getSchemaJson(eq(dataset), anyLong())).thenAnswer(invocation ->
+        deltaLakeService.getSchema(dataset.getStoragePath(), invocation.<Long>getArgument(1)).json());
+
+    EntityManager entityManager = mock(EntityManager.class);
+    doAnswer(invocation -> saved.add(invocation.getArgument(0))).when(entityManager).persist(any(ColumnProfile.class));
+
+    profiler = new DatasetProfiler(mock(DatasetRepository.class), mock(DatasetVersionRepository.class),
+        profileRepository, LocalDelta.deltaLogReader(), deltaLakeService, schemaSnapshotCache, sparkJobExecutor,
+        entityManager, mock(PlatformTransactionManager.class), objectMapper, 100, 100_000, BUCKETS,
+        Duration.ofMinutes(1));
+  }
+
+  @AfterEach
+  void tearDown() {
+    sparkJobExecutor.shutdown();
+  }
+
+  @Test
+  void profileDataset_RebuildsThenExtendsThenCarriesForward() throws Exception {
+    writeRows(1, 100, "overwrite");
+
+    assertTrue(profiler.profileDataset(dataset, 0));
+    ColumnProfile id = column(0, "id");
+    assertEquals(100, id.getRowCount());
+    assertEquals(0, id.getNullCount());
+    assertEquals("1", id.getMinValue());
+    assertEquals("100", id.getMaxValue());
+    assertEquals(100, id.getDistinctEstimate(), 3);
+    assertEquals(10, column(0, "name").getDistinctEstimate(), 1);
+    assertEquals(100, histogramTotal(id));
+    assertFalse(profiler.profileDataset(dataset, 0));
+
+    // A plain append is folded in from the appended files only
+    writeRows(101, 150, "append");
+    assertTrue(profiler.profileDataset(dataset, 1));
+    id = column(1, "id");
+    assertEquals(150, id.getRowCount());
+    assertEquals("1", id.getMinValue());
+    assertEquals("150", id.getMaxValue());
+    assertEquals(150, id.getDistinctEstimate(), 5);
+    assertEquals(150, histogramTotal(id));
+    assertEquals(75, column(1, "score").getRowCount() - column(1, "score").getNullCount());
+
+    // OPTIMIZE rewrites files without changing data
+    DeltaTable.forPath(spark, dataset.getStoragePath()).optimize().executeCompaction();
+    assertTrue(profiler.profileDataset(dataset, 2));
+    assertEquals(id.getDistinctEstimate(), column(2, "id").getDistinctEstimate());
+    assertEquals(id.getHistogram(), column(2, "id").getHistogram());
+  }
+
+  @Test
+  void profileDataset_NaNAndInfinities_LeaveBoundsAndHistogramUnknown() {
+    spark.sql("SELECT * FROM VALUES (1D), (2D), (double('NaN')), (double('-Infinity')), (5D), (CAST(NULL AS DOUBLE))"
+            + " AS t(score)")
+        .write().format("delta").save(dataset.getStoragePath());
+
+    assertTrue(profiler.profileDataset(dataset, 0));
+    ColumnProfile score = column(0, "score");
+    assertEquals(6, score.getRowCount());
+    assertEquals(1, score.getNullCount());
+    assertNull(score.getMinValue());
+    assertNull(score.getHistogram());
+  }
+
+  @Test
+  void bucketIndex_FoldsOutOfRangeBucketsIntoTheEnds() {
+    assertEquals(0, DatasetProfiler.bucketIndex(0, BUCKETS));
+    assertEquals(0, DatasetProfiler.bucketIndex(1, BUCKETS));
+    assertEquals(4, DatasetProfiler.bucketIndex(5, BUCKETS));
+    assertEquals(BUCKETS - 1, DatasetProfiler.bucketIndex(BUCKETS, BUCKETS));
+    assertEquals(BUCKETS - 1, DatasetProfiler.bucketIndex(BUCKETS + 1, BUCKETS));
+  }
+
+  // ids from..to, ten distinct names, and a score that is null for odd ids
+  private void writeRows(long from, long to, String mode) {
+    spark.range(from, to + 1)
+        .selectExpr("id", "concat('n', id % 10) AS name", "IF(id % 2 = 0, id / 2.0D, NULL) AS score")
+        .repartition(2)
+        .write().format("delta").mode(mode).save(dataset.getStoragePath());
+  }
+
+  private List<ColumnProfile> profile(long version) {
+    return saved.stream().filter(column -> column.getVersionNumber() == version).toList();
+  }
+
+  private ColumnProfile column(long version, String name) {
+    return profile(version).stream()
+        .filter(column -> column.getColumnName().equals(name))
+        .findFirst()
+        .orElseThrow();
+  }
+
+  private long histogramTotal(ColumnProfile column) throws Exception {
+    JsonNode counts = objectMapper.readTree(Optional.ofNullable(column.getHistogram()).orElseThrow()).get("counts");
+    assertEquals(BUCKETS, counts.size());
+    return StreamSupport.stream(counts.spliterator(), false).mapToLong(JsonNode::asLong).sum();
+  }
+}